@@ -78,6 +78,44 @@ public abstract class BindingSetPipe {
     	}
     }
 
+    /**
+     * Pushes a batch of BindingSets up the pipe, equivalent to calling push() for each of them.
+     * The array is only borrowed for the duration of the call and may be reused by the caller afterwards,
+     * so implementations must copy it if they need to keep it.
+     *
+     * @param bss BindingSets
+     * @param n number of BindingSets in the array to push
+     * @return boolean indicating if more data is expected from the caller
+     */
+    public final boolean pushBatch(BindingSet[] bss, int n) {
+    	if (state.get() == ACCEPT_STATE) {
+    		boolean pushMore = nextBatch(bss, n);
+    		if (!pushMore) {
+    			state.set(REJECT_STATE);
+    		}
+    		return pushMore;
+    	} else {
+    		return false;
+    	}
+    }
+
+    /**
+     * Must be thread-safe.
+     * Defaults to calling next() for each BindingSet, override to process the whole batch at once.
+     *
+     * @param bss BindingSets
+     * @param n number of BindingSets in the array
+     * @return boolean indicating if more data is expected from the caller
+     */
+    protected boolean nextBatch(BindingSet[] bss, int n) {
+    	for (int i=0; i<n; i++) {
+    		if (!next(bss[i])) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
     public final void close() {
     	if (state.updateAndGet(current -> {
     		if (current < CLOSED_ONCE_STATE) {
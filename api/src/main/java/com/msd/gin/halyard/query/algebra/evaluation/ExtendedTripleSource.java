@@ -1,6 +1,12 @@
 package com.msd.gin.halyard.query.algebra.evaluation;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
+import org.eclipse.rdf4j.common.iteration.UnionIteration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
@@ -15,5 +21,36 @@ public interface ExtendedTripleSource extends TripleSource {
 		}
 	}
 
+	/**
+	 * Counts the matching statements.
+	 */
+	default long countStatements(Resource subj, IRI pred, Value obj, Resource... contexts) throws QueryEvaluationException {
+		long count = 0L;
+		try (CloseableIteration<? extends Statement, QueryEvaluationException> iter = getStatements(subj, pred, obj, contexts)) {
+			while (iter.hasNext()) {
+				iter.next();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the statements of a subject that have any of the given predicates.
+	 */
+	default CloseableIteration<? extends Statement, QueryEvaluationException> getSubjectStatements(Resource subj, Set<IRI> preds, Resource... contexts) throws QueryEvaluationException {
+		int n = preds.size();
+		if (n == 0) {
+			return new EmptyIteration<>();
+		} else if (n == 1) {
+			return getStatements(subj, preds.iterator().next(), null, contexts);
+		}
+		List<CloseableIteration<? extends Statement, QueryEvaluationException>> iters = new ArrayList<>(n);
+		for (IRI pred : preds) {
+			iters.add(getStatements(subj, pred, null, contexts));
+		}
+		return new UnionIteration<>(iters);
+	}
+
 	QueryPreparer newQueryPreparer();
 }
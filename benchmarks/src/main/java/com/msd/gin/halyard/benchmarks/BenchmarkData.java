@@ -0,0 +1,84 @@
+package com.msd.gin.halyard.benchmarks;
+
+import com.msd.gin.halyard.common.TableConfig;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Date;
+
+import org.apache.hadoop.conf.Configuration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+
+/**
+ * Shared test data for the benchmarks.
+ */
+final class BenchmarkData {
+	static final String NAMESPACE = "http://example.org/benchmark/";
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * @param vocabularies whether to use the built-in vocabularies, which enables the compact encoding of IRIs in well-known namespaces
+	 * @param idHash hash algorithm for value identifiers, or null for the default
+	 */
+	static Configuration createConfiguration(boolean vocabularies, String idHash) {
+		Configuration conf = new Configuration(false);
+		conf.setBoolean(TableConfig.VOCABS, vocabularies);
+		if (idHash != null) {
+			conf.set(TableConfig.ID_HASH, idHash);
+		}
+		return conf;
+	}
+
+	static Value createValue(ValueFactory vf, String valueType, int i) {
+		switch (valueType) {
+			case "iri":
+				// a namespace covered by the built-in vocabularies
+				return vf.createIRI(FOAF.NAMESPACE, "resource" + i);
+			case "string":
+				return vf.createLiteral("The quick brown fox jumps over the lazy dog " + i);
+			case "langString":
+				return vf.createLiteral("The quick brown fox jumps over the lazy dog " + i, "en");
+			case "int":
+				return vf.createLiteral(i);
+			case "double":
+				return vf.createLiteral(i + 0.5);
+			case "decimal":
+				return vf.createLiteral(BigDecimal.valueOf(i, 2));
+			case "dateTime":
+				return vf.createLiteral(Date.from(Instant.ofEpochSecond(1700000000L + i)));
+			case "bnode":
+				return vf.createBNode("b" + i);
+			default:
+				throw new IllegalArgumentException("Unknown value type: " + valueType);
+		}
+	}
+
+	/**
+	 * Creates a graph of people with names, ages and friends.
+	 * @param vf value factory
+	 * @param size number of people
+	 * @return model
+	 */
+	static Model createPeople(ValueFactory vf, int size) {
+		Model model = new LinkedHashModel();
+		IRI age = vf.createIRI(NAMESPACE, "age");
+		for (int i=0; i<size; i++) {
+			IRI person = vf.createIRI(NAMESPACE, "person" + i);
+			model.add(person, RDF.TYPE, FOAF.PERSON);
+			model.add(person, FOAF.NAME, vf.createLiteral("Person " + i));
+			model.add(person, age, vf.createLiteral(i % 100));
+			for (int j=1; j<=3; j++) {
+				model.add(person, FOAF.KNOWS, vf.createIRI(NAMESPACE, "person" + ((i + j*7) % size)));
+			}
+		}
+		return model;
+	}
+}
@@ -0,0 +1,120 @@
+package com.msd.gin.halyard.benchmarks;
+
+import com.msd.gin.halyard.query.BindingSetPipe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-row overhead of pushing binding sets through a chain of operator pipes, one at a time versus in batches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingSetPipeBenchmark {
+	private static final int ROWS = 4096;
+
+	@Param({"4"})
+	public int depth;
+
+	@Param({"16", "64", "256"})
+	public int batchSize;
+
+	private BindingSet[] rows;
+
+	@Setup
+	public void setUp() {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		rows = new BindingSet[ROWS];
+		for (int i=0; i<ROWS; i++) {
+			QueryBindingSet bs = new QueryBindingSet();
+			bs.setBinding("s", vf.createIRI(BenchmarkData.NAMESPACE, "s" + i));
+			bs.setBinding("o", vf.createLiteral(i));
+			rows[i] = bs;
+		}
+	}
+
+	private BindingSetPipe createPipeline(AtomicLong counter) {
+		BindingSetPipe pipe = new CountingPipe(counter);
+		for (int i=0; i<depth; i++) {
+			pipe = new PassThroughPipe(pipe);
+		}
+		return pipe;
+	}
+
+	@Benchmark
+	public long pushSingle() {
+		AtomicLong counter = new AtomicLong();
+		BindingSetPipe pipe = createPipeline(counter);
+		for (BindingSet bs : rows) {
+			pipe.push(bs);
+		}
+		pipe.close();
+		return counter.get();
+	}
+
+	@Benchmark
+	public long pushBatch() {
+		AtomicLong counter = new AtomicLong();
+		BindingSetPipe pipe = createPipeline(counter);
+		BindingSet[] batch = new BindingSet[batchSize];
+		for (int i=0; i<ROWS; i+=batchSize) {
+			int n = Math.min(batchSize, ROWS - i);
+			System.arraycopy(rows, i, batch, 0, n);
+			pipe.pushBatch(batch, n);
+		}
+		pipe.close();
+		return counter.get();
+	}
+
+	static final class PassThroughPipe extends BindingSetPipe {
+		PassThroughPipe(BindingSetPipe parent) {
+			super(parent);
+		}
+
+		@Override
+		protected boolean nextBatch(BindingSet[] bss, int n) {
+			return parent.pushBatch(bss, n);
+		}
+	}
+
+	static final class CountingPipe extends BindingSetPipe {
+		private final AtomicLong counter;
+
+		CountingPipe(AtomicLong counter) {
+			super(null);
+			this.counter = counter;
+		}
+
+		@Override
+		protected boolean next(BindingSet bs) {
+			counter.incrementAndGet();
+			return true;
+		}
+
+		@Override
+		protected boolean nextBatch(BindingSet[] bss, int n) {
+			counter.addAndGet(n);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.msd.gin.halyard.benchmarks;
+
+import com.msd.gin.halyard.optimizers.HalyardEvaluationStatistics;
+import com.msd.gin.halyard.optimizers.SimpleStatementPatternCardinalityCalculator;
+import com.msd.gin.halyard.query.BindingSetPipeQueryEvaluationStep;
+import com.msd.gin.halyard.query.algebra.Algebra;
+import com.msd.gin.halyard.query.algebra.evaluation.ModelTripleSource;
+import com.msd.gin.halyard.query.algebra.evaluation.function.CustomAggregateFunctionRegistry;
+import com.msd.gin.halyard.strategy.HalyardEvaluationExecutor;
+import com.msd.gin.halyard.strategy.HalyardEvaluationStrategy;
+import com.msd.gin.halyard.strategy.StrategyConfig;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.FunctionRegistry;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.TupleFunctionRegistry;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.QueryEvaluationContext;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Push-based query evaluation over an in-memory model, so only the evaluator itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluationBenchmark {
+	private static final String PREFIXES = "PREFIX foaf: <http://xmlns.com/foaf/0.1/>\nPREFIX ex: <" + BenchmarkData.NAMESPACE + ">\n";
+
+	@Param({"join", "distinct", "order", "group"})
+	public String query;
+
+	@Param({"10000"})
+	public int size;
+
+	/**
+	 * 1 pushes binding sets one at a time.
+	 */
+	@Param({"1", "64"})
+	public int pullPushBatchSize;
+
+	private ModelTripleSource tripleSource;
+	private HalyardEvaluationExecutor executor;
+	private HalyardEvaluationStrategy strategy;
+	private HalyardEvaluationStatistics stats;
+	private TupleExpr parsedQuery;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		tripleSource = new ModelTripleSource(BenchmarkData.createPeople(vf, size), vf);
+		Configuration conf = new Configuration(false);
+		conf.setInt(StrategyConfig.HALYARD_EVALUATION_PULL_PUSH_BATCH_SIZE, pullPushBatchSize);
+		executor = HalyardEvaluationExecutor.create("Benchmark", conf, true, Collections.emptyMap());
+		stats = new HalyardEvaluationStatistics(SimpleStatementPatternCardinalityCalculator.FACTORY, null);
+		strategy = new HalyardEvaluationStrategy(new StrategyConfig(conf), tripleSource,
+			TupleFunctionRegistry.getInstance(), FunctionRegistry.getInstance(), CustomAggregateFunctionRegistry.getInstance(),
+			null, null, stats, executor);
+		parsedQuery = new SPARQLParser().parseQuery(PREFIXES + getQuery(query), null).getTupleExpr();
+	}
+
+	private static String getQuery(String name) {
+		switch (name) {
+			case "join":
+				return "SELECT ?name ?friendName WHERE { ?p foaf:name ?name; foaf:knows ?f. ?f foaf:name ?friendName }";
+			case "distinct":
+				return "SELECT DISTINCT ?f WHERE { ?p foaf:knows ?f }";
+			case "order":
+				return "SELECT ?p ?age WHERE { ?p ex:age ?age } ORDER BY ?age ?p";
+			case "group":
+				return "SELECT ?age (COUNT(?p) AS ?n) WHERE { ?p ex:age ?age } GROUP BY ?age";
+			default:
+				throw new IllegalArgumentException("Unknown query: " + name);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executor.shutdown();
+		tripleSource.close();
+	}
+
+	@Benchmark
+	public long evaluate() {
+		TupleExpr expr = Algebra.ensureRooted(parsedQuery.clone());
+		expr = strategy.optimize(expr, stats, EmptyBindingSet.getInstance());
+		BindingSetPipeQueryEvaluationStep step = strategy.precompile(expr, new QueryEvaluationContext.Minimal(null, tripleSource.getValueFactory()));
+		AtomicLong count = new AtomicLong();
+		step.evaluate(bs -> count.incrementAndGet(), EmptyBindingSet.getInstance());
+		return count.get();
+	}
+}
@@ -0,0 +1,94 @@
+package com.msd.gin.halyard.benchmarks;
+
+import com.msd.gin.halyard.common.IdValueFactory;
+import com.msd.gin.halyard.common.RDFFactory;
+import com.msd.gin.halyard.common.StatementIndices;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of statements to and from HBase key-values for all the indices.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementIndicesBenchmark {
+	@Param({"iri", "string", "int", "dateTime"})
+	public String objectType;
+
+	@Param({"true", "false"})
+	public boolean vocabularies;
+
+	@Param({"SHA-1", "Murmur3-128", "FarmHash-64"})
+	public String idHash;
+
+	private StatementIndices indices;
+	private ValueFactory vf;
+	private Resource subj;
+	private IRI pred;
+	private Value obj;
+	private Resource ctx;
+	private List<Result> results;
+
+	@Setup
+	public void setUp() {
+		Configuration conf = BenchmarkData.createConfiguration(vocabularies, idHash);
+		RDFFactory rdfFactory = RDFFactory.create(conf);
+		indices = new StatementIndices(conf, rdfFactory);
+		vf = new IdValueFactory(rdfFactory);
+		subj = vf.createIRI(BenchmarkData.NAMESPACE, "subject");
+		pred = FOAF.NAME;
+		obj = BenchmarkData.createValue(vf, objectType, 1);
+		ctx = vf.createIRI(BenchmarkData.NAMESPACE, "graph");
+		List<? extends KeyValue> kvs = indices.insertKeyValues(subj, pred, obj, ctx, 0L);
+		results = new ArrayList<>(kvs.size());
+		for (KeyValue kv : kvs) {
+			results.add(Result.create(new Cell[] {kv}));
+		}
+	}
+
+	@Benchmark
+	public List<? extends KeyValue> insertKeyValues() {
+		return indices.insertKeyValues(subj, pred, obj, ctx, 0L);
+	}
+
+	/**
+	 * Parses the key-values of every index, nothing known in advance.
+	 */
+	@Benchmark
+	public int parseStatements() {
+		int n = 0;
+		for (Result r : results) {
+			Statement[] stmts = indices.parseStatements(null, null, null, null, r, vf);
+			n += stmts.length;
+		}
+		return n;
+	}
+}
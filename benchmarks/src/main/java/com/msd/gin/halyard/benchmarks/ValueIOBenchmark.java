@@ -0,0 +1,70 @@
+package com.msd.gin.halyard.benchmarks;
+
+import com.msd.gin.halyard.common.IdValueFactory;
+import com.msd.gin.halyard.common.RDFFactory;
+import com.msd.gin.halyard.common.ValueIO;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization and deserialization of single values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueIOBenchmark {
+	@Param({"iri", "string", "langString", "int", "double", "decimal", "dateTime", "bnode"})
+	public String valueType;
+
+	@Param({"true", "false"})
+	public boolean vocabularies;
+
+	private ValueIO.Writer writer;
+	private ValueIO.Reader reader;
+	private ValueFactory vf;
+	private Value value;
+	private ByteBuffer writeBuffer;
+	private ByteBuffer serialized;
+
+	@Setup
+	public void setUp() {
+		RDFFactory rdfFactory = RDFFactory.create(BenchmarkData.createConfiguration(vocabularies, null));
+		writer = rdfFactory.valueWriter;
+		reader = rdfFactory.valueReader;
+		vf = new IdValueFactory(rdfFactory);
+		value = BenchmarkData.createValue(vf, valueType, 0);
+		writeBuffer = ByteBuffer.allocate(ValueIO.DEFAULT_BUFFER_SIZE);
+		serialized = ByteBuffer.wrap(writer.toBytes(value));
+	}
+
+	@Benchmark
+	public ByteBuffer writeTo() {
+		writeBuffer.clear();
+		// keep the (possibly reallocated) buffer for the next invocation
+		writeBuffer = writer.writeTo(value, writeBuffer);
+		return writeBuffer;
+	}
+
+	@Benchmark
+	public Value readValue() {
+		return reader.readValue(serialized.duplicate(), vf);
+	}
+}
@@ -27,6 +27,13 @@ public final class ByteArray extends ByteSequence {
 		return bb.put(arr);
 	}
 
+	/**
+	 * Wraps the bytes without copying them, so the buffer must only be read from.
+	 */
+	ByteBuffer asBuffer() {
+		return ByteBuffer.wrap(arr);
+	}
+
 	public byte[] copyBytes() {
 		byte[] copy = new byte[arr.length];
 		System.arraycopy(arr, 0, copy, 0, arr.length);
@@ -19,8 +19,11 @@ package com.msd.gin.halyard.common;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 import java.util.function.Function;
@@ -42,12 +45,13 @@ import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
-import org.apache.hadoop.hbase.client.TableDescriptor;
 import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter.RowRange;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.eclipse.rdf4j.model.IRI;
 
@@ -65,6 +69,10 @@ public final class HalyardTableUtils {
 	static final int READ_VERSIONS = 1;
 	private static final long REGION_MAX_FILESIZE = 10000000000l;  // 10GB
     private static final String REGION_SPLIT_POLICY = "org.apache.hadoop.hbase.regionserver.ConstantSizeRegionSplitPolicy";
+	/**
+	 * Installs {@link StatementCountEndpoint} on new tables (requires halyard-common on the region server classpath).
+	 */
+	public static final String COUNT_ENDPOINT_PROPERTY = "halyard.table.countEndpoint";
 
     private HalyardTableUtils() {}
 
@@ -113,12 +121,14 @@ public final class HalyardTableUtils {
 	public static Table createTable(Connection conn, TableName htableName, @Nullable byte[][] splits) throws IOException {
 		Configuration conf = conn.getConfiguration();
 		try (Admin admin = conn.getAdmin()) {
-			TableDescriptor td = TableDescriptorBuilder.newBuilder(htableName)
+			TableDescriptorBuilder tdBuilder = TableDescriptorBuilder.newBuilder(htableName)
 				.setColumnFamily(ColumnFamilyConfig.createColumnFamilyDesc(conf))
 				.setMaxFileSize(REGION_MAX_FILESIZE)
-				.setRegionSplitPolicyClassName(REGION_SPLIT_POLICY)
-				.build();
-			admin.createTable(td, splits);
+				.setRegionSplitPolicyClassName(REGION_SPLIT_POLICY);
+			if (conf.getBoolean(COUNT_ENDPOINT_PROPERTY, false)) {
+				tdBuilder.setCoprocessor(StatementCountEndpoint.class.getName());
+			}
+			admin.createTable(tdBuilder.build(), splits);
 		}
 		Table table = conn.getTable(htableName);
 		HalyardTableConfiguration halyardConfig = new HalyardTableConfiguration(conf);
@@ -369,6 +379,74 @@ public final class HalyardTableUtils {
 		return scanAll;
 	}
 
+	/**
+	 * Combines the row ranges of the given scans into a single multi-range scan.
+	 * Any filters of the given scans are kept, each only applying to the row range of its own scan.
+	 * @param scans scans to combine
+	 * @return scan over the union of the row ranges
+	 */
+	public static Scan scanRanges(List<Scan> scans) {
+		List<byte[][]> ranges = new ArrayList<>(scans.size());
+		int rowBatchSize = 1;
+		for (Scan s : scans) {
+			ranges.add(new byte[][] {s.getStartRow(), s.getStopRow()});
+			rowBatchSize = Math.max(s.getCaching(), rowBatchSize);
+		}
+		ranges.sort((r1, r2) -> Bytes.compareTo(r1[0], r2[0]));
+		// merge overlapping ranges - an empty stop row is unbounded so comes after any other stop row
+		List<RowRange> merged = new ArrayList<>(ranges.size());
+		byte[] startRow = null;
+		byte[] stopRow = null;
+		for (byte[][] r : ranges) {
+			if (startRow != null && (r[0].length == 0 || compareStopRows(r[0], stopRow) <= 0)) {
+				if (compareStopRows(r[1], stopRow) > 0) {
+					stopRow = r[1];
+				}
+			} else {
+				if (startRow != null) {
+					merged.add(new RowRange(startRow, true, stopRow, false));
+				}
+				startRow = r[0];
+				stopRow = r[1];
+			}
+		}
+		merged.add(new RowRange(startRow, true, stopRow, false));
+		// merged ranges are in order, so the scan spans from the first start row to the last stop row
+		Scan scan = scan(merged.get(0).getStartRow(), stopRow, rowBatchSize, false);
+		Filter rangeFilter = new MultiRowRangeFilter(merged);
+		FilterList scanFilters = null;
+		for (Scan s : scans) {
+			if (s.getFilter() != null) {
+				scanFilters = new FilterList(FilterList.Operator.MUST_PASS_ONE);
+				break;
+			}
+		}
+		if (scanFilters != null) {
+			// a row must be within one of the scans and pass the filter of that scan
+			for (Scan s : scans) {
+				Filter scanRange = new MultiRowRangeFilter(Collections.singletonList(new RowRange(s.getStartRow(), true, s.getStopRow(), false)));
+				scanFilters.addFilter(s.getFilter() != null ? new FilterList(scanRange, s.getFilter()) : scanRange);
+			}
+			// the merged ranges still let the scan skip between them
+			scan.setFilter(new FilterList(rangeFilter, scanFilters));
+		} else {
+			scan.setFilter(rangeFilter);
+		}
+		return scan;
+	}
+
+	/**
+	 * Compares two exclusive stop rows, where an empty stop row is unbounded.
+	 */
+	static int compareStopRows(byte[] stop1, byte[] stop2) {
+		boolean unbounded1 = (stop1.length == 0);
+		boolean unbounded2 = (stop2.length == 0);
+		if (unbounded1 || unbounded2) {
+			return Boolean.compare(unbounded1, unbounded2);
+		}
+		return Bytes.compareTo(stop1, stop2);
+	}
+
 	public static Scan scanCompleteRows(Scan scan) {
 		return scan.setAllowPartialResults(false).setBatch(-1);
 	}
@@ -41,9 +41,12 @@ public abstract class IdentifiableValue implements Value, Cloneable {
 			IdentifiableValue that = (IdentifiableValue) o;
 			IdSer thisCurrent = this.cachedIV;
 			IdSer thatCurrent = that.cachedIV;
+			// compare by ID if either side has one so that neither needs decoding
 			RDFFactory commonFactory;
 			if (thatCurrent.rdfFactory == null || thisCurrent.rdfFactory == thatCurrent.rdfFactory) {
 				commonFactory = thisCurrent.rdfFactory;
+			} else if (thisCurrent.rdfFactory == null) {
+				commonFactory = thatCurrent.rdfFactory;
 			} else {
 				commonFactory = null;
 			}
@@ -116,7 +119,7 @@ public abstract class IdentifiableValue implements Value, Cloneable {
 	private Value materialize(IdSer current) {
 		Value mv = materializedValue;
 		if (mv == null) {
-			mv = current.rdfFactory.valueReader.readValue(ByteBuffer.wrap(current.ser.copyBytes()), MATERIALIZED_VALUE_FACTORY);
+			mv = current.rdfFactory.valueReader.readValue(current.ser.asBuffer(), MATERIALIZED_VALUE_FACTORY);
 			materializedValue = mv;
 		}
 		return mv;
@@ -126,6 +129,13 @@ public abstract class IdentifiableValue implements Value, Cloneable {
 		return materialize(cachedIV);
 	}
 
+	/**
+	 * Indicates whether the value has been decoded from its serialized form yet.
+	 */
+	final boolean isMaterialized() {
+		return materializedValue != null;
+	}
+
 	protected final int getEncodingType() {
 		ByteArray ser = cachedIV.ser;
 		return (ser != null) ? ser.get(0) : HeaderBytes.RESERVED_TYPE;
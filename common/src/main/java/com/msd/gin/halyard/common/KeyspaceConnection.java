@@ -2,7 +2,9 @@ package com.msd.gin.halyard.common;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
 
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
@@ -10,5 +12,30 @@ import org.apache.hadoop.hbase.client.Scan;
 
 public interface KeyspaceConnection extends Closeable {
 	Result get(Get get) throws IOException;
+
+	default Result[] get(List<Get> gets) throws IOException {
+		Result[] results = new Result[gets.size()];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = get(gets.get(i));
+		}
+		return results;
+	}
+
 	ResultScanner getScanner(Scan scan) throws IOException;
+
+	/**
+	 * Counts the statements (cells) matching the scan.
+	 */
+	default long count(Scan scan) throws IOException {
+		long count = 0L;
+		try (ResultScanner scanner = getScanner(scan)) {
+			for (Result res : scanner) {
+				Cell[] cells = res.rawCells();
+				if (cells != null) {
+					count += cells.length;
+				}
+			}
+		}
+		return count;
+	}
 }
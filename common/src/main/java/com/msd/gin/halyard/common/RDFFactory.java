@@ -34,6 +34,7 @@ public final class RDFFactory {
 	private final Map<String, IRI> wellKnownIris = new HashMap<>(256);
 	final int version;
 	final ValueIdentifier.Format idFormat;
+	final int valueDictionaryThreshold;
 	private final int typeSaltSize;
 	private final IndexKeySizes spoKeySizes;
 	private final IndexKeySizes posKeySizes;
@@ -126,6 +127,7 @@ public final class RDFFactory {
 			throw new RuntimeException("New table format - please upgrade your installation");
 		}
 		valueIO = new ValueIO(halyardConfig);
+		valueDictionaryThreshold = greaterThanOrEqual(halyardConfig.getInt(TableConfig.VALUE_DICTIONARY_THRESHOLD, 0), 0);
 
 		String confIdAlgo = halyardConfig.get(TableConfig.ID_HASH);
 		boolean confIdJavaHash = halyardConfig.getBoolean(TableConfig.ID_JAVA_HASH);
@@ -0,0 +1,207 @@
+package com.msd.gin.halyard.common;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Message;
+import com.google.protobuf.RpcCallback;
+import com.google.protobuf.RpcChannel;
+import com.google.protobuf.RpcController;
+import com.google.protobuf.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CoprocessorEnvironment;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.coprocessor.CoprocessorException;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessor;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.ipc.CoprocessorRpcUtils;
+import org.apache.hadoop.hbase.ipc.ServerRpcController;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos;
+
+/**
+ * Region endpoint that counts the statements (cells) matching a scan inside each region,
+ * so only the partial counts are returned to the client.
+ * The protocol is tiny, so its descriptors are built at runtime rather than generated.
+ */
+public final class StatementCountEndpoint implements RegionCoprocessor {
+	private static final Descriptors.Descriptor REQUEST;
+	private static final Descriptors.FieldDescriptor REQUEST_SCAN;
+	private static final Descriptors.Descriptor RESPONSE;
+	private static final Descriptors.FieldDescriptor RESPONSE_COUNT;
+	private static final Descriptors.ServiceDescriptor SERVICE;
+	private static final Descriptors.MethodDescriptor COUNT_METHOD;
+
+	static {
+		DescriptorProtos.FileDescriptorProto proto = DescriptorProtos.FileDescriptorProto.newBuilder()
+			.setName("StatementCount.proto")
+			.setPackage("halyard")
+			.addMessageType(DescriptorProtos.DescriptorProto.newBuilder()
+				.setName("CountRequest")
+				.addField(field("scan", 1, DescriptorProtos.FieldDescriptorProto.Type.TYPE_BYTES)))
+			.addMessageType(DescriptorProtos.DescriptorProto.newBuilder()
+				.setName("CountResponse")
+				.addField(field("count", 1, DescriptorProtos.FieldDescriptorProto.Type.TYPE_INT64)))
+			.addService(DescriptorProtos.ServiceDescriptorProto.newBuilder()
+				.setName("StatementCountService")
+				.addMethod(DescriptorProtos.MethodDescriptorProto.newBuilder()
+					.setName("count")
+					.setInputType(".halyard.CountRequest")
+					.setOutputType(".halyard.CountResponse")))
+			.build();
+		Descriptors.FileDescriptor file;
+		try {
+			file = Descriptors.FileDescriptor.buildFrom(proto, new Descriptors.FileDescriptor[0]);
+		} catch (Descriptors.DescriptorValidationException e) {
+			throw new AssertionError(e);
+		}
+		REQUEST = file.findMessageTypeByName("CountRequest");
+		REQUEST_SCAN = REQUEST.findFieldByName("scan");
+		RESPONSE = file.findMessageTypeByName("CountResponse");
+		RESPONSE_COUNT = RESPONSE.findFieldByName("count");
+		SERVICE = file.findServiceByName("StatementCountService");
+		COUNT_METHOD = SERVICE.findMethodByName("count");
+	}
+
+	private static DescriptorProtos.FieldDescriptorProto field(String name, int number, DescriptorProtos.FieldDescriptorProto.Type type) {
+		return DescriptorProtos.FieldDescriptorProto.newBuilder()
+			.setName(name)
+			.setNumber(number)
+			.setType(type)
+			.setLabel(DescriptorProtos.FieldDescriptorProto.Label.LABEL_OPTIONAL)
+			.build();
+	}
+
+	/**
+	 * Counts the cells matching the scan, region by region on the server side.
+	 * @param table table with this endpoint installed
+	 * @param scan scan to count
+	 * @return total number of matching cells
+	 * @throws IOException
+	 */
+	public static long count(Table table, Scan scan) throws IOException {
+		Message request = DynamicMessage.newBuilder(REQUEST)
+			// the scan is a shaded message, so pass it across as plain bytes
+			.setField(REQUEST_SCAN, ByteString.copyFrom(ProtobufUtil.toScan(scan).toByteArray()))
+			.build();
+		Map<byte[], Long> partialCounts;
+		try {
+			partialCounts = table.coprocessorService(StatementCountService.class, scan.getStartRow(), scan.getStopRow(), service -> {
+				ServerRpcController controller = new ServerRpcController();
+				CoprocessorRpcUtils.BlockingRpcCallback<Message> callback = new CoprocessorRpcUtils.BlockingRpcCallback<>();
+				service.count(controller, request, callback);
+				Message response = callback.get();
+				if (controller.failedOnException()) {
+					throw controller.getFailedOn();
+				}
+				return (response != null) ? (Long) response.getField(RESPONSE_COUNT) : 0L;
+			});
+		} catch (IOException e) {
+			throw e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(e.getMessage());
+		} catch (Throwable e) {
+			throw new IOException(e);
+		}
+		long total = 0L;
+		for (Long partialCount : partialCounts.values()) {
+			total += partialCount;
+		}
+		return total;
+	}
+
+	private RegionCoprocessorEnvironment env;
+
+	private final Service service = new StatementCountService() {
+		@Override
+		void count(RpcController controller, Message request, RpcCallback<Message> done) {
+			Message response = null;
+			try {
+				Scan scan = ProtobufUtil.toScan(ClientProtos.Scan.parseFrom(((ByteString) request.getField(REQUEST_SCAN)).toByteArray()));
+				long count = 0L;
+				try (RegionScanner scanner = env.getRegion().getScanner(scan)) {
+					List<Cell> cells = new ArrayList<>();
+					boolean hasMore;
+					do {
+						hasMore = scanner.next(cells);
+						count += cells.size();
+						cells.clear();
+					} while (hasMore);
+				}
+				response = DynamicMessage.newBuilder(RESPONSE).setField(RESPONSE_COUNT, count).build();
+			} catch (IOException e) {
+				CoprocessorRpcUtils.setControllerException(controller, e);
+			}
+			done.run(response);
+		}
+	};
+
+	@Override
+	public void start(CoprocessorEnvironment env) throws IOException {
+		if (env instanceof RegionCoprocessorEnvironment) {
+			this.env = (RegionCoprocessorEnvironment) env;
+		} else {
+			throw new CoprocessorException("Must be loaded on a table region");
+		}
+	}
+
+	@Override
+	public Iterable<Service> getServices() {
+		return Collections.singleton(service);
+	}
+
+
+	/**
+	 * Service definition, used both as the server-side implementation and as the client-side stub.
+	 */
+	public static abstract class StatementCountService implements Service {
+		/**
+		 * Invoked reflectively by {@link Table#coprocessorService(Class, byte[], byte[], org.apache.hadoop.hbase.client.coprocessor.Batch.Call)}.
+		 */
+		public static StatementCountService newStub(RpcChannel channel) {
+			return new StatementCountService() {
+				@Override
+				void count(RpcController controller, Message request, RpcCallback<Message> done) {
+					channel.callMethod(COUNT_METHOD, controller, request, DynamicMessage.getDefaultInstance(RESPONSE), done);
+				}
+			};
+		}
+
+		abstract void count(RpcController controller, Message request, RpcCallback<Message> done);
+
+		@Override
+		public final Descriptors.ServiceDescriptor getDescriptorForType() {
+			return SERVICE;
+		}
+
+		@Override
+		public final void callMethod(Descriptors.MethodDescriptor method, RpcController controller, Message request, RpcCallback<Message> done) {
+			if (method != COUNT_METHOD) {
+				throw new IllegalArgumentException("Unknown method: " + method.getFullName());
+			}
+			count(controller, request, done);
+		}
+
+		@Override
+		public final Message getRequestPrototype(Descriptors.MethodDescriptor method) {
+			return DynamicMessage.getDefaultInstance(REQUEST);
+		}
+
+		@Override
+		public final Message getResponsePrototype(Descriptors.MethodDescriptor method) {
+			return DynamicMessage.getDefaultInstance(RESPONSE);
+		}
+	}
+}
@@ -2,8 +2,10 @@ package com.msd.gin.halyard.common;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -43,6 +45,7 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 		}
 	};
 	private static final byte WELL_KNOWN_IRI_MARKER = (byte) ('#' | 0x80);  // marker must be negative (msb set) so it is distinguishable from a length (>=0)
+	private static final byte DICTIONARY_MARKER = (byte) ('$' | 0x80);
 
 	private static final int SUBJECT_VAR_CARDINALITY = 1000;
 	private static final int PREDICATE_VAR_CARDINALITY = 10;
@@ -67,17 +70,19 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 	/**
 	 * @param sizeLen length of size field, 2 for short, 4 for int.
 	 */
-	private static int valueSize(RDFValue<?,?> v, int sizeLen) {
-		if (v.isWellKnownIRI()) {
+	private int valueSize(RDFValue<?,?> v, int sizeLen) {
+		if (v.isWellKnownIRI() || dictionary.isEncoded(v)) {
 			return 1;
 		} else {
 			return sizeLen + v.getSerializedForm().size();
 		}
 	}
 
-	private static void putRDFValue(ByteBuffer cv, RDFValue<?,?> v, int sizeLen) {
+	private void putRDFValue(ByteBuffer cv, RDFValue<?,?> v, int sizeLen) {
 		if (v.isWellKnownIRI()) {
 			cv.put(WELL_KNOWN_IRI_MARKER);
+		} else if (dictionary.isEncoded(v)) {
+			cv.put(DICTIONARY_MARKER);
 		} else {
 			ByteSequence ser = v.getSerializedForm();
 			switch (sizeLen) {
@@ -95,9 +100,11 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 		}
 	}
 
-	private static void putLastRDFValue(ByteBuffer cv, RDFValue<?,?> v) {
+	private void putLastRDFValue(ByteBuffer cv, RDFValue<?,?> v) {
 		if (v.isWellKnownIRI()) {
 			cv.put(WELL_KNOWN_IRI_MARKER);
+		} else if (dictionary.isEncoded(v)) {
+			cv.put(DICTIONARY_MARKER);
 		} else {
 			ByteSequence ser = v.getSerializedForm();
 			ser.writeTo(cv);
@@ -181,6 +188,7 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 	private final int[] spocIndices;
 	private final RDFRole<?>[] spocRoles;
 	private final RDFFactory rdfFactory;
+	private final ValueDictionary dictionary;
 	private final ValueIdentifier.Format idFormat;
 	private final int cardinality1;
 	private final int cardinality2;
@@ -188,7 +196,7 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 	private final int cardinality4;
 	private final int maxCaching;
 
-	StatementIndex(Name name, int prefix, RDFRole<T1> role1, RDFRole<T2> role2, RDFRole<T3> role3, RDFRole<T4> role4, RDFFactory rdfFactory, Configuration conf) {
+	StatementIndex(Name name, int prefix, RDFRole<T1> role1, RDFRole<T2> role2, RDFRole<T3> role3, RDFRole<T4> role4, RDFFactory rdfFactory, ValueDictionary dictionary, Configuration conf) {
 		this.name = name;
 		this.prefix = (byte) prefix;
 		this.role1 = role1;
@@ -196,6 +204,7 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 		this.role3 = role3;
 		this.role4 = role4;
 		this.rdfFactory = rdfFactory;
+		this.dictionary = dictionary;
 		this.idFormat = rdfFactory.idFormat;
 		this.maxCaching = conf.getInt(HConstants.HBASE_CLIENT_SCANNER_CACHING, HConstants.DEFAULT_HBASE_CLIENT_SCANNER_CACHING);
 
@@ -276,12 +285,12 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 		return cv;
 	}
 
-	Statement parseStatement(@Nullable RDFSubject subj, @Nullable RDFPredicate pred, @Nullable RDFObject obj, @Nullable RDFContext ctx, ByteBuffer key, ByteBuffer cn, ByteBuffer cv, ValueFactory vf) {
+	Statement parseStatement(@Nullable RDFSubject subj, @Nullable RDFPredicate pred, @Nullable RDFObject obj, @Nullable RDFContext ctx, ByteBuffer key, ByteBuffer cn, ByteBuffer cv, Function<ValueIdentifier, ByteArray> dictionaryValues, ValueFactory vf) {
 		RDFValue<?,?>[] args = new RDFValue<?,?>[] {subj, pred, obj, ctx};
-		Value v1 = parseRDFValue(role1, args[argIndices[0]], key, cn, cv, role1.keyHashSize(), vf);
-		Value v2 = parseRDFValue(role2, args[argIndices[1]], key, cn, cv, role2.keyHashSize(), vf);
-		Value v3 = parseRDFValue(role3, args[argIndices[2]], key, cn, cv, role3.keyHashSize(), vf);
-		Value v4 = parseLastRDFValue(role4, args[argIndices[3]], key, cn, cv, role4.keyHashSize(), vf);
+		Value v1 = parseRDFValue(role1, args[argIndices[0]], key, cn, cv, role1.keyHashSize(), dictionaryValues, vf);
+		Value v2 = parseRDFValue(role2, args[argIndices[1]], key, cn, cv, role2.keyHashSize(), dictionaryValues, vf);
+		Value v3 = parseRDFValue(role3, args[argIndices[2]], key, cn, cv, role3.keyHashSize(), dictionaryValues, vf);
+		Value v4 = parseLastRDFValue(role4, args[argIndices[3]], key, cn, cv, role4.keyHashSize(), dictionaryValues, vf);
 		return createStatement(new Value[] {v1, v2, v3, v4}, vf);
 	}
 
@@ -297,38 +306,59 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 		}
     }
 
-    private Value parseRDFValue(RDFRole<?> role, @Nullable RDFValue<?,?> pattern, ByteBuffer key, ByteBuffer cq, ByteBuffer cv, int keySize, ValueFactory vf) {
+    private static int readLength(RDFRole<?> role, ByteBuffer cv) {
     	byte marker = cv.get(cv.position()); // peek
-    	int len;
-    	if (marker == WELL_KNOWN_IRI_MARKER) {
-    		len = cv.get();
+    	if (marker == WELL_KNOWN_IRI_MARKER || marker == DICTIONARY_MARKER) {
+    		return cv.get();
     	} else {
 			switch (role.sizeLength()) {
 				case Short.BYTES:
-		    		len = cv.getShort();
-					break;
+		    		return cv.getShort();
 				case Integer.BYTES:
-		    		len = cv.getInt();
-					break;
+		    		return cv.getInt();
 				default:
 					throw new AssertionError(String.format("Unsupported size length: %d", role.sizeLength()));
 			}
     	}
-   		return parseValue(role, pattern, key, cq, cv, keySize, len, vf);
     }
 
-    private Value parseLastRDFValue(RDFRole<?> role, @Nullable RDFValue<?,?> pattern, ByteBuffer key, ByteBuffer cq, ByteBuffer cv, int keySize, ValueFactory vf) {
+    private static int readLastLength(ByteBuffer cv) {
     	byte marker = cv.hasRemaining() ? cv.get(cv.position()) : 0;  // peek
-    	int len;
-    	if (marker == WELL_KNOWN_IRI_MARKER) {
-    		len = cv.get();
+    	if (marker == WELL_KNOWN_IRI_MARKER || marker == DICTIONARY_MARKER) {
+    		return cv.get();
     	} else {
-    		len = cv.remaining();
+    		return cv.remaining();
+    	}
+    }
+
+    private Value parseRDFValue(RDFRole<?> role, @Nullable RDFValue<?,?> pattern, ByteBuffer key, ByteBuffer cq, ByteBuffer cv, int keySize, Function<ValueIdentifier, ByteArray> dictionaryValues, ValueFactory vf) {
+   		return parseValue(role, pattern, key, cq, cv, keySize, readLength(role, cv), dictionaryValues, vf);
+    }
+
+    private Value parseLastRDFValue(RDFRole<?> role, @Nullable RDFValue<?,?> pattern, ByteBuffer key, ByteBuffer cq, ByteBuffer cv, int keySize, Function<ValueIdentifier, ByteArray> dictionaryValues, ValueFactory vf) {
+   		return parseValue(role, pattern, key, cq, cv, keySize, readLastLength(cv), dictionaryValues, vf);
+    }
+
+    /**
+     * Collects the identifiers of the dictionary-encoded values in a cell.
+     */
+    void collectDictionaryIds(ByteBuffer key, ByteBuffer cq, ByteBuffer cv, Collection<ValueIdentifier> ids) {
+    	RDFRole<?>[] roles = new RDFRole<?>[] {role1, role2, role3, role4};
+    	for (int i=0; i<roles.length; i++) {
+    		RDFRole<?> role = roles[i];
+    		int len = (i < roles.length - 1) ? readLength(role, cv) : readLastLength(cv);
+    		if (len == DICTIONARY_MARKER) {
+    			ids.add(parseId(role, key, cq, role.keyHashSize()));
+    		} else {
+    			skipId(key, cq, role.keyHashSize(), idFormat.size);
+    			if (len > 0) {
+    				cv.position(cv.position() + len);
+    			}
+    		}
     	}
-   		return parseValue(role, pattern, key, cq, cv, keySize, len, vf);
     }
 
-	private Value parseValue(RDFRole<?> role, @Nullable RDFValue<?,?> pattern, ByteBuffer key, ByteBuffer cq, ByteBuffer cv, int keySize, int len, ValueFactory vf) {
+	private Value parseValue(RDFRole<?> role, @Nullable RDFValue<?,?> pattern, ByteBuffer key, ByteBuffer cq, ByteBuffer cv, int keySize, int len, Function<ValueIdentifier, ByteArray> dictionaryValues, ValueFactory vf) {
     	if(pattern != null) {
     		// if we have been given the value then don't bother to read it and skip to the next
     		skipId(key, cq, keySize, rdfFactory.idFormat.size);
@@ -343,40 +373,18 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 				throw new IllegalStateException(String.format("Unknown IRI hash: %s (index %s, role %s)", id, getName(), role.getName()));
 			}
 			return iri;
+		} else if(len == DICTIONARY_MARKER) {
+			ValueIdentifier id = parseId(role, key, cq, keySize);
+			ByteArray ser = dictionaryValues.apply(id);
+			if (ser == null) {
+				throw new IllegalStateException(String.format("Dictionary value not available: %s (index %s, role %s)", id, getName(), role.getName()));
+			}
+			return readValue(id, ser.asBuffer(), ser.size(), vf);
 		} else if(len > 0) {
 			ValueIdentifier id = parseId(role, key, cq, keySize);
-			int startPos = cv.position();
-			int endPos = startPos + len;
 			int prevLimit = cv.limit();
-			cv.limit(endPos);
-			ValueType valueType = rdfFactory.valueReader.getValueType(cv);
-			Value value;
-			if (valueType != null) {
-				IdentifiableValue idValue;
-				byte[] serBytes = new byte[len];
-				cv.get(serBytes);
-				ByteArray ser = new ByteArray(serBytes);
-				switch (valueType) {
-					case IRI:
-						idValue = new IdentifiableIRI(ser, rdfFactory);
-						break;
-					case LITERAL:
-						idValue = new IdentifiableLiteral(ser, rdfFactory);
-						break;
-					case BNODE:
-						idValue = new IdentifiableBNode(ser, rdfFactory);
-						break;
-					case TRIPLE:
-						idValue = new IdentifiableTriple(ser, rdfFactory);
-						break;
-					default:
-						throw new AssertionError("Unexpected ValueType: " + valueType);
-				}
-				idValue.setId(id, rdfFactory);
-				value = idValue;
-			} else {
-				value = rdfFactory.valueReader.readValue(cv, vf);
-			}
+			cv.limit(cv.position() + len);
+			Value value = readValue(id, cv, len, vf);
 			cv.limit(prevLimit);
 			return value;
 		} else if(len == 0) {
@@ -386,6 +394,41 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 		}
     }
 
+	/**
+	 * Reads a serialized value of the given length at the current position.
+	 */
+	private Value readValue(ValueIdentifier id, ByteBuffer cv, int len, ValueFactory vf) {
+		ValueType valueType = rdfFactory.valueReader.getValueType(cv);
+		Value value;
+		if (valueType != null) {
+			IdentifiableValue idValue;
+			byte[] serBytes = new byte[len];
+			cv.get(serBytes);
+			ByteArray ser = new ByteArray(serBytes);
+			switch (valueType) {
+				case IRI:
+					idValue = new IdentifiableIRI(ser, rdfFactory);
+					break;
+				case LITERAL:
+					idValue = new IdentifiableLiteral(ser, rdfFactory);
+					break;
+				case BNODE:
+					idValue = new IdentifiableBNode(ser, rdfFactory);
+					break;
+				case TRIPLE:
+					idValue = new IdentifiableTriple(ser, rdfFactory);
+					break;
+				default:
+					throw new AssertionError("Unexpected ValueType: " + valueType);
+			}
+			idValue.setId(id, rdfFactory);
+			value = idValue;
+		} else {
+			value = rdfFactory.valueReader.readValue(cv, vf);
+		}
+		return value;
+	}
+
 	private ValueIdentifier parseId(RDFRole<?> role, ByteBuffer key, ByteBuffer cn, int keySize) {
 		byte[] idBytes = new byte[rdfFactory.idFormat.size];
 		rdfFactory.idFormat.unrotate(key.array(), key.arrayOffset() + key.position(), keySize, role.getByteShift(), idBytes);
@@ -2,14 +2,18 @@ package com.msd.gin.halyard.common;
 
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 
-import java.io.IOException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Objects;
+import java.util.function.Function;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -39,6 +43,7 @@ public final class StatementIndices {
 
 	private final int maxCaching;
 	private final RDFFactory rdfFactory;
+	private final ValueDictionary dictionary;
 	private final StatementIndex<SPOC.S,SPOC.P,SPOC.O,SPOC.C> spo;
 	private final StatementIndex<SPOC.P,SPOC.O,SPOC.S,SPOC.C> pos;
 	private final StatementIndex<SPOC.O,SPOC.S,SPOC.P,SPOC.C> osp;
@@ -55,6 +60,7 @@ public final class StatementIndices {
 	public StatementIndices(Configuration conf, RDFFactory rdfFactory) {
         this.maxCaching = conf.getInt(HConstants.HBASE_CLIENT_SCANNER_CACHING, HConstants.DEFAULT_HBASE_CLIENT_SCANNER_CACHING);
 		this.rdfFactory = rdfFactory;
+		this.dictionary = new ValueDictionary(rdfFactory, conf);
 
 		this.spo = new StatementIndex<>(
 			StatementIndex.Name.SPO, 0,
@@ -62,7 +68,7 @@ public final class StatementIndices {
 			rdfFactory.getPredicateRole(StatementIndex.Name.SPO),
 			rdfFactory.getObjectRole(StatementIndex.Name.SPO),
 			rdfFactory.getContextRole(StatementIndex.Name.SPO),
-			rdfFactory, conf
+			rdfFactory, dictionary, conf
 		);
 		this.pos = new StatementIndex<>(
 			StatementIndex.Name.POS, 1,
@@ -70,7 +76,7 @@ public final class StatementIndices {
 			rdfFactory.getObjectRole(StatementIndex.Name.POS),
 			rdfFactory.getSubjectRole(StatementIndex.Name.POS),
 			rdfFactory.getContextRole(StatementIndex.Name.POS),
-			rdfFactory, conf
+			rdfFactory, dictionary, conf
 		);
 		this.osp = new StatementIndex<>(
 			StatementIndex.Name.OSP, 2,
@@ -78,7 +84,7 @@ public final class StatementIndices {
 			rdfFactory.getSubjectRole(StatementIndex.Name.OSP),
 			rdfFactory.getPredicateRole(StatementIndex.Name.OSP),
 			rdfFactory.getContextRole(StatementIndex.Name.OSP),
-			rdfFactory, conf
+			rdfFactory, dictionary, conf
 		);
 		this.cspo = new StatementIndex<>(
 			StatementIndex.Name.CSPO, 3,
@@ -86,7 +92,7 @@ public final class StatementIndices {
 			rdfFactory.getSubjectRole(StatementIndex.Name.CSPO),
 			rdfFactory.getPredicateRole(StatementIndex.Name.CSPO),
 			rdfFactory.getObjectRole(StatementIndex.Name.CSPO),
-			rdfFactory, conf
+			rdfFactory, dictionary, conf
 		);
 		this.cpos = new StatementIndex<>(
 			StatementIndex.Name.CPOS, 4,
@@ -94,7 +100,7 @@ public final class StatementIndices {
 			rdfFactory.getPredicateRole(StatementIndex.Name.CPOS),
 			rdfFactory.getObjectRole(StatementIndex.Name.CPOS),
 			rdfFactory.getSubjectRole(StatementIndex.Name.CPOS),
-			rdfFactory, conf
+			rdfFactory, dictionary, conf
 		);
 		this.cosp = new StatementIndex<>(
 			StatementIndex.Name.COSP, 5,
@@ -102,7 +108,7 @@ public final class StatementIndices {
 			rdfFactory.getObjectRole(StatementIndex.Name.COSP),
 			rdfFactory.getSubjectRole(StatementIndex.Name.COSP),
 			rdfFactory.getPredicateRole(StatementIndex.Name.COSP),
-			rdfFactory, conf
+			rdfFactory, dictionary, conf
 		);
 		this.indices = new EnumMap<>(StatementIndex.Name.class);
 		this.indices.put(StatementIndex.Name.SPO, this.spo);
@@ -117,6 +123,10 @@ public final class StatementIndices {
 		return rdfFactory;
 	}
 
+	public ValueDictionary getValueDictionary() {
+		return dictionary;
+	}
+
 	public StatementIndex<SPOC.S,SPOC.P,SPOC.O,SPOC.C> getSPOIndex() {
 		return spo;
 	}
@@ -533,7 +543,84 @@ public final class StatementIndices {
 	}
 
 	/**
-	 * Parser method returning all Statements from a single HBase Scan Result
+	 * Collects the identifiers of the dictionary-encoded values in a Result.
+	 * @param res HBase Scan Result
+	 * @param ids collection to add to
+	 */
+	public void collectDictionaryIds(Result res, Collection<ValueIdentifier> ids) {
+		if (dictionary.isEnabled() && !res.isEmpty()) {
+			for (Cell cell : res.rawCells()) {
+				ByteBuffer row = ByteBuffer.wrap(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+				ByteBuffer cq = ByteBuffer.wrap(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+				ByteBuffer cv = ByteBuffer.wrap(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+				toIndex(row.get()).collectDictionaryIds(row, cq, cv, ids);
+			}
+		}
+	}
+
+	/**
+	 * Parser method returning all Statements from a single HBase Scan Result,
+	 * loading any dictionary-encoded values.
+	 * 
+	 * @param subj subject if known
+	 * @param pred predicate if known
+	 * @param obj object if known
+	 * @param ctx context if known
+	 * @param res HBase Scan Result
+	 * @param kc connection to load dictionary values from
+	 * @param vf ValueFactory
+	 * @return array of Statements
+	 * @throws IOException
+	 */
+	public Statement[] parseStatements(@Nullable RDFSubject subj, @Nullable RDFPredicate pred, @Nullable RDFObject obj, @Nullable RDFContext ctx, Result res, KeyspaceConnection kc, ValueFactory vf) throws IOException {
+		return parseStatements(subj, pred, obj, ctx, res, loadDictionaryValues(res, kc), kc, vf);
+	}
+
+	/**
+	 * Loads the dictionary-encoded values in a Result, so its cells can then be parsed individually.
+	 * @param res HBase Scan Result
+	 * @param kc connection to load dictionary values from
+	 * @return dictionary values to parse with
+	 * @throws IOException
+	 */
+	public Map<ValueIdentifier, ByteArray> loadDictionaryValues(Result res, KeyspaceConnection kc) throws IOException {
+		if (dictionary.isEnabled()) {
+			List<ValueIdentifier> ids = new ArrayList<>();
+			collectDictionaryIds(res, ids);
+			if (!ids.isEmpty()) {
+				return dictionary.load(kc, ids);
+			}
+		}
+		return Collections.emptyMap();
+	}
+
+	/**
+	 * Parser method returning all Statements from a single HBase Scan Result,
+	 * with dictionary-encoded values previously loaded by {@link #loadDictionaryValues(Result, KeyspaceConnection)} or {@link ValueDictionary#load(KeyspaceConnection, Collection)}.
+	 * Any other dictionary-encoded values are fetched individually.
+	 * 
+	 * @param subj subject if known
+	 * @param pred predicate if known
+	 * @param obj object if known
+	 * @param ctx context if known
+	 * @param res HBase Scan Result
+	 * @param dictionaryValues loaded dictionary values
+	 * @param kc connection to fetch any other dictionary values from
+	 * @param vf ValueFactory
+	 * @return array of Statements
+	 * @throws IOException
+	 */
+	public Statement[] parseStatements(@Nullable RDFSubject subj, @Nullable RDFPredicate pred, @Nullable RDFObject obj, @Nullable RDFContext ctx, Result res, Map<ValueIdentifier, ByteArray> dictionaryValues, KeyspaceConnection kc, ValueFactory vf) throws IOException {
+		try {
+			return parseStatements(subj, pred, obj, ctx, res, dictionaryLookup(dictionaryValues, kc), vf);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Parser method returning all Statements from a single HBase Scan Result.
+	 * Only suitable for tables without a value dictionary, or for values cached by this instance.
 	 * 
 	 * @param subj subject if known
 	 * @param pred predicate if known
@@ -544,17 +631,21 @@ public final class StatementIndices {
 	 * @return array of Statements
 	 */
 	public Statement[] parseStatements(@Nullable RDFSubject subj, @Nullable RDFPredicate pred, @Nullable RDFObject obj, @Nullable RDFContext ctx, Result res, ValueFactory vf) {
+		return parseStatements(subj, pred, obj, ctx, res, dictionary::getIfPresent, vf);
+	}
+
+	private Statement[] parseStatements(@Nullable RDFSubject subj, @Nullable RDFPredicate pred, @Nullable RDFObject obj, @Nullable RDFContext ctx, Result res, Function<ValueIdentifier, ByteArray> dictionaryValues, ValueFactory vf) {
 		// multiple triples may have the same hash (i.e. row key)
 		Statement[] stmts;
 		if (!res.isEmpty()) {
 			Cell[] cells = res.rawCells();
 			if (cells.length == 1) {
-				stmts = new Statement[] {parseStatement(subj, pred, obj, ctx, cells[0], vf)};
+				stmts = new Statement[] {parseStatement(subj, pred, obj, ctx, cells[0], dictionaryValues, vf)};
 			} else {
 				int cellCount = cells.length;
 				stmts = new Statement[cellCount];
 				for (int i=0; i<cellCount; i++) {
-					stmts[i] = parseStatement(subj, pred, obj, ctx, cells[i], vf);
+					stmts[i] = parseStatement(subj, pred, obj, ctx, cells[i], dictionaryValues, vf);
 				}
 			}
 		} else {
@@ -563,8 +654,47 @@ public final class StatementIndices {
 		return stmts;
 	}
 
+	private Function<ValueIdentifier, ByteArray> dictionaryLookup(Map<ValueIdentifier, ByteArray> dictionaryValues, KeyspaceConnection kc) {
+		return id -> {
+			ByteArray ser = dictionaryValues.get(id);
+			if (ser == null) {
+				try {
+					ser = dictionary.get(kc, id);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			return ser;
+		};
+	}
+
 	/**
-	 * Parser method returning Statement from a single HBase Result Cell
+	 * Parser method returning Statement from a single HBase Result Cell,
+	 * with dictionary-encoded values previously loaded by {@link #loadDictionaryValues(Result, KeyspaceConnection)}.
+	 * Any other dictionary-encoded values are fetched individually.
+	 * 
+	 * @param subj subject if known
+	 * @param pred predicate if known
+	 * @param obj object if known
+	 * @param ctx context if known
+	 * @param cell HBase Result Cell
+	 * @param dictionaryValues loaded dictionary values
+	 * @param kc connection to fetch any other dictionary values from
+	 * @param vf ValueFactory
+	 * @return Statements
+	 * @throws IOException
+	 */
+	public Statement parseStatement(@Nullable RDFSubject subj, @Nullable RDFPredicate pred, @Nullable RDFObject obj, @Nullable RDFContext ctx, Cell cell, Map<ValueIdentifier, ByteArray> dictionaryValues, KeyspaceConnection kc, ValueFactory vf) throws IOException {
+		try {
+			return parseStatement(subj, pred, obj, ctx, cell, dictionaryLookup(dictionaryValues, kc), vf);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Parser method returning Statement from a single HBase Result Cell.
+	 * Only suitable for tables without a value dictionary, or for values cached by this instance.
 	 * 
 	 * @param subj subject if known
 	 * @param pred predicate if known
@@ -575,11 +705,15 @@ public final class StatementIndices {
 	 * @return Statements
 	 */
 	public Statement parseStatement(@Nullable RDFSubject subj, @Nullable RDFPredicate pred, @Nullable RDFObject obj, @Nullable RDFContext ctx, Cell cell, ValueFactory vf) {
+		return parseStatement(subj, pred, obj, ctx, cell, dictionary::getIfPresent, vf);
+	}
+
+	private Statement parseStatement(@Nullable RDFSubject subj, @Nullable RDFPredicate pred, @Nullable RDFObject obj, @Nullable RDFContext ctx, Cell cell, Function<ValueIdentifier, ByteArray> dictionaryValues, ValueFactory vf) {
 		ByteBuffer row = ByteBuffer.wrap(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
 	    ByteBuffer cq = ByteBuffer.wrap(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
 	    ByteBuffer cv = ByteBuffer.wrap(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
 		StatementIndex<?,?,?,?> index = toIndex(row.get());
-	    Statement stmt = index.parseStatement(subj, pred, obj, ctx, row, cq, cv, vf);
+	    Statement stmt = index.parseStatement(subj, pred, obj, ctx, row, cq, cv, dictionaryValues, vf);
 	    assert !row.hasRemaining();
 	    assert !cq.hasRemaining();
 	    assert !cv.hasRemaining();
@@ -638,6 +772,14 @@ public final class StatementIndices {
 		RDFObject ob = rdfFactory.createObject(obj);
 		RDFContext cb = rdfFactory.createContext(context);
 
+		// dictionary entries are shared between statements so are never deleted
+		if (type == KeyValue.Type.Put && dictionary.isEnabled()) {
+			appendDictionaryKeyValue(sb, timestamp, kvs);
+			appendDictionaryKeyValue(pb, timestamp, kvs);
+			appendDictionaryKeyValue(ob, timestamp, kvs);
+			appendDictionaryKeyValue(cb, timestamp, kvs);
+		}
+
 		// generate HBase key value pairs from: row, family, qualifier, value. Permutations of SPO (and if needed CSPO) are all stored.
 	    if (includeInDefaultGraph) {
 			kvs.add(new KeyValue(spo.row(sb, pb, ob, cb), ColumnFamilyConfig.CF_NAME, spo.qualifier(sb, pb, ob, cb), timestamp, type, spo.value(sb, pb, ob, cb)));
@@ -663,6 +805,12 @@ public final class StatementIndices {
 	    }
 	}
 
+	private void appendDictionaryKeyValue(@Nullable RDFValue<?,?> v, long timestamp, List<KeyValue> kvs) {
+		if (v != null && dictionary.isEncoded(v)) {
+			kvs.add(dictionary.toKeyValue(v, timestamp));
+		}
+	}
+
 	public boolean isTripleReferenced(KeyspaceConnection kc, Triple t) throws IOException {
 		return hasSubject(kc, t)
 			|| hasObject(kc, t)
@@ -689,8 +837,7 @@ public final class StatementIndices {
 		try (ResultScanner scanner = kc.getScanner(scan)) {
 			for (Result result : scanner) {
 				if(!result.isEmpty()) {
-					Cell[] cells = result.rawCells();
-					Statement stmt = parseStatement(null, null, null, null, cells[0], vf);
+					Statement stmt = parseStatements(null, null, null, null, result, kc, vf)[0];
 					return stmt.getSubject();
 				}
 			}
@@ -703,8 +850,7 @@ public final class StatementIndices {
 		try (ResultScanner scanner = kc.getScanner(scan)) {
 			for (Result result : scanner) {
 				if(!result.isEmpty()) {
-					Cell[] cells = result.rawCells();
-					Statement stmt = parseStatement(null, null, null, null, cells[0], vf);
+					Statement stmt = parseStatements(null, null, null, null, result, kc, vf)[0];
 					return stmt.getPredicate();
 				}
 			}
@@ -717,8 +863,7 @@ public final class StatementIndices {
 		try (ResultScanner scanner = kc.getScanner(scan)) {
 			for (Result result : scanner) {
 				if(!result.isEmpty()) {
-					Cell[] cells = result.rawCells();
-					Statement stmt = parseStatement(null, null, null, null, cells[0], vf);
+					Statement stmt = parseStatements(null, null, null, null, result, kc, vf)[0];
 					return stmt.getObject();
 				}
 			}
@@ -0,0 +1,108 @@
+package com.msd.gin.halyard.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Counter rows holding statistics deltas that have not yet been folded into the statistics graph.
+ * There is a row per statistics node, with a column per count predicate and an optional opaque descriptor column.
+ * The rows sort after all the statement indices (and before the config row), so statement scans never see them.
+ */
+public final class StatisticsCounters {
+	private static final byte[] ROW_PREFIX = new byte[] {(byte) 0xfe};
+	private static final byte[] DESCRIPTOR_COL = Bytes.toBytes("descriptor");
+
+	private StatisticsCounters() {}
+
+	private static byte[] row(String node) {
+		return Bytes.add(ROW_PREFIX, Bytes.toBytes(node));
+	}
+
+	/**
+	 * Mutations to add the given deltas to the counters of a statistics node.
+	 * @param node statistics node
+	 * @param deltas deltas keyed by count predicate
+	 * @param descriptor optional descriptor to store with the counters
+	 * @return mutations to apply
+	 */
+	public static List<Mutation> toMutations(String node, Map<String, Long> deltas, @Nullable byte[] descriptor) {
+		List<Mutation> mutations = new ArrayList<>(2);
+		byte[] row = row(node);
+		Increment inc = new Increment(row);
+		for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+			inc.addColumn(ColumnFamilyConfig.CF_NAME, Bytes.toBytes(delta.getKey()), delta.getValue());
+		}
+		mutations.add(inc);
+		if (descriptor != null) {
+			mutations.add(new Put(row).addColumn(ColumnFamilyConfig.CF_NAME, DESCRIPTOR_COL, descriptor));
+		}
+		return mutations;
+	}
+
+	public static Delete delete(String node) {
+		return new Delete(row(node));
+	}
+
+	/**
+	 * Gets the pending delta of a counter.
+	 * @param conn connection to read from
+	 * @param node statistics node
+	 * @param countPredicate count predicate
+	 * @return delta, zero if there is none
+	 * @throws IOException
+	 */
+	public static long get(KeyspaceConnection conn, String node, String countPredicate) throws IOException {
+		byte[] col = Bytes.toBytes(countPredicate);
+		Result res = conn.get(new Get(row(node)).addColumn(ColumnFamilyConfig.CF_NAME, col));
+		if (res == null) {
+			return 0L;
+		}
+		Cell cell = res.getColumnLatestCell(ColumnFamilyConfig.CF_NAME, col);
+		return (cell != null) ? Bytes.toLong(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()) : 0L;
+	}
+
+	public static Scan scan() {
+		return new Scan().setRowPrefixFilter(ROW_PREFIX).addFamily(ColumnFamilyConfig.CF_NAME);
+	}
+
+	public static String getNode(Result res) {
+		byte[] row = res.getRow();
+		return Bytes.toString(row, ROW_PREFIX.length, row.length - ROW_PREFIX.length);
+	}
+
+	/**
+	 * Gets all the pending deltas of a counter row.
+	 * @param res counter row
+	 * @return deltas keyed by count predicate
+	 */
+	public static Map<String, Long> getCounts(Result res) {
+		Map<String, Long> counts = new HashMap<>();
+		for (Cell cell : res.rawCells()) {
+			if (!CellUtil.matchingQualifier(cell, DESCRIPTOR_COL)) {
+				String countPredicate = Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+				counts.put(countPredicate, Bytes.toLong(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()));
+			}
+		}
+		return counts;
+	}
+
+	public static byte[] getDescriptor(Result res) {
+		return res.getValue(ColumnFamilyConfig.CF_NAME, DESCRIPTOR_COL);
+	}
+}
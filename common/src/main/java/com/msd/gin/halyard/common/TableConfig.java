@@ -68,6 +68,7 @@ public final class TableConfig {
 	public static final String NAMESPACE_PREFIXES = "halyard.namespacePrefixes";
 	public static final String LANGS = "halyard.languages";
 	public static final String STRING_COMPRESSION = "halyard.string.compressionThreshold";
+	public static final String VALUE_DICTIONARY_THRESHOLD = "halyard.value.dictionaryThreshold";
 
 	private static final Set<String> PROPERTIES;
 
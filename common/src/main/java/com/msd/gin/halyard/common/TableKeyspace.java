@@ -85,6 +85,7 @@ final class TableKeyspace implements Keyspace {
 
 	static final class TableKeyspaceConnection implements KeyspaceConnection {
 		private final Table table;
+		private Boolean hasCountEndpoint;
 	
 		public TableKeyspaceConnection(Table table) {
 			this.table = table;
@@ -99,11 +100,28 @@ final class TableKeyspace implements Keyspace {
 			return table.get(get);
 		}
 
+		@Override
+		public Result[] get(List<Get> gets) throws IOException {
+			return table.get(gets);
+		}
+
 		@Override
 		public ResultScanner getScanner(Scan scan) throws IOException {
 			return table.getScanner(scan);
 		}
 
+		@Override
+		public long count(Scan scan) throws IOException {
+			if (hasCountEndpoint == null) {
+				hasCountEndpoint = table.getDescriptor().hasCoprocessor(StatementCountEndpoint.class.getName());
+			}
+			if (hasCountEndpoint) {
+				return StatementCountEndpoint.count(table, scan);
+			} else {
+				return KeyspaceConnection.super.count(scan);
+			}
+		}
+
 		@Override
 		public void close() throws IOException {
 			table.close();
@@ -0,0 +1,142 @@
+package com.msd.gin.halyard.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Dictionary of values too long to be repeated in every index cell.
+ * If the table has a {@link TableConfig#VALUE_DICTIONARY_THRESHOLD}, values with a longer serialized form are stored once,
+ * in a row keyed by their identifier, and the index cells only hold a marker (the identifier is already part of the key).
+ * The dictionary rows sort after all the statement indices (and before the statistics counters), so statement scans never see them.
+ */
+@ThreadSafe
+public final class ValueDictionary {
+	public static final String CACHE_SIZE_PROPERTY = "halyard.value.dictionary.cache.size";
+	private static final int DEFAULT_CACHE_SIZE = 10000;
+	private static final byte[] ROW_PREFIX = new byte[] {(byte) 0xfd};
+	private static final byte[] VALUE_COL = Bytes.toBytes("v");
+
+	private final int threshold;
+	private final Cache<ValueIdentifier, ByteArray> cache;
+
+	ValueDictionary(RDFFactory rdfFactory, Configuration conf) {
+		this.threshold = rdfFactory.valueDictionaryThreshold;
+		this.cache = (threshold > 0) ? Caffeine.newBuilder().maximumSize(conf.getInt(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE)).build() : null;
+	}
+
+	public boolean isEnabled() {
+		return threshold > 0;
+	}
+
+	boolean isEncoded(RDFValue<?,?> v) {
+		return threshold > 0 && !v.isWellKnownIRI() && v.getSerializedForm().size() > threshold;
+	}
+
+	private static byte[] row(ValueIdentifier id) {
+		return Bytes.add(ROW_PREFIX, id.copyBytes());
+	}
+
+	KeyValue toKeyValue(RDFValue<?,?> v, long timestamp) {
+		ByteArray ser = v.getSerializedForm();
+		cache.put(v.getId(), ser);
+		return new KeyValue(row(v.getId()), ColumnFamilyConfig.CF_NAME, VALUE_COL, timestamp, KeyValue.Type.Put, ser.copyBytes());
+	}
+
+	/**
+	 * Only returns values that happen to be cached, e.g. because this instance wrote them.
+	 */
+	ByteArray getIfPresent(ValueIdentifier id) {
+		return cache.getIfPresent(id);
+	}
+
+	/**
+	 * Gets a single value, from the cache if possible.
+	 * @param conn connection to read from
+	 * @param id identifier of a dictionary-encoded value
+	 * @return serialized value
+	 * @throws IOException
+	 */
+	ByteArray get(KeyspaceConnection conn, ValueIdentifier id) throws IOException {
+		ByteArray ser = cache.getIfPresent(id);
+		if (ser == null) {
+			ser = toValue(id, conn.get(newGet(id)));
+			cache.put(id, ser);
+		}
+		return ser;
+	}
+
+	/**
+	 * Gets the given values, fetching any that are not already cached with a single batch of gets.
+	 * The values are returned rather than left in the cache, as they may be evicted before they are used.
+	 * @param conn connection to read from
+	 * @param ids identifiers of dictionary-encoded values
+	 * @return serialized values, including those that were cached
+	 * @throws IOException
+	 */
+	public Map<ValueIdentifier, ByteArray> load(KeyspaceConnection conn, Collection<ValueIdentifier> ids) throws IOException {
+		Map<ValueIdentifier, ByteArray> values = new HashMap<>(ids.size() + 1);
+		Set<ValueIdentifier> missingIds = new LinkedHashSet<>();
+		for (ValueIdentifier id : ids) {
+			ByteArray ser = cache.getIfPresent(id);
+			if (ser != null) {
+				values.put(id, ser);
+			} else {
+				missingIds.add(id);
+			}
+		}
+		if (!missingIds.isEmpty()) {
+			List<ValueIdentifier> getIds = new ArrayList<>(missingIds);
+			List<Get> gets = new ArrayList<>(getIds.size());
+			for (ValueIdentifier id : getIds) {
+				gets.add(newGet(id));
+			}
+			Result[] results = conn.get(gets);
+			for (int i = 0; i < results.length; i++) {
+				ValueIdentifier id = getIds.get(i);
+				ByteArray ser = toValue(id, results[i]);
+				cache.put(id, ser);
+				values.put(id, ser);
+			}
+		}
+		return values;
+	}
+
+	private static Get newGet(ValueIdentifier id) {
+		return new Get(row(id)).addColumn(ColumnFamilyConfig.CF_NAME, VALUE_COL);
+	}
+
+	private static ByteArray toValue(ValueIdentifier id, Result result) throws IOException {
+		byte[] ser = (result != null) ? result.getValue(ColumnFamilyConfig.CF_NAME, VALUE_COL) : null;
+		if (ser == null) {
+			throw new IOException(String.format("Missing dictionary value for %s", id));
+		}
+		return new ByteArray(ser);
+	}
+
+	public static Scan scan() {
+		return new Scan().setRowPrefixFilter(ROW_PREFIX).addFamily(ColumnFamilyConfig.CF_NAME);
+	}
+
+	@Override
+	public String toString() {
+		return "ValueDictionary[threshold=" + threshold + "]";
+	}
+}
@@ -0,0 +1,193 @@
+package com.msd.gin.halyard.util;
+
+import com.google.common.hash.Hashing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Mergeable distinct count sketch.
+ * Small sets are tracked exactly (by 64-bit hash) and only switch to HyperLogLog registers once they outgrow them,
+ * so small counts stay exact and large counts have a relative error of about 1.04/sqrt(2^precision).
+ */
+public final class HyperLogLog {
+	public static final int DEFAULT_PRECISION = 12;
+	private static final int MIN_PRECISION = 4;
+	private static final int MAX_PRECISION = 18;
+
+	private final int precision;
+	private final int sparseLimit;
+	private Set<Long> sparse = new HashSet<>();
+	private byte[] registers;
+
+	public HyperLogLog() {
+		this(DEFAULT_PRECISION);
+	}
+
+	public HyperLogLog(int precision) {
+		if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+			throw new IllegalArgumentException(String.format("Precision must be between %d and %d", MIN_PRECISION, MAX_PRECISION));
+		}
+		this.precision = precision;
+		// a hash takes 8 bytes, a register 1 byte
+		this.sparseLimit = (1 << precision) / Long.BYTES;
+	}
+
+	public int getPrecision() {
+		return precision;
+	}
+
+	public boolean isEmpty() {
+		return sparse != null && sparse.isEmpty();
+	}
+
+	public void clear() {
+		if (sparse != null) {
+			sparse.clear();
+		} else {
+			sparse = new HashSet<>();
+			registers = null;
+		}
+	}
+
+	/**
+	 * Adds an already well-distributed 64-bit hash.
+	 */
+	public void addHash(long hash) {
+		if (sparse != null) {
+			sparse.add(hash);
+			if (sparse.size() > sparseLimit) {
+				toDense();
+			}
+		} else {
+			addToRegisters(hash);
+		}
+	}
+
+	public void add(byte[] bytes) {
+		addHash(Hashing.murmur3_128().hashBytes(bytes).asLong());
+	}
+
+	private void addToRegisters(long hash) {
+		int idx = (int) (hash >>> (Long.SIZE - precision));
+		int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), Long.SIZE - precision) + 1;
+		if (rank > registers[idx]) {
+			registers[idx] = (byte) rank;
+		}
+	}
+
+	private void toDense() {
+		registers = new byte[1 << precision];
+		for (Long hash : sparse) {
+			addToRegisters(hash);
+		}
+		sparse = null;
+	}
+
+	/**
+	 * Adds all the elements counted by another sketch to this one.
+	 * @param other sketch of the same precision
+	 */
+	public void merge(HyperLogLog other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException(String.format("Precision mismatch: %d != %d", other.precision, precision));
+		}
+		if (other.sparse != null) {
+			for (Long hash : other.sparse) {
+				addHash(hash);
+			}
+		} else {
+			if (sparse != null) {
+				toDense();
+			}
+			for (int i = 0; i < registers.length; i++) {
+				if (other.registers[i] > registers[i]) {
+					registers[i] = other.registers[i];
+				}
+			}
+		}
+	}
+
+	public long estimate() {
+		if (sparse != null) {
+			return sparse.size();
+		}
+		int m = registers.length;
+		double sum = 0.0;
+		int zeros = 0;
+		for (byte r : registers) {
+			sum += 1.0 / (1L << r);
+			if (r == 0) {
+				zeros++;
+			}
+		}
+		double alpha = 0.7213 / (1.0 + 1.079 / m);
+		double estimate = alpha * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) {
+			// linear counting for the small range
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeByte(precision);
+		if (sparse != null) {
+			out.writeBoolean(false);
+			out.writeInt(sparse.size());
+			for (Long hash : sparse) {
+				out.writeLong(hash);
+			}
+		} else {
+			out.writeBoolean(true);
+			out.write(registers);
+		}
+	}
+
+	public static HyperLogLog readFrom(DataInput in) throws IOException {
+		HyperLogLog hll = new HyperLogLog(in.readByte());
+		boolean dense = in.readBoolean();
+		if (dense) {
+			hll.registers = new byte[1 << hll.precision];
+			in.readFully(hll.registers);
+			hll.sparse = null;
+		} else {
+			int n = in.readInt();
+			for (int i = 0; i < n; i++) {
+				hll.sparse.add(in.readLong());
+			}
+		}
+		return hll;
+	}
+
+	public byte[] toBytes() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			writeTo(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	public static HyperLogLog fromBytes(byte[] b) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(b))) {
+			return readFrom(in);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid sketch", e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "HyperLogLog[precision=" + precision + ", estimate=" + estimate() + "]";
+	}
+}
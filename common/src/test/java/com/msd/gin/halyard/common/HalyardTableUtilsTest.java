@@ -17,17 +17,23 @@
 package com.msd.gin.halyard.common;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.ColumnPrefixFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
@@ -230,4 +236,44 @@ public class HalyardTableUtilsTest {
             assertEquals(Cell.Type.DeleteColumn, kv.getType());
         }
     }
+
+    @Test
+    public void testScanRangesOpenEnded() {
+        Scan s1 = new Scan().withStartRow(Bytes.toBytes("a")).withStopRow(Bytes.toBytes("b"));
+        Scan s2 = new Scan().withStartRow(Bytes.toBytes("d"));
+        Scan s3 = new Scan().withStartRow(Bytes.toBytes("c")).withStopRow(Bytes.toBytes("e"));
+        Scan scan = HalyardTableUtils.scanRanges(Arrays.asList(s2, s1, s3));
+        assertEquals("a", Bytes.toString(scan.getStartRow()));
+        assertEquals(0, scan.getStopRow().length);
+        List<MultiRowRangeFilter.RowRange> ranges = ((MultiRowRangeFilter) scan.getFilter()).getRowRanges();
+        assertEquals(2, ranges.size());
+        assertEquals("b", Bytes.toString(ranges.get(0).getStopRow()));
+        assertEquals("c", Bytes.toString(ranges.get(1).getStartRow()));
+        assertEquals(0, ranges.get(1).getStopRow().length);
+    }
+
+    @Test
+    public void testScanRangesKeepsFilters() throws Exception {
+        byte[] row1 = Bytes.toBytes("testScanRanges1");
+        byte[] row2 = Bytes.toBytes("testScanRanges2");
+        List<Put> puts = new ArrayList<>();
+        for (byte[] row : Arrays.asList(row1, row2)) {
+            puts.add(new Put(row).addColumn(ColumnFamilyConfig.CF_NAME, Bytes.toBytes("a1"), Bytes.toBytes("v"))
+                .addColumn(ColumnFamilyConfig.CF_NAME, Bytes.toBytes("b1"), Bytes.toBytes("v")));
+        }
+        table.put(puts);
+        Scan s1 = new Scan().withStartRow(row1).withStopRow(row2).setFilter(new ColumnPrefixFilter(Bytes.toBytes("a")));
+        Scan s2 = new Scan().withStartRow(row2).withStopRow(Bytes.toBytes("testScanRanges3"));
+        List<Cell> cells = new ArrayList<>();
+        try (ResultScanner rs = table.getScanner(HalyardTableUtils.scanRanges(Arrays.asList(s2, s1)))) {
+            for (Result res : rs) {
+                cells.addAll(res.listCells());
+            }
+        }
+        // the prefix filter only applies to the first row
+        assertEquals(3, cells.size());
+        assertEquals("a1", Bytes.toString(CellUtil.cloneQualifier(cells.get(0))));
+        assertTrue(CellUtil.matchingRows(cells.get(1), row2));
+        assertTrue(CellUtil.matchingRows(cells.get(2), row2));
+    }
 }
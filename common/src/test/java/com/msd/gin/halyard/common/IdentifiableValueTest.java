@@ -0,0 +1,45 @@
+package com.msd.gin.halyard.common;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IdentifiableValueTest {
+	private static final RDFFactory rdfFactory = StatementIndices.create().getRDFFactory();
+	private static final ValueFactory vf = new IdValueFactory(rdfFactory);
+
+	private static ByteArray ser(Value v) {
+		return new ByteArray(rdfFactory.valueWriter.toBytes(v));
+	}
+
+	@Test
+	public void testEqualsDoesNotMaterialize() {
+		Literal constant = vf.createLiteral("foobar", "en");
+		IdentifiableLiteral lazy = new IdentifiableLiteral(ser(constant), rdfFactory);
+		IdentifiableLiteral other = new IdentifiableLiteral(ser(vf.createLiteral("foobaz", "en")), rdfFactory);
+		assertEquals(constant, lazy);
+		assertEquals(lazy, constant);
+		assertEquals(constant.hashCode(), lazy.hashCode());
+		assertNotEquals(lazy, other);
+		assertNotEquals(other, lazy);
+		assertFalse(lazy.isMaterialized());
+		assertFalse(other.isMaterialized());
+
+		assertEquals("foobar", lazy.getLabel());
+		assertTrue(lazy.isMaterialized());
+	}
+
+	@Test
+	public void testEqualsPlainValue() {
+		IRI lazy = new IdentifiableIRI(ser(vf.createIRI("http://whatever/foo")), rdfFactory);
+		IRI plain = SimpleValueFactory.getInstance().createIRI("http://whatever/foo");
+		assertEquals(plain, lazy);
+		assertEquals(lazy, plain);
+		assertEquals(plain.hashCode(), lazy.hashCode());
+	}
+}
@@ -0,0 +1,77 @@
+package com.msd.gin.halyard.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Table;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@RunsLocalHBase
+public class StatementCountEndpointTest {
+	private static Connection conn;
+	private static Table table;
+	private static KeyspaceConnection keyspaceConn;
+	private static RDFFactory rdfFactory;
+	private static StatementIndices stmtIndices;
+
+	@BeforeAll
+	public static void setup() throws Exception {
+		Configuration conf = new Configuration(HBaseServerTestInstance.getInstanceConfig());
+		conf.setBoolean(HalyardTableUtils.COUNT_ENDPOINT_PROPERTY, true);
+		conn = HalyardTableUtils.getConnection(conf);
+		table = HalyardTableUtils.getTable(conn, "testCountEndpoint", true, 2);
+		keyspaceConn = new TableKeyspace.TableKeyspaceConnection(table);
+		rdfFactory = RDFFactory.create(keyspaceConn);
+		stmtIndices = new StatementIndices(conf, rdfFactory);
+	}
+
+	@AfterAll
+	public static void teardown() throws Exception {
+		table.close();
+		conn.close();
+	}
+
+	@Test
+	public void testCount() throws Exception {
+		assertTrue(table.getDescriptor().hasCoprocessor(StatementCountEndpoint.class.getName()));
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		IRI pred1 = vf.createIRI("http://testCount/pred1");
+		IRI pred2 = vf.createIRI("http://testCount/pred2");
+		IRI ctx = vf.createIRI("http://testCount/ctx");
+		List<Put> puts = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			IRI subj = vf.createIRI("http://testCount/subj" + i);
+			for (Cell kv : stmtIndices.insertKeyValues(subj, pred1, vf.createLiteral(i), null, 0L)) {
+				puts.add(new Put(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength(), kv.getTimestamp()).add(kv));
+			}
+			if (i % 2 == 0) {
+				for (Cell kv : stmtIndices.insertKeyValues(subj, pred2, subj, ctx, 0L)) {
+					puts.add(new Put(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength(), kv.getTimestamp()).add(kv));
+				}
+			}
+		}
+		table.put(puts);
+
+		RDFPredicate p1 = rdfFactory.createPredicate(pred1);
+		RDFPredicate p2 = rdfFactory.createPredicate(pred2);
+		RDFContext c = rdfFactory.createContext(ctx);
+		RDFSubject s0 = rdfFactory.createSubject(vf.createIRI("http://testCount/subj0"));
+		assertEquals(100, keyspaceConn.count(stmtIndices.scan(null, p1, null, null)));
+		assertEquals(50, keyspaceConn.count(stmtIndices.scan(null, p2, null, null)));
+		assertEquals(50, keyspaceConn.count(stmtIndices.scan(null, p2, null, c)));
+		assertEquals(2, keyspaceConn.count(stmtIndices.scan(s0, null, null, null)));
+		assertEquals(0, keyspaceConn.count(stmtIndices.scan(s0, p1, null, c)));
+	}
+}
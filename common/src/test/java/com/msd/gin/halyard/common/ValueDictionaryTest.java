@@ -0,0 +1,143 @@
+package com.msd.gin.halyard.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ValueDictionaryTest {
+	private static final int THRESHOLD = 100;
+
+	private static Configuration createConfig() {
+		Configuration conf = HBaseConfiguration.create();
+		conf.setInt(TableConfig.VALUE_DICTIONARY_THRESHOLD, THRESHOLD);
+		return conf;
+	}
+
+	private static String longString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2 * THRESHOLD; i++) {
+			sb.append((char) ('a' + i % 26));
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		StatementIndices indices = StatementIndices.create();
+		assertFalse(indices.getValueDictionary().isEnabled());
+		ValueFactory vf = new TimestampedValueFactory(indices.getRDFFactory());
+		List<? extends Cell> kvs = indices.insertKeyValues(vf.createIRI("http://whatever/subj"), RDFS.LABEL, vf.createLiteral(longString()), null, 0);
+		assertEquals(3, kvs.size());
+	}
+
+	@Test
+	public void testKeyValues() throws IOException {
+		Configuration conf = createConfig();
+		RDFFactory rdfFactory = RDFFactory.create(conf);
+		StatementIndices writer = new StatementIndices(conf, rdfFactory);
+		assertTrue(writer.getValueDictionary().isEnabled());
+		ValueFactory vf = new TimestampedValueFactory(rdfFactory);
+		IRI subj = vf.createIRI("http://whatever/subj");
+		Literal obj = vf.createLiteral(longString());
+		Statement expected = vf.createStatement(subj, RDFS.LABEL, obj);
+
+		List<Cell> indexCells = new ArrayList<>();
+		List<Cell> dictionaryCells = new ArrayList<>();
+		for (Cell kv : writer.insertKeyValues(subj, RDFS.LABEL, obj, null, 0)) {
+			if (kv.getRowArray()[kv.getRowOffset()] == (byte) 0xfd) {
+				dictionaryCells.add(kv);
+			} else {
+				indexCells.add(kv);
+				assertTrue(kv.getValueLength() < THRESHOLD);
+			}
+		}
+		assertEquals(3, indexCells.size());
+		assertEquals(1, dictionaryCells.size());
+
+		// values written are cached
+		for (Cell kv : indexCells) {
+			assertEquals(expected, writer.parseStatement(null, null, null, null, kv, vf));
+		}
+
+		StatementIndices reader = new StatementIndices(conf, rdfFactory);
+		for (Cell kv : indexCells) {
+			assertThrows(IllegalStateException.class, () -> reader.parseStatement(null, null, null, null, kv, vf));
+		}
+		List<ValueIdentifier> ids = new ArrayList<>();
+		reader.collectDictionaryIds(Result.create(indexCells), ids);
+		assertEquals(Collections.nCopies(indexCells.size(), rdfFactory.id(obj)), ids);
+
+		Cell dictionaryCell = dictionaryCells.get(0);
+		KeyspaceConnection conn = new KeyspaceConnection() {
+			@Override
+			public Result get(Get get) {
+				assertArrayEquals(get.getRow(), Bytes.copy(dictionaryCell.getRowArray(), dictionaryCell.getRowOffset(), dictionaryCell.getRowLength()));
+				return Result.create(Collections.singletonList(dictionaryCell));
+			}
+
+			@Override
+			public ResultScanner getScanner(Scan scan) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		for (Cell kv : indexCells) {
+			Statement[] actual = reader.parseStatements(null, null, null, null, Result.create(Collections.singletonList(kv)), conn, vf);
+			assertEquals(1, actual.length);
+			assertEquals(expected, actual[0]);
+		}
+
+		// loaded values are returned, so parsing does not depend on them staying cached
+		Map<ValueIdentifier, ByteArray> loaded = reader.getValueDictionary().load(conn, ids);
+		assertEquals(Collections.singleton(rdfFactory.id(obj)), loaded.keySet());
+		for (Cell kv : indexCells) {
+			assertEquals(expected, reader.parseStatement(null, null, null, null, kv, loaded, conn, vf));
+		}
+
+		// values missing from the loaded map are fetched individually
+		StatementIndices uncachedReader = new StatementIndices(conf, rdfFactory);
+		for (Cell kv : indexCells) {
+			assertEquals(expected, uncachedReader.parseStatement(null, null, null, null, kv, Collections.emptyMap(), conn, vf));
+		}
+
+		// cached values are returned without a get
+		KeyspaceConnection noConn = new KeyspaceConnection() {
+			@Override
+			public Result get(Get get) {
+				throw new AssertionError("Unexpected get");
+			}
+
+			@Override
+			public ResultScanner getScanner(Scan scan) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		assertEquals(Collections.singleton(rdfFactory.id(obj)), writer.getValueDictionary().load(noConn, ids).keySet());
+	}
+}
@@ -0,0 +1,70 @@
+package com.msd.gin.halyard.util;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HyperLogLogTest {
+	private static byte[] bytes(int i) {
+		return Integer.toString(i).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testExactWhenSmall() {
+		HyperLogLog hll = new HyperLogLog();
+		assertTrue(hll.isEmpty());
+		for (int i = 0; i < 300; i++) {
+			hll.add(bytes(i));
+			hll.add(bytes(i));
+		}
+		assertFalse(hll.isEmpty());
+		assertEquals(300, hll.estimate());
+	}
+
+	@Test
+	public void testEstimate() {
+		HyperLogLog hll = new HyperLogLog();
+		int n = 100000;
+		for (int i = 0; i < n; i++) {
+			hll.add(bytes(i));
+		}
+		assertEquals(n, hll.estimate(), n * 0.05);
+	}
+
+	@Test
+	public void testMerge() {
+		HyperLogLog a = new HyperLogLog();
+		HyperLogLog b = new HyperLogLog();
+		HyperLogLog small = new HyperLogLog();
+		for (int i = 0; i < 20000; i++) {
+			a.add(bytes(i));
+		}
+		for (int i = 10000; i < 30000; i++) {
+			b.add(bytes(i));
+		}
+		small.add(bytes(40000));
+		a.merge(b);
+		a.merge(small);
+		assertEquals(30001, a.estimate(), 30001 * 0.05);
+		small.merge(b);
+		assertEquals(20001, small.estimate(), 20001 * 0.05);
+		assertThrows(IllegalArgumentException.class, () -> a.merge(new HyperLogLog(10)));
+	}
+
+	@Test
+	public void testSerialization() {
+		HyperLogLog sparse = new HyperLogLog();
+		HyperLogLog dense = new HyperLogLog();
+		for (int i = 0; i < 100; i++) {
+			sparse.add(bytes(i));
+		}
+		for (int i = 0; i < 10000; i++) {
+			dense.add(bytes(i));
+		}
+		assertEquals(sparse.estimate(), HyperLogLog.fromBytes(sparse.toBytes()).estimate());
+		assertEquals(dense.estimate(), HyperLogLog.fromBytes(dense.toBytes()).estimate());
+		assertEquals(1 + 1 + (1 << HyperLogLog.DEFAULT_PRECISION), dense.toBytes().length);
+	}
+}
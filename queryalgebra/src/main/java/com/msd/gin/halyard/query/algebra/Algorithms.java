@@ -4,6 +4,7 @@ public final class Algorithms {
 	public static final String HASH_JOIN = "Hash join";
 	public static final String NESTED_LOOPS = "Nested loops";
 	public static final String STAR_JOIN = "Star join";
+	public static final String BATCH_JOIN = "Batch join";
 
 	private Algorithms() {}
 }
@@ -0,0 +1,26 @@
+package com.msd.gin.halyard.rio;
+
+import org.eclipse.rdf4j.query.resultio.TupleQueryResultFormat;
+
+/**
+ * Binary SPARQL results format for exchanging results between Halyard endpoints.
+ * Values are written with {@link com.msd.gin.halyard.common.ValueIO} and repeated values within a result are sent by reference.
+ */
+public final class HRES {
+	public static final TupleQueryResultFormat FORMAT = new TupleQueryResultFormat("HRES", "application/x-halyard-results", "hres", true);
+	static final int END = 0;
+	static final int SOLUTION = 1;
+	static final int UNBOUND = 0;
+	static final int VALUE = 1;
+	static final int REF = 2;
+	/**
+	 * Maximum number of values that can be referenced, per result.
+	 */
+	static final int MAX_DICTIONARY_SIZE = 1 << 16;
+	/**
+	 * Number of solutions after which the writer flushes, so that they can be read before the result is complete.
+	 */
+	static final int FLUSH_INTERVAL = 100;
+
+	private HRES() {}
+}
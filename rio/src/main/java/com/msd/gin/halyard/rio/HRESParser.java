@@ -0,0 +1,104 @@
+package com.msd.gin.halyard.rio;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.TupleQueryResultHandlerException;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.resultio.AbstractTupleQueryResultParser;
+import org.eclipse.rdf4j.query.resultio.QueryResultParseException;
+import org.eclipse.rdf4j.query.resultio.TupleQueryResultFormat;
+import org.eclipse.rdf4j.query.resultio.TupleQueryResultParser;
+import org.eclipse.rdf4j.query.resultio.TupleQueryResultParserFactory;
+
+import com.msd.gin.halyard.common.ValueIO;
+
+public final class HRESParser extends AbstractTupleQueryResultParser {
+
+	public static final class Factory implements TupleQueryResultParserFactory {
+
+		@Override
+		public TupleQueryResultFormat getTupleQueryResultFormat() {
+			return HRES.FORMAT;
+		}
+
+		@Override
+		public TupleQueryResultParser getParser() {
+			return new HRESParser();
+		}
+	}
+
+	private static final ValueIO.Reader valueReader = ValueIO.getDefault().createReader();
+
+	public HRESParser() {
+		super();
+	}
+
+	public HRESParser(ValueFactory vf) {
+		super(vf);
+	}
+
+	@Override
+	public TupleQueryResultFormat getTupleQueryResultFormat() {
+		return HRES.FORMAT;
+	}
+
+	@Override
+	public void parse(InputStream in) throws IOException, QueryResultParseException, TupleQueryResultHandlerException {
+		DataInputStream dataIn = new DataInputStream(in);
+		int numNames = dataIn.readInt();
+		List<String> bindingNames = new ArrayList<>(numNames);
+		for (int i=0; i<numNames; i++) {
+			bindingNames.add(dataIn.readUTF());
+		}
+		if (handler != null) {
+			handler.startQueryResult(bindingNames);
+		}
+		List<Value> dictionary = new ArrayList<>();
+		int type;
+		while ((type = dataIn.readByte()) == HRES.SOLUTION) {
+			QueryBindingSet bs = new QueryBindingSet(numNames);
+			for (String name : bindingNames) {
+				int valueType = dataIn.readByte();
+				Value v;
+				switch (valueType) {
+					case HRES.UNBOUND:
+						v = null;
+						break;
+					case HRES.VALUE:
+						v = valueReader.readValueWithSizeHeader(dataIn, valueFactory, Integer.BYTES);
+						if (dictionary.size() < HRES.MAX_DICTIONARY_SIZE) {
+							dictionary.add(v);
+						}
+						break;
+					case HRES.REF:
+						int ref = dataIn.readInt();
+						if (ref < 0 || ref >= dictionary.size()) {
+							throw new QueryResultParseException(String.format("Invalid value reference: %d", ref));
+						}
+						v = dictionary.get(ref);
+						break;
+					default:
+						throw new QueryResultParseException(String.format("Invalid value type: %d", valueType));
+				}
+				if (v != null) {
+					bs.addBinding(name, v);
+				}
+			}
+			if (handler != null) {
+				handler.handleSolution(bs);
+			}
+		}
+		if (type != HRES.END) {
+			throw new QueryResultParseException(String.format("Invalid record type: %d", type));
+		}
+		if (handler != null) {
+			handler.endQueryResult();
+		}
+	}
+}
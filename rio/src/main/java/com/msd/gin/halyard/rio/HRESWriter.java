@@ -0,0 +1,147 @@
+package com.msd.gin.halyard.rio;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryResultHandlerException;
+import org.eclipse.rdf4j.query.TupleQueryResultHandlerException;
+import org.eclipse.rdf4j.query.resultio.AbstractQueryResultWriter;
+import org.eclipse.rdf4j.query.resultio.QueryResultFormat;
+import org.eclipse.rdf4j.query.resultio.TupleQueryResultFormat;
+import org.eclipse.rdf4j.query.resultio.TupleQueryResultWriter;
+import org.eclipse.rdf4j.query.resultio.TupleQueryResultWriterFactory;
+
+import com.msd.gin.halyard.common.ValueIO;
+
+public final class HRESWriter extends AbstractQueryResultWriter implements TupleQueryResultWriter {
+
+	public static final class Factory implements TupleQueryResultWriterFactory {
+
+		@Override
+		public TupleQueryResultFormat getTupleQueryResultFormat() {
+			return HRES.FORMAT;
+		}
+
+		@Override
+		public TupleQueryResultWriter getWriter(OutputStream out) {
+			return new HRESWriter(out);
+		}
+	}
+
+
+	private static final ValueIO.Writer valueWriter = ValueIO.getDefault().createWriter();
+	private final DataOutputStream out;
+	private final Map<Value,Integer> dictionary = new HashMap<>();
+	private ByteBuffer tmp = ByteBuffer.allocate(ValueIO.DEFAULT_BUFFER_SIZE);
+	private List<String> bindingNames;
+	private long solutionCount;
+
+	public HRESWriter(OutputStream out) {
+		this.out = new DataOutputStream(out);
+	}
+
+	@Override
+	public QueryResultFormat getQueryResultFormat() {
+		return HRES.FORMAT;
+	}
+
+	@Override
+	public TupleQueryResultFormat getTupleQueryResultFormat() {
+		return HRES.FORMAT;
+	}
+
+	@Override
+	public void startQueryResult(List<String> bindingNames) throws TupleQueryResultHandlerException {
+		super.startQueryResult(bindingNames);
+		this.bindingNames = bindingNames;
+		dictionary.clear();
+		solutionCount = 0L;
+		try {
+			out.writeInt(bindingNames.size());
+			for (String name : bindingNames) {
+				out.writeUTF(name);
+			}
+			// let the client know the query is underway
+			out.flush();
+		} catch (IOException ioe) {
+			throw new TupleQueryResultHandlerException(ioe);
+		}
+	}
+
+	@Override
+	protected void handleSolutionImpl(BindingSet bs) throws TupleQueryResultHandlerException {
+		try {
+			out.writeByte(HRES.SOLUTION);
+			for (String name : bindingNames) {
+				Value v = bs.getValue(name);
+				if (v == null) {
+					out.writeByte(HRES.UNBOUND);
+				} else {
+					Integer ref = dictionary.get(v);
+					if (ref != null) {
+						out.writeByte(HRES.REF);
+						out.writeInt(ref);
+					} else {
+						out.writeByte(HRES.VALUE);
+						tmp = valueWriter.writeValueWithSizeHeader(v, out, Integer.BYTES, tmp);
+						if (dictionary.size() < HRES.MAX_DICTIONARY_SIZE) {
+							dictionary.put(v, dictionary.size());
+						}
+					}
+				}
+			}
+			if (++solutionCount % HRES.FLUSH_INTERVAL == 1L) {
+				out.flush();
+			}
+		} catch (IOException ioe) {
+			throw new TupleQueryResultHandlerException(ioe);
+		}
+	}
+
+	@Override
+	public void endQueryResult() throws TupleQueryResultHandlerException {
+		try {
+			out.writeByte(HRES.END);
+			out.flush();
+		} catch (IOException ioe) {
+			throw new TupleQueryResultHandlerException(ioe);
+		}
+		dictionary.clear();
+	}
+
+	@Override
+	public void handleBoolean(boolean value) throws QueryResultHandlerException {
+		throw new UnsupportedOperationException("Cannot handle boolean results");
+	}
+
+	@Override
+	public void handleLinks(List<String> linkUrls) throws QueryResultHandlerException {
+	}
+
+	@Override
+	public void handleNamespace(String prefix, String uri) throws QueryResultHandlerException {
+	}
+
+	@Override
+	public void startDocument() throws QueryResultHandlerException {
+	}
+
+	@Override
+	public void handleStylesheet(String stylesheetUrl) throws QueryResultHandlerException {
+	}
+
+	@Override
+	public void startHeader() throws QueryResultHandlerException {
+	}
+
+	@Override
+	public void endHeader() throws QueryResultHandlerException {
+	}
+}
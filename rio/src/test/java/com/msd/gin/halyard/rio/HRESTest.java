@@ -0,0 +1,84 @@
+package com.msd.gin.halyard.rio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.resultio.QueryResultIO;
+import org.eclipse.rdf4j.query.resultio.TupleQueryResultParser;
+import org.eclipse.rdf4j.query.resultio.TupleQueryResultWriter;
+import org.eclipse.rdf4j.query.resultio.helpers.QueryResultCollector;
+import org.junit.Test;
+
+import com.msd.gin.halyard.model.vocabulary.SCHEMA_ORG;
+
+public class HRESTest {
+	private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private static BindingSet bindings(Value s, Value o) {
+		QueryBindingSet bs = new QueryBindingSet();
+		if (s != null) {
+			bs.addBinding("s", s);
+		}
+		if (o != null) {
+			bs.addBinding("o", o);
+		}
+		return bs;
+	}
+
+	@Test
+	public void testWriteRead() throws IOException {
+		IRI foo = vf.createIRI("http://whatever/foo");
+		IRI bar = vf.createIRI("http://whatever/bar");
+		List<String> bindingNames = Arrays.asList("s", "o");
+		List<BindingSet> solutions = new ArrayList<>();
+		solutions.add(bindings(foo, vf.createLiteral("foo")));
+		solutions.add(bindings(foo, vf.createLiteral("foobar")));
+		solutions.add(bindings(bar, vf.createLiteral("foobar")));
+		solutions.add(bindings(bar, null));
+		solutions.add(bindings(null, vf.createLiteral(2.3)));
+		solutions.add(bindings(vf.createBNode("b1"), vf.createTriple(foo, RDF.TYPE, SCHEMA_ORG.THING)));
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		TupleQueryResultWriter writer = QueryResultIO.createTupleWriter(HRES.FORMAT, bos);
+		writer.startQueryResult(bindingNames);
+		for (BindingSet bs : solutions) {
+			writer.handleSolution(bs);
+		}
+		writer.endQueryResult();
+		bos.close();
+
+		QueryResultCollector results = new QueryResultCollector();
+		TupleQueryResultParser parser = QueryResultIO.createTupleParser(HRES.FORMAT);
+		parser.setQueryResultHandler(results);
+		parser.parseQueryResult(new ByteArrayInputStream(bos.toByteArray()));
+		assertEquals(bindingNames, results.getBindingNames());
+		assertEquals(solutions, results.getBindingSets());
+	}
+
+	@Test
+	public void testStreaming() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		TupleQueryResultWriter writer = new HRESWriter(new BufferedOutputStream(bos));
+		writer.startQueryResult(Arrays.asList("s", "o"));
+		int headerSize = bos.size();
+		assertTrue(headerSize > 0);
+		writer.handleSolution(bindings(RDF.FIRST, vf.createLiteral("b")));
+		// first solution is available before the result is complete
+		assertTrue(bos.size() > headerSize);
+	}
+}
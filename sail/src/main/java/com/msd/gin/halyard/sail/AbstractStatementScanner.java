@@ -1,13 +1,20 @@
 package com.msd.gin.halyard.sail;
 
+import com.msd.gin.halyard.common.ByteArray;
 import com.msd.gin.halyard.common.RDFContext;
 import com.msd.gin.halyard.common.RDFObject;
 import com.msd.gin.halyard.common.RDFPredicate;
 import com.msd.gin.halyard.common.RDFSubject;
+import com.msd.gin.halyard.common.KeyspaceConnection;
 import com.msd.gin.halyard.common.StatementIndices;
-import com.msd.gin.halyard.common.ValueIO;
+import com.msd.gin.halyard.common.ValueDictionary;
+import com.msd.gin.halyard.common.ValueIdentifier;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import org.apache.hadoop.hbase.client.Result;
@@ -16,8 +23,15 @@ import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.ValueFactory;
 
 public abstract class AbstractStatementScanner extends AbstractCloseableIteration<Statement, IOException> {
+	/**
+	 * Number of Results read ahead to batch the loading of dictionary-encoded values.
+	 */
+	private static final int DICTIONARY_BATCH_SIZE = 64;
+
 	protected final StatementIndices indices;
+	protected final KeyspaceConnection keyspaceConn;
 	protected final ValueFactory vf;
+	private final ValueDictionary dictionary;
 	protected RDFSubject subj;
 	protected RDFPredicate pred;
 	protected RDFObject obj;
@@ -26,24 +40,88 @@ public abstract class AbstractStatementScanner extends AbstractCloseableIteratio
 	private Statement[] stmts = null;
 	private int stmtIndex = 0;
 	private int stmtLength = 0;
+	private Result[] batch;
+	private RDFSubject[] batchSubjs;
+	private RDFPredicate[] batchPreds;
+	private RDFObject[] batchObjs;
+	private RDFContext[] batchCtxs;
+	private int batchIndex = 0;
+	private int batchLength = 0;
+	private List<ValueIdentifier> batchIds;
+	private Map<ValueIdentifier, ByteArray> batchValues;
 
-	protected AbstractStatementScanner(StatementIndices indices, ValueFactory vf) {
+	protected AbstractStatementScanner(StatementIndices indices, KeyspaceConnection keyspaceConn, ValueFactory vf) {
 		this.indices = indices;
+		this.keyspaceConn = keyspaceConn;
 		this.vf = vf;
+		ValueDictionary dict = indices.getValueDictionary();
+		this.dictionary = dict.isEnabled() ? dict : null;
 	}
 
+	/**
+	 * Returns the next Result, setting {@link #subj}, {@link #pred}, {@link #obj} or {@link #ctx} if they vary between Results.
+	 */
 	protected abstract Result nextResult() throws IOException;
 
+	private Statement[] nextStatements() throws IOException {
+		if (dictionary == null) {
+			Result res = nextResult();
+			return (res != null) ? indices.parseStatements(subj, pred, obj, ctx, res, vf) : null;
+		}
+		if (batchIndex == batchLength) {
+			fillBatch();
+			if (batchLength == 0) {
+				return null;
+			}
+		}
+		int i = batchIndex++;
+		Result res = batch[i];
+		batch[i] = null;
+		// the pattern the Result was read with, as read ahead may already have moved on
+		return indices.parseStatements(batchSubjs[i], batchPreds[i], batchObjs[i], batchCtxs[i], res, batchValues, keyspaceConn, vf);
+	}
+
+	/**
+	 * Reads ahead a batch of Results so the dictionary-encoded values they reference can be loaded together.
+	 */
+	private void fillBatch() throws IOException {
+		if (batch == null) {
+			batch = new Result[DICTIONARY_BATCH_SIZE];
+			batchSubjs = new RDFSubject[DICTIONARY_BATCH_SIZE];
+			batchPreds = new RDFPredicate[DICTIONARY_BATCH_SIZE];
+			batchObjs = new RDFObject[DICTIONARY_BATCH_SIZE];
+			batchCtxs = new RDFContext[DICTIONARY_BATCH_SIZE];
+			batchIds = new ArrayList<>();
+		}
+		batchIndex = 0;
+		batchLength = 0;
+		Result res;
+		while (batchLength < DICTIONARY_BATCH_SIZE && (res = nextResult()) != null) {
+			batch[batchLength] = res;
+			batchSubjs[batchLength] = subj;
+			batchPreds[batchLength] = pred;
+			batchObjs[batchLength] = obj;
+			batchCtxs[batchLength] = ctx;
+			batchLength++;
+			indices.collectDictionaryIds(res, batchIds);
+		}
+		if (!batchIds.isEmpty()) {
+			batchValues = dictionary.load(keyspaceConn, batchIds);
+			batchIds.clear();
+		} else {
+			batchValues = Collections.emptyMap();
+		}
+	}
+
 	@Override
 	public final boolean hasNext() throws IOException {
 		if (next == null) {
 			while (true) {
 				if (stmts == null) {
-					Result res = nextResult();
-					if (res == null) {
+					stmts = nextStatements();
+					if (stmts == null) {
 						return false; // no more Results
 					}
-					stmts = indices.parseStatements(subj, pred, obj, ctx, res, vf);
 					stmtIndex = 0;
 					stmtLength = stmts.length;
 				}
@@ -8,12 +8,28 @@ public final class EvaluationConfig {
 	public static final String TRACK_BRANCH_OPERATORS_ONLY = "halyard.evaluation.trackBranchOperatorsOnly";
 	public static final String QUERY_CACHE_MAX_SIZE = "hayard.evaluation.maxQueryCacheSize";
 	public static final String QUERY_HISTORY_MAX_SIZE = "hayard.evaluation.maxQueryHistorySize";
+	public static final String SCAN_MAX_PARALLEL_CONTEXTS = "halyard.evaluation.scan.maxParallelContexts";
+	public static final String QUERY_MAX_RUNNING = "halyard.evaluation.maxRunningQueries";
+	public static final String QUERY_MAX_RUNNING_PER_TENANT = "halyard.evaluation.maxRunningQueriesPerTenant";
+	public static final String QUERY_ADMISSION_TIMEOUT_MILLIS = "halyard.evaluation.admissionTimeoutMillis";
+	public static final String QUERY_MAX_SCANNED_RESULTS = "halyard.evaluation.maxScannedResultsPerQuery";
+	public static final String QUERY_MAX_SCANNED_BYTES = "halyard.evaluation.maxScannedBytesPerQuery";
+	public static final String UPDATE_WRITER_THREADS = "halyard.update.writerThreads";
+	public static final String UPDATE_WRITER_BATCH_SIZE = "halyard.update.writerBatchSize";
 
 	public final int queryCacheSize;
 	public final boolean trackResultSize;
 	public final boolean trackResultTime;
 	public final boolean trackBranchOperatorsOnly;
 	public final int maxQueryHistorySize;
+	public final int maxParallelContexts;
+	public final int maxRunningQueries;
+	public final int maxRunningQueriesPerTenant;
+	public final long queryAdmissionTimeoutMillis;
+	public final long maxScannedResultsPerQuery;
+	public final long maxScannedBytesPerQuery;
+	public final int updateWriterThreads;
+	public final int updateWriterBatchSize;
 
 	EvaluationConfig(Configuration config) {
 		queryCacheSize = config.getInt(EvaluationConfig.QUERY_CACHE_MAX_SIZE, 100);
@@ -21,5 +37,13 @@ public final class EvaluationConfig {
 		trackResultTime = config.getBoolean(EvaluationConfig.TRACK_RESULT_TIME, false);
 		trackBranchOperatorsOnly = config.getBoolean(TRACK_BRANCH_OPERATORS_ONLY, true);
 		maxQueryHistorySize = config.getInt(EvaluationConfig.QUERY_HISTORY_MAX_SIZE, 10);
+		maxParallelContexts = config.getInt(EvaluationConfig.SCAN_MAX_PARALLEL_CONTEXTS, 8);
+		maxRunningQueries = config.getInt(EvaluationConfig.QUERY_MAX_RUNNING, 0);
+		maxRunningQueriesPerTenant = config.getInt(EvaluationConfig.QUERY_MAX_RUNNING_PER_TENANT, 0);
+		queryAdmissionTimeoutMillis = config.getLong(EvaluationConfig.QUERY_ADMISSION_TIMEOUT_MILLIS, 30000L);
+		maxScannedResultsPerQuery = config.getLong(EvaluationConfig.QUERY_MAX_SCANNED_RESULTS, 0L);
+		maxScannedBytesPerQuery = config.getLong(EvaluationConfig.QUERY_MAX_SCANNED_BYTES, 0L);
+		updateWriterThreads = config.getInt(EvaluationConfig.UPDATE_WRITER_THREADS, 0);
+		updateWriterBatchSize = config.getInt(EvaluationConfig.UPDATE_WRITER_BATCH_SIZE, 1000);
 	}
 }
@@ -4,6 +4,7 @@ import com.msd.gin.halyard.common.HalyardTableUtils;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.repository.HBaseRepositoryManager;
 import com.msd.gin.halyard.sail.HBaseSail.Ticker;
+import com.msd.gin.halyard.strategy.StrategyConfig;
 import com.msd.gin.halyard.util.MBeanManager;
 
 import java.net.MalformedURLException;
@@ -36,6 +37,7 @@ public class HBaseFederatedServiceResolver extends SPARQLServiceResolver
 	private static final String MIN_TIMESTAMP_QUERY_PARAM = "minTimestamp";
 	private static final String MAX_TIMESTAMP_QUERY_PARAM = "maxTimestamp";
 	private static final String MAX_VERSIONS_QUERY_PARAM = "maxVersions";
+	private static final String AS_OF_QUERY_PARAM = "asOf";
 
 	private final Connection hConnection;
 	private final Configuration config;
@@ -99,6 +101,9 @@ public class HBaseFederatedServiceResolver extends SPARQLServiceResolver
 					case MAX_VERSIONS_QUERY_PARAM:
 						scanSettings.maxVersions = Integer.parseInt(nvp.getValue());
 						break;
+					case AS_OF_QUERY_PARAM:
+						scanSettings.maxTimestamp = HalyardTableUtils.toHalyardTimestamp(Long.parseLong(nvp.getValue()) + 1, false);
+						break;
 					default:
 						// ignore
 				}
@@ -130,7 +135,13 @@ public class HBaseFederatedServiceResolver extends SPARQLServiceResolver
 			} catch (MalformedURLException ioe) {
 				// ignore
 			}
-			federatedService = new RepositoryFederatedService(sparqlRepo);
+			RepositoryFederatedService repoService = new RepositoryFederatedService(sparqlRepo);
+			int serviceBatchSize = new StrategyConfig(config).serviceBatchSize;
+			if (serviceBatchSize > 1) {
+				// blocks are already sized by the evaluation strategy, so send each as a single request
+				repoService.setBoundJoinBlockSize(serviceBatchSize);
+			}
+			federatedService = repoService;
 		}
 		return federatedService;
 	}
@@ -48,6 +48,7 @@ import com.msd.gin.halyard.util.Version;
 import java.io.File;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -110,6 +111,14 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
          * This method is called whenever a new Statement is populated from HBase.
          */
         public void tick();
+
+        /**
+         * This method is called instead of {@link #tick()} whenever a Result is read from HBase.
+         * @param resultBytes size of the cells of the Result
+         */
+        public default void tick(long resultBytes) {
+            tick();
+        }
     }
 
 	/**
@@ -123,6 +132,7 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		long minTimestamp = 0;
 		long maxTimestamp = Long.MAX_VALUE;
 		int maxVersions = 1;
+		int maxParallelContexts = 1;
 
 		public long getMinTimestamp() {
 			return minTimestamp;
@@ -135,6 +145,24 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		public int getMaxVersions() {
 			return maxVersions;
 		}
+
+		public int getMaxParallelContexts() {
+			return maxParallelContexts;
+		}
+
+		/**
+		 * Restricts these settings to the latest versions written at or before the given time.
+		 * @param timestamp time in milliseconds
+		 * @return new settings
+		 */
+		ScanSettings asOf(long timestamp) {
+			ScanSettings asOf = new ScanSettings();
+			asOf.minTimestamp = minTimestamp;
+			asOf.maxTimestamp = Math.min(maxTimestamp, HalyardTableUtils.toHalyardTimestamp(timestamp + 1, false));
+			asOf.maxVersions = maxVersions;
+			asOf.maxParallelContexts = maxParallelContexts;
+			return asOf;
+		}
 	}
 
 	public static final class QueryInfo implements Comparable<QueryInfo> {
@@ -144,6 +172,7 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		private final String queryString;
 		private final TupleExpr queryExpr;
 		private final TupleExpr optimizedExpr;
+		QueryGovernor.Permit permit;
 
 		public QueryInfo(String connectionId, String queryString, TupleExpr queryExpr, TupleExpr optimizedExpr) {
 			this.connectionId = connectionId;
@@ -182,6 +211,9 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 
 		void end() {
 			endTimestamp = System.currentTimeMillis();
+			if (permit != null) {
+				permit.release();
+			}
 		}
 
 		@Override
@@ -208,6 +240,7 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 	}
 
 	private static final long STATUS_CACHING_TIMEOUT = 60000l;
+	private static final Duration INCREMENTAL_STATISTICS_CACHE_EXPIRY = Duration.ofMinutes(1L);
 
     private final Configuration conf; //the configuration of the HBase database
 	final TableName tableName;
@@ -237,6 +270,7 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 	private final ScanSettings scanSettings = new ScanSettings();
 	final SailConnectionFactory connFactory;
 	private EvaluationConfig evaluationConfig;
+	private QueryGovernor queryGovernor;
 	private StrategyConfig strategyConfig;
 	Connection hConnection;
 	final boolean hConnectionIsShared; //whether a Connection is provided or we need to create our own
@@ -244,6 +278,7 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 	volatile Optional<SearchClient> searchClient;
 	QueryCache queryCache;
 	private Cache<Pair<IRI, IRI>, Long> statisticsCache;
+	private boolean incrementalStatistics;
 	private HalyardEvaluationStatistics statistics;
 	String owner;
 	private MBeanManager<HBaseSail> mbeanManager;
@@ -368,8 +403,13 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		trackResultSize = evaluationConfig.trackResultSize;
 		trackResultTime = evaluationConfig.trackResultTime;
 		trackBranchOperatorsOnly = evaluationConfig.trackBranchOperatorsOnly;
+		scanSettings.maxParallelContexts = evaluationConfig.maxParallelContexts;
 		queryCache = new QueryCache(evaluationConfig.queryCacheSize);
-		statisticsCache = HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache();
+		queryGovernor = new QueryGovernor(evaluationConfig);
+		incrementalStatistics = conf.getBoolean(StatisticsDeltas.INCREMENTAL_STATS_PROPERTY, false);
+		// pending statistics deltas change continuously so don't cache them for long
+		statisticsCache = incrementalStatistics ? HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache(INCREMENTAL_STATISTICS_CACHE_EXPIRY)
+				: HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache();
 	}
 
 	@Override
@@ -430,6 +470,25 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		return (int) connections.estimatedSize();
 	}
 
+	@Override
+	public int getRunningQueryCount() {
+		return queryGovernor.getRunningQueryCount();
+	}
+
+	@Override
+	public long getRejectedQueryCount() {
+		return queryGovernor.getRejectedQueryCount();
+	}
+
+	@Override
+	public long getAbortedQueryCount() {
+		return queryGovernor.getAbortedQueryCount();
+	}
+
+	QueryGovernor getQueryGovernor() {
+		return queryGovernor;
+	}
+
 	@Override
 	public boolean isTrackResultSize() {
 		return trackResultSize;
@@ -486,6 +545,16 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		}
 	}
 
+	@Override
+	public long getQueryCacheHitCount() {
+		return queryCache.getHitCount();
+	}
+
+	@Override
+	public long getQueryCacheMissCount() {
+		return queryCache.getMissCount();
+	}
+
 	@Override
 	public void clearQueryCache() {
 		queryCache.clear();
@@ -496,6 +565,23 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		statisticsCache.invalidateAll();
 	}
 
+	public boolean isIncrementalStatisticsEnabled() {
+		return incrementalStatistics;
+	}
+
+	@Override
+	public long compactStatistics() {
+		try (HBaseSailConnection conn = getConnection()) {
+			try (Table table = getTable()) {
+				return StatisticsDeltas.compact(conn, table, rdfFactory, valueFactory);
+			}
+		} catch (IOException e) {
+			throw new SailException(e);
+		} finally {
+			statisticsCache.invalidateAll();
+		}
+	}
+
 	@Override
 	public List<String> getSearchNodes() {
 		return esTransport.map(t -> t.restClient().getNodes().stream().map(n -> n.getHost().toString()).collect(Collectors.toList())).orElse(null);
@@ -510,6 +596,17 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		return statistics;
 	}
 
+	Table getTable() {
+		if (hConnection == null) {
+			throw new SailException("Snapshots are not modifiable");
+		}
+		try {
+			return hConnection.getTable(tableName);
+		} catch (IOException e) {
+			throw new SailException(e);
+		}
+	}
+
 	BufferedMutator getBufferedMutator() {
 		if (hConnection == null) {
 			throw new SailException("Snapshots are not modifiable");
@@ -521,8 +618,9 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		}
 	}
 
-	QueryInfo trackQuery(HBaseSailConnection conn, String sourceString, TupleExpr rawExpr, TupleExpr optimizedExpr) {
+	QueryInfo trackQuery(HBaseSailConnection conn, String sourceString, TupleExpr rawExpr, TupleExpr optimizedExpr, QueryGovernor.Permit permit) {
 		QueryInfo query = new QueryInfo(conn.getId(), sourceString, rawExpr, optimizedExpr);
+		query.permit = permit;
 		queryHistory.add(query);
 		if (queryHistorySize.incrementAndGet() > evaluationConfig.maxQueryHistorySize) {
 			queryHistory.remove();
@@ -549,8 +647,11 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		if (keyspace == null) {
 			throw new IllegalStateException("Sail is not initialized");
 		}
-		StatementPatternCardinalityCalculator.Factory spcalcFactory = () -> new HalyardStatsBasedStatementPatternCardinalityCalculator(new HBaseTripleSource(keyspace.getConnection(), valueFactory, stmtIndices, evaluationTimeoutSecs, null),
-				rdfFactory, statisticsCache);
+		StatementPatternCardinalityCalculator.Factory spcalcFactory = () -> {
+			KeyspaceConnection keyspaceConn = keyspace.getConnection();
+			return new HalyardStatsBasedStatementPatternCardinalityCalculator(new HBaseTripleSource(keyspaceConn, valueFactory, stmtIndices, evaluationTimeoutSecs, null),
+				rdfFactory, statisticsCache, incrementalStatistics ? keyspaceConn : null);
+		};
 		ServiceStatisticsProvider srvStatsProvider = new ServiceStatisticsProvider() {
 			final Map<String, Optional<ExtendedEvaluationStatistics>> serviceToStats = new HashMap<>();
 
@@ -696,9 +797,25 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 	}
 
 	HBaseTripleSource createTripleSource(KeyspaceConnection keyspaceConn, boolean includeInferred, int forkIndex) {
-		QueryPreparer.Factory qpFactory = () -> new SailConnectionQueryPreparer(getConnection(), includeInferred, getValueFactory());
-		return getSearchClient().<HBaseTripleSource>map(sc -> new HBaseSearchTripleSource(keyspaceConn, getValueFactory(), getStatementIndices(), evaluationTimeoutSecs, qpFactory, getScanSettings(), sc, ticker, forkIndex))
-				.orElseGet(() -> new HBaseTripleSource(keyspaceConn, getValueFactory(), getStatementIndices(), evaluationTimeoutSecs, qpFactory, getScanSettings(), ticker, forkIndex));
+		return createTripleSource(keyspaceConn, includeInferred, forkIndex, getScanSettings());
+	}
+
+	HBaseTripleSource createTripleSource(KeyspaceConnection keyspaceConn, boolean includeInferred, int forkIndex, ScanSettings settings) {
+		return createTripleSource(keyspaceConn, includeInferred, forkIndex, settings, null);
+	}
+
+	/**
+	 * @param permit permit of the query being evaluated, if any, which queries prepared through the triple source then run under
+	 */
+	HBaseTripleSource createTripleSource(KeyspaceConnection keyspaceConn, boolean includeInferred, int forkIndex, ScanSettings settings, @Nullable QueryGovernor.Permit permit) {
+		Ticker queryTicker = (permit != null) ? permit.ticker(ticker) : ticker;
+		QueryPreparer.Factory qpFactory = () -> {
+			HBaseSailConnection conn = getConnection();
+			conn.setParentPermit(permit);
+			return new SailConnectionQueryPreparer(conn, includeInferred, getValueFactory());
+		};
+		return getSearchClient().<HBaseTripleSource>map(sc -> new HBaseSearchTripleSource(keyspaceConn, getValueFactory(), getStatementIndices(), evaluationTimeoutSecs, qpFactory, settings, sc, queryTicker, forkIndex))
+				.orElseGet(() -> new HBaseTripleSource(keyspaceConn, getValueFactory(), getStatementIndices(), evaluationTimeoutSecs, qpFactory, settings, queryTicker, forkIndex));
 	}
 
 	public RDFFactory getRDFFactory() {
@@ -44,6 +44,7 @@ import com.msd.gin.halyard.strategy.HalyardEvaluationStrategy;
 import com.msd.gin.halyard.util.MBeanManager;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -56,10 +57,9 @@ import javax.annotation.Nullable;
 
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.BufferedMutator;
-import org.apache.hadoop.hbase.client.Delete;
-import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Table;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.ConvertingIteration;
 import org.eclipse.rdf4j.common.iteration.EmptyIteration;
@@ -77,6 +77,7 @@ import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Triple;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.datatypes.XMLDatatypeUtil;
 import org.eclipse.rdf4j.model.impl.SimpleNamespace;
 import org.eclipse.rdf4j.model.util.Literals;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
@@ -113,18 +114,29 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 	public static final String SOURCE_STRING_BINDING = internalBinding("source");
 	public static final String UPDATE_PART_BINDING = internalBinding("update_part");
 	private static final int NO_UPDATE_PARTS = -1;
+	private static final int DELETE_BATCH_SIZE = 1000;
 	public static final String FORK_INDEX_BINDING = internalBinding("fork_index");
+	/**
+	 * Evaluates the query against the state of the store at the given time (an xsd:dateTime or milliseconds since the epoch),
+	 * provided the table keeps enough versions.
+	 */
+	public static final String AS_OF_BINDING = internalBinding("as_of");
 	private static final String CONNECTION_ID_ATTRIBUTE = "connectionId";
+	private static final String TENANT_ATTRIBUTE = "tenant";
 
 	private final HBaseSail sail;
 	private final String id;
 	private final boolean usePush;
 	private boolean trackBranchOperatorsOnly;
+	private String tenant;
+	private QueryGovernor.Permit parentPermit;
 	private KeyspaceConnection keyspaceConn;
 	private HalyardEvaluationExecutor executor;
 	private boolean executorIsShared;
 	private BufferedMutator mutator;
+	private PipelinedUpdateWriter updateWriter;
 	private int pendingUpdateCount;
+	private StatisticsDeltas statsDeltas;
 	private boolean flushWritesBeforeReads = true;
 	private long lastTimestamp = Long.MIN_VALUE;
 	private boolean lastUpdateWasDelete;
@@ -158,6 +170,25 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 		trackBranchOperatorsOnly = f;
 	}
 
+	public String getTenant() {
+		return tenant;
+	}
+
+	/**
+	 * Sets who queries on this connection are run on behalf of, for per-tenant admission control.
+	 */
+	public void setTenant(String tenant) {
+		this.tenant = tenant;
+	}
+
+	/**
+	 * Sets the permit of the query that this connection runs nested queries for, e.g. for SPIN functions.
+	 * Such queries are not admitted separately, so that they cannot be starved by their own parent.
+	 */
+	void setParentPermit(QueryGovernor.Permit permit) {
+		this.parentPermit = permit;
+	}
+
 	public boolean isFlushWritesBeforeReadsEnabled() {
 		return flushWritesBeforeReads;
 	}
@@ -173,6 +204,9 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 		if (executor == null) {
 			Map<String, String> attrs = new LinkedHashMap<>();
 			attrs.put(CONNECTION_ID_ATTRIBUTE, getId());
+			if (tenant != null) {
+				attrs.put(TENANT_ATTRIBUTE, tenant);
+			}
 			attrs.putAll(sail.getConnectionAttributes(MBeanManager.getId(sail)));
 			String sourceName = (sail.tableName != null) ? sail.tableName.getNameAsString() : sail.snapshotName;
 			// snapshots: due to region file locking must open/close iterator from the same thread!
@@ -192,6 +226,22 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
     	return mutator;
     }
 
+	/**
+	 * Update operations write through background writer threads if any are configured.
+	 * Pipelined writes bypass {@link #put(List)} and {@link #delete(List)}, so subclasses that override those must disable this.
+	 */
+	protected boolean isPipelined(UpdateContext op) {
+		return op != null && sail.getEvaluationConfig().updateWriterThreads > 0;
+	}
+
+	private PipelinedUpdateWriter getUpdateWriter() {
+		if (updateWriter == null) {
+			EvaluationConfig config = sail.getEvaluationConfig();
+			updateWriter = new PipelinedUpdateWriter(sail.getStatementIndices(), getBufferedMutator(), this::countStatement, config.updateWriterThreads, config.updateWriterBatchSize);
+		}
+		return updateWriter;
+	}
+
     @Override
     public boolean isOpen() throws SailException {
 		return keyspaceConn != null;
@@ -213,6 +263,7 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 					throw new SailException(e);
 				} finally {
 					mutator = null;
+					updateWriter = null;
 				}
 			}
 
@@ -295,7 +346,7 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 			optimizedTree = bindOptimize(tupleExpr, dataset, bindings, includeInferred, tripleSource, strategy);
 			LOGGER.debug("Query tree after optimization (binding-optimized):\n{}", optimizedTree);
 		} else if (sourceString != null && cloneTupleExpression) {
-			optimizedTree = sail.queryCache.getOptimizedQuery(this, sourceString, updatePart, tupleExpr, dataset, bindings, includeInferred, tripleSource, strategy);
+			optimizedTree = sail.queryCache.getOptimizedQuery(this, updatePart, tupleExpr, dataset, bindings, includeInferred, tripleSource, strategy, sail.getStatistics());
 			LOGGER.debug("Query tree after optimization (cached):\n{}", optimizedTree);
 		} else {
 			optimizedTree = optimize(tupleExpr, dataset, bindings, includeInferred, tripleSource, strategy);
@@ -388,16 +439,53 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 		String sourceString = Literals.getLabel(bindings.getValue(SOURCE_STRING_BINDING), null);
 		int updatePart = Literals.getIntValue(bindings.getValue(UPDATE_PART_BINDING), NO_UPDATE_PARTS);
 		int forkIndex = Literals.getIntValue(bindings.getValue(FORK_INDEX_BINDING), StatementIndices.NO_PARTITIONING);
+		HBaseSail.ScanSettings scanSettings = getScanSettings(bindings.getValue(AS_OF_BINDING));
 		BindingSet queryBindings = removeImplicitBindings(bindings);
 
-		RDFStarTripleSource tripleSource = sail.createTripleSource(keyspaceConn, includeInferred, forkIndex);
-		EvaluationStrategy strategy = createEvaluationStrategy(tripleSource, dataset);
+		QueryGovernor.Permit permit = (parentPermit != null) ? parentPermit.nested() : sail.getQueryGovernor().admit(tenant);
+		HBaseSail.QueryInfo queryInfo;
+		TupleExpr optimizedTree;
+		QueryEvaluationStep step;
+		try {
+			RDFStarTripleSource tripleSource = sail.createTripleSource(keyspaceConn, includeInferred, forkIndex, scanSettings, permit);
+			EvaluationStrategy strategy = createEvaluationStrategy(tripleSource, dataset);
+
+			optimizedTree = getOptimizedQuery(sourceString, updatePart, tupleExpr, dataset, queryBindings, includeInferred, tripleSource, strategy);
+			QueryEvaluationContext evalContext = new QueryEvaluationContext.Minimal(dataset, tripleSource.getValueFactory());
+			step = strategy.precompile(optimizedTree, evalContext);
+			queryInfo = sail.trackQuery(this, sourceString, tupleExpr, optimizedTree, permit);
+		} catch (RuntimeException | Error e) {
+			permit.release();
+			throw e;
+		}
+		try {
+			return evaluator.evaluate(optimizedTree, step, queryInfo);
+		} catch (RuntimeException | Error e) {
+			queryInfo.end();
+			throw e;
+		}
+	}
 
-		TupleExpr optimizedTree = getOptimizedQuery(sourceString, updatePart, tupleExpr, dataset, queryBindings, includeInferred, tripleSource, strategy);
-		QueryEvaluationContext evalContext = new QueryEvaluationContext.Minimal(dataset, tripleSource.getValueFactory());
-		QueryEvaluationStep step = strategy.precompile(optimizedTree, evalContext);
-		HBaseSail.QueryInfo queryInfo = sail.trackQuery(this, sourceString, tupleExpr, optimizedTree);
-		return evaluator.evaluate(optimizedTree, step, queryInfo);
+	private HBaseSail.ScanSettings getScanSettings(Value asOf) {
+		HBaseSail.ScanSettings settings = sail.getScanSettings();
+		if (asOf == null) {
+			return settings;
+		}
+		if (!asOf.isLiteral()) {
+			throw new QueryEvaluationException(String.format("Invalid %s value: %s", AS_OF_BINDING, asOf));
+		}
+		Literal l = (Literal) asOf;
+		long timestamp;
+		try {
+			if (XMLDatatypeUtil.isCalendarDatatype(l.getDatatype())) {
+				timestamp = l.calendarValue().toGregorianCalendar().getTimeInMillis();
+			} else {
+				timestamp = l.longValue();
+			}
+		} catch (IllegalArgumentException e) {
+			throw new QueryEvaluationException(String.format("Invalid %s value: %s", AS_OF_BINDING, asOf), e);
+		}
+		return settings.asOf(timestamp);
 	}
 
 	private BindingSet removeImplicitBindings(BindingSet bs) {
@@ -463,7 +551,7 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 					final ResultScanner rs;
 
 					StatementScanner(RDFFactory rdfFactory) throws IOException {
-						super(sail.getStatementIndices(), sail.getValueFactory());
+						super(sail.getStatementIndices(), HBaseSailConnection.this.keyspaceConn, sail.getValueFactory());
 						rs = keyspaceConn.getScanner(sail.getStatementIndices().getCSPOIndex().scan());
 					}
 
@@ -588,8 +676,22 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
     public void flush() throws SailException {
 		if (pendingUpdateCount > 0) {
 			try {
+				if (updateWriter != null) {
+					try {
+						updateWriter.flush();
+					} catch (IOException | RuntimeException e) {
+						// a failed writer stays failed
+						updateWriter = null;
+						throw e;
+					}
+				}
 				mutator.flush();
 				pendingUpdateCount = 0;
+				if (statsDeltas != null && !statsDeltas.isEmpty()) {
+					try (Table table = sail.getTable()) {
+						statsDeltas.flush(table);
+					}
+				}
 			} catch (IOException e) {
 				throw new SailException(e);
 			}
@@ -657,7 +759,7 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
     @Override
     public void addStatement(UpdateContext op, Resource subj, IRI pred, Value obj, Resource... contexts) throws SailException {
 		long timestamp = getTimestamp(op, false);
-        addStatementInternal(subj, pred, obj, contexts, timestamp);
+        addStatementInternal(subj, pred, obj, contexts, timestamp, isPipelined(op));
     }
 
 	public void addSystemStatement(Resource subj, IRI pred, Value obj, Resource context, long timestamp) throws SailException {
@@ -678,7 +780,7 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 		}
     }
 
-	private void addStatementInternal(Resource subj, IRI pred, Value obj, Resource[] contexts, long timestamp) throws SailException {
+	private void addStatementInternal(Resource subj, IRI pred, Value obj, Resource[] contexts, long timestamp, boolean pipelined) throws SailException {
     	checkWritable();
 		if (contexts == null || contexts.length == 0) {
 			// if all contexts then insert into the default context
@@ -686,7 +788,11 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 		}
         try {
 			for (Resource ctx : contexts) {
-				insertStatement(subj, pred, obj, ctx, timestamp);
+				if (pipelined) {
+					insertStatementPipelined(subj, pred, obj, ctx, timestamp);
+				} else {
+					insertStatement(subj, pred, obj, ctx, timestamp);
+				}
 			}
         } catch (IOException e) {
             throw new SailException(e);
@@ -694,25 +800,40 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
     }
 
 	protected int insertStatement(Resource subj, IRI pred, Value obj, @Nullable Resource ctx, long timestamp) throws IOException {
+		checkContext(ctx);
+		List<? extends KeyValue> kvs = sail.getStatementIndices().insertKeyValues(subj, pred, obj, ctx, timestamp);
+		put(kvs);
+		countStatement(subj, pred, obj, ctx, 1);
+		return kvs.size();
+	}
+
+	private void insertStatementPipelined(Resource subj, IRI pred, Value obj, @Nullable Resource ctx, long timestamp) throws IOException {
+		checkContext(ctx);
+		getUpdateWriter().insert(subj, pred, obj, ctx, timestamp);
+		pendingUpdateCount++;
+	}
+
+	private static void checkContext(@Nullable Resource ctx) {
 		if (ctx != null && ctx.isTriple()) {
 			throw new SailException("context argument can not be of type Triple: " + ctx);
 		}
-		List<? extends KeyValue> kvs = sail.getStatementIndices().insertKeyValues(subj, pred, obj, ctx, timestamp);
-		for (KeyValue kv : kvs) {
-			put(kv);
-		}
-		return kvs.size();
 	}
 
 	private void insertSystemStatement(Resource subj, IRI pred, Value obj, Resource ctx, long timestamp) throws IOException {
-		for (KeyValue kv : sail.getStatementIndices().insertNonDefaultKeyValues(subj, pred, obj, ctx, timestamp)) {
-			put(kv);
-		}
+		put(sail.getStatementIndices().insertNonDefaultKeyValues(subj, pred, obj, ctx, timestamp));
 	}
 
-	protected void put(KeyValue kv) throws IOException {
-		getBufferedMutator().mutate(new Put(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength(), kv.getTimestamp()).add(kv));
-		pendingUpdateCount++;
+	protected void put(List<? extends KeyValue> kvs) throws IOException {
+		mutate(kvs, false);
+	}
+
+	private void mutate(List<? extends KeyValue> kvs, boolean delete) throws IOException {
+		MutationBatch batch = new MutationBatch();
+		batch.add(kvs, delete);
+		if (!batch.isEmpty()) {
+			getBufferedMutator().mutate(batch.toMutations());
+			pendingUpdateCount++;
+		}
 	}
 	
 	@Override
@@ -754,13 +875,19 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 			}
 
 			TripleSet triples = new TripleSet();
+			boolean pipelined = isPipelined(op);
+			// scanned values are not decoded, their keys are derived from their serialized form
+			List<Statement> batch = new ArrayList<>(DELETE_BATCH_SIZE);
 			try (CloseableIteration<? extends Statement, SailException> iter = getStatements(subjPattern, predPattern, objPattern, true, contexts)) {
 				while (iter.hasNext()) {
 					Statement st = iter.next();
+					batch.add(st);
+					if (batch.size() == DELETE_BATCH_SIZE) {
+						deleteStatements(batch, timestamp, pipelined);
+						batch.clear();
+					}
 					Resource subj = st.getSubject();
-					IRI pred = st.getPredicate();
 					Value obj = st.getObject();
-					deleteStatement(subj, pred, obj, st.getContext(), timestamp);
 					if (subj.isTriple()) {
 						triples.add((Triple) subj);
 					}
@@ -769,6 +896,9 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 					}
 					counter++;
 				}
+				if (!batch.isEmpty()) {
+					deleteStatements(batch, timestamp, pipelined);
+				}
 				triples.removeAll();
 			} catch (IOException e) {
 				throw new SailException(e);
@@ -782,9 +912,14 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 		checkWritable();
 		if (subj != null && pred != null && obj != null && contexts != null && contexts.length > 0) {
 			long timestamp = getTimestamp(op, true);
+			boolean pipelined = isPipelined(op);
 			try {
 				for (Resource ctx : contexts) {
-					deleteStatement(subj, pred, obj, ctx, timestamp);
+					if (pipelined) {
+						deleteStatementPipelined(subj, pred, obj, ctx, timestamp);
+					} else {
+						deleteStatement(subj, pred, obj, ctx, timestamp);
+					}
 				}
 				if (subj.isTriple()) {
 					removeTriple((Triple) subj, timestamp);
@@ -825,12 +960,54 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 
 	protected int deleteStatement(Resource subj, IRI pred, Value obj, Resource ctx, long timestamp) throws IOException {
 		List<? extends KeyValue> kvs = sail.getStatementIndices().deleteKeyValues(subj, pred, obj, ctx, timestamp);
-		for (KeyValue kv : kvs) {
-			delete(kv);
+		delete(kvs);
+		countStatement(subj, pred, obj, ctx, -1);
+		return kvs.size();
+	}
+
+	/**
+	 * Deletes a batch of statements with a single list of mutations.
+	 * @return number of key-values deleted
+	 */
+	protected int deleteStatements(List<? extends Statement> stmts, long timestamp) throws IOException {
+		StatementIndices indices = sail.getStatementIndices();
+		List<KeyValue> kvs = new ArrayList<>(stmts.size() * 6);
+		for (Statement st : stmts) {
+			Resource subj = st.getSubject();
+			IRI pred = st.getPredicate();
+			Value obj = st.getObject();
+			Resource ctx = st.getContext();
+			kvs.addAll(indices.deleteKeyValues(subj, pred, obj, ctx, timestamp));
+			countStatement(subj, pred, obj, ctx, -1);
 		}
+		delete(kvs);
 		return kvs.size();
 	}
 
+	private void deleteStatements(List<? extends Statement> stmts, long timestamp, boolean pipelined) throws IOException {
+		if (pipelined) {
+			for (Statement st : stmts) {
+				deleteStatementPipelined(st.getSubject(), st.getPredicate(), st.getObject(), st.getContext(), timestamp);
+			}
+		} else {
+			deleteStatements(stmts, timestamp);
+		}
+	}
+
+	private void deleteStatementPipelined(Resource subj, IRI pred, Value obj, Resource ctx, long timestamp) throws IOException {
+		getUpdateWriter().delete(subj, pred, obj, ctx, timestamp);
+		pendingUpdateCount++;
+	}
+
+	private void countStatement(Resource subj, IRI pred, Value obj, @Nullable Resource ctx, int delta) {
+		if (sail.isIncrementalStatisticsEnabled()) {
+			if (statsDeltas == null) {
+				statsDeltas = new StatisticsDeltas(sail.getRDFFactory());
+			}
+			statsDeltas.add(subj, pred, obj, ctx, delta);
+		}
+	}
+
 	private void deleteSystemStatements(@Nullable Resource subj, @Nullable IRI pred, @Nullable Value obj, long timestamp, Resource... contexts) throws IOException {
 		try (CloseableIteration<? extends Statement, SailException> iter = getStatements(subj, pred, obj, true, contexts)) {
 			while (iter.hasNext()) {
@@ -841,14 +1018,11 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 	}
 
 	private void deleteSystemStatement(Resource subj, IRI pred, Value obj, Resource ctx, long timestamp) throws IOException {
-		for (KeyValue kv : sail.getStatementIndices().deleteNonDefaultKeyValues(subj, pred, obj, ctx, timestamp)) {
-			delete(kv);
-		}
+		delete(sail.getStatementIndices().deleteNonDefaultKeyValues(subj, pred, obj, ctx, timestamp));
 	}
 
-	protected void delete(KeyValue kv) throws IOException {
-		getBufferedMutator().mutate(new Delete(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength()).add(kv));
-		pendingUpdateCount++;
+	protected void delete(List<? extends KeyValue> kvs) throws IOException {
+		mutate(kvs, true);
 	}
 
     @Override
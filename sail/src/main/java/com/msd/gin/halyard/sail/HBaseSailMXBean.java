@@ -30,12 +30,34 @@ public interface HBaseSailMXBean {
 
 	int getConnectionCount();
 
+	int getRunningQueryCount();
+
+	/**
+	 * @return number of queries turned away by admission control
+	 */
+	long getRejectedQueryCount();
+
+	/**
+	 * @return number of queries stopped for exceeding their resource budget
+	 */
+	long getAbortedQueryCount();
+
 	void killConnection(String id);
 
+	long getQueryCacheHitCount();
+
+	long getQueryCacheMissCount();
+
 	void clearQueryCache();
 
 	void clearStatisticsCache();
 
+	/**
+	 * Folds any pending incremental statistics into the statistics graph.
+	 * @return number of folded statistics
+	 */
+	long compactStatistics();
+
 	List<String> getSearchNodes();
 
 	org.apache.http.pool.PoolStats getSearchConnectionPoolStats();
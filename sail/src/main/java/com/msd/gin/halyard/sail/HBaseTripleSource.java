@@ -29,6 +29,7 @@ import com.msd.gin.halyard.common.StatementIndices;
 import com.msd.gin.halyard.common.TimestampedValueFactory;
 import com.msd.gin.halyard.common.ValueConstraint;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
+import com.msd.gin.halyard.query.algebra.evaluation.BatchTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.CloseableTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.ExtendedTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.PartitionableTripleSource;
@@ -36,6 +37,7 @@ import com.msd.gin.halyard.query.algebra.evaluation.QueryPreparer;
 import com.msd.gin.halyard.query.algebra.evaluation.function.ParallelSplitFunction;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -43,7 +45,13 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
 
@@ -69,8 +77,24 @@ import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSource, PartitionableTripleSource, CloseableTripleSource {
+public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSource, PartitionableTripleSource, BatchTripleSource, CloseableTripleSource {
 	private static final Logger LOG = LoggerFactory.getLogger(HBaseTripleSource.class);
+	private static final int PARALLEL_SCAN_QUEUE_SIZE = 1024;
+	private static final long PARALLEL_SCAN_OFFER_MILLIS = 100L;
+	private static final int MAX_PARALLEL_SCAN_THREADS = 4 * Runtime.getRuntime().availableProcessors();
+	// bounds the scan threads across all scanners, the executor only creates threads for scans that hold a permit
+	private static final Semaphore SCAN_THREAD_PERMITS = new Semaphore(MAX_PARALLEL_SCAN_THREADS);
+	private static final ExecutorService SCAN_EXECUTOR = createScanExecutor();
+
+	private static ExecutorService createScanExecutor() {
+		AtomicInteger threadSeq = new AtomicInteger();
+		return Executors.newCachedThreadPool(r -> {
+			Thread thr = new Thread(r, "Halyard scanner " + threadSeq.incrementAndGet());
+			thr.setDaemon(true);
+			thr.setUncaughtExceptionHandler((t,e) -> LOG.warn("Thread {} exited due to an uncaught exception", t.getName(), e));
+			return thr;
+		});
+	}
 
 	protected final KeyspaceConnection keyspaceConn;
 	protected final ValueFactory vf;
@@ -149,6 +173,56 @@ public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSou
 		}
 	}
 
+	/**
+	 * Looks up all the patterns with a single multi-range scan per context.
+	 */
+	@Override
+	public final CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(Resource[] subjs, IRI[] preds, Value[] objs, Resource... contexts) throws QueryEvaluationException {
+		List<RDFSubject> subjects = new ArrayList<>(subjs.length);
+		List<RDFPredicate> predicates = new ArrayList<>(subjs.length);
+		List<RDFObject> objects = new ArrayList<>(subjs.length);
+		for (int i=0; i<subjs.length; i++) {
+			// cache magic property definitions here
+			if (!(RDF.TYPE.equals(preds[i]) && SPIN.MAGIC_PROPERTY_CLASS.equals(objs[i]))) {
+				subjects.add(rdfFactory.createSubject(subjs[i]));
+				predicates.add(rdfFactory.createPredicate(preds[i]));
+				objects.add(rdfFactory.createObject(objs[i]));
+			}
+		}
+		if (subjects.isEmpty()) {
+			return EMPTY_ITERATION;
+		} else {
+			QueryContexts queryContexts = new QueryContexts(contexts);
+			return toQueryIteration(new BatchStatementScanner(subjects, predicates, objects, queryContexts.contextsToScan), queryContexts);
+		}
+	}
+
+	/**
+	 * Looks up the subject with a single multi-range scan over the predicate prefixes per context.
+	 */
+	@Override
+	public final CloseableIteration<? extends Statement, QueryEvaluationException> getSubjectStatements(Resource subj, Set<IRI> preds, Resource... contexts) throws QueryEvaluationException {
+		int n = preds.size();
+		if (n == 1) {
+			return getStatements(subj, preds.iterator().next(), null, contexts);
+		}
+		RDFSubject subject = rdfFactory.createSubject(subj);
+		List<RDFSubject> subjects = new ArrayList<>(n);
+		List<RDFPredicate> predicates = new ArrayList<>(n);
+		List<RDFObject> objects = new ArrayList<>(n);
+		for (IRI pred : preds) {
+			subjects.add(subject);
+			predicates.add(rdfFactory.createPredicate(pred));
+			objects.add(null);
+		}
+		if (subjects.isEmpty()) {
+			return EMPTY_ITERATION;
+		} else {
+			QueryContexts queryContexts = new QueryContexts(contexts);
+			return toQueryIteration(new BatchStatementScanner(subjects, predicates, objects, queryContexts.contextsToScan), queryContexts);
+		}
+	}
+
 	@Override
 	public final boolean hasStatement(Resource subj, IRI pred, Value obj, Resource... contexts) throws QueryEvaluationException {
 		if (RDF.TYPE.equals(pred) && SPIN.MAGIC_PROPERTY_CLASS.equals(obj)) {
@@ -160,9 +234,45 @@ public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSou
 		}
 	}
 
+	/**
+	 * Counts on the server side where the table has {@link com.msd.gin.halyard.common.StatementCountEndpoint} installed.
+	 */
+	@Override
+	public final long countStatements(Resource subj, IRI pred, Value obj, Resource... contexts) throws QueryEvaluationException {
+		if (RDF.TYPE.equals(pred) && SPIN.MAGIC_PROPERTY_CLASS.equals(obj)) {
+			// cache magic property definitions here
+			return 0L;
+		}
+		QueryContexts queryContexts = new QueryContexts(contexts);
+		if (queryContexts.contextsToFilter != null) {
+			// not possible to optimise
+			return ExtendedTripleSource.super.countStatements(subj, pred, obj, contexts);
+		}
+		RDFSubject subject = rdfFactory.createSubject(subj);
+		RDFPredicate predicate = rdfFactory.createPredicate(pred);
+		RDFObject object = rdfFactory.createObject(obj);
+		long count = 0L;
+		for (Resource ctx : queryContexts.contextsToScan) {
+			RDFContext context = rdfFactory.createContext(ctx);
+			try {
+				Scan scan = scan(subject, predicate, object, context);
+				if (scan != null) {
+					count += keyspaceConn.count(scan);
+				}
+			} catch (IOException e) {
+				throw new QueryEvaluationException(e);
+			}
+		}
+		return count;
+	}
+
 	private CloseableIteration<? extends Statement, QueryEvaluationException> getStatementsInternal(Resource subj, IRI pred, Value obj, QueryContexts queryContexts) {
+		return toQueryIteration(createStatementScanner(subj, pred, obj, queryContexts.contextsToScan), queryContexts);
+	}
+
+	private CloseableIteration<? extends Statement, QueryEvaluationException> toQueryIteration(CloseableIteration<? extends Statement, IOException> scanner, QueryContexts queryContexts) {
 		CloseableIteration<? extends Statement, QueryEvaluationException> iter = timeLimit(
-				new ExceptionConvertingIteration<Statement, QueryEvaluationException>(createStatementScanner(subj, pred, obj, queryContexts.contextsToScan)) {
+				new ExceptionConvertingIteration<Statement, QueryEvaluationException>(scanner) {
 			@Override
 			protected QueryEvaluationException convert(Exception e) {
 				return new QueryEvaluationException(e);
@@ -180,7 +290,11 @@ public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSou
 	}
 
 	protected CloseableIteration<? extends Statement, IOException> createStatementScanner(Resource subj, IRI pred, Value obj, List<Resource> contexts) {
-		return new StatementScanner(subj, pred, obj, contexts);
+		if (contexts.size() > 1 && settings != null && settings.maxParallelContexts > 1) {
+			return new ParallelStatementScanner(subj, pred, obj, contexts, settings.maxParallelContexts);
+		} else {
+			return new StatementScanner(subj, pred, obj, contexts);
+		}
 	}
 
 	protected boolean hasStatementInternal(Resource subj, IRI pred, Value obj, QueryContexts queryContexts) throws QueryEvaluationException {
@@ -271,7 +385,7 @@ public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSou
 		private ResultScanner rs = null;
 
 		public StatementScanner(Resource subj, IRI pred, Value obj, List<Resource> contextsList) {
-			super(HBaseTripleSource.this.stmtIndices, HBaseTripleSource.this.vf);
+			super(HBaseTripleSource.this.stmtIndices, HBaseTripleSource.this.keyspaceConn, HBaseTripleSource.this.vf);
 			this.subj = rdfFactory.createSubject(subj);
 			this.pred = rdfFactory.createPredicate(pred);
 			this.obj = rdfFactory.createObject(obj);
@@ -298,7 +412,244 @@ public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSou
 				}
 				Result res = rs.next();
 				if (ticker != null) {
-					ticker.tick(); // sends a tick for keep alive purposes
+					ticker.tick((res != null) ? Result.getTotalSizeOfCells(res) : 0L); // sends a tick for keep alive purposes
+				}
+				if (res == null) { // no more results from this ResultScanner, close and clean up.
+					rs.close();
+					rs = null;
+				} else {
+					return res;
+				}
+			}
+		}
+
+		@Override
+		protected void handleClose() throws IOException {
+			super.handleClose();
+			if (rs != null) {
+				rs.close();
+				rs = null;
+			}
+		}
+	}
+
+	/**
+	 * Scans multiple contexts concurrently, up to a limit, and merges the results.
+	 * Scan threads block when the merge queue is full, and stop as soon as the scanner is closed.
+	 * If all the shared scan threads are busy, contexts are scanned on the calling thread instead.
+	 */
+	protected class ParallelStatementScanner extends AbstractStatementScanner {
+		private final Iterator<Resource> contexts;
+		private final int maxParallelContexts;
+		private final BlockingQueue<ContextResult> queue = new ArrayBlockingQueue<>(PARALLEL_SCAN_QUEUE_SIZE);
+		private volatile boolean closed;
+		private int running;
+		private RDFContext inlineCtx;
+		private ResultScanner inlineRs;
+
+		public ParallelStatementScanner(Resource subj, IRI pred, Value obj, List<Resource> contextsList, int maxParallelContexts) {
+			super(HBaseTripleSource.this.stmtIndices, HBaseTripleSource.this.keyspaceConn, HBaseTripleSource.this.vf);
+			this.subj = rdfFactory.createSubject(subj);
+			this.pred = rdfFactory.createPredicate(pred);
+			this.obj = rdfFactory.createObject(obj);
+			this.contexts = contextsList.iterator();
+			this.maxParallelContexts = maxParallelContexts;
+			LOG.trace("New ParallelStatementScanner {} {} {} {}", subj, pred, obj, contextsList);
+		}
+
+		/**
+		 * Starts scanning the next context on a shared scan thread, if one is available.
+		 */
+		private boolean startNextScan() {
+			if (!SCAN_THREAD_PERMITS.tryAcquire()) {
+				return false;
+			}
+			RDFContext scanCtx = rdfFactory.createContext(contexts.next());
+			try {
+				SCAN_EXECUTOR.execute(() -> {
+					try {
+						scanContext(scanCtx);
+					} finally {
+						SCAN_THREAD_PERMITS.release();
+					}
+				});
+			} catch (RuntimeException e) {
+				SCAN_THREAD_PERMITS.release();
+				throw e;
+			}
+			running++;
+			return true;
+		}
+
+		private void scanContext(RDFContext scanCtx) {
+			Throwable error = null;
+			try {
+				Scan scan = scan(subj, pred, obj, scanCtx);
+				if (scan != null) {
+					try (ResultScanner rs = keyspaceConn.getScanner(scan)) {
+						Result res;
+						while (!closed && (res = rs.next()) != null) {
+							if (!offer(new ContextResult(scanCtx, res, null))) {
+								return;
+							}
+						}
+					}
+				}
+			} catch (Throwable e) {
+				error = e;
+			} finally {
+				// always signal the end of the context scan, else the consumer would wait forever
+				offer(error != null ? new ContextResult(scanCtx, null, error) : ContextResult.END);
+			}
+		}
+
+		private boolean offer(ContextResult cr) {
+			try {
+				while (!closed) {
+					if (queue.offer(cr, PARALLEL_SCAN_OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return false;
+		}
+
+		protected Result nextResult() throws IOException {
+			while (true) {
+				if (inlineRs != null) {
+					Result res = inlineRs.next();
+					if (res != null) {
+						if (ticker != null) {
+							ticker.tick(Result.getTotalSizeOfCells(res)); // sends a tick for keep alive purposes
+						}
+						ctx = inlineCtx;
+						return res;
+					}
+					inlineRs.close();
+					inlineRs = null;
+				}
+				while (running < maxParallelContexts && contexts.hasNext()) {
+					if (!startNextScan()) {
+						break;
+					}
+				}
+				if (running > 0) {
+					Result res = nextQueuedResult();
+					if (res != null) {
+						return res;
+					}
+				} else if (contexts.hasNext()) {
+					// no scan threads available
+					inlineCtx = rdfFactory.createContext(contexts.next());
+					Scan scan = scan(subj, pred, obj, inlineCtx);
+					if (scan != null) {
+						inlineRs = keyspaceConn.getScanner(scan);
+					}
+				} else {
+					return null;
+				}
+			}
+		}
+
+		/**
+		 * Waits for the next result of the context scans.
+		 * @return next result, or null if a context scan has finished
+		 */
+		private Result nextQueuedResult() throws IOException {
+			ContextResult cr;
+			try {
+				cr = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+			if (cr.result != null) {
+				if (ticker != null) {
+					ticker.tick(Result.getTotalSizeOfCells(cr.result)); // sends a tick for keep alive purposes
+				}
+				ctx = cr.ctx;
+				return cr.result;
+			}
+			// a context scan has finished
+			running--;
+			if (cr.error instanceof IOException) {
+				throw (IOException) cr.error;
+			} else if (cr.error instanceof Error) {
+				throw (Error) cr.error;
+			} else if (cr.error != null) {
+				throw new IOException(cr.error);
+			}
+			return null;
+		}
+
+		@Override
+		protected void handleClose() throws IOException {
+			super.handleClose();
+			// running scans stop once they see this
+			closed = true;
+			queue.clear();
+			if (inlineRs != null) {
+				inlineRs.close();
+				inlineRs = null;
+			}
+		}
+	}
+
+	private static final class ContextResult {
+		static final ContextResult END = new ContextResult(null, null, null);
+
+		final RDFContext ctx;
+		final Result result;
+		final Throwable error;
+
+		ContextResult(RDFContext ctx, Result result, Throwable error) {
+			this.ctx = ctx;
+			this.result = result;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * Scans for multiple statement patterns at once.
+	 * Statements are returned for all rows within the key ranges of the patterns,
+	 * so callers are expected to match them back to the patterns.
+	 */
+	protected class BatchStatementScanner extends AbstractStatementScanner {
+
+		private final List<RDFSubject> subjs;
+		private final List<RDFPredicate> preds;
+		private final List<RDFObject> objs;
+		private final Iterator<Resource> contexts;
+		private ResultScanner rs = null;
+
+		public BatchStatementScanner(List<RDFSubject> subjs, List<RDFPredicate> preds, List<RDFObject> objs, List<Resource> contextsList) {
+			super(HBaseTripleSource.this.stmtIndices, HBaseTripleSource.this.keyspaceConn, HBaseTripleSource.this.vf);
+			this.subjs = subjs;
+			this.preds = preds;
+			this.objs = objs;
+			this.contexts = contextsList.iterator();
+			LOG.trace("New BatchStatementScanner {} patterns {}", subjs.size(), contextsList);
+		}
+
+		protected Result nextResult() throws IOException {
+			while (true) {
+				if (rs == null) {
+					if (contexts.hasNext()) {
+						ctx = rdfFactory.createContext(contexts.next());
+						Scan scan = scan(ctx);
+						if (scan == null) {
+							continue;
+						}
+						rs = keyspaceConn.getScanner(scan);
+					} else {
+						return null;
+					}
+				}
+				Result res = rs.next();
+				if (ticker != null) {
+					ticker.tick((res != null) ? Result.getTotalSizeOfCells(res) : 0L); // sends a tick for keep alive purposes
 				}
 				if (res == null) { // no more results from this ResultScanner, close and clean up.
 					rs.close();
@@ -309,6 +660,24 @@ public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSou
 			}
 		}
 
+		private Scan scan(RDFContext ctx) throws IOException {
+			int n = subjs.size();
+			List<Scan> scans = new ArrayList<>(n);
+			for (int i=0; i<n; i++) {
+				// overridable, e.g. to scan a partition only
+				Scan scan = HBaseTripleSource.this.scan(subjs.get(i), preds.get(i), objs.get(i), ctx);
+				if (scan != null) {
+					scans.add(scan);
+				}
+			}
+			if (scans.isEmpty()) {
+				return null;
+			}
+			Scan scan = HalyardTableUtils.scanRanges(scans);
+			applySettings(scan);
+			return scan;
+		}
+
 		@Override
 		protected void handleClose() throws IOException {
 			super.handleClose();
@@ -18,18 +18,22 @@ package com.msd.gin.halyard.sail;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.msd.gin.halyard.common.KeyspaceConnection;
 import com.msd.gin.halyard.common.RDFFactory;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.optimizers.SchemaBasedStatementPatternCardinalityCalculator;
 import com.msd.gin.halyard.query.algebra.evaluation.CloseableTripleSource;
+import com.msd.gin.halyard.util.HyperLogLog;
 import com.msd.gin.halyard.vocab.VOID_EXT;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -58,6 +62,7 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 	private static final Map<IRI, IRI> DISTINCT_PREDICATES = createDistinctPredicateMapping();
 	private static final Map<IRI, IRI> PARTITION_PREDICATES = createPartitionPredicateMapping();
 	private static final Map<IRI, IRI> PARTITION_THRESHOLD_PREDICATES = createPartitionThresholdPredicateMapping();
+	private static final Map<IRI, IRI> SKETCH_PREDICATES = createSketchPredicateMapping();
 
 	private static Map<IRI, IRI> createDistinctPredicateMapping() {
 		Map<IRI, IRI> mapping = new HashMap<>();
@@ -85,6 +90,17 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 		return Collections.unmodifiableMap(mapping);
 	}
 
+	/**
+	 * Maps distinct count predicates to the predicates of their persisted sketches.
+	 */
+	public static Map<IRI, IRI> createSketchPredicateMapping() {
+		Map<IRI, IRI> mapping = new HashMap<>();
+		mapping.put(VOID.DISTINCT_SUBJECTS, VOID_EXT.DISTINCT_SUBJECTS_SKETCH);
+		mapping.put(VOID.PROPERTIES, VOID_EXT.PROPERTIES_SKETCH);
+		mapping.put(VOID.DISTINCT_OBJECTS, VOID_EXT.DISTINCT_OBJECTS_SKETCH);
+		return Collections.unmodifiableMap(mapping);
+	}
+
 	public static abstract class PartitionIriTransformer {
 		public final String apply(IRI graph, IRI partitionType, Value partitionId) {
 			return HALYARD.DATASET_NS + graph.stringValue() + "," + partitionType.getLocalName() + "," + id(partitionId);
@@ -121,21 +137,38 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 	}
 
 	static Cache<Pair<IRI, IRI>, Long> newStatisticsCache() {
-		return Caffeine.newBuilder().maximumSize(1000).expireAfterWrite(1L, TimeUnit.DAYS).build();
+		return newStatisticsCache(Duration.ofDays(1L));
+	}
+
+	static Cache<Pair<IRI, IRI>, Long> newStatisticsCache(Duration expiry) {
+		return Caffeine.newBuilder().maximumSize(1000).expireAfterWrite(expiry).build();
 	}
 
 	private final CloseableTripleSource statsSource;
 	private final PartitionIriTransformer partitionIriTransformer;
 	private final Cache<Pair<IRI, IRI>, Long> stmtCountCache;
+	private final KeyspaceConnection deltaSource;
 
 	public HalyardStatsBasedStatementPatternCardinalityCalculator(CloseableTripleSource statsSource, RDFFactory rdfFactory, Cache<Pair<IRI, IRI>, Long> stmtCountCache) {
-		this(statsSource, createPartitionIriTransformer(rdfFactory), stmtCountCache);
+		this(statsSource, createPartitionIriTransformer(rdfFactory), stmtCountCache, null);
+	}
+
+	/**
+	 * @param deltaSource optional source of pending {@link StatisticsDeltas} to add to the statistics
+	 */
+	public HalyardStatsBasedStatementPatternCardinalityCalculator(CloseableTripleSource statsSource, RDFFactory rdfFactory, Cache<Pair<IRI, IRI>, Long> stmtCountCache, @Nullable KeyspaceConnection deltaSource) {
+		this(statsSource, createPartitionIriTransformer(rdfFactory), stmtCountCache, deltaSource);
 	}
 
 	public HalyardStatsBasedStatementPatternCardinalityCalculator(CloseableTripleSource statsSource, PartitionIriTransformer partitionIriTransformer, Cache<Pair<IRI, IRI>, Long> stmtCountCache) {
+		this(statsSource, partitionIriTransformer, stmtCountCache, null);
+	}
+
+	public HalyardStatsBasedStatementPatternCardinalityCalculator(CloseableTripleSource statsSource, PartitionIriTransformer partitionIriTransformer, Cache<Pair<IRI, IRI>, Long> stmtCountCache, @Nullable KeyspaceConnection deltaSource) {
 		this.statsSource = statsSource;
 		this.partitionIriTransformer = partitionIriTransformer;
 		this.stmtCountCache = stmtCountCache;
+		this.deltaSource = deltaSource;
 	}
 
 	@Override
@@ -234,23 +267,20 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 			Long count = stmtCountCache.get(Pair.of(subjectNode, countPredicate), subjPred -> {
 				IRI statsNode = subjPred.getLeft();
 				IRI statsPred = subjPred.getRight();
-				try (CloseableIteration<? extends Statement, QueryEvaluationException> ci = statsSource.getStatements(statsNode, statsPred, null, HALYARD.STATS_GRAPH_CONTEXT)) {
-					if (ci.hasNext()) {
-						Value v = ci.next().getObject();
-						if (v.isLiteral()) {
-							try {
-								long l = ((Literal) v).longValue();
-								LOG.trace("{} statistics for {} = {}", statsPred, statsNode, l);
-								return l;
-							} catch (NumberFormatException ignore) {
-								LOG.warn("Invalid {} statistics for {}: {}", statsPred, statsNode, v, ignore);
-							}
-						}
-						LOG.warn("Invalid {} statistics for {}: {}", statsPred, statsNode, v);
+				Long value = getStatsValue(statsNode, statsPred);
+				if (deltaSource != null) {
+					long delta;
+					try {
+						delta = StatisticsDeltas.getDelta(deltaSource, statsNode, statsPred);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					if (delta != 0L) {
+						LOG.trace("{} statistics for {} pending delta = {}", statsPred, statsNode, delta);
+						value = Math.max((value != null ? value : 0L) + delta, 0L);
 					}
 				}
-				LOG.trace("{} statistics for {} are not available", statsPred, statsNode);
-				return null;
+				return value;
 			});
 			return (count != null) ? count.longValue() : defaultValue;
 		} catch (Exception e) {
@@ -259,6 +289,26 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 		}
 	}
 
+	private Long getStatsValue(IRI statsNode, IRI statsPred) {
+		try (CloseableIteration<? extends Statement, QueryEvaluationException> ci = statsSource.getStatements(statsNode, statsPred, null, HALYARD.STATS_GRAPH_CONTEXT)) {
+			if (ci.hasNext()) {
+				Value v = ci.next().getObject();
+				if (v.isLiteral()) {
+					try {
+						long l = ((Literal) v).longValue();
+						LOG.trace("{} statistics for {} = {}", statsPred, statsNode, l);
+						return l;
+					} catch (NumberFormatException ignore) {
+						LOG.warn("Invalid {} statistics for {}: {}", statsPred, statsNode, v, ignore);
+					}
+				}
+				LOG.warn("Invalid {} statistics for {}: {}", statsPred, statsNode, v);
+			}
+		}
+		LOG.trace("{} statistics for {} are not available", statsPred, statsNode);
+		return null;
+	}
+
 	/**
 	 * How many triples are there with one role known?
 	 */
@@ -367,6 +417,46 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 		return card;
 	}
 
+	/**
+	 * Estimates the distinct count over the union of several graphs by merging their persisted sketches.
+	 * @param graphNodes statistics nodes of the graphs
+	 * @param distinctPredicate void:distinctSubjects, void:properties or void:distinctObjects
+	 * @return estimated distinct count, or -1 if any of the sketches is not available
+	 */
+	public long getDistinctCount(Collection<? extends IRI> graphNodes, IRI distinctPredicate) {
+		IRI sketchPredicate = SKETCH_PREDICATES.get(distinctPredicate);
+		if (sketchPredicate == null) {
+			throw new IllegalArgumentException("No sketches for " + distinctPredicate);
+		}
+		HyperLogLog union = null;
+		for (IRI graphNode : graphNodes) {
+			HyperLogLog sketch = getSketch(graphNode, sketchPredicate);
+			if (sketch == null) {
+				return -1L;
+			}
+			if (union == null) {
+				union = sketch;
+			} else {
+				union.merge(sketch);
+			}
+		}
+		return (union != null) ? union.estimate() : 0L;
+	}
+
+	private HyperLogLog getSketch(IRI statsNode, IRI sketchPredicate) {
+		try (CloseableIteration<? extends Statement, QueryEvaluationException> ci = statsSource.getStatements(statsNode, sketchPredicate, null, HALYARD.STATS_GRAPH_CONTEXT)) {
+			if (ci.hasNext()) {
+				Value v = ci.next().getObject();
+				try {
+					return HyperLogLog.fromBytes(Base64.getDecoder().decode(v.stringValue()));
+				} catch (IllegalArgumentException ignore) {
+					LOG.warn("Invalid {} statistics for {}: {}", sketchPredicate, statsNode, v, ignore);
+				}
+			}
+		}
+		return null;
+	}
+
 	@Override
 	public void close() throws IOException {
 		statsSource.close();
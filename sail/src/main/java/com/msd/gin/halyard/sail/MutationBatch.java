@@ -0,0 +1,54 @@
+package com.msd.gin.halyard.sail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Groups key-values by row, so each row is sent as a single multi-cell mutation.
+ */
+final class MutationBatch {
+	private final Map<byte[], Put> puts = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+	private final Map<byte[], Delete> deletes = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+
+	void add(List<? extends KeyValue> kvs, boolean delete) throws IOException {
+		for (KeyValue kv : kvs) {
+			byte[] row = CellUtil.cloneRow(kv);
+			if (delete) {
+				Delete d = deletes.get(row);
+				if (d == null) {
+					d = new Delete(row);
+					deletes.put(row, d);
+				}
+				d.add(kv);
+			} else {
+				Put p = puts.get(row);
+				if (p == null) {
+					p = new Put(row, true);
+					puts.put(row, p);
+				}
+				p.add(kv);
+			}
+		}
+	}
+
+	boolean isEmpty() {
+		return puts.isEmpty() && deletes.isEmpty();
+	}
+
+	List<Mutation> toMutations() {
+		List<Mutation> mutations = new ArrayList<>(puts.size() + deletes.size());
+		mutations.addAll(puts.values());
+		mutations.addAll(deletes.values());
+		return mutations;
+	}
+}
@@ -0,0 +1,224 @@
+package com.msd.gin.halyard.sail;
+
+import com.msd.gin.halyard.common.StatementIndices;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates and sends the mutations for the statements of an update on background threads,
+ * so that evaluating the update is not held up by key generation or by the write buffer.
+ * Statements are handed over in batches, and at most one batch per writer thread can be outstanding,
+ * so the update blocks when the writers fall behind.
+ * Statements are only passed to the {@link StatementCounter} once their batch has been written.
+ * Once a batch fails, all further calls fail, and the writer must be discarded.
+ */
+final class PipelinedUpdateWriter {
+	private static final Logger LOG = LoggerFactory.getLogger(PipelinedUpdateWriter.class);
+	private static final ExecutorService WRITER_EXECUTOR = createWriterExecutor();
+
+	private static ExecutorService createWriterExecutor() {
+		AtomicInteger threadSeq = new AtomicInteger();
+		return Executors.newCachedThreadPool(r -> {
+			Thread thr = new Thread(r, "Halyard update writer " + threadSeq.incrementAndGet());
+			thr.setDaemon(true);
+			thr.setUncaughtExceptionHandler((t,e) -> LOG.warn("Thread {} exited due to an uncaught exception", t.getName(), e));
+			return thr;
+		});
+	}
+
+	interface StatementCounter {
+		void count(Resource subj, IRI pred, Value obj, Resource ctx, int delta);
+	}
+
+	private final StatementIndices indices;
+	private final BufferedMutator mutator;
+	private final StatementCounter counter;
+	private final int threads;
+	private final int batchSize;
+	private final Semaphore permits;
+	private final AtomicReference<Throwable> error = new AtomicReference<>();
+	private final LongAdder writtenStatements = new LongAdder();
+	private final LongAdder writtenKvs = new LongAdder();
+	private final Queue<List<StatementOp>> writtenBatches = new ConcurrentLinkedQueue<>();
+	private List<StatementOp> batch;
+	private long startNanos;
+
+	PipelinedUpdateWriter(StatementIndices indices, BufferedMutator mutator, StatementCounter counter, int threads, int batchSize) {
+		this.indices = indices;
+		this.mutator = mutator;
+		this.counter = counter;
+		this.threads = threads;
+		this.batchSize = batchSize;
+		this.permits = new Semaphore(threads);
+	}
+
+	void insert(Resource subj, IRI pred, Value obj, Resource ctx, long timestamp) throws IOException {
+		checkError();
+		add(new StatementOp(subj, pred, obj, ctx, timestamp, false));
+	}
+
+	void delete(Resource subj, IRI pred, Value obj, Resource ctx, long timestamp) throws IOException {
+		checkError();
+		add(new StatementOp(subj, pred, obj, ctx, timestamp, true));
+	}
+
+	private void add(StatementOp op) throws IOException {
+		if (batch == null) {
+			if (startNanos == 0L) {
+				startNanos = System.nanoTime();
+			}
+			batch = new ArrayList<>(batchSize);
+		}
+		batch.add(op);
+		if (batch.size() >= batchSize) {
+			submitBatch();
+		}
+	}
+
+	private void submitBatch() throws IOException {
+		List<StatementOp> ops = batch;
+		batch = null;
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		countWritten();
+		try {
+			checkError();
+		} catch (IOException | RuntimeException | Error e) {
+			permits.release();
+			throw e;
+		}
+		try {
+			WRITER_EXECUTOR.execute(() -> {
+				try {
+					if (error.get() == null) {
+						write(ops);
+					}
+				} catch (Throwable e) {
+					error.compareAndSet(null, e);
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private void write(List<StatementOp> ops) throws IOException {
+		MutationBatch mutations = new MutationBatch();
+		long kvCount = 0L;
+		for (StatementOp op : ops) {
+			List<? extends KeyValue> kvs;
+			if (op.delete) {
+				kvs = indices.deleteKeyValues(op.subj, op.pred, op.obj, op.ctx, op.timestamp);
+			} else {
+				kvs = indices.insertKeyValues(op.subj, op.pred, op.obj, op.ctx, op.timestamp);
+			}
+			mutations.add(kvs, op.delete);
+			kvCount += kvs.size();
+		}
+		mutator.mutate(mutations.toMutations());
+		writtenStatements.add(ops.size());
+		writtenKvs.add(kvCount);
+		writtenBatches.add(ops);
+	}
+
+	/**
+	 * Passes the statements of the batches written so far to the counter, on the calling thread.
+	 */
+	private void countWritten() {
+		List<StatementOp> ops;
+		while ((ops = writtenBatches.poll()) != null) {
+			for (StatementOp op : ops) {
+				counter.count(op.subj, op.pred, op.obj, op.ctx, op.delete ? -1 : 1);
+			}
+		}
+	}
+
+	/**
+	 * Rethrows the failure of a batch.
+	 * The failure is kept, as any later statements would be written without the ones that were lost.
+	 */
+	private void checkError() throws IOException {
+		Throwable e = error.get();
+		if (e != null) {
+			if (e instanceof IOException) {
+				throw (IOException) e;
+			} else if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			} else if (e instanceof Error) {
+				throw (Error) e;
+			} else {
+				throw new IOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Waits for all the statements handed over so far to have been sent to the mutator.
+	 */
+	void flush() throws IOException {
+		if (batch != null) {
+			submitBatch();
+		}
+		try {
+			permits.acquire(threads);
+			permits.release(threads);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		if (startNanos != 0L) {
+			long statements = writtenStatements.sumThenReset();
+			long kvs = writtenKvs.sumThenReset();
+			long elapsedMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), 1L);
+			startNanos = 0L;
+			LOG.debug("Wrote {} statements ({} key-values) in {}ms ({} statements/s)", statements, kvs, elapsedMillis, statements * 1000L / elapsedMillis);
+		}
+		countWritten();
+		checkError();
+	}
+
+	private static final class StatementOp {
+		final Resource subj;
+		final IRI pred;
+		final Value obj;
+		final Resource ctx;
+		final long timestamp;
+		final boolean delete;
+
+		StatementOp(Resource subj, IRI pred, Value obj, Resource ctx, long timestamp, boolean delete) {
+			this.subj = subj;
+			this.pred = pred;
+			this.obj = obj;
+			this.ctx = ctx;
+			this.timestamp = timestamp;
+			this.delete = delete;
+		}
+	}
+}
@@ -2,14 +2,20 @@ package com.msd.gin.halyard.sail;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.msd.gin.halyard.model.vocabulary.HALYARD;
+import com.msd.gin.halyard.optimizers.HalyardEvaluationStatistics;
+import com.msd.gin.halyard.query.algebra.AbstractExtendedQueryModelVisitor;
+import com.msd.gin.halyard.strategy.HalyardEvaluationStrategy;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -17,45 +23,263 @@ import javax.annotation.Nonnull;
 
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.query.Binding;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.algebra.BindingSetAssignment;
+import org.eclipse.rdf4j.query.algebra.Service;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 
+/**
+ * Caches optimized query plans by query shape.
+ * Subject and object constants, and bindings used only in those positions, are replaced by slots,
+ * so the same query template with different values shares a plan.
+ * The shape key also includes the order of magnitude of the cardinality of each statement pattern containing a slot,
+ * so a query is only re-optimized when the values would change the statistics that drive the join order.
+ * These estimates are themselves cached by shape and slot values.
+ */
 final class QueryCache {
+	private static final String SLOT_PREFIX = "__slot_";
+	private static final String ANON_PREFIX = "__anon_";
+
 	private final Cache<PreparedQueryKey, PreparedQuery> cache;
+	private final Cache<SlotValuesKey, int[]> cardinalitySignatures;
 
 	QueryCache(int queryCacheMaxSize) {
-		cache = Caffeine.newBuilder().maximumSize(queryCacheMaxSize).expireAfterWrite(1L, TimeUnit.DAYS).build();
+		cache = Caffeine.newBuilder().maximumSize(queryCacheMaxSize).expireAfterWrite(1L, TimeUnit.DAYS).recordStats().build();
+		cardinalitySignatures = Caffeine.newBuilder().maximumSize(queryCacheMaxSize).expireAfterWrite(1L, TimeUnit.DAYS).build();
 	}
 
-	TupleExpr getOptimizedQuery(HBaseSailConnection conn, String sourceString, int updatePart, TupleExpr tupleExpr, Dataset dataset, BindingSet bindings, final boolean includeInferred, TripleSource tripleSource,
-			EvaluationStrategy strategy) {
-		PreparedQueryKey pqkey = new PreparedQueryKey(sourceString, updatePart, dataset, bindings, includeInferred);
+	TupleExpr getOptimizedQuery(HBaseSailConnection conn, int updatePart, TupleExpr tupleExpr, Dataset dataset, BindingSet bindings, final boolean includeInferred, TripleSource tripleSource,
+			EvaluationStrategy strategy, HalyardEvaluationStatistics statistics) {
+		QueryShape shape = new QueryShape(tupleExpr, bindings);
+		int[] cardinalitySignature = shape.hasSlots() ? cardinalitySignatures.get(new SlotValuesKey(shape), key -> shape.getCardinalitySignature(statistics)) : new int[0];
+		PreparedQueryKey pqkey = new PreparedQueryKey(shape.getShape(), updatePart, dataset, shape.getKeyBindings(), cardinalitySignature, includeInferred);
 		PreparedQuery preparedQuery = cache.get(pqkey, key -> {
-			TupleExpr optimizedTupleExpr = conn.optimize(tupleExpr, dataset, bindings, includeInferred, tripleSource, strategy);
+			TupleExpr optimizedTupleExpr = conn.optimize(shape.bind(shape.getTemplate()), dataset, bindings, includeInferred, tripleSource, strategy);
 			return new PreparedQuery(optimizedTupleExpr);
 		});
-		return preparedQuery.getTupleExpression();
+		return shape.bind(preparedQuery.getTupleExpression());
+	}
+
+	long getHitCount() {
+		return cache.stats().hitCount();
+	}
+
+	long getMissCount() {
+		return cache.stats().missCount();
 	}
 
 	void clear() {
 		cache.invalidateAll();
+		cardinalitySignatures.invalidateAll();
+	}
+
+	private static boolean isSlotPosition(StatementPattern sp, Var var) {
+		if (var == sp.getSubjectVar()) {
+			return true;
+		} else if (var == sp.getObjectVar()) {
+			// predicates that are interpreted by the optimizer must see the actual object
+			Value pred = sp.getPredicateVar().getValue();
+			return pred != null && pred.isIRI() && !RDF.TYPE.equals(pred) && !HALYARD.NAMESPACE.equals(((IRI) pred).getNamespace()) && !HalyardEvaluationStrategy.isSearchStatement(var.getValue());
+		} else {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Normalised form of a query tree with its constants and bindings replaced by slots.
+	 * Anonymous variables are renamed in tree order, so the template compares structurally equal across parses of the same query.
+	 */
+	private static final class QueryShape {
+		private final TupleExpr template;
+		private final Map<String, Value> slotValues = new HashMap<>();
+		private final BindingSet keyBindings;
+
+		QueryShape(TupleExpr tupleExpr, BindingSet bindings) {
+			SlotFinder finder = new SlotFinder(bindings);
+			tupleExpr.visit(finder);
+			Map<String, String> slotNames = new HashMap<>();
+			QueryBindingSet nonSlotBindings = new QueryBindingSet();
+			for (Binding b : bindings) {
+				if (finder.isSlot(b.getName())) {
+					slotValues.put(b.getName(), b.getValue());
+				} else {
+					nonSlotBindings.addBinding(b);
+				}
+			}
+			for (Map.Entry<String, Value> constant : finder.constants.entrySet()) {
+				if (finder.isSlot(constant.getKey())) {
+					String slotName = SLOT_PREFIX + slotNames.size();
+					slotNames.put(constant.getKey(), slotName);
+					slotValues.put(slotName, constant.getValue());
+				}
+			}
+			keyBindings = nonSlotBindings;
+
+			Map<String, String> anonNames = new HashMap<>();
+			template = tupleExpr.clone();
+			template.visit(new AbstractExtendedQueryModelVisitor<RuntimeException>() {
+				@Override
+				public void meet(Var var) {
+					String slotName = slotNames.get(var.getName());
+					if (slotName == null && var.isAnonymous() && !var.hasValue()) {
+						slotName = anonNames.computeIfAbsent(var.getName(), k -> ANON_PREFIX + anonNames.size());
+					}
+					if (slotName != null) {
+						var.replaceWith(new Var(slotName, null, var.isAnonymous(), var.isConstant()));
+					}
+				}
+
+				@Override
+				public void meet(Service service) {
+					// the service node keeps its own copy of the variable names
+				}
+			});
+		}
+
+		TupleExpr getTemplate() {
+			return template.clone();
+		}
+
+		/**
+		 * The template to compare by structure, must not be modified.
+		 */
+		TupleExpr getShape() {
+			return template;
+		}
+
+		boolean hasSlots() {
+			return !slotValues.isEmpty();
+		}
+
+		Map<String, Value> getSlotValues() {
+			return slotValues;
+		}
+
+		BindingSet getKeyBindings() {
+			return keyBindings;
+		}
+
+		/**
+		 * Estimates the order of magnitude of the cardinality of each statement pattern containing a slot.
+		 */
+		int[] getCardinalitySignature(HalyardEvaluationStatistics statistics) {
+			List<StatementPattern> slotted = new ArrayList<>();
+			template.visit(new AbstractExtendedQueryModelVisitor<RuntimeException>() {
+				@Override
+				public void meet(StatementPattern sp) {
+					for (Var var : sp.getVarList()) {
+						if (slotValues.containsKey(var.getName())) {
+							slotted.add(sp);
+							break;
+						}
+					}
+				}
+			});
+			int[] cardinalitySignature = new int[slotted.size()];
+			for (int i=0; i<cardinalitySignature.length; i++) {
+				TupleExpr sp = bind(slotted.get(i).clone());
+				double card = statistics.getCardinality(sp, Collections.emptySet(), true);
+				cardinalitySignature[i] = Math.getExponent(card);
+			}
+			return cardinalitySignature;
+		}
+
+		/**
+		 * Fills the slots of the given tree with the values of this query.
+		 */
+		TupleExpr bind(TupleExpr tree) {
+			if (!slotValues.isEmpty()) {
+				tree.visit(new AbstractExtendedQueryModelVisitor<RuntimeException>() {
+					@Override
+					public void meet(Var var) {
+						Value value = slotValues.get(var.getName());
+						if (value != null) {
+							var.replaceWith(new Var(var.getName(), value, var.isAnonymous(), var.isConstant()));
+						}
+					}
+				});
+			}
+			return tree;
+		}
+	}
+
+
+	/**
+	 * Finds constants and bindings that only occur in slot positions.
+	 */
+	private static final class SlotFinder extends AbstractExtendedQueryModelVisitor<RuntimeException> {
+		// LinkedHashMap so slots are numbered in tree order
+		final Map<String, Value> constants = new LinkedHashMap<>();
+		final Set<String> nonSlots = new HashSet<>();
+		final BindingSet bindings;
+		private int serviceDepth;
+
+		SlotFinder(BindingSet bindings) {
+			this.bindings = bindings;
+		}
+
+		boolean isSlot(String name) {
+			return !nonSlots.contains(name);
+		}
+
+		@Override
+		public void meet(Service service) {
+			// the template keeps service nodes as they are, so nothing within them can be a slot
+			serviceDepth++;
+			try {
+				super.meet(service);
+			} finally {
+				serviceDepth--;
+			}
+		}
+
+		@Override
+		public void meet(StatementPattern sp) {
+			for (Var var : sp.getVarList()) {
+				if (serviceDepth == 0 && isSlotPosition(sp, var)) {
+					if (var.isConstant() && var.hasValue()) {
+						constants.putIfAbsent(var.getName(), var.getValue());
+					}
+				} else {
+					nonSlots.add(var.getName());
+				}
+			}
+		}
+
+		@Override
+		public void meet(Var var) {
+			nonSlots.add(var.getName());
+		}
+
+		@Override
+		public void meet(BindingSetAssignment bsa) {
+			nonSlots.addAll(bsa.getBindingNames());
+		}
 	}
 
 	private static final class PreparedQueryKey implements Serializable {
 		private static final long serialVersionUID = -8673870599435959092L;
 
-		final String sourceString;
+		final TupleExpr shape;
 		final Integer updatePart;
 		final Set<IRI> datasetGraphs;
 		final Set<IRI> datasetNamedGraphs;
 		final IRI datasetInsertGraph;
 		final Set<IRI> datasetRemoveGraphs;
 		final Map<String, Value> bindings;
+		final int[] cardinalitySignature;
 		final boolean includeInferred;
+		// structural hash of the whole tree, so compute once
+		final int hashCode;
 
 		static <E> Set<E> copy(Set<E> set) {
 			switch (set.size()) {
@@ -85,19 +309,21 @@ final class QueryCache {
 			}
 		}
 
-		PreparedQueryKey(@Nonnull String sourceString, int updatePart, Dataset dataset, BindingSet bindings, boolean includeInferred) {
-			this.sourceString = sourceString;
+		PreparedQueryKey(@Nonnull TupleExpr shape, int updatePart, Dataset dataset, BindingSet bindings, int[] cardinalitySignature, boolean includeInferred) {
+			this.shape = shape;
 			this.updatePart = Integer.valueOf(updatePart);
 			this.datasetGraphs = dataset != null ? copy(dataset.getDefaultGraphs()) : null;
 			this.datasetNamedGraphs = dataset != null ? copy(dataset.getNamedGraphs()) : null;
 			this.datasetInsertGraph = dataset != null ? dataset.getDefaultInsertGraph() : null;
 			this.datasetRemoveGraphs = dataset != null ? copy(dataset.getDefaultRemoveGraphs()) : null;
 			this.bindings = toMap(bindings);
+			this.cardinalitySignature = cardinalitySignature;
 			this.includeInferred = includeInferred;
+			this.hashCode = Arrays.deepHashCode(toArray());
 		}
 
 		private Object[] toArray() {
-			return new Object[] { sourceString, updatePart, bindings, includeInferred, datasetGraphs, datasetNamedGraphs, datasetInsertGraph, datasetRemoveGraphs };
+			return new Object[] { shape, updatePart, bindings, cardinalitySignature, includeInferred, datasetGraphs, datasetNamedGraphs, datasetInsertGraph, datasetRemoveGraphs };
 		}
 
 		@Override
@@ -106,12 +332,41 @@ final class QueryCache {
 				return false;
 			}
 			PreparedQueryKey other = (PreparedQueryKey) o;
-			return Arrays.equals(this.toArray(), other.toArray());
+			return this.hashCode == other.hashCode && Arrays.deepEquals(this.toArray(), other.toArray());
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
+	/**
+	 * Identifies the values filled into the slots of a query shape.
+	 */
+	private static final class SlotValuesKey {
+		final TupleExpr shape;
+		final Map<String, Value> slotValues;
+		final int hashCode;
+
+		SlotValuesKey(QueryShape shape) {
+			this.shape = shape.getShape();
+			this.slotValues = shape.getSlotValues();
+			this.hashCode = 31 * this.shape.hashCode() + slotValues.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof SlotValuesKey)) {
+				return false;
+			}
+			SlotValuesKey other = (SlotValuesKey) o;
+			return this.hashCode == other.hashCode && this.shape.equals(other.shape) && this.slotValues.equals(other.slotValues);
 		}
 
 		@Override
 		public int hashCode() {
-			return Objects.hash(toArray());
+			return hashCode;
 		}
 	}
 
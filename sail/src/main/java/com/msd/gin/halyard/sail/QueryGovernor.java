@@ -0,0 +1,229 @@
+package com.msd.gin.halyard.sail;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+
+/**
+ * Admission control and resource budgets for the queries of a sail.
+ * A query waits for a free slot, both overall and for its tenant, and is rejected if none becomes free in time.
+ * Once admitted, a query is aborted if it scans more results, or more bytes, than its budget allows.
+ * Queries nested in an admitted query, e.g. those run by SPIN functions, share its permit.
+ */
+@ThreadSafe
+final class QueryGovernor {
+	private static final String DEFAULT_TENANT = "";
+
+	private final Semaphore queries;
+	private final int maxQueriesPerTenant;
+	private final ConcurrentHashMap<String, TenantQueries> tenantQueries = new ConcurrentHashMap<>();
+	private final long admissionTimeoutMillis;
+	private final long maxScannedResults;
+	private final long maxScannedBytes;
+	private final AtomicInteger runningCount = new AtomicInteger();
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong abortedCount = new AtomicLong();
+
+	QueryGovernor(EvaluationConfig config) {
+		this.queries = (config.maxRunningQueries > 0) ? new Semaphore(config.maxRunningQueries, true) : null;
+		this.maxQueriesPerTenant = config.maxRunningQueriesPerTenant;
+		this.admissionTimeoutMillis = config.queryAdmissionTimeoutMillis;
+		this.maxScannedResults = config.maxScannedResultsPerQuery;
+		this.maxScannedBytes = config.maxScannedBytesPerQuery;
+	}
+
+	/**
+	 * Admits a query, waiting if too many are already running.
+	 * @param tenant tenant the query runs on behalf of, if any
+	 * @return permit to release when the query ends
+	 * @throws QueryEvaluationException if the query is not admitted in time
+	 */
+	Permit admit(@Nullable String tenant) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(admissionTimeoutMillis);
+		String tenantKey = (tenant != null) ? tenant : DEFAULT_TENANT;
+		TenantQueries tenantSlots = (maxQueriesPerTenant > 0) ? join(tenantKey) : null;
+		try {
+			acquire(tenantSlots != null ? tenantSlots.semaphore : null, deadline, "Too many running queries for tenant " + tenant);
+			try {
+				acquire(queries, deadline, "Too many running queries");
+			} catch (RuntimeException e) {
+				if (tenantSlots != null) {
+					tenantSlots.semaphore.release();
+				}
+				throw e;
+			}
+		} catch (RuntimeException e) {
+			leave(tenantKey, tenantSlots);
+			throw e;
+		}
+		runningCount.incrementAndGet();
+		return new Permit(tenantKey, tenantSlots, null);
+	}
+
+	private TenantQueries join(String tenantKey) {
+		return tenantQueries.compute(tenantKey, (t, slots) -> {
+			if (slots == null) {
+				slots = new TenantQueries(maxQueriesPerTenant);
+			}
+			slots.users++;
+			return slots;
+		});
+	}
+
+	/**
+	 * Removes the semaphore of a tenant once it has no running or waiting queries.
+	 */
+	private void leave(String tenantKey, @Nullable TenantQueries tenantSlots) {
+		if (tenantSlots != null) {
+			tenantQueries.computeIfPresent(tenantKey, (t, slots) -> (--slots.users > 0) ? slots : null);
+		}
+	}
+
+	private void acquire(@Nullable Semaphore semaphore, long deadline, String rejectionMessage) {
+		if (semaphore != null) {
+			boolean acquired;
+			try {
+				acquired = semaphore.tryAcquire(Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new QueryInterruptedException(e);
+			}
+			if (!acquired) {
+				rejectedCount.incrementAndGet();
+				throw new QueryEvaluationException(String.format("%s (waited %dms)", rejectionMessage, admissionTimeoutMillis));
+			}
+		}
+	}
+
+	int getRunningQueryCount() {
+		return runningCount.get();
+	}
+
+	long getRejectedQueryCount() {
+		return rejectedCount.get();
+	}
+
+	long getAbortedQueryCount() {
+		return abortedCount.get();
+	}
+
+	int getTenantCount() {
+		return tenantQueries.size();
+	}
+
+	/**
+	 * Per-tenant query slots.
+	 * The number of users is only changed while the mapping of the tenant is being computed.
+	 */
+	private static final class TenantQueries {
+		final Semaphore semaphore;
+		int users;
+
+		TenantQueries(int maxQueries) {
+			this.semaphore = new Semaphore(maxQueries, true);
+		}
+	}
+
+	final class Permit {
+		private final String tenantKey;
+		private final TenantQueries tenantSlots;
+		private final Permit parent;
+		private final AtomicBoolean released = new AtomicBoolean();
+		private final LongAdder scannedResults = new LongAdder();
+		private final LongAdder scannedBytes = new LongAdder();
+
+		private Permit(String tenantKey, TenantQueries tenantSlots, Permit parent) {
+			this.tenantKey = tenantKey;
+			this.tenantSlots = tenantSlots;
+			this.parent = parent;
+		}
+
+		/**
+		 * Gets a permit for a query nested in this one, which runs in the same slot and against the same scan budget.
+		 * Releasing it has no effect.
+		 */
+		Permit nested() {
+			return new Permit(null, null, (parent != null) ? parent : this);
+		}
+
+		/**
+		 * Wraps the sail ticker to enforce the scan budget of the query.
+		 */
+		HBaseSail.Ticker ticker(@Nullable HBaseSail.Ticker sailTicker) {
+			if (parent != null) {
+				return parent.ticker(sailTicker);
+			}
+			if (maxScannedResults <= 0 && maxScannedBytes <= 0) {
+				return sailTicker;
+			}
+			return new HBaseSail.Ticker() {
+				@Override
+				public void tick() {
+					if (sailTicker != null) {
+						sailTicker.tick();
+					}
+					countResult();
+				}
+
+				@Override
+				public void tick(long resultBytes) {
+					if (sailTicker != null) {
+						sailTicker.tick(resultBytes);
+					}
+					countResult();
+					if (maxScannedBytes > 0) {
+						scannedBytes.add(resultBytes);
+						if (scannedBytes.sum() > maxScannedBytes) {
+							abort(String.format("Query exceeded scan budget of %d bytes", maxScannedBytes));
+						}
+					}
+				}
+			};
+		}
+
+		private void countResult() {
+			if (maxScannedResults > 0) {
+				scannedResults.increment();
+				if (scannedResults.sum() > maxScannedResults) {
+					abort(String.format("Query exceeded scan budget of %d results", maxScannedResults));
+				}
+			}
+		}
+
+		private void abort(String msg) {
+			if (release()) {
+				abortedCount.incrementAndGet();
+			}
+			throw new QueryInterruptedException(msg);
+		}
+
+		/**
+		 * @return true if this call released the permit
+		 */
+		boolean release() {
+			if (parent == null && released.compareAndSet(false, true)) {
+				runningCount.decrementAndGet();
+				if (queries != null) {
+					queries.release();
+				}
+				if (tenantSlots != null) {
+					tenantSlots.semaphore.release();
+					leave(tenantKey, tenantSlots);
+				}
+				return true;
+			} else {
+				return false;
+			}
+		}
+	}
+}
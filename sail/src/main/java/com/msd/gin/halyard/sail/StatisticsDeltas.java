@@ -0,0 +1,364 @@
+package com.msd.gin.halyard.sail;
+
+import com.msd.gin.halyard.common.KeyspaceConnection;
+import com.msd.gin.halyard.common.RDFFactory;
+import com.msd.gin.halyard.common.StatisticsCounters;
+import com.msd.gin.halyard.common.ValueIO;
+import com.msd.gin.halyard.model.vocabulary.HALYARD;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Table;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.SD;
+import org.eclipse.rdf4j.model.vocabulary.VOID;
+import org.eclipse.rdf4j.sail.SailException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Incremental VoID statistics.
+ * Accumulates the changes in the number of triples per graph and per property partition, and of entities per class partition,
+ * and flushes them as batched increments into {@link StatisticsCounters} rows.
+ * {@link HalyardStatsBasedStatementPatternCardinalityCalculator} adds the pending deltas to the statistics graph values,
+ * and {@link #compact(HBaseSailConnection, Table, RDFFactory, ValueFactory)} periodically folds them into the statistics graph.
+ * Counts are best effort: re-adding an existing statement or removing a missing one is counted too.
+ * Not thread-safe.
+ */
+public final class StatisticsDeltas {
+	private static final Logger LOG = LoggerFactory.getLogger(StatisticsDeltas.class);
+	public static final String INCREMENTAL_STATS_PROPERTY = "halyard.stats.incremental";
+	private static final Map<IRI, IRI> PARTITION_PREDICATES = HalyardStatsBasedStatementPatternCardinalityCalculator.createPartitionPredicateMapping();
+	private static final List<IRI> SCALED_DISTINCT_PREDICATES = Arrays.asList(VOID.DISTINCT_SUBJECTS, VOID.DISTINCT_OBJECTS);
+
+	private final RDFFactory rdfFactory;
+	private final HalyardStatsBasedStatementPatternCardinalityCalculator.PartitionIriTransformer partitionIriTransformer;
+	private final Map<String, Counters> counters = new HashMap<>();
+	private ByteBuffer bb = ByteBuffer.allocate(ValueIO.DEFAULT_BUFFER_SIZE);
+
+	public StatisticsDeltas(RDFFactory rdfFactory) {
+		this.rdfFactory = rdfFactory;
+		this.partitionIriTransformer = HalyardStatsBasedStatementPatternCardinalityCalculator.createPartitionIriTransformer(rdfFactory);
+	}
+
+	/**
+	 * Records an added (+1) or removed (-1) statement.
+	 */
+	public void add(Resource subj, IRI pred, Value obj, @Nullable Resource ctx, int delta) {
+		add(HALYARD.STATS_ROOT_NODE, pred, obj, delta);
+		if (ctx != null && ctx.isIRI()) {
+			add((IRI) ctx, pred, obj, delta);
+		}
+	}
+
+	private void add(IRI graph, IRI pred, Value obj, int delta) {
+		counters.computeIfAbsent(graph.stringValue(), node -> new Counters(null)).add(VOID.TRIPLES, delta);
+		partition(graph, VOID.PROPERTY, pred).add(VOID.TRIPLES, delta);
+		if (RDF.TYPE.equals(pred)) {
+			partition(graph, VOID.CLASS, obj).add(VOID.ENTITIES, delta);
+		}
+	}
+
+	private Counters partition(IRI graph, IRI partitionType, Value partitionId) {
+		return counters.computeIfAbsent(partitionIriTransformer.apply(graph, partitionType, partitionId), node -> {
+			ValueIO.Writer writer = rdfFactory.valueWriter;
+			bb.clear();
+			bb = writer.writeValueWithSizeHeader(graph, bb, Short.BYTES);
+			bb = writer.writeValueWithSizeHeader(partitionType, bb, Short.BYTES);
+			bb = writer.writeValueWithSizeHeader(partitionId, bb, Short.BYTES);
+			bb.flip();
+			byte[] descriptor = new byte[bb.remaining()];
+			bb.get(descriptor);
+			return new Counters(descriptor);
+		});
+	}
+
+	public boolean isEmpty() {
+		return counters.isEmpty();
+	}
+
+	/**
+	 * Writes the accumulated deltas, e.g. so that they can be applied later by another process.
+	 * @param out output to write to
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(counters.size());
+		for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+			Counters c = entry.getValue();
+			out.writeUTF(entry.getKey());
+			if (c.descriptor != null) {
+				out.writeInt(c.descriptor.length);
+				out.write(c.descriptor);
+			} else {
+				out.writeInt(-1);
+			}
+			out.writeInt(c.deltas.size());
+			for (Map.Entry<String, Long> delta : c.deltas.entrySet()) {
+				out.writeUTF(delta.getKey());
+				out.writeLong(delta.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Adds deltas previously written by {@link #write(DataOutput)} to the accumulated ones.
+	 * @param in input to read from
+	 * @throws IOException
+	 */
+	public void readFields(DataInput in) throws IOException {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			String node = in.readUTF();
+			int descriptorLength = in.readInt();
+			byte[] descriptor;
+			if (descriptorLength >= 0) {
+				descriptor = new byte[descriptorLength];
+				in.readFully(descriptor);
+			} else {
+				descriptor = null;
+			}
+			Counters c = counters.computeIfAbsent(node, n -> new Counters(descriptor));
+			int deltaCount = in.readInt();
+			for (int j = 0; j < deltaCount; j++) {
+				c.add(in.readUTF(), in.readLong());
+			}
+		}
+	}
+
+	/**
+	 * Writes the accumulated deltas to the counter rows and resets them.
+	 * @param table table to write to
+	 * @throws IOException
+	 */
+	public void flush(Table table) throws IOException {
+		if (counters.isEmpty()) {
+			return;
+		}
+		List<Mutation> mutations = new ArrayList<>(counters.size() + 1);
+		for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+			Counters c = entry.getValue();
+			if (!c.isZero()) {
+				mutations.addAll(StatisticsCounters.toMutations(entry.getKey(), c.deltas, c.descriptor));
+			}
+		}
+		counters.clear();
+		batch(table, mutations);
+	}
+
+	private static void batch(Table table, List<? extends Mutation> mutations) throws IOException {
+		if (!mutations.isEmpty()) {
+			try {
+				table.batch(mutations, new Object[mutations.size()]);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Gets the pending delta of a statistic.
+	 */
+	static long getDelta(KeyspaceConnection conn, IRI statsNode, IRI countPredicate) throws IOException {
+		if (VOID.TRIPLES.equals(countPredicate) || VOID.ENTITIES.equals(countPredicate)) {
+			return StatisticsCounters.get(conn, statsNode.stringValue(), countPredicate.stringValue());
+		} else {
+			return 0L;
+		}
+	}
+
+	/**
+	 * Reads the pending deltas, e.g. before the statistics are fully recalculated.
+	 * @param table table to read
+	 * @return pending deltas keyed by statistics node and then by count predicate
+	 * @throws IOException
+	 */
+	public static Map<String, Map<String, Long>> snapshot(Table table) throws IOException {
+		Map<String, Map<String, Long>> deltas = new HashMap<>();
+		try (ResultScanner scanner = table.getScanner(StatisticsCounters.scan())) {
+			for (Result res : scanner) {
+				deltas.put(StatisticsCounters.getNode(res), StatisticsCounters.getCounts(res));
+			}
+		}
+		return deltas;
+	}
+
+	/**
+	 * Removes previously read deltas, e.g. once a full recalculation has superseded them.
+	 * Deltas recorded since the snapshot are kept.
+	 * @param table table to update
+	 * @param snapshot deltas returned by {@link #snapshot(Table)}
+	 * @throws IOException
+	 */
+	public static void discard(Table table, Map<String, Map<String, Long>> snapshot) throws IOException {
+		List<Mutation> mutations = new ArrayList<>(snapshot.size());
+		for (Map.Entry<String, Map<String, Long>> entry : snapshot.entrySet()) {
+			Map<String, Long> negated = new HashMap<>();
+			for (Map.Entry<String, Long> delta : entry.getValue().entrySet()) {
+				if (delta.getValue() != 0L) {
+					negated.put(delta.getKey(), -delta.getValue());
+				}
+			}
+			if (!negated.isEmpty()) {
+				mutations.addAll(StatisticsCounters.toMutations(entry.getKey(), negated, null));
+			}
+		}
+		batch(table, mutations);
+	}
+
+	/**
+	 * Folds the pending deltas into the statistics graph.
+	 * The distinct subject and object counts of a graph are scaled in proportion to its change in triples.
+	 * Must not be run concurrently with itself.
+	 * @param conn connection used to update the statistics graph
+	 * @param table table holding the counter rows
+	 * @param rdfFactory RDF factory of the table
+	 * @param vf value factory
+	 * @return number of folded statistics
+	 * @throws IOException
+	 */
+	public static long compact(HBaseSailConnection conn, Table table, RDFFactory rdfFactory, ValueFactory vf) throws IOException {
+		long timestamp = System.currentTimeMillis();
+		List<Mutation> folded = new ArrayList<>();
+		long count = 0L;
+		try (ResultScanner scanner = table.getScanner(StatisticsCounters.scan())) {
+			for (Result res : scanner) {
+				String node = StatisticsCounters.getNode(res);
+				IRI statsNode = vf.createIRI(node);
+				byte[] descriptor = StatisticsCounters.getDescriptor(res);
+				Map<String, Long> foldedDeltas = new HashMap<>();
+				for (Map.Entry<String, Long> entry : StatisticsCounters.getCounts(res).entrySet()) {
+					long delta = entry.getValue();
+					if (delta != 0L) {
+						IRI countPredicate = vf.createIRI(entry.getKey());
+						Long current = removeStatistic(conn, statsNode, countPredicate, timestamp);
+						long updated = Math.max((current != null ? current : 0L) + delta, 0L);
+						if (current == null) {
+							addDescription(conn, statsNode, descriptor, rdfFactory, vf, timestamp);
+						} else if (descriptor == null && VOID.TRIPLES.equals(countPredicate) && current > 0L) {
+							for (IRI distinctPredicate : SCALED_DISTINCT_PREDICATES) {
+								Long distinct = removeStatistic(conn, statsNode, distinctPredicate, timestamp);
+								if (distinct != null) {
+									long scaled = Math.min(Math.round((double) distinct * updated / current), updated);
+									conn.addSystemStatement(statsNode, distinctPredicate, vf.createLiteral(scaled), HALYARD.STATS_GRAPH_CONTEXT, timestamp);
+								}
+							}
+						}
+						conn.addSystemStatement(statsNode, countPredicate, vf.createLiteral(updated), HALYARD.STATS_GRAPH_CONTEXT, timestamp);
+						foldedDeltas.put(entry.getKey(), -delta);
+						count++;
+					}
+				}
+				if (!foldedDeltas.isEmpty()) {
+					folded.addAll(StatisticsCounters.toMutations(node, foldedDeltas, null));
+				}
+			}
+		}
+		// only subtract the deltas once the statistics graph has been updated
+		conn.flush();
+		batch(table, folded);
+		LOG.info("Folded {} incremental statistics", count);
+		return count;
+	}
+
+	private static Long removeStatistic(HBaseSailConnection conn, IRI statsNode, IRI countPredicate, long timestamp) {
+		Long value = null;
+		try (CloseableIteration<? extends Statement, SailException> iter = conn.getStatements(statsNode, countPredicate, null, false, HALYARD.STATS_GRAPH_CONTEXT)) {
+			while (iter.hasNext()) {
+				Statement stmt = iter.next();
+				if (stmt.getObject().isLiteral()) {
+					try {
+						value = ((Literal) stmt.getObject()).longValue();
+					} catch (NumberFormatException ignore) {
+						LOG.warn("Invalid {} statistics for {}: {}", countPredicate, statsNode, stmt.getObject());
+					}
+				}
+				conn.removeSystemStatement(stmt.getSubject(), stmt.getPredicate(), stmt.getObject(), stmt.getContext(), timestamp);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Adds the statements that link a new statistics node into the statistics graph.
+	 */
+	private static void addDescription(HBaseSailConnection conn, IRI statsNode, @Nullable byte[] descriptor, RDFFactory rdfFactory, ValueFactory vf, long timestamp) {
+		List<Statement> stmts;
+		if (descriptor != null) {
+			ValueIO.Reader reader = rdfFactory.valueReader;
+			ByteBuffer buf = ByteBuffer.wrap(descriptor);
+			IRI graph = (IRI) reader.readValueWithSizeHeader(buf, vf, Short.BYTES);
+			IRI partitionType = (IRI) reader.readValueWithSizeHeader(buf, vf, Short.BYTES);
+			Value partitionId = reader.readValueWithSizeHeader(buf, vf, Short.BYTES);
+			stmts = Arrays.asList(
+				vf.createStatement(graph, PARTITION_PREDICATES.get(partitionType), statsNode),
+				vf.createStatement(statsNode, RDF.TYPE, VOID.DATASET),
+				vf.createStatement(statsNode, partitionType, partitionId)
+			);
+		} else if (!HALYARD.STATS_ROOT_NODE.equals(statsNode)) {
+			stmts = Arrays.asList(
+				vf.createStatement(HALYARD.STATS_ROOT_NODE, SD.NAMED_GRAPH_PROPERTY, statsNode),
+				vf.createStatement(statsNode, SD.NAME, statsNode),
+				vf.createStatement(statsNode, SD.GRAPH_PROPERTY, statsNode),
+				vf.createStatement(statsNode, RDF.TYPE, SD.NAMED_GRAPH_CLASS),
+				vf.createStatement(statsNode, RDF.TYPE, SD.GRAPH_CLASS),
+				vf.createStatement(statsNode, RDF.TYPE, VOID.DATASET)
+			);
+		} else {
+			stmts = Collections.emptyList();
+		}
+		for (Statement stmt : stmts) {
+			conn.addSystemStatement(stmt.getSubject(), stmt.getPredicate(), stmt.getObject(), HALYARD.STATS_GRAPH_CONTEXT, timestamp);
+		}
+	}
+
+
+	private static final class Counters {
+		final byte[] descriptor;
+		final Map<String, Long> deltas = new HashMap<>(3);
+
+		Counters(byte[] descriptor) {
+			this.descriptor = descriptor;
+		}
+
+		void add(IRI countPredicate, long delta) {
+			add(countPredicate.stringValue(), delta);
+		}
+
+		void add(String countPredicate, long delta) {
+			deltas.merge(countPredicate, delta, Long::sum);
+		}
+
+		boolean isZero() {
+			for (long delta : deltas.values()) {
+				if (delta != 0L) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -17,13 +17,17 @@
 package com.msd.gin.halyard.sail;
 
 import com.google.common.collect.Sets;
+import com.msd.gin.halyard.common.ColumnFamilyConfig;
 import com.msd.gin.halyard.common.HBaseServerTestInstance;
 import com.msd.gin.halyard.common.HalyardTableUtils;
+import com.msd.gin.halyard.common.KeyspaceConnection;
 import com.msd.gin.halyard.common.RDFFactory;
+import com.msd.gin.halyard.common.StatementCountEndpoint;
 import com.msd.gin.halyard.common.TableConfig;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.optimizers.HalyardEvaluationStatistics;
 import com.msd.gin.halyard.optimizers.SimpleStatementPatternCardinalityCalculator;
+import com.msd.gin.halyard.repository.HBaseRepository;
 
 import java.io.File;
 import java.net.URL;
@@ -32,6 +36,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
@@ -39,6 +44,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.client.TableDescriptor;
 import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
@@ -61,7 +67,9 @@ import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.BooleanQuery;
 import org.eclipse.rdf4j.query.GraphQuery;
 import org.eclipse.rdf4j.query.GraphQueryResult;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.QueryResults;
 import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
@@ -609,6 +617,286 @@ public class HBaseSailTest {
         rep.shutDown();
     }
 
+	@Test
+	public void testGetStatementsFromManyContexts() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		IRI pred = vf.createIRI("http://whatever/pred/");
+		Configuration conf = HBaseServerTestInstance.getInstanceConfig();
+		conf.setInt(EvaluationConfig.SCAN_MAX_PARALLEL_CONTEXTS, 3);
+		HBaseSail sail = new HBaseSail(hconn, conf, useTable("whatevercontexts"), true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+		sail.init();
+		Resource[] contexts = new Resource[10];
+		Set<Statement> expected = new HashSet<>();
+		try (SailConnection conn = sail.getConnection()) {
+			conn.begin();
+			for (int c = 0; c < contexts.length; c++) {
+				contexts[c] = vf.createIRI("http://whatever/context/" + c);
+				for (int i = 0; i < 50; i++) {
+					Statement st = vf.createStatement(vf.createIRI("http://whatever/subj/" + i), pred, vf.createLiteral(c), contexts[c]);
+					conn.addStatement(st.getSubject(), st.getPredicate(), st.getObject(), st.getContext());
+					expected.add(st);
+				}
+			}
+			conn.commit();
+		}
+		try (SailConnection conn = sail.getConnection()) {
+			Set<Statement> actual = new HashSet<>();
+			try (CloseableIteration<? extends Statement, SailException> iter = conn.getStatements(null, pred, null, true, contexts)) {
+				while (iter.hasNext()) {
+					actual.add(iter.next());
+				}
+			}
+			assertEquals(expected, actual);
+			// close early
+			try (CloseableIteration<? extends Statement, SailException> iter = conn.getStatements(null, pred, null, true, contexts)) {
+				assertTrue(iter.hasNext());
+				iter.next();
+			}
+		}
+		sail.shutDown();
+	}
+
+	@Test
+	public void testEvaluateStarJoin() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		HBaseSail sail = new HBaseSail(hconn, useTable("whateverstar"), true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+		SailRepository rep = new SailRepository(sail);
+		rep.init();
+		try (RepositoryConnection conn = rep.getConnection()) {
+			conn.begin();
+			for (int i = 0; i < 10; i++) {
+				IRI subj = vf.createIRI("http://whatever/subj/" + i);
+				conn.add(subj, vf.createIRI("http://whatever/name"), vf.createLiteral("name" + i));
+				conn.add(subj, vf.createIRI("http://whatever/age"), vf.createLiteral(i));
+				// properties not in the star
+				for (int j = 0; j < 50; j++) {
+					conn.add(subj, vf.createIRI("http://whatever/prop/" + j), vf.createLiteral(j));
+				}
+			}
+			conn.commit();
+		}
+		try (RepositoryConnection conn = rep.getConnection()) {
+			TupleQuery q = conn.prepareTupleQuery(QueryLanguage.SPARQL,
+					"select ?s ?n ?a where {?s <http://whatever/name> ?n; <http://whatever/age> ?a; <http://whatever/prop/7> 7}");
+			Set<String> names = new HashSet<>();
+			try (TupleQueryResult res = q.evaluate()) {
+				while (res.hasNext()) {
+					BindingSet bs = res.next();
+					assertEquals("name" + ((Literal) bs.getValue("a")).intValue(), bs.getValue("n").stringValue());
+					names.add(bs.getValue("n").stringValue());
+				}
+			}
+			assertEquals(10, names.size());
+		}
+		rep.shutDown();
+	}
+
+	@Test
+	public void testQueryCacheSharesShape() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		HBaseSail sail = new HBaseSail(hconn, useTable("whatevercache"), true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+		HBaseRepository rep = new HBaseRepository(sail);
+		rep.init();
+		try (RepositoryConnection conn = rep.getConnection()) {
+			for (int i = 0; i < 3; i++) {
+				conn.add(vf.createIRI("http://whatever/subj/" + i), vf.createIRI("http://whatever/name"), vf.createLiteral("name" + i));
+			}
+		}
+		try (RepositoryConnection conn = rep.getConnection()) {
+			for (int i = 0; i < 3; i++) {
+				TupleQuery q = conn.prepareTupleQuery(QueryLanguage.SPARQL, "select ?n where {<http://whatever/subj/" + i + "> <http://whatever/name> ?n}");
+				try (TupleQueryResult res = q.evaluate()) {
+					assertEquals("name" + i, res.next().getValue("n").stringValue());
+					assertFalse(res.hasNext());
+				}
+			}
+			for (int i = 0; i < 3; i++) {
+				TupleQuery q = conn.prepareTupleQuery(QueryLanguage.SPARQL, "select ?n where {?s <http://whatever/name> ?n}");
+				q.setBinding("s", vf.createIRI("http://whatever/subj/" + i));
+				try (TupleQueryResult res = q.evaluate()) {
+					assertEquals("name" + i, res.next().getValue("n").stringValue());
+					assertFalse(res.hasNext());
+				}
+			}
+			// anonymous variables are named afresh by every parse
+			for (int i = 0; i < 2; i++) {
+				TupleQuery q = conn.prepareTupleQuery(QueryLanguage.SPARQL, "select ?s where {?s <http://whatever/name> []}");
+				try (TupleQueryResult res = q.evaluate()) {
+					assertEquals(3, QueryResults.asList(res).size());
+				}
+			}
+			// constants within a service are not slots
+			for (int i = 0; i < 2; i++) {
+				TupleQuery q = conn.prepareTupleQuery(QueryLanguage.SPARQL, "select ?n where {service <" + HALYARD.NAMESPACE + "whatevercache> {<http://whatever/subj/" + i + "> <http://whatever/name> ?n}}");
+				try (TupleQueryResult res = q.evaluate()) {
+					assertEquals("name" + i, res.next().getValue("n").stringValue());
+					assertFalse(res.hasNext());
+				}
+			}
+		}
+		assertEquals(5, sail.getQueryCacheMissCount());
+		assertEquals(5, sail.getQueryCacheHitCount());
+		rep.shutDown();
+	}
+
+	@Test
+	public void testCountStatements() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		Configuration conf = new Configuration(HBaseServerTestInstance.getInstanceConfig());
+		conf.setBoolean(HalyardTableUtils.COUNT_ENDPOINT_PROPERTY, true);
+		IRI ctx = vf.createIRI("http://whatever/ctx");
+		IRI name = vf.createIRI("http://whatever/name");
+		IRI knows = vf.createIRI("http://whatever/knows");
+		try (Connection countConn = HalyardTableUtils.getConnection(conf)) {
+			String tableName = useTable("whatevercount");
+			HBaseSail sail = new HBaseSail(countConn, tableName, true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+			sail.init();
+			try {
+				assertTrue(countConn.getAdmin().getDescriptor(TableName.valueOf(tableName)).hasCoprocessor(StatementCountEndpoint.class.getName()));
+				try (SailConnection conn = sail.getConnection()) {
+					for (int i = 0; i < 10; i++) {
+						IRI subj = vf.createIRI("http://whatever/subj/" + i);
+						conn.addStatement(subj, name, vf.createLiteral("name" + i));
+						if (i % 2 == 0) {
+							conn.addStatement(subj, knows, vf.createIRI("http://whatever/subj/0"), ctx);
+						}
+					}
+				}
+				try (KeyspaceConnection keyspaceConn = sail.keyspace.getConnection()) {
+					HBaseTripleSource tripleSource = sail.createTripleSource(keyspaceConn, true);
+					IRI subj0 = vf.createIRI("http://whatever/subj/0");
+					assertCount(10, tripleSource, null, name, null);
+					assertCount(5, tripleSource, null, knows, null);
+					assertCount(5, tripleSource, null, knows, subj0, ctx);
+					assertCount(0, tripleSource, null, knows, subj0, vf.createIRI("http://whatever/otherctx"));
+					assertCount(2, tripleSource, subj0, null, null);
+					assertCount(1, tripleSource, subj0, null, null, ctx);
+				}
+			} finally {
+				sail.shutDown();
+			}
+		}
+	}
+
+	private static void assertCount(long expected, HBaseTripleSource tripleSource, Resource subj, IRI pred, Value obj, Resource... ctxs) {
+		long actual = 0L;
+		try (CloseableIteration<? extends Statement, QueryEvaluationException> iter = tripleSource.getStatements(subj, pred, obj, ctxs)) {
+			while (iter.hasNext()) {
+				iter.next();
+				actual++;
+			}
+		}
+		assertEquals(expected, actual);
+		assertEquals(expected, tripleSource.countStatements(subj, pred, obj, ctxs));
+	}
+
+	private static long getStatistic(SailConnection conn, Resource statsNode, IRI countPredicate) {
+		try (CloseableIteration<? extends Statement, SailException> iter = conn.getStatements(statsNode, countPredicate, null, true, HALYARD.STATS_GRAPH_CONTEXT)) {
+			return iter.hasNext() ? ((Literal) iter.next().getObject()).longValue() : -1L;
+		}
+	}
+
+	@Test
+	public void testIncrementalStatistics() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		Configuration conf = new Configuration(HBaseServerTestInstance.getInstanceConfig());
+		conf.setBoolean(StatisticsDeltas.INCREMENTAL_STATS_PROPERTY, true);
+		HBaseSail sail = new HBaseSail(hconn, conf, useTable("whateverstatsdelta"), true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+		sail.init();
+		IRI ctx = vf.createIRI("http://whatever/ctx");
+		IRI person = vf.createIRI("http://whatever/Person");
+		IRI name = vf.createIRI("http://whatever/name");
+		try (SailConnection conn = sail.getConnection()) {
+			for (int i = 0; i < 3; i++) {
+				IRI subj = vf.createIRI("http://whatever/subj/" + i);
+				conn.addStatement(subj, RDF.TYPE, person, ctx);
+				conn.addStatement(subj, name, vf.createLiteral("name" + i));
+			}
+		}
+		assertTrue(sail.compactStatistics() > 0);
+		HalyardStatsBasedStatementPatternCardinalityCalculator.PartitionIriTransformer transformer = HalyardStatsBasedStatementPatternCardinalityCalculator.createPartitionIriTransformer(sail.getRDFFactory());
+		IRI rootNamePartition = vf.createIRI(transformer.apply(HALYARD.STATS_ROOT_NODE, VOID.PROPERTY, name));
+		IRI ctxPersonPartition = vf.createIRI(transformer.apply(ctx, VOID.CLASS, person));
+		try (SailConnection conn = sail.getConnection()) {
+			assertEquals(6L, getStatistic(conn, HALYARD.STATS_ROOT_NODE, VOID.TRIPLES));
+			assertEquals(3L, getStatistic(conn, ctx, VOID.TRIPLES));
+			assertEquals(3L, getStatistic(conn, rootNamePartition, VOID.TRIPLES));
+			assertEquals(3L, getStatistic(conn, ctxPersonPartition, VOID.ENTITIES));
+			assertTrue(conn.hasStatement(ctx, VOID.CLASS_PARTITION, ctxPersonPartition, true, HALYARD.STATS_GRAPH_CONTEXT));
+			conn.removeStatement(null, vf.createIRI("http://whatever/subj/0"), name, vf.createLiteral("name0"));
+		}
+		sail.compactStatistics();
+		try (SailConnection conn = sail.getConnection()) {
+			assertEquals(5L, getStatistic(conn, HALYARD.STATS_ROOT_NODE, VOID.TRIPLES));
+			assertEquals(2L, getStatistic(conn, rootNamePartition, VOID.TRIPLES));
+		}
+		assertEquals(0L, sail.compactStatistics());
+		sail.shutDown();
+	}
+
+	@Test
+	public void testDiscardStatisticsDeltas() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		Configuration conf = new Configuration(HBaseServerTestInstance.getInstanceConfig());
+		conf.setBoolean(StatisticsDeltas.INCREMENTAL_STATS_PROPERTY, true);
+		String tableName = useTable("whateverstatsdiscard");
+		HBaseSail sail = new HBaseSail(hconn, conf, tableName, true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+		sail.init();
+		IRI name = vf.createIRI("http://whatever/name");
+		try (Table table = hconn.getTable(TableName.valueOf(tableName))) {
+			try (SailConnection conn = sail.getConnection()) {
+				conn.addStatement(vf.createIRI("http://whatever/subj/0"), name, vf.createLiteral("name0"));
+			}
+			Map<String, Map<String, Long>> snapshot = StatisticsDeltas.snapshot(table);
+			// recorded while a recalculation is running
+			try (SailConnection conn = sail.getConnection()) {
+				conn.addStatement(vf.createIRI("http://whatever/subj/1"), name, vf.createLiteral("name1"));
+			}
+			StatisticsDeltas.discard(table, snapshot);
+			try (KeyspaceConnection keyspaceConn = sail.keyspace.getConnection()) {
+				assertEquals(1L, StatisticsDeltas.getDelta(keyspaceConn, HALYARD.STATS_ROOT_NODE, VOID.TRIPLES));
+			}
+		} finally {
+			sail.shutDown();
+		}
+	}
+
+	@Test
+	public void testPipelinedUpdates() throws Exception {
+		Configuration conf = new Configuration(HBaseServerTestInstance.getInstanceConfig());
+		conf.setInt(EvaluationConfig.UPDATE_WRITER_THREADS, 2);
+		conf.setInt(EvaluationConfig.UPDATE_WRITER_BATCH_SIZE, 3);
+		conf.setBoolean(StatisticsDeltas.INCREMENTAL_STATS_PROPERTY, true);
+		HBaseSail sail = new HBaseSail(hconn, conf, useTable("whateverpipelined"), true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+		SailRepository rep = new SailRepository(sail);
+		rep.init();
+		try (RepositoryConnection conn = rep.getConnection()) {
+			StringBuilder insert = new StringBuilder("insert data {");
+			for (int i = 0; i < 10; i++) {
+				insert.append("<http://whatever/subj/").append(i).append("> <http://whatever/name> \"name").append(i).append("\". ");
+			}
+			insert.append("}");
+			conn.prepareUpdate(QueryLanguage.SPARQL, insert.toString()).execute();
+			assertEquals(10, countNames(conn, "http://whatever/name"));
+
+			conn.prepareUpdate(QueryLanguage.SPARQL, "delete data {<http://whatever/subj/0> <http://whatever/name> \"name0\"}").execute();
+			assertEquals(9, countNames(conn, "http://whatever/name"));
+
+			conn.prepareUpdate(QueryLanguage.SPARQL, "delete {?s <http://whatever/name> ?n} insert {?s <http://whatever/label> ?n} where {?s <http://whatever/name> ?n}").execute();
+			assertEquals(0, countNames(conn, "http://whatever/name"));
+			assertEquals(9, countNames(conn, "http://whatever/label"));
+		}
+		try (KeyspaceConnection keyspaceConn = sail.keyspace.getConnection()) {
+			assertEquals(9L, StatisticsDeltas.getDelta(keyspaceConn, HALYARD.STATS_ROOT_NODE, VOID.TRIPLES));
+		}
+		rep.shutDown();
+	}
+
+	private static int countNames(RepositoryConnection conn, String pred) {
+		TupleQuery q = conn.prepareTupleQuery(QueryLanguage.SPARQL, "select ?s ?n where {?s <" + pred + "> ?n}");
+		return QueryResults.asList(q.evaluate()).size();
+	}
+
     @Test
 	public void testEvaluateSelectService() throws Exception {
         ValueFactory vf = SimpleValueFactory.getInstance();
@@ -1027,6 +1315,62 @@ public class HBaseSailTest {
 		sail.shutDown();
 	}
 
+	@Test
+	public void testAsOf() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		Configuration conf = new Configuration(HBaseServerTestInstance.getInstanceConfig());
+		conf.setInt(ColumnFamilyConfig.MAX_VERSIONS, 5);
+		HBaseSail sail = new HBaseSail(hconn, conf, useTable("whateverasof"), true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+		SailRepository rep = new SailRepository(sail);
+		rep.init();
+		IRI subj = vf.createIRI("http://whatever/subj");
+		try (RepositoryConnection conn = rep.getConnection()) {
+			conn.begin();
+			conn.add(subj, RDFS.LABEL, vf.createLiteral("before"));
+			conn.commit();
+			Thread.sleep(10L);
+			long asOf = System.currentTimeMillis();
+			Thread.sleep(10L);
+			conn.begin();
+			conn.remove(subj, RDFS.LABEL, null);
+			conn.add(subj, RDFS.LABEL, vf.createLiteral("after"));
+			conn.commit();
+
+			TupleQuery q = conn.prepareTupleQuery(QueryLanguage.SPARQL, "SELECT ?l WHERE {<http://whatever/subj> ?p ?l}");
+			try (TupleQueryResult res = q.evaluate()) {
+				assertEquals("after", res.next().getValue("l").stringValue());
+				assertFalse(res.hasNext());
+			}
+			q.setBinding(HBaseSailConnection.AS_OF_BINDING, vf.createLiteral(asOf));
+			try (TupleQueryResult res = q.evaluate()) {
+				assertEquals("before", res.next().getValue("l").stringValue());
+				assertFalse(res.hasNext());
+			}
+		}
+		rep.shutDown();
+	}
+
+	@Test
+	public void testRemoveStatementsInBatches() throws Exception {
+		String table = "whatevertable";
+		HBaseSail sail = new HBaseSail(hconn, useTable(table), true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+		sail.init();
+		ValueFactory vf = sail.getValueFactory();
+		IRI subj = vf.createIRI("http://whatever/subj");
+		try (SailConnection conn = sail.getConnection()) {
+			conn.begin();
+			for (int i = 0; i < 2500; i++) {
+				conn.addStatement(subj, RDFS.COMMENT, vf.createLiteral(i));
+			}
+			conn.addStatement(subj, RDFS.LABEL, vf.createLiteral("keep"));
+			assertCount(conn, 2501);
+			conn.removeStatements(null, RDFS.COMMENT, null);
+			assertCount(conn, 1);
+			conn.commit();
+		}
+		sail.shutDown();
+	}
+
 	@Test
     public void testSnapshot() throws Exception {
 		String table = "whatevertable";
@@ -0,0 +1,106 @@
+package com.msd.gin.halyard.sail;
+
+import org.apache.hadoop.conf.Configuration;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueryGovernorTest {
+
+	private static QueryGovernor createGovernor(int maxQueries, int maxQueriesPerTenant, long maxScannedResults) {
+		return createGovernor(maxQueries, maxQueriesPerTenant, maxScannedResults, 0);
+	}
+
+	private static QueryGovernor createGovernor(int maxQueries, int maxQueriesPerTenant, long maxScannedResults, long maxScannedBytes) {
+		Configuration conf = new Configuration(false);
+		conf.setInt(EvaluationConfig.QUERY_MAX_RUNNING, maxQueries);
+		conf.setInt(EvaluationConfig.QUERY_MAX_RUNNING_PER_TENANT, maxQueriesPerTenant);
+		conf.setLong(EvaluationConfig.QUERY_ADMISSION_TIMEOUT_MILLIS, 10L);
+		conf.setLong(EvaluationConfig.QUERY_MAX_SCANNED_RESULTS, maxScannedResults);
+		conf.setLong(EvaluationConfig.QUERY_MAX_SCANNED_BYTES, maxScannedBytes);
+		return new QueryGovernor(new EvaluationConfig(conf));
+	}
+
+	@Test
+	public void testAdmission() {
+		QueryGovernor governor = createGovernor(2, 0, 0);
+		QueryGovernor.Permit p1 = governor.admit("a");
+		QueryGovernor.Permit p2 = governor.admit("b");
+		assertEquals(2, governor.getRunningQueryCount());
+		assertThrows(QueryEvaluationException.class, () -> governor.admit("c"));
+		assertEquals(1, governor.getRejectedQueryCount());
+		assertTrue(p1.release());
+		assertFalse(p1.release());
+		governor.admit("c").release();
+		p2.release();
+		assertEquals(0, governor.getRunningQueryCount());
+	}
+
+	@Test
+	public void testTenantAdmission() {
+		QueryGovernor governor = createGovernor(0, 1, 0);
+		QueryGovernor.Permit p1 = governor.admit("a");
+		assertThrows(QueryEvaluationException.class, () -> governor.admit("a"));
+		governor.admit("b").release();
+		p1.release();
+		governor.admit("a").release();
+		assertEquals(1, governor.getRejectedQueryCount());
+		// idle tenants are forgotten
+		assertEquals(0, governor.getTenantCount());
+	}
+
+	@Test
+	public void testNestedPermit() {
+		QueryGovernor governor = createGovernor(1, 1, 3);
+		QueryGovernor.Permit permit = governor.admit("a");
+		QueryGovernor.Permit nested = permit.nested();
+		assertEquals(1, governor.getRunningQueryCount());
+		assertFalse(nested.release());
+		assertEquals(1, governor.getRunningQueryCount());
+		// the scan budget is shared
+		permit.ticker(null).tick();
+		HBaseSail.Ticker nestedTicker = nested.ticker(null);
+		nestedTicker.tick();
+		nestedTicker.tick();
+		assertThrows(QueryInterruptedException.class, nestedTicker::tick);
+		assertEquals(0, governor.getRunningQueryCount());
+		assertEquals(0, governor.getTenantCount());
+	}
+
+	@Test
+	public void testScanBudget() {
+		QueryGovernor governor = createGovernor(0, 0, 3);
+		QueryGovernor.Permit permit = governor.admit(null);
+		HBaseSail.Ticker ticker = permit.ticker(null);
+		for (int i = 0; i < 3; i++) {
+			ticker.tick();
+		}
+		assertThrows(QueryInterruptedException.class, ticker::tick);
+		assertEquals(1, governor.getAbortedQueryCount());
+		assertEquals(0, governor.getRunningQueryCount());
+	}
+
+	@Test
+	public void testScanByteBudget() {
+		QueryGovernor governor = createGovernor(0, 0, 0, 100);
+		QueryGovernor.Permit permit = governor.admit(null);
+		HBaseSail.Ticker ticker = permit.ticker(null);
+		ticker.tick(60);
+		ticker.tick();
+		ticker.tick(40);
+		assertThrows(QueryInterruptedException.class, () -> ticker.tick(1));
+		assertEquals(1, governor.getAbortedQueryCount());
+		assertEquals(0, governor.getRunningQueryCount());
+	}
+
+	@Test
+	public void testUnlimited() {
+		QueryGovernor governor = createGovernor(0, 0, 0);
+		QueryGovernor.Permit permit = governor.admit(null);
+		assertNull(permit.ticker(null));
+		permit.release();
+		assertEquals(0, governor.getRejectedQueryCount());
+	}
+}
@@ -16,11 +16,17 @@
  */
 package com.msd.gin.halyard.sail;
 
+import com.msd.gin.halyard.common.TableConfig;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
@@ -66,6 +72,34 @@ public class SearchTest extends AbstractSearchTest {
 		}
 	}
 
+	@Test
+	public void statementLiteralSearchWithDictionaryTest() throws Exception {
+		conf.setInt(TableConfig.VALUE_DICTIONARY_THRESHOLD, 10);
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		Literal val1 = vf.createLiteral("Whatever Text");
+		Literal val2 = vf.createLiteral("Whatever Text", "en");
+		Literal val3 = vf.createLiteral("Que sea", "es");
+		String expectedRequest = "{\"_source\":{\"includes\":[\"id\",\"iri\",\"label\",\"lang\",\"datatype\"]},\"min_score\":0.0,\"query\":{\"query_string\":{\"default_field\":\"label\",\"fuzziness\":\"1\",\"phrase_slop\":0.0,\"query\":\"whatever\"}},\"size\":10000}";
+		try (MockElasticServer server = startElasticsearch(expectedRequest, val1, val2)) {
+			IRI whatever = vf.createIRI("http://whatever");
+			Repository hbaseRepo = createRepo("testDictionaryLiteralSearch", server);
+			try (RepositoryConnection conn = hbaseRepo.getConnection()) {
+				conn.add(whatever, whatever, val1);
+				conn.add(whatever, whatever, val2);
+				conn.add(whatever, whatever, val3);
+				// the results of both hits are read ahead together
+				Set<Value> objs = new HashSet<>();
+				try (RepositoryResult<Statement> iter = conn.getStatements(null, null, vf.createLiteral("whatever", HALYARD.SEARCH))) {
+					while (iter.hasNext()) {
+						objs.add(iter.next().getObject());
+					}
+				}
+				assertEquals(new HashSet<>(Arrays.asList(val1, val2)), objs);
+			}
+			hbaseRepo.shutDown();
+		}
+	}
+
 	@Test
 	public void advancedSearchTest() throws Exception {
 		ValueFactory vf = SimpleValueFactory.getInstance();
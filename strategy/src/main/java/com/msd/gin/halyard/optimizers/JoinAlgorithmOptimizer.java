@@ -1,6 +1,7 @@
 package com.msd.gin.halyard.optimizers;
 
 import com.msd.gin.halyard.query.algebra.Algorithms;
+import com.msd.gin.halyard.query.algebra.ConstrainedStatementPattern;
 import com.msd.gin.halyard.query.algebra.SkipVarsQueryModelVisitor;
 
 import java.util.HashSet;
@@ -24,21 +25,35 @@ public class JoinAlgorithmOptimizer implements QueryOptimizer {
 	private static double INDEX_SCAN_COST = 1.0;  // HBase scan cost
 	private static double HASH_LOOKUP_COST = 0.001;
 	private static double HASH_BUILD_COST = 0.005;
+	private static double BATCH_LOOKUP_COST = 0.01;  // per binding cost of building/routing a multi-range scan
 
 	private final ExtendedEvaluationStatistics statistics;
 	private final int hashJoinLimit;
 	private final float costRatio;
+	private final int batchJoinSize;
 
 	public JoinAlgorithmOptimizer(ExtendedEvaluationStatistics stats, int hashJoinLimit, float ratio) {
+		this(stats, hashJoinLimit, ratio, 0);
+	}
+
+	/**
+	 * @param batchJoinSize number of left bindings to look up per scan, a value less than 2 disables batch joins.
+	 */
+	public JoinAlgorithmOptimizer(ExtendedEvaluationStatistics stats, int hashJoinLimit, float ratio, int batchJoinSize) {
 		this.statistics = stats;
 		this.hashJoinLimit = hashJoinLimit;
 		this.costRatio = ratio;
+		this.batchJoinSize = batchJoinSize;
 	}
 
 	public int getHashJoinLimit() {
 		return hashJoinLimit;
 	}
 
+	public int getBatchJoinSize() {
+		return batchJoinSize;
+	}
+
 	@Override
 	public void optimize(TupleExpr tupleExpr, Dataset dataset, BindingSet bindings) {
 		tupleExpr.visit(new SkipVarsQueryModelVisitor<RuntimeException>() {
@@ -59,7 +74,9 @@ public class JoinAlgorithmOptimizer implements QueryOptimizer {
 	private void selectJoinAlgorithm(BinaryTupleOperator join) {
 		TupleExpr left = join.getLeftArg();
 		TupleExpr right = join.getRightArg();
-		if (isSupported(left) && isSupported(right)) {
+		boolean hashSupported = isSupported(left) && isSupported(right);
+		boolean batchSupported = (batchJoinSize > 1) && (join instanceof Join) && isBatchSupported(right);
+		if (hashSupported || batchSupported) {
 			Set<String> boundVars = getBoundVars(join);
 			double leftCard = statistics.getCardinality(left, boundVars, true);
 			// calculate cardinality excluding bindings coming from the left
@@ -68,15 +85,30 @@ public class JoinAlgorithmOptimizer implements QueryOptimizer {
 			double nestedCost = leftCard * INDEX_SCAN_COST;
 			// hash join: evaluate right (scan), build hash, evaluate left, for each left bs, lookup right
 			double hashCost = INDEX_SCAN_COST + rightCard * HASH_BUILD_COST + leftCard * HASH_LOOKUP_COST;
-			boolean useHash = rightCard <= hashJoinLimit && costRatio*hashCost < nestedCost;
-			LOGGER.debug("Nested join cost {} vs hash join cost {} ({}, {})", nestedCost, hashCost, leftCard, rightCard);
-			if (useHash) {
+			// batch join: evaluate left, for each block of left bs, evaluate right (single multi-range scan)
+			double batchCost = Math.ceil(leftCard / batchJoinSize) * INDEX_SCAN_COST + leftCard * BATCH_LOOKUP_COST;
+			boolean useHash = hashSupported && rightCard <= hashJoinLimit && costRatio*hashCost < nestedCost;
+			boolean useBatch = batchSupported && batchCost < nestedCost && (!useHash || batchCost < hashCost);
+			LOGGER.debug("Nested join cost {} vs hash join cost {} vs batch join cost {} ({}, {})", nestedCost, hashCost, batchCost, leftCard, rightCard);
+			if (useBatch) {
+				join.setAlgorithm(Algorithms.BATCH_JOIN);
+				join.setCostEstimate(batchCost);
+			} else if (useHash) {
 				join.setAlgorithm(Algorithms.HASH_JOIN);
 				join.setCostEstimate(hashCost);
 			}
 		}
 	}
 
+	/**
+	 * Batch-join looks up blocks of left bindings against a single statement pattern.
+	 * @param expr expression to check
+	 * @return true if a batch-join can be used
+	 */
+	private static boolean isBatchSupported(TupleExpr expr) {
+		return (expr instanceof StatementPattern) && !(expr instanceof ConstrainedStatementPattern);
+	}
+
 	/**
 	 * NB: Hash-join only coincides with SPARQL semantics in a few special cases (e.g. no complex scoping).
 	 * @param expr expression to check
@@ -1,10 +1,12 @@
 package com.msd.gin.halyard.query;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -17,17 +19,21 @@ import org.eclipse.rdf4j.query.QueryInterruptedException;
 
 /**
  * Pushes data to a consumer.
+ * The queue is bounded by the number of binding sets it holds, however they were pushed.
  */
 public final class QueueingBindingSetPipe extends BindingSetPipe {
     private static final Object END_OF_QUEUE = new Object();
-	private final BlockingQueue<Object> queue;
+	private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+	private final int maxQueueSize;
+	private final Semaphore capacity;
 	private final long offerTimeout;
 	private final TimeUnit unit;
 	private volatile boolean sendMore = true;
 
 	public QueueingBindingSetPipe(int maxQueueSize, long offerTimeout, TimeUnit unit) {
 		super(null);
-		this.queue = new LinkedBlockingQueue<>(maxQueueSize);
+		this.maxQueueSize = maxQueueSize;
+		this.capacity = new Semaphore(maxQueueSize);
 		this.offerTimeout = offerTimeout;
 		this.unit = unit;
 	}
@@ -51,8 +57,13 @@ public final class QueueingBindingSetPipe extends BindingSetPipe {
 			for (Object next : nexts) {
 				if (next == END_OF_QUEUE) {
 					return false;
+				} else if (next instanceof BindingSet[]) {
+					for (BindingSet bs : (BindingSet[]) next) {
+						consumer.accept(bs);
+					}
+				} else {
+					consumer.accept((BindingSet) next);
 				}
-				consumer.accept((BindingSet) next);
 			}
 			return true;
 		} else {
@@ -74,6 +85,7 @@ public final class QueueingBindingSetPipe extends BindingSetPipe {
 				throw new QueryInterruptedException(ie);
 			}
 		}
+		releaseCapacity(recvds);
 		for (Object o : recvds) {
 	    	if (o instanceof Throwable) {
 	    		Throwable ex = (Throwable) o;
@@ -91,15 +103,43 @@ public final class QueueingBindingSetPipe extends BindingSetPipe {
 		sendMore = false;
 	}
 
-	private boolean addToQueue(Object bs) {
+	/**
+	 * Number of binding sets an element takes up in the queue.
+	 * A batch larger than the whole queue takes up all of it.
+	 */
+	private int queuedSize(Object o) {
+		if (o instanceof BindingSet[]) {
+			return Math.min(((BindingSet[]) o).length, maxQueueSize);
+		} else if (o instanceof BindingSet) {
+			return 1;
+		} else {
+			// always let through end of queue and exceptions
+			return 0;
+		}
+	}
+
+	private void releaseCapacity(List<Object> removed) {
+		int size = 0;
+		for (Object o : removed) {
+			size += queuedSize(o);
+		}
+		if (size > 0) {
+			capacity.release(size);
+		}
+	}
+
+	private boolean addToQueue(Object o) {
 		if (!sendMore) {
 			return false;
 		}
 
 		boolean added;
 		try {
-			added = queue.offer(bs, offerTimeout, unit);
-			if (!added) {
+			int size = queuedSize(o);
+			added = (size == 0) || capacity.tryAcquire(size, offerTimeout, unit);
+			if (added) {
+				queue.add(o);
+			} else {
 				// timed-out
 				try {
 					// throw to generate a stack trace
@@ -120,6 +160,14 @@ public final class QueueingBindingSetPipe extends BindingSetPipe {
 		return addToQueue(bs);
 	}
 
+	/**
+	 * Queues a batch as a single element.
+	 */
+	@Override
+	protected boolean nextBatch(BindingSet[] bss, int n) {
+		return (n > 0) ? addToQueue(Arrays.copyOf(bss, n)) : true;
+	}
+
 	@Override
 	protected void doClose() {
 		addToQueue(END_OF_QUEUE);
@@ -127,7 +175,9 @@ public final class QueueingBindingSetPipe extends BindingSetPipe {
 
     @Override
     public boolean handleException(Throwable e) {
-        queue.clear();
+        List<Object> cleared = new ArrayList<>();
+        queue.drainTo(cleared);
+        releaseCapacity(cleared);
         if (!addToQueue(e)) {
         	// report problem
         	throw new RuntimeException(e);
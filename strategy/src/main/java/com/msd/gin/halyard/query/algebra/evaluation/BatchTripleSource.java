@@ -0,0 +1,39 @@
+package com.msd.gin.halyard.query.algebra.evaluation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
+import org.eclipse.rdf4j.common.iteration.UnionIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+
+/**
+ * A triple source that can look up a block of statement patterns in a single request.
+ */
+public interface BatchTripleSource extends TripleSource {
+	/**
+	 * Returns statements matching any of the given patterns.
+	 * The i-th pattern is given by subjs[i], preds[i] and objs[i], any of which may be null.
+	 * The returned iteration may contain statements that do not match any of the patterns,
+	 * callers are expected to route the statements back to the patterns themselves.
+	 */
+	default CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(Resource[] subjs, IRI[] preds, Value[] objs, Resource... contexts) throws QueryEvaluationException {
+		int n = subjs.length;
+		if (n == 0) {
+			return new EmptyIteration<>();
+		} else if (n == 1) {
+			return getStatements(subjs[0], preds[0], objs[0], contexts);
+		}
+		List<CloseableIteration<? extends Statement, QueryEvaluationException>> iters = new ArrayList<>(n);
+		for (int i=0; i<n; i++) {
+			iters.add(getStatements(subjs[i], preds[i], objs[i], contexts));
+		}
+		return new UnionIteration<>(iters);
+	}
+}
@@ -2,6 +2,8 @@ package com.msd.gin.halyard.strategy;
 
 import com.msd.gin.halyard.query.BindingSetPipe;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -33,19 +35,36 @@ final class AsyncPullPusher implements PullPusher {
 		return executor;
 	}
 
+	private static TrackingForkJoinExecutor createForkJoinExecutor(String namePrefix, int threads, int maxThreads) {
+		return new TrackingForkJoinExecutor(namePrefix, threads, maxThreads, 60L, TimeUnit.SECONDS, (t,e) -> LOGGER.warn("Thread {} exited due to an uncaught exception", t.getName(), e));
+	}
+
 	private final TupleExprPriorityAssigner priorityAssigner = new TupleExprPriorityAssigner();
-	private final TrackingThreadPoolExecutor executor;
+	private final ExecutorService executor;
+	private final boolean managedBlocking;
 	private double asyncPullPushAllLimit;
+	private final int batchSize;
 
 	AsyncPullPusher(String name, Configuration conf) {
 	    int threads = conf.getInt(StrategyConfig.HALYARD_EVALUATION_THREADS, StrategyConfig.DEFAULT_THREADS);
-		executor = createExecutor(name + " ", threads);
+	    String executorType = conf.get(StrategyConfig.HALYARD_EVALUATION_EXECUTOR, StrategyConfig.THREAD_POOL_EXECUTOR);
+	    if (StrategyConfig.FORK_JOIN_EXECUTOR.equals(executorType)) {
+		    int maxThreads = conf.getInt(StrategyConfig.HALYARD_EVALUATION_MAX_THREADS, StrategyConfig.DEFAULT_MAX_THREADS);
+			executor = createForkJoinExecutor(name + " ", threads, maxThreads);
+			managedBlocking = true;
+	    } else if (StrategyConfig.THREAD_POOL_EXECUTOR.equals(executorType)) {
+			executor = createExecutor(name + " ", threads);
+			managedBlocking = false;
+	    } else {
+	    	throw new IllegalArgumentException(String.format("Invalid %s: %s", StrategyConfig.HALYARD_EVALUATION_EXECUTOR, executorType));
+	    }
 		int limit = conf.getInt(StrategyConfig.HALYARD_EVALUATION_PULL_PUSH_ASYNC_ALL_LIMIT, StrategyConfig.DEFAULT_PULL_PUSH_ASYNC_ALL_LIMIT);
 		setAsyncPullPushAllLimit(limit);
+		batchSize = SyncPullPusher.getBatchSize(conf);
 	}
 
-	TrackingThreadPoolExecutor getThreadPoolExecutor() {
-		return executor;
+	TrackingThreadPoolExecutorMXBean getThreadPoolExecutor() {
+		return (TrackingThreadPoolExecutorMXBean) executor;
 	}
 
 	void setAsyncPullPushAllLimit(int limit) {
@@ -87,12 +106,12 @@ final class AsyncPullPusher implements PullPusher {
 
 	@Override
 	public int getActiveCount() {
-		return executor.getActiveCount();
+		return getThreadPoolExecutor().getActiveCount();
 	}
 
 	@Override
 	public int getQueueSize() {
-		return executor.getQueueSize();
+		return getThreadPoolExecutor().getQueueSize();
 	}
 
 	@Override
@@ -136,12 +155,14 @@ final class AsyncPullPusher implements PullPusher {
     	}
 	}
 
-	final class IterateSingleAndPipeTask extends PrioritizedTask {
+	final class IterateSingleAndPipeTask extends PrioritizedTask implements ForkJoinPool.ManagedBlocker {
         private final BindingSetPipe pipe;
         private final QueryEvaluationStep evalStep;
         private final HalyardEvaluationStrategy strategy;
         private int pushPriority = MIN_SUB_PRIORITY;
         private CloseableIteration<BindingSet, QueryEvaluationException> iter;
+        private BindingSet[] batch;
+        private int batchLen;
 
         /**
          * Constructor for the class with the supplied variables
@@ -160,17 +181,28 @@ final class AsyncPullPusher implements PullPusher {
             this.strategy = strategy;
         }
 
+		/**
+		 * Pulls up to a batch of binding sets and pushes them.
+		 * @return true if the task should be run again
+		 */
 		boolean pushNext() {
         	try {
             	if (!pipe.isClosed()) {
             		if (iter == null) {
                         iter = strategy.track(evalStep.evaluate(bindingSet), queryNode);
+                        batch = new BindingSet[batchSize];
             		}
-                	if(iter.hasNext()) {
-                        BindingSet bs = iter.next();
-                        if (pipe.push(bs)) { //true indicates more data is expected from this binding set, put it on the queue
-                            return true;
-                        }
+            		if (managedBlocking) {
+            			// let the pool compensate while this waits on the scan
+            			ForkJoinPool.managedBlock(this);
+            		} else {
+            			block();
+            		}
+            		int n = batchLen;
+            		batchLen = 0;
+            		//true indicates more data is expected from this binding set, put it on the queue
+                    if (n > 0 && pipe.pushBatch(batch, n) && n == batch.length) {
+                        return true;
             		}
             	}
             } catch (Throwable e) {
@@ -192,6 +224,23 @@ final class AsyncPullPusher implements PullPusher {
         	return false;
 		}
 
+		/**
+		 * Pulls up to a batch of binding sets.
+		 */
+		@Override
+		public boolean block() {
+    		// anything already pulled is kept if hasNext() or next() throws
+    		while (batchLen < batch.length && iter.hasNext()) {
+    			batch[batchLen++] = iter.next();
+    		}
+    		return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			return false;
+		}
+
 		@Override
     	public void run() {
         	if (pushNext()) {
@@ -228,7 +277,7 @@ final class AsyncPullPusher implements PullPusher {
 
 		@Override
     	public void run() {
-			SyncPullPusher.pullPushAll(pipe, evalStep, queryNode, bindingSet, strategy);
+			SyncPullPusher.pullPushAll(pipe, evalStep, queryNode, bindingSet, strategy, batchSize);
     	}
     }
 }
\ No newline at end of file
@@ -1,11 +1,18 @@
 package com.msd.gin.halyard.strategy;
 
+import com.msd.gin.halyard.strategy.collections.AbstractValueSerializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Set;
 
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.MutableBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
@@ -130,4 +137,27 @@ final class BindingSetValues implements Serializable {
 	public String toString() {
 		return Arrays.toString(values);
 	}
+
+
+	static final class BindingSetValuesSerializer extends AbstractValueSerializer<BindingSetValues> {
+		public BindingSetValuesSerializer() {
+			// required for deserialization
+		}
+
+		BindingSetValuesSerializer(ValueFactory vf) {
+			super(vf);
+		}
+
+		@Override
+		public void serialize(DataOutput out, BindingSetValues bsv) throws IOException {
+			ByteBuffer tmp = newTempBuffer();
+			writeValues(bsv.values, out, tmp);
+		}
+
+		@Override
+		public BindingSetValues deserialize(DataInput in, int available) throws IOException {
+			Value[] values = readValues(in);
+			return values.length > 0 ? new BindingSetValues(values) : EMPTY;
+		}
+	}
 }
\ No newline at end of file
@@ -77,7 +77,7 @@ public final class HalyardEvaluationExecutor implements HalyardEvaluationExecuto
 		if (asyncPullPush) {
 			pullPusher = new AsyncPullPusher(name, conf);
 		} else {
-			pullPusher = new SyncPullPusher();
+			pullPusher = new SyncPullPusher(conf);
 		}
 
 		int bindingsRateUpdateMillis = conf.getInt(StrategyConfig.HALYARD_EVALUATION_BINDINGS_RATE_UPDATE_MILLIS, 100);
@@ -348,6 +348,12 @@ public final class HalyardEvaluationExecutor implements HalyardEvaluationExecuto
 			counter.incrementAndGet();
 			return parent.push(bs);
 		}
+
+		@Override
+		protected boolean nextBatch(BindingSet[] bss, int n) {
+			counter.addAndGet(n);
+			return parent.pushBatch(bss, n);
+		}
     }
 }
 
@@ -373,6 +373,29 @@ public class HalyardEvaluationStrategy implements EvaluationStrategy {
 		return false;
 	}
 
+	long countStatements(StatementPattern sp, BindingSet bindings) throws QueryEvaluationException {
+		QuadPattern nq = tupleEval.getQuadPattern(sp, bindings);
+		if (nq != null) {
+			TripleSource tripleSource = tupleEval.getTripleSource(sp, bindings);
+			if (tripleSource != null) {
+				if (nq.isAllNamedContexts() || !(tripleSource instanceof ExtendedTripleSource) || tupleEval.hasVirtualContexts(nq)) {
+					// can't optimize for this
+					long count = 0L;
+					try (CloseableIteration<?, QueryEvaluationException> stmtIter = tupleEval.getStatements(nq, tripleSource)) {
+						while (stmtIter.hasNext()) {
+							stmtIter.next();
+							count++;
+						}
+					}
+					return count;
+				} else {
+					return ((ExtendedTripleSource) tripleSource).countStatements(nq.subj, nq.pred, nq.obj, nq.ctxs);
+				}
+			}
+		}
+		return 0L;
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() + "[tripleSource = " + tripleSource + "]";
@@ -456,6 +479,15 @@ public class HalyardEvaluationStrategy implements EvaluationStrategy {
 			return super.next(bs);
 		}
 
+		@Override
+		protected boolean nextBatch(BindingSet[] bss, int n) {
+			long count = counter.addAndGet(n);
+			if ((count - lastCount) > config.trackResultSizeUpdateInterval) {
+				updateResultSize();
+			}
+			return parent.pushBatch(bss, n);
+		}
+
 		@Override
 		public boolean handleException(Throwable e) {
 			updateResultSize();
@@ -491,11 +523,24 @@ public class HalyardEvaluationStrategy implements EvaluationStrategy {
 			long start = System.nanoTime();
 			boolean pushMore = super.next(bs);
 			long end = System.nanoTime();
-			long nanos = elapsed.addAndGet(end - start);
+			addElapsed(end - start);
+			return pushMore;
+		}
+
+		@Override
+		protected boolean nextBatch(BindingSet[] bss, int n) {
+			long start = System.nanoTime();
+			boolean pushMore = parent.pushBatch(bss, n);
+			long end = System.nanoTime();
+			addElapsed(end - start);
+			return pushMore;
+		}
+
+		private void addElapsed(long delta) {
+			long nanos = elapsed.addAndGet(delta);
 			if ((nanos - lastNanos) > config.trackResultTimeUpdateInterval) {
 				updateResultTime();
 			}
-			return pushMore;
 		}
 
 		@Override
@@ -57,7 +57,8 @@ public final class HalyardQueryOptimizerPipeline implements QueryOptimizerPipeli
 		this.naryUnionOptimizer = new NAryUnionOptimizer(minUnions);
 		int hashJoinLimit = strategy.getConfig().hashJoinLimit;
 		float costRatio = strategy.getConfig().hashJoinCostRatio;
-		this.joinAlgoOptimizer = new JoinAlgorithmOptimizer(statistics, hashJoinLimit, costRatio);
+		int batchJoinSize = strategy.getConfig().batchJoinSize;
+		this.joinAlgoOptimizer = new JoinAlgorithmOptimizer(statistics, hashJoinLimit, costRatio, batchJoinSize);
 	}
 
 	JoinAlgorithmOptimizer getJoinAlgorithmOptimizer() {
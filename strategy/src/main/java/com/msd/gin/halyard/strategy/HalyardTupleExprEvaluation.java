@@ -37,6 +37,7 @@ import com.msd.gin.halyard.query.algebra.ExtendedTupleFunctionCall;
 import com.msd.gin.halyard.query.algebra.NAryUnion;
 import com.msd.gin.halyard.query.algebra.StarJoin;
 import com.msd.gin.halyard.query.algebra.VarConstraint;
+import com.msd.gin.halyard.query.algebra.evaluation.BatchTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.ExtendedTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.PartitionableTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.federation.BindingSetConsumerFederatedService;
@@ -60,13 +61,15 @@ import com.msd.gin.halyard.strategy.aggregators.ThreadSafeAggregateFunction;
 import com.msd.gin.halyard.strategy.aggregators.ValueCollector;
 import com.msd.gin.halyard.strategy.aggregators.WildcardCountAggregateFunction;
 import com.msd.gin.halyard.strategy.collections.AbstractValueSerializer;
-import com.msd.gin.halyard.strategy.collections.BigHashSet;
-import com.msd.gin.halyard.strategy.collections.Sorter;
+import com.msd.gin.halyard.strategy.collections.ExternalSorter;
+import com.msd.gin.halyard.strategy.collections.FingerprintHashSet;
+import com.msd.gin.halyard.strategy.collections.SpillPartitions;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -74,6 +77,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -84,6 +89,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -106,6 +114,7 @@ import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Triple;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.base.CoreDatatype;
 import org.eclipse.rdf4j.model.impl.BooleanLiteral;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.RDF4J;
@@ -180,8 +189,10 @@ import org.eclipse.rdf4j.query.algebra.evaluation.iterator.DescribeIteration;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.PathIteration;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.ProjectionIterator;
 import org.eclipse.rdf4j.query.algebra.evaluation.util.ValueComparator;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractSimpleQueryModelVisitor;
 import org.eclipse.rdf4j.query.algebra.helpers.TupleExprs;
 import org.eclipse.rdf4j.query.algebra.helpers.collectors.VarNameCollector;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
 import org.eclipse.rdf4j.query.impl.MapBindingSet;
 import org.eclipse.rdf4j.query.parser.sparql.aggregate.AggregateCollector;
 import org.eclipse.rdf4j.query.parser.sparql.aggregate.AggregateFunction;
@@ -198,18 +209,29 @@ final class HalyardTupleExprEvaluation {
 	private static final String ANON_SUBJECT_VAR = "__subj";
 	private static final String ANON_PREDICATE_VAR = "__pred";
 	private static final String ANON_OBJECT_VAR = "__obj";
+	private static final String PATH_START_VAR = "__path_start";
+	private static final String PATH_SUBJECT_VAR = "__path_subj";
+	private static final String PATH_OBJECT_VAR = "__path_obj";
+	private static final String SERVICE_ROW_VAR = "__service_row";
 	private static final int MAX_INITIAL_HASH_JOIN_TABLE_SIZE = 5000;
 	private static final Resource[] ALL_CONTEXTS = new Resource[0];
 	private static final Set<IRI> VIRTUAL_CONTEXTS = Sets.newHashSet(HALYARD.FUNCTION_GRAPH_CONTEXT);
 	private static final int GROUP_BY_CONCURRENCY = 1024;
+	private static final int GROUP_BY_SPILL_PARTITIONS = 32;
+	private static final int SUBJ_BOUND = 1;
+	private static final int PRED_BOUND = 2;
+	private static final int OBJ_BOUND = 4;
 
     private final HalyardEvaluationStrategy parentStrategy;
 	private final TripleSource tripleSource;
 	private final Dataset dataset;
     private final HalyardEvaluationExecutor executor;
     private final int hashJoinLimit;
+    private final int batchJoinSize;
     private final int collectionMemoryThreshold;
     private final int valueCacheSize;
+    private final int serviceBatchSize;
+    private final long serviceBatchTargetMillis;
     private volatile TripleSource functionGraph;
 
     /**
@@ -231,11 +253,15 @@ final class HalyardTupleExprEvaluation {
 		JoinAlgorithmOptimizer algoOpt = parentStrategy.getJoinAlgorithmOptimizer();
     	if (algoOpt != null) {
     		hashJoinLimit = algoOpt.getHashJoinLimit();
+    		batchJoinSize = algoOpt.getBatchJoinSize();
     	} else {
     		hashJoinLimit = config.hashJoinLimit;
+    		batchJoinSize = config.batchJoinSize;
     	}
     	collectionMemoryThreshold = config.collectionMemoryThreshold;
     	valueCacheSize = config.valueCacheSize;
+    	serviceBatchSize = config.serviceBatchSize;
+    	serviceBatchTargetMillis = config.serviceBatchTargetMillis;
     }
 
     /**
@@ -286,7 +312,7 @@ final class HalyardTupleExprEvaluation {
         } else if (expr instanceof ZeroLengthPath) {
         	return precompileZeroLengthPath((ZeroLengthPath) expr, evalContext);
         } else if (expr instanceof ArbitraryLengthPath) {
-        	return precompileArbitraryLengthPath((ArbitraryLengthPath) expr);
+        	return precompileArbitraryLengthPath((ArbitraryLengthPath) expr, evalContext);
         } else if (expr instanceof BindingSetAssignment) {
         	return precompileBindingSetAssignment((BindingSetAssignment) expr);
         } else if (expr instanceof TripleRef) {
@@ -606,6 +632,15 @@ final class HalyardTupleExprEvaluation {
     	}
     }
 
+    boolean hasVirtualContexts(QuadPattern nq) {
+    	for (Resource ctx : nq.ctxs) {
+    		if (VIRTUAL_CONTEXTS.contains(ctx)) {
+    			return true;
+    		}
+    	}
+    	return false;
+    }
+
     private TripleSource getFunctionGraph() {
 		TripleSource localRef = functionGraph;
 		if (localRef == null) {
@@ -942,6 +977,15 @@ final class HalyardTupleExprEvaluation {
 	                return parent.push(ProjectionIterator.project(projection.getProjectionElemList(), bs, bindings, includeAll));
 	            }
 	            @Override
+	            protected boolean nextBatch(BindingSet[] bss, int n) {
+	            	ProjectionElemList projectionElems = projection.getProjectionElemList();
+	            	BindingSet[] projected = new BindingSet[n];
+	            	for (int i=0; i<n; i++) {
+	            		projected[i] = ProjectionIterator.project(projectionElems, bss[i], bindings, includeAll);
+	            	}
+	                return parent.pushBatch(projected, n);
+	            }
+	            @Override
 	            public String toString() {
 	            	return "ProjectionBindingSetPipe";
 	            }
@@ -1018,6 +1062,48 @@ final class HalyardTupleExprEvaluation {
 	            	}, bs);
 	            	return !parent.isClosed();
 	            }
+	            /**
+	             * Conditions may be evaluated asynchronously, so the batch is pushed on by whichever evaluation completes last.
+	             */
+	            @Override
+	            protected boolean nextBatch(BindingSet[] bss, int n) {
+	            	BindingSet[] accepted = new BindingSet[n];
+	            	AtomicInteger pending = new AtomicInteger(n);
+	            	startSecondaryPipe();
+	            	for (int i=0; i<n; i++) {
+	            		final int idx = i;
+	            		BindingSet bs = bss[i];
+	                    parentStrategy.isTrue(conditionStep, new BindingSetValuePipe(parent) {
+		            		@Override
+		            		protected void next(Value v) {
+		            			if (parentStrategy.isTrue(v)) {
+		            				accepted[idx] = bs;
+		            			}
+		            			conditionEvaluated();
+		            		}
+		            		@Override
+		            		public void handleValueError(String msg) {
+		            			// ignore - failed to evaluate condition
+		            			conditionEvaluated();
+		            		}
+		            		private void conditionEvaluated() {
+		            			if (pending.decrementAndGet() == 0) {
+		            				int m = 0;
+		            				for (int j=0; j<accepted.length; j++) {
+		            					if (accepted[j] != null) {
+		            						accepted[m++] = accepted[j];
+		            					}
+		            				}
+		            				if (m > 0 && !pushBatchToParent(accepted, m)) {
+		            					parent.close();
+		            				}
+		            				endSecondaryPipe();
+		            			}
+		            		}
+		            	}, bs);
+	            	}
+	            	return !parent.isClosed();
+	            }
 	            @Override
 	            public String toString() {
 	            	return "FilterBindingSetPipe";
@@ -1134,12 +1220,44 @@ final class HalyardTupleExprEvaluation {
 		}
     }
 
+    /**
+     * Writes the partial states of aggregate collectors as values, and reads them back into new collectors.
+     */
+    private static final class PartialStateSerializer extends AbstractValueSerializer<ExtendedAggregateCollector[]> {
+		private final transient Supplier<ExtendedAggregateCollector[]> collectorFactory;
+
+		PartialStateSerializer(ValueFactory vf, Supplier<ExtendedAggregateCollector[]> collectorFactory) {
+			super(vf);
+			this.collectorFactory = collectorFactory;
+		}
+
+		@Override
+		public void serialize(DataOutput out, ExtendedAggregateCollector[] collectors) throws IOException {
+			ByteBuffer tmp = newTempBuffer();
+			out.writeInt(collectors.length);
+			for (ExtendedAggregateCollector collector : collectors) {
+				writeValues(collector.saveState(), out, tmp);
+			}
+		}
+
+		@Override
+		public ExtendedAggregateCollector[] deserialize(DataInput in, int available) throws IOException {
+			ExtendedAggregateCollector[] collectors = collectorFactory.get();
+			int len = in.readInt();
+			for (int i=0; i<len; i++) {
+				collectors[i].restoreState(readValues(in));
+			}
+			return collectors;
+		}
+    }
+
     /**
      * Precompile {@link Order} query model nodes
      * @param order
      */
     private BindingSetPipeEvaluationStep precompileOrder(final Order order, QueryEvaluationContext evalContext) {
-        final Sorter<ComparableBindingSetWrapper> sorter = new Sorter<>(getLimit(order), isReducedOrDistinct(order), collectionMemoryThreshold, new ComparableBindingSetWrapperSerializer(tripleSource.getValueFactory()));
+        final long limit = getLimit(order);
+        final boolean distinct = isReducedOrDistinct(order);
         List<OrderElem> orderElems = order.getElements();
         QueryValueEvaluationStep[] elemSteps = new QueryValueEvaluationStep[orderElems.size()];
         boolean[] ascending = new boolean[elemSteps.length];
@@ -1152,6 +1270,7 @@ final class HalyardTupleExprEvaluation {
         return (parent, bindings) -> {
         	final class OrderBindingSetPipe extends BindingSetPipe {
 	            final AtomicLong minorOrder = new AtomicLong();
+	            final ExternalSorter<ComparableBindingSetWrapper> sorter = new ExternalSorter<>(limit, distinct, collectionMemoryThreshold, new ComparableBindingSetWrapperSerializer(tripleSource.getValueFactory()));
 
 	            OrderBindingSetPipe(BindingSetPipe parent) {
     				super(parent);
@@ -1175,13 +1294,15 @@ final class HalyardTupleExprEvaluation {
 	            }
 
 	            private void pushOrdered() {
-                    for (Map.Entry<ComparableBindingSetWrapper, Long> me : sorter) {
-                        for (long i = me.getValue(); i > 0; i--) {
-                            if (!parent.push(me.getKey().bs)) {
-                                return;
-                            }
-                        }
-                    }
+	            	try {
+	                    for (ComparableBindingSetWrapper cbsw : sorter) {
+	                        if (!parent.push(cbsw.bs)) {
+	                            return;
+	                        }
+	                    }
+	            	} catch (UncheckedIOException e) {
+	            		handleException(e.getCause());
+	            	}
 	            }
 
 	            @Override
@@ -1206,6 +1327,9 @@ final class HalyardTupleExprEvaluation {
      * @param evalContext
      */
     private BindingSetPipeEvaluationStep precompileGroup(Group group, QueryEvaluationContext evalContext) {
+    	if (isStatementCount(group)) {
+    		return precompileStatementCount(group);
+    	}
         BindingSetPipeEvaluationStep step = precompileTupleExpr(group.getArg(), evalContext);
         List<GroupElem> elems = group.getGroupElements();
         String[] elemNames = new String[elems.size()];
@@ -1261,33 +1385,114 @@ final class HalyardTupleExprEvaluation {
     		return (parent, bindings) -> {
     			List<Supplier<Aggregator<?,?,?>>> aggregatorFactories = createAggregatorFactories(elems, argEvaluators, bindings, evalContext);
 
+    			/**
+    			 * If all the aggregates can be merged, groups are spilled to disk as partial aggregates once there are too many to hold in memory,
+    			 * and are merged back together one partition at a time on close.
+    			 */
     			final class GroupBindingSetPipe extends BindingSetPipe {
 	    			final Function<BindingSetValues, GroupValue> valueLoader = k -> GroupValue.create(elemNames, aggregatorFactories);
-	    			final Map<BindingSetValues,GroupValue> groupByMap = new ConcurrentHashMap<>(GROUP_BY_CONCURRENCY);
 	    			final String[] groupNames = toStringArray(group.getGroupBindingNames());
+	    			final boolean isSpillable;
+	    			final ReadWriteLock spillLock = new ReentrantReadWriteLock();
+	    			volatile Map<BindingSetValues,GroupValue> groupByMap = new ConcurrentHashMap<>(GROUP_BY_CONCURRENCY);
+	    			volatile SpillPartitions<BindingSetValues,ExtendedAggregateCollector[]> spillPartitions;
 
 	    			GroupBindingSetPipe(BindingSetPipe parent) {
 						super(parent);
+						try (GroupValue probe = valueLoader.apply(null)) {
+							isSpillable = probe.isMergeable();
+						}
 					}
 					@Override
 					protected boolean next(BindingSet bs) {
 						BindingSetValues key = BindingSetValues.create(groupNames, bs);
+						if (isSpillable) {
+							Lock readLock = spillLock.readLock();
+							readLock.lock();
+							try {
+								addValues(key, bs);
+							} finally {
+								readLock.unlock();
+							}
+							if (groupByMap.size() >= collectionMemoryThreshold) {
+								try {
+									spill(false);
+								} catch (IOException e) {
+									return handleException(e);
+								}
+							}
+						} else {
+							addValues(key, bs);
+						}
+						return true;
+					}
+					private void addValues(BindingSetValues key, BindingSet bs) {
 						GroupValue aggregators = groupByMap.computeIfAbsent(key, valueLoader);
 						aggregators.addValues(bs, argEvaluators);
-						return true;
 					}
-					@Override
-					protected void doClose() {
-						for(Map.Entry<BindingSetValues,GroupValue> aggEntry : groupByMap.entrySet()) {
+					private void spill(boolean force) throws IOException {
+						Lock writeLock = spillLock.writeLock();
+						writeLock.lock();
+						try {
+							Map<BindingSetValues,GroupValue> map = groupByMap;
+							if (force || map.size() >= collectionMemoryThreshold) {
+								if (spillPartitions == null) {
+									ValueFactory vf = tripleSource.getValueFactory();
+									Supplier<ExtendedAggregateCollector[]> collectorFactory = () -> {
+										try (GroupValue newValue = valueLoader.apply(null)) {
+											return newValue.getPartialState();
+										}
+									};
+									spillPartitions = SpillPartitions.create(GROUP_BY_SPILL_PARTITIONS, new BindingSetValues.BindingSetValuesSerializer(vf), new PartialStateSerializer(vf, collectorFactory));
+								}
+								for(Map.Entry<BindingSetValues,GroupValue> aggEntry : map.entrySet()) {
+									try (GroupValue aggregators = aggEntry.getValue()) {
+										spillPartitions.put(aggEntry.getKey(), aggregators.getPartialState());
+									}
+								}
+								groupByMap = new ConcurrentHashMap<>(GROUP_BY_CONCURRENCY);
+							}
+						} finally {
+							writeLock.unlock();
+						}
+					}
+					private boolean pushGroups(Map<BindingSetValues,GroupValue> map) {
+						for(Map.Entry<BindingSetValues,GroupValue> aggEntry : map.entrySet()) {
 							BindingSetValues groupKey = aggEntry.getKey();
 							MutableBindingSet result = groupKey.setBindings(groupNames, bindings);
 							try (GroupValue aggregators = aggEntry.getValue()) {
 								aggregators.bindResult(result, tripleSource);
 							}
 							if (!parent.push(result)) {
+								return false;
+							}
+						}
+						return true;
+					}
+					private void pushSpilled() throws IOException {
+						// the in-memory remainder has to be merged with what has already been spilled
+						spill(true);
+						for (int i=0; i<spillPartitions.getPartitionCount(); i++) {
+							Map<BindingSetValues,GroupValue> partitionMap = new HashMap<>();
+							spillPartitions.forEach(i, (key, partialState) -> partitionMap.computeIfAbsent(key, valueLoader).merge(partialState));
+							if (!pushGroups(partitionMap)) {
 								break;
 							}
 						}
+					}
+					@Override
+					protected void doClose() {
+						if (spillPartitions != null) {
+							try {
+								pushSpilled();
+							} catch (IOException e) {
+								handleException(e);
+							} finally {
+								spillPartitions.close();
+							}
+						} else {
+							pushGroups(groupByMap);
+						}
 						parent.close();
 					}
 					@Override
@@ -1311,6 +1516,54 @@ final class HalyardTupleExprEvaluation {
         return aggregatorFactories;
     }
 
+    /**
+     * Checks for a non-distinct COUNT of a single statement pattern that can be answered without fetching the statements.
+     */
+    private static boolean isStatementCount(Group group) {
+    	if (!group.getGroupBindingNames().isEmpty() || group.getGroupElements().size() != 1 || !(group.getArg() instanceof StatementPattern)) {
+    		return false;
+    	}
+    	AggregateOperator op = group.getGroupElements().get(0).getOperator();
+    	if (!(op instanceof Count) || op.isDistinct()) {
+    		return false;
+    	}
+    	StatementPattern sp = (StatementPattern) group.getArg();
+    	Set<String> varNames = new HashSet<>();
+    	int varCount = 0;
+    	for (Var var : sp.getVarList()) {
+    		if (!var.isConstant()) {
+    			varNames.add(var.getName());
+    			varCount++;
+    		}
+    	}
+    	// repeated variables need each statement to be checked,
+    	// and a wildcard count ignores empty solutions
+    	if (varNames.size() != varCount || varNames.isEmpty()) {
+    		return false;
+    	}
+    	ValueExpr arg = ((Count) op).getArg();
+    	// the counted variable is always bound by the statement pattern
+    	return arg == null || ((arg instanceof Var) && varNames.contains(((Var) arg).getName()));
+    }
+
+    private BindingSetPipeEvaluationStep precompileStatementCount(Group group) {
+    	StatementPattern sp = (StatementPattern) group.getArg();
+    	String name = group.getGroupElements().get(0).getName();
+    	return (parent, bindings) -> {
+    		BindingSetPipe pipe = parentStrategy.track(parent, group);
+    		long count;
+    		try {
+    			count = parentStrategy.countStatements(sp, bindings);
+    		} catch (QueryEvaluationException e) {
+    			pipe.handleException(e);
+    			return;
+    		}
+    		QueryBindingSet result = new QueryBindingSet(bindings);
+    		result.addBinding(name, tripleSource.getValueFactory().createLiteral(Long.toString(count), CoreDatatype.XSD.INTEGER));
+    		pipe.pushLast(result);
+    	};
+    }
+
     private static final class GroupValue implements AutoCloseable, Serializable {
 		private static final long serialVersionUID = 276586631113153333L;
 		private final String[] elemNames;
@@ -1339,6 +1592,29 @@ final class HalyardTupleExprEvaluation {
 			}
 		}
 
+		boolean isMergeable() {
+			for (Aggregator<?,?,?> agg : aggregators) {
+				if (agg == null || !agg.isMergeable()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		ExtendedAggregateCollector[] getPartialState() {
+			ExtendedAggregateCollector[] partialState = new ExtendedAggregateCollector[aggregators.length];
+			for (int i=0; i<aggregators.length; i++) {
+				partialState[i] = aggregators[i].getPartialState();
+			}
+			return partialState;
+		}
+
+		void merge(ExtendedAggregateCollector[] partialState) {
+			for (int i=0; i<aggregators.length; i++) {
+				aggregators[i].merge(partialState[i]);
+			}
+		}
+
 		void bindResult(MutableBindingSet bs, TripleSource ts) {
 			for(int i=0; i<elemNames.length; i++) {
 				try(Aggregator<?,?,?> agg = aggregators[i]) {
@@ -1476,6 +1752,21 @@ final class HalyardTupleExprEvaluation {
 
     	abstract Value getValue(TripleSource ts);
 
+    	/**
+    	 * Indicates whether the state of this aggregator can be saved with {@link #getPartialState()} and combined with {@link #merge(ExtendedAggregateCollector)}.
+    	 */
+    	boolean isMergeable() {
+    		return false;
+    	}
+
+    	ExtendedAggregateCollector getPartialState() {
+    		throw new UnsupportedOperationException();
+    	}
+
+    	void merge(ExtendedAggregateCollector partialState) {
+    		throw new UnsupportedOperationException();
+    	}
+
     	@Override
 		public final void close() {
 			if (distinctPredicate instanceof AutoCloseable) {
@@ -1513,6 +1804,22 @@ final class HalyardTupleExprEvaluation {
     	Value getValue(TripleSource ts) {
     		return valueCollector.getFinalValue(ts);
     	}
+
+    	@Override
+    	boolean isMergeable() {
+    		return aggFunc.isMergeable() && distinctPredicate == ALWAYS_TRUE;
+    	}
+
+    	@Override
+    	ExtendedAggregateCollector getPartialState() {
+    		return valueCollector;
+    	}
+
+    	@SuppressWarnings("unchecked")
+		@Override
+    	void merge(ExtendedAggregateCollector partialState) {
+    		aggFunc.mergeAggregate(valueCollector, (T) partialState);
+    	}
     }
 
     private static final class ExtendedAggregator<T extends ExtendedAggregateCollector, D> extends Aggregator<T, D, ExtendedAggregateFunction<T,D>> implements Serializable {
@@ -1539,6 +1846,24 @@ final class HalyardTupleExprEvaluation {
     			return valueCollector.getFinalValue(ts);
     		}
     	}
+
+    	@Override
+    	boolean isMergeable() {
+    		return aggFunc.isMergeable() && distinctPredicate == ALWAYS_TRUE;
+    	}
+
+    	@Override
+    	ExtendedAggregateCollector getPartialState() {
+    		return valueCollector;
+    	}
+
+    	@SuppressWarnings("unchecked")
+		@Override
+    	void merge(ExtendedAggregateCollector partialState) {
+    		synchronized (this) {
+    			aggFunc.mergeAggregate(valueCollector, (T) partialState);
+    		}
+    	}
     }
 
     private static final class SynchronizedAggregator<T extends AggregateCollector, D> extends Aggregator<T, D, AggregateFunction<T,D>> {
@@ -1567,10 +1892,10 @@ final class HalyardTupleExprEvaluation {
 
 	private static final class DistinctValues implements Predicate<Value>, AutoCloseable, Serializable {
 		private static final long serialVersionUID = 5043947558619017568L;
-		private BigHashSet<Value> distinctValues;
+		private FingerprintHashSet<Value> distinctValues;
 
 		DistinctValues(int threshold, ValueFactory vf) {
-			distinctValues = BigHashSet.createValueSet(threshold, vf);
+			distinctValues = FingerprintHashSet.createValueSet(threshold, vf);
 		}
 
 		@Override
@@ -1590,10 +1915,10 @@ final class HalyardTupleExprEvaluation {
 
 	private static final class DistinctBindingSets implements Predicate<BindingSet>, AutoCloseable, Serializable {
 		private static final long serialVersionUID = 6096880507258975267L;
-		private BigHashSet<BindingSet> distinctBindingSets;
+		private FingerprintHashSet<BindingSet> distinctBindingSets;
 
 		DistinctBindingSets(int threshold, ValueFactory vf) {
-			distinctBindingSets = BigHashSet.createBindingSetSet(threshold, vf);
+			distinctBindingSets = FingerprintHashSet.createBindingSetSet(threshold, vf);
 		}
 
 		@Override
@@ -1650,7 +1975,7 @@ final class HalyardTupleExprEvaluation {
         BindingSetPipeEvaluationStep step = precompileTupleExpr(distinct.getArg(), evalContext);
         return (parent, bindings) -> {
         	final class DistinctBindingSetPipe extends BindingSetPipe {
-	            private final BigHashSet<BindingSet> set = BigHashSet.createBindingSetSet(collectionMemoryThreshold, tripleSource.getValueFactory());
+	            private final FingerprintHashSet<BindingSet> set = FingerprintHashSet.createBindingSetSet(collectionMemoryThreshold, tripleSource.getValueFactory());
 
 	            DistinctBindingSetPipe(BindingSetPipe parent) {
 					super(parent);
@@ -1713,11 +2038,36 @@ final class HalyardTupleExprEvaluation {
 	        argStep.evaluate(new BindingSetPipe(parent) {
 	            @Override
 	            protected boolean next(BindingSet bs) {
+	            	BindingSet targetBindings;
+	            	try {
+	            		targetBindings = extend(bs);
+	            	} catch (QueryEvaluationException e) {
+	            		return handleException(e);
+	            	}
+	                return parent.push(targetBindings);
+	            }
+	            @Override
+	            protected boolean nextBatch(BindingSet[] bss, int n) {
+	            	BindingSet[] extended = new BindingSet[n];
+	            	int m = 0;
+	            	for (int i=0; i<n; i++) {
+		            	try {
+		            		BindingSet targetBindings = extend(bss[i]);
+		            		extended[m++] = targetBindings;
+		            	} catch (QueryEvaluationException e) {
+		            		if (!handleException(e)) {
+		            			return false;
+		            		}
+		            	}
+	            	}
+	                return parent.pushBatch(extended, m);
+	            }
+	            private BindingSet extend(BindingSet bs) throws QueryEvaluationException {
 	                QueryBindingSet targetBindings = new QueryBindingSet(bs);
 	                for (org.apache.commons.lang3.tuple.Triple<String,ValuePipeQueryValueEvaluationStep,QueryEvaluationException> nonAgg : nonAggs) {
 	                	QueryEvaluationException ex = nonAgg.getRight();
 	                	if (ex != null) {
-	                		return handleException(ex);
+	                		throw ex;
 	                	}
                 		String extElemName = nonAgg.getLeft();
                 		ValuePipeQueryValueEvaluationStep elemStep = nonAgg.getMiddle();
@@ -1736,11 +2086,9 @@ final class HalyardTupleExprEvaluation {
                             // see https://www.w3.org/TR/sparql11-query/#assignment
                             // use null as place holder for unbound variables that must remain so
                             targetBindings.setBinding(extElemName, null);
-                        } catch (QueryEvaluationException e) {
-                            return handleException(e);
                         }
 	                }
-	                return parent.push(targetBindings);
+	                return targetBindings;
 	            }
 	            @Override
 	            public String toString() {
@@ -1784,6 +2132,27 @@ final class HalyardTupleExprEvaluation {
 	                }
 	            }
 	            @Override
+	            protected boolean nextBatch(BindingSet[] bss, int n) {
+	            	// claim the positions of the whole batch at once
+	            	long start = counter.getAndAdd(n);
+	            	if (start >= limit) {
+	            		return false;
+	            	}
+	            	int from = (int) Math.max(0L, Math.min(n, offset - start));
+	            	int to = (int) Math.min(n, limit - start);
+	            	if (from >= to) {
+	            		return !parent.isClosed();
+	            	}
+	            	int m = to - from;
+	            	boolean pushMore = (from == 0) ? parent.pushBatch(bss, m) : parent.pushBatch(Arrays.copyOfRange(bss, from, to), m);
+	            	if (remaining.addAndGet(-m) == 0) {
+	            		// we're the last one so close
+	            		close();
+	            		pushMore = false;
+	            	}
+	            	return pushMore;
+	            }
+	            @Override
 	            public String toString() {
 	            	return "SliceBindingSetPipe";
 	            }
@@ -1798,14 +2167,7 @@ final class HalyardTupleExprEvaluation {
      * @param evalContext
      */
     private BindingSetPipeEvaluationStep precompileService(Service service, QueryEvaluationContext evalContext) {
-        int partitionIndex;
-        if (tripleSource instanceof PartitionableTripleSource) {
-        	PartitionableTripleSource partitionableTripleSource = (PartitionableTripleSource) tripleSource;
-        	partitionIndex = partitionableTripleSource.getPartitionIndex();
-        } else {
-        	partitionIndex = StatementIndices.NO_PARTITIONING;
-        }
-
+        int partitionIndex = getServicePartitionIndex();
         Var serviceRef = service.getServiceRef();
         Value serviceRefValue = serviceRef.getValue();
         if (serviceRefValue != null) {
@@ -1826,6 +2188,15 @@ final class HalyardTupleExprEvaluation {
         }
     }
 
+    private int getServicePartitionIndex() {
+        if (tripleSource instanceof PartitionableTripleSource) {
+        	PartitionableTripleSource partitionableTripleSource = (PartitionableTripleSource) tripleSource;
+        	return partitionableTripleSource.getPartitionIndex();
+        } else {
+        	return StatementIndices.NO_PARTITIONING;
+        }
+    }
+
     private void evaluateService(BindingSetPipe topPipe, Service service, FederatedService fs, BindingSet bindings) {
         // create a copy of the free variables, and remove those for which
         // bindings are available (we can set them as constraints!)
@@ -1952,12 +2323,25 @@ final class HalyardTupleExprEvaluation {
 
     	if (Algorithms.HASH_JOIN.equals(algorithm)) {
     		step = new HashJoinEvaluationStep(join, evalContext);
+    	} else if (Algorithms.BATCH_JOIN.equals(algorithm) && isBatchJoinSupported(join.getRightArg())) {
+    		step = precompileBatchJoin(join, evalContext);
+    	} else if (isServiceBatchJoinSupported(join.getRightArg())) {
+    		step = precompileServiceBatchJoin(join, evalContext);
     	} else {
     		step = precompileNestedLoopsJoin(join, evalContext);
     	}
     	return step;
     }
 
+    private boolean isBatchJoinSupported(TupleExpr expr) {
+    	return (batchJoinSize > 1) && (tripleSource instanceof BatchTripleSource)
+    			&& (expr instanceof StatementPattern) && !(expr instanceof ConstrainedStatementPattern);
+    }
+
+    private boolean isServiceBatchJoinSupported(TupleExpr expr) {
+    	return (serviceBatchSize > 1) && (expr instanceof Service) && ((Service) expr).getServiceRef().hasValue();
+    }
+
     private static boolean isOutOfScopeForLeftArgBindings(TupleExpr expr) {
 		return (TupleExprs.isVariableScopeChange(expr) || TupleExprs.containsSubquery(expr));
 	}
@@ -2006,6 +2390,432 @@ final class HalyardTupleExprEvaluation {
         };
     }
 
+    /**
+     * Precompiles a {@link Join} with a statement pattern on the right into a bind-join
+     * that looks up blocks of left bindings with a single request to the triple source.
+     */
+    private BindingSetPipeEvaluationStep precompileBatchJoin(Join join, QueryEvaluationContext evalContext) {
+        BindingSetPipeEvaluationStep outerStep = precompileTupleExpr(join.getLeftArg(), evalContext);
+        return precompileBatchJoin(outerStep, (StatementPattern) join.getRightArg(), join);
+    }
+
+    private BindingSetPipeEvaluationStep precompileBatchJoin(BindingSetPipeEvaluationStep outerStep, StatementPattern sp, TupleExpr trackExpr) {
+    	final BatchTripleSource batchTripleSource = (BatchTripleSource) tripleSource;
+    	final class BatchPipeJoin extends PipeJoin {
+    		private final List<BindingSet> batch = new ArrayList<>(batchJoinSize);
+    		BatchPipeJoin(BindingSetPipe parent) {
+				super(parent);
+			}
+			@Override
+            protected boolean next(BindingSet bs) {
+				List<BindingSet> fullBatch = null;
+				synchronized (batch) {
+					batch.add(bs);
+					if (batch.size() >= batchJoinSize) {
+						fullBatch = new ArrayList<>(batch);
+						batch.clear();
+					}
+				}
+				if (fullBatch != null) {
+					evaluateBatch(fullBatch);
+				}
+                return !parent.isClosed(); // lookups are async, check if we've been closed
+            }
+			@Override
+			protected void doClose() {
+				List<BindingSet> lastBatch;
+				synchronized (batch) {
+					lastBatch = new ArrayList<>(batch);
+					batch.clear();
+				}
+				if (!lastBatch.isEmpty()) {
+					evaluateBatch(lastBatch);
+				}
+				super.doClose();
+			}
+			private void evaluateBatch(List<BindingSet> bindingSets) {
+				// group the lookups by contexts and bound positions so that each statement matches at most one lookup
+				Map<List<Resource>, BatchLookup[]> lookupsByCtxs = new HashMap<>();
+				for (BindingSet bs : bindingSets) {
+					QuadPattern nq = getQuadPattern(sp, bs);
+					if (nq != null) {
+						if (isBatchable(nq)) {
+							BatchLookup[] lookups = lookupsByCtxs.computeIfAbsent(Arrays.asList(nq.ctxs), k -> new BatchLookup[8]);
+							int mask = getBoundMask(nq);
+							BatchLookup lookup = lookups[mask];
+							if (lookup == null) {
+								lookup = new BatchLookup(sp, nq, mask, batchTripleSource);
+								lookups[mask] = lookup;
+							}
+							lookup.add(nq, bs);
+						} else {
+							startSecondaryPipe();
+							evaluateStatementPattern(newInnerPipe(), sp, sp, bs);
+						}
+					}
+				}
+				for (BatchLookup[] lookups : lookupsByCtxs.values()) {
+					for (BatchLookup lookup : lookups) {
+						if (lookup != null) {
+							startSecondaryPipe();
+							BindingSetPipe innerPipe = newInnerPipe();
+			        		try {
+			    				executor.pullPushAsync(innerPipe, lookup, sp, EmptyBindingSet.getInstance(), parentStrategy);
+			                } catch (QueryEvaluationException e) {
+			                	innerPipe.handleException(e);
+			                }
+						}
+					}
+				}
+			}
+			private BindingSetPipe newInnerPipe() {
+				return new BindingSetPipe(parent) {
+                	@Override
+                	protected boolean next(BindingSet bs) {
+                		return pushToParent(bs);
+                	}
+                    @Override
+    				protected void doClose() {
+                    	endSecondaryPipe();
+                    }
+                    @Override
+                    public String toString() {
+                    	return "BatchJoinBindingSetPipe(inner)";
+                    }
+				};
+			}
+            @Override
+            public String toString() {
+            	return "BatchJoinBindingSetPipe(outer)";
+            }
+    	}
+        return (topPipe, bindings) -> {
+        	if (trackExpr != null) {
+        		topPipe = parentStrategy.track(topPipe, trackExpr);
+        	}
+	        outerStep.evaluate(new BatchPipeJoin(topPipe), bindings);
+        };
+    }
+
+    /**
+     * Precompiles a {@link Join} with a SERVICE on the right into a bind-join
+     * that ships blocks of left bindings to the endpoint as VALUES,
+     * adapting the size of the blocks to how quickly the endpoint responds.
+     */
+    private BindingSetPipeEvaluationStep precompileServiceBatchJoin(Join join, QueryEvaluationContext evalContext) {
+        BindingSetPipeEvaluationStep outerStep = precompileTupleExpr(join.getLeftArg(), evalContext);
+        Service service = (Service) join.getRightArg();
+        FederatedService fs = parentStrategy.getService(service.getServiceRef().getValue().stringValue(), getServicePartitionIndex());
+        Set<String> constantVarNames = new HashSet<>();
+        new AbstractExtendedQueryModelVisitor<RuntimeException> (){
+            @Override
+            public void meet(Var var) {
+                if (var.hasValue()) {
+                	constantVarNames.add(var.getName());
+                }
+            }
+        }.meet(service);
+        Set<String> blockVarNames = new HashSet<>(service.getServiceVars());
+        blockVarNames.removeAll(constantVarNames);
+        ServiceBlockSizer sizer = new ServiceBlockSizer(serviceBatchSize, serviceBatchTargetMillis);
+        String baseUri = service.getBaseURI();
+    	final class ServicePipeJoin extends PipeJoin {
+    		private final List<BindingSet> batch = new ArrayList<>();
+    		ServicePipeJoin(BindingSetPipe parent) {
+				super(parent);
+			}
+			@Override
+            protected boolean next(BindingSet bs) {
+				if (bs.getBindingNames().containsAll(blockVarNames)) {
+					// no free variables => ASK query
+					startSecondaryPipe();
+					evaluateService(newInnerPipe(), service, fs, bs);
+				} else {
+					List<BindingSet> fullBatch = null;
+					synchronized (batch) {
+						batch.add(bs);
+						if (batch.size() >= sizer.getBlockSize()) {
+							fullBatch = new ArrayList<>(batch);
+							batch.clear();
+						}
+					}
+					if (fullBatch != null) {
+						evaluateBlock(fullBatch);
+					}
+				}
+                return !parent.isClosed(); // service calls can be async, check if we've been closed
+            }
+			@Override
+			protected void doClose() {
+				List<BindingSet> lastBatch;
+				synchronized (batch) {
+					lastBatch = new ArrayList<>(batch);
+					batch.clear();
+				}
+				if (!lastBatch.isEmpty()) {
+					evaluateBlock(lastBatch);
+				}
+				super.doClose();
+			}
+			private void evaluateBlock(List<BindingSet> block) {
+				startSecondaryPipe();
+				long startNanos = System.nanoTime();
+				BindingSetPipe innerPipe = new BindingSetPipe(parent) {
+                	@Override
+                	protected boolean next(BindingSet bs) {
+                		return pushToParent(bs);
+                	}
+                    @Override
+    				protected void doClose() {
+                    	sizer.update(block.size(), System.nanoTime() - startNanos);
+                    	endSecondaryPipe();
+                    }
+                    @Override
+                    public String toString() {
+                    	return "ServiceJoinBindingSetPipe(inner)";
+                    }
+				};
+				if (fs instanceof BindingSetPipeFederatedService) {
+					BindingSetPipe pipe = parentStrategy.track(innerPipe, service);
+					try {
+						selectBlock((BindingSetPipeFederatedService) fs, pipe, block);
+					} catch (Throwable e) {
+						if (service.isSilent()) {
+							pushBlock(pipe, block);
+						} else {
+							pipe.handleException(e);
+						}
+					}
+				} else {
+					// the service does its own bind-join
+		            QueryEvaluationStep evalStep = bs -> {
+		            	try {
+		            		return fs.evaluate(service, new CloseableIteratorIteration<>(block.iterator()), baseUri);
+		            	} catch (RuntimeException e) {
+		            		if (service.isSilent()) {
+		            			return new CloseableIteratorIteration<>(block.iterator());
+		            		} else {
+		            			throw e;
+		            		}
+		            	}
+	            	};
+	        		try {
+	        			executor.pullPushAsync(innerPipe, evalStep, service, EmptyBindingSet.getInstance(), parentStrategy);
+	                } catch (QueryEvaluationException e) {
+	                	innerPipe.handleException(e);
+	                }
+				}
+			}
+			private void selectBlock(BindingSetPipeFederatedService pipeFs, BindingSetPipe pipe, List<BindingSet> block) {
+				// number each row so that results can be joined back to the bindings they came from
+				ValueFactory vf = tripleSource.getValueFactory();
+				List<BindingSet> rows = new ArrayList<>(block.size());
+				for (int i=0; i<block.size(); i++) {
+					BindingSet bs = block.get(i);
+					MapBindingSet row = new MapBindingSet(blockVarNames.size() + 1);
+					for (String name : blockVarNames) {
+						Value v = bs.getValue(name);
+						if (v != null) {
+							row.addBinding(name, v);
+						}
+					}
+					row.addBinding(SERVICE_ROW_VAR, vf.createLiteral(i));
+					rows.add(row);
+				}
+				Set<String> rowVarNames = new HashSet<>(blockVarNames);
+				rowVarNames.add(SERVICE_ROW_VAR);
+				BindingSetAssignment values = new BindingSetAssignment();
+				values.setBindingNames(rowVarNames);
+				values.setBindingSets(rows);
+				Service blockService = new Service(service.getServiceRef().clone(), new Join(values, service.getServiceExpr().clone()),
+						service.getServiceExpressionString(), service.getPrefixDeclarations(), baseUri, service.isSilent());
+				Set<String> projectionVars = new HashSet<>(service.getServiceVars());
+				projectionVars.add(SERVICE_ROW_VAR);
+        		ValueFactory cachingVF = new CachingValueFactory(vf, valueCacheSize);
+				pipeFs.select(new BindingSetPipe(pipe) {
+					@Override
+					protected boolean next(BindingSet theirBs) {
+						// in same VM so need to explicitly convert Values
+						MutableBindingSet ourBs = ValueFactories.convertValues(theirBs, cachingVF);
+						int rowIndex = ((Literal) theirBs.getValue(SERVICE_ROW_VAR)).intValue();
+						QueryBindingSet joinedBs = new QueryBindingSet(block.get(rowIndex));
+						for (Binding binding : ourBs) {
+							if (!SERVICE_ROW_VAR.equals(binding.getName())) {
+								joinedBs.setBinding(binding);
+							}
+						}
+						return parent.push(joinedBs);
+					}
+					@Override
+					public boolean handleException(Throwable e) {
+						if (service.isSilent()) {
+							pushBlock(parent, block);
+						} else {
+							super.handleException(e);
+						}
+						return false;
+					}
+				}, blockService, projectionVars, EmptyBindingSet.getInstance(), baseUri);
+			}
+			private void pushBlock(BindingSetPipe pipe, List<BindingSet> block) {
+				for (BindingSet bs : block) {
+					if (!pipe.push(bs)) {
+						break;
+					}
+				}
+				pipe.close();
+			}
+			private BindingSetPipe newInnerPipe() {
+				return new BindingSetPipe(parent) {
+                	@Override
+                	protected boolean next(BindingSet bs) {
+                		return pushToParent(bs);
+                	}
+                    @Override
+    				protected void doClose() {
+                    	endSecondaryPipe();
+                    }
+                    @Override
+                    public String toString() {
+                    	return "ServiceJoinBindingSetPipe(inner)";
+                    }
+				};
+			}
+            @Override
+            public String toString() {
+            	return "ServiceJoinBindingSetPipe(outer)";
+            }
+    	}
+        return (topPipe, bindings) -> {
+        	topPipe = parentStrategy.track(topPipe, join);
+	        outerStep.evaluate(new ServicePipeJoin(topPipe), bindings);
+        };
+    }
+
+    /**
+     * @return the predicates of the star, or null if any are unbound
+     */
+    private static Set<IRI> getStarPredicates(StatementPattern[] sps, int startIndex, BindingSet bindings) {
+    	Set<IRI> preds = new HashSet<>();
+    	for (int i=startIndex; i<sps.length; i++) {
+    		Value pred = Algebra.getVarValue(sps[i].getPredicateVar(), bindings);
+    		if (pred == null || !pred.isIRI()) {
+    			return null;
+    		}
+    		preds.add((IRI) pred);
+    	}
+    	return preds;
+    }
+
+    private static boolean isBatchable(QuadPattern nq) {
+    	for (Resource ctx : nq.ctxs) {
+    		if (VIRTUAL_CONTEXTS.contains(ctx)) {
+    			return false;
+    		}
+    	}
+    	return !HalyardEvaluationStrategy.isSearchStatement(nq.obj);
+    }
+
+    private static int getBoundMask(QuadPattern nq) {
+    	return (nq.subj != null ? SUBJ_BOUND : 0) | (nq.pred != null ? PRED_BOUND : 0) | (nq.obj != null ? OBJ_BOUND : 0);
+    }
+
+    /**
+     * A block of lookups with the same contexts and bound positions.
+     * Evaluates to each lookup's bindings joined with its matching statements.
+     */
+    private final class BatchLookup implements QueryEvaluationStep {
+    	private final StatementPattern sp;
+    	private final Resource[] ctxs;
+    	private final boolean allNamedContexts;
+    	private final int mask;
+    	private final BatchTripleSource batchTripleSource;
+    	private final Map<List<Value>, BatchEntry> entries = new LinkedHashMap<>();
+
+    	BatchLookup(StatementPattern sp, QuadPattern nq, int mask, BatchTripleSource batchTripleSource) {
+    		this.sp = sp;
+    		this.ctxs = nq.ctxs;
+    		this.allNamedContexts = nq.isAllNamedContexts();
+    		this.mask = mask;
+    		this.batchTripleSource = batchTripleSource;
+    	}
+
+    	void add(QuadPattern nq, BindingSet bs) {
+    		entries.computeIfAbsent(Arrays.asList(nq.subj, nq.pred, nq.obj), k -> new BatchEntry(nq)).bindings.add(bs);
+    	}
+
+    	private BatchEntry getEntry(Statement stmt) {
+    		List<Value> key = Arrays.asList(
+    			(mask & SUBJ_BOUND) != 0 ? stmt.getSubject() : null,
+    			(mask & PRED_BOUND) != 0 ? stmt.getPredicate() : null,
+    			(mask & OBJ_BOUND) != 0 ? stmt.getObject() : null
+    		);
+    		return entries.get(key);
+    	}
+
+		@Override
+		public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(BindingSet bindings) {
+			int n = entries.size();
+			Resource[] subjs = new Resource[n];
+			IRI[] preds = new IRI[n];
+			Value[] objs = new Value[n];
+			int i = 0;
+			for (BatchEntry entry : entries.values()) {
+				subjs[i] = entry.nq.subj;
+				preds[i] = entry.nq.pred;
+				objs[i] = entry.nq.obj;
+				i++;
+			}
+			CloseableIteration<? extends Statement, QueryEvaluationException> stIter = batchTripleSource.getStatements(subjs, preds, objs, ctxs);
+	        if (allNamedContexts) {
+	            // Named contexts are matched by retrieving all statements from
+	            // the store and filtering out the statements that do not have a context.
+	        	stIter = new FilterIteration<Statement, QueryEvaluationException>(stIter) {
+	                @Override
+	                protected boolean accept(Statement st) {
+	                    return st.getContext() != null;
+	                }
+	            };
+	        }
+	        final CloseableIteration<? extends Statement, QueryEvaluationException> iter = stIter;
+	        // route each statement back to the bindings it was looked up for
+			return new LookAheadIteration<BindingSet, QueryEvaluationException>() {
+				private Statement stmt;
+				private Iterator<BindingSet> matches = Collections.emptyIterator();
+
+				@Override
+				protected BindingSet getNextElement() throws QueryEvaluationException {
+					while (!matches.hasNext()) {
+						if (!iter.hasNext()) {
+							return null;
+						}
+						stmt = iter.next();
+						BatchEntry entry = getEntry(stmt);
+						if (entry != null && filterStatement(sp, stmt, entry.nq)) {
+							matches = entry.bindings.iterator();
+						}
+					}
+					return convertStatement(sp, stmt, matches.next());
+				}
+
+				@Override
+				protected void handleClose() throws QueryEvaluationException {
+					super.handleClose();
+					iter.close();
+				}
+			};
+		}
+    }
+
+    private static final class BatchEntry {
+    	final QuadPattern nq;
+    	final List<BindingSet> bindings = new ArrayList<>(1);
+
+    	BatchEntry(QuadPattern nq) {
+    		this.nq = nq;
+    	}
+    }
+
     /**
      * Precompiles {@link LeftJoin} query model nodes
      */
@@ -2607,6 +3417,10 @@ final class HalyardTupleExprEvaluation {
     		super(parent);
     		this.args = args;
     	}
+        @Override
+        protected boolean nextBatch(BindingSet[] bss, int n) {
+        	return parent.pushBatch(bss, n);
+        }
         @Override
 		protected void doClose() {
         	args.decrementAndGet();
@@ -2629,7 +3443,7 @@ final class HalyardTupleExprEvaluation {
         BindingSetPipeEvaluationStep leftStep = precompileTupleExpr(intersection.getLeftArg(), evalContext);
         return (topPipe, bindings) -> {
 	        rightStep.evaluate(new BindingSetPipe(topPipe) {
-	            private final BigHashSet<BindingSet> secondSet = BigHashSet.createBindingSetSet(collectionMemoryThreshold, tripleSource.getValueFactory());
+	            private final FingerprintHashSet<BindingSet> secondSet = FingerprintHashSet.createBindingSetSet(collectionMemoryThreshold, tripleSource.getValueFactory());
 	            @Override
 	            public boolean handleException(Throwable e) {
 	                secondSet.close();
@@ -2686,7 +3500,7 @@ final class HalyardTupleExprEvaluation {
         BindingSetPipeEvaluationStep leftStep = precompileTupleExpr(difference.getLeftArg(), evalContext);
         return (topPipe, bindings) -> {
 	        rightStep.evaluate(new BindingSetPipe(topPipe) {
-	            private final BigHashSet<BindingSet> excludeSet = BigHashSet.createBindingSetSet(collectionMemoryThreshold, tripleSource.getValueFactory());
+	            private final FingerprintHashSet<BindingSet> excludeSet = FingerprintHashSet.createBindingSetSet(collectionMemoryThreshold, tripleSource.getValueFactory());
 	            @Override
 	            public boolean handleException(Throwable e) {
 	                excludeSet.close();
@@ -2771,33 +3585,35 @@ final class HalyardTupleExprEvaluation {
 		        	boolean isPrebound = isCommonBound && (ctxVar == null || isCtxBound);
 		        	int startIndex = isPrebound ? 0 : 1;
 	
-		        	boolean getFullSubject = false;
-		    		IRI[] preds = new IRI[sps.length];
 		        	for (int i=0; i<sps.length; i++) {
-		       			StatementPattern sp = sps[i];
-		        		Value pred = Algebra.getVarValue(sp.getPredicateVar(), bindings);
-		        		if (pred == null) {
-		        			getFullSubject = true;
-		        			break;
-		        		} else if (!pred.isIRI()) {
+		        		Value pred = Algebra.getVarValue(sps[i].getPredicateVar(), bindings);
+		        		if (pred != null && !pred.isIRI()) {
 		        			parent.close();
 		        			return;
-		        		} else {
-		        			preds[i] = (IRI) pred;
 		        		}
 		        	}
-		        	getFullSubject = true; // TODO currently only support getFullSubject mode
-		        	if (getFullSubject || !(tripleSource instanceof ExtendedTripleSource)) {
-		        		if (sps.length-startIndex > 1) {
-		        			// multiple statement patterns
-		        			QueryEvaluationStep evalStep = evalBindings -> {
-			        			List<BindingSet>[] resultsPerSp = (List<BindingSet>[]) new List<?>[sps.length];
-			    	        	Resource common = (Resource) Algebra.getVarValue(commonVar, evalBindings);
-			    	        	Resource ctx = (Resource) Algebra.getVarValue(ctxVar, evalBindings);
-			        			Resource[] ctxs = (ctxVar != null) ? new Resource[] {ctx} : ALL_CONTEXTS;
-			        			CloseableIteration<? extends Statement, QueryEvaluationException> iter = tripleSource.getStatements(common, null, null, ctxs);
+		        	if (sps.length-startIndex > 1) {
+		        		// multiple statement patterns
+		        		QueryEvaluationStep evalStep = evalBindings -> {
+			        		List<BindingSet>[] resultsPerSp = (List<BindingSet>[]) new List<?>[sps.length];
+			    	        Resource common = (Resource) Algebra.getVarValue(commonVar, evalBindings);
+			    	        Resource ctx = (Resource) Algebra.getVarValue(ctxVar, evalBindings);
+			        		Resource[] ctxs = (ctxVar != null) ? new Resource[] {ctx} : ALL_CONTEXTS;
+			        		Set<IRI> preds = getStarPredicates(sps, startIndex, evalBindings);
+			        		CloseableIteration<? extends Statement, QueryEvaluationException> iter;
+			        		if (preds != null && tripleSource instanceof ExtendedTripleSource) {
+			        			// only fetch the predicates of the star
+			        			iter = ((ExtendedTripleSource) tripleSource).getSubjectStatements(common, preds, ctxs);
+			        		} else {
+			        			iter = tripleSource.getStatements(common, null, null, ctxs);
+			        		}
+			        		try {
 								while (iter.hasNext()) {
 									Statement stmt = iter.next();
+									if (common != null && !common.equals(stmt.getSubject())) {
+										// rows of another subject can share the key prefix
+										continue;
+									}
 									for (int i=startIndex; i<sps.length; i++) {
 										StatementPattern sp = sps[i];
 										Value pred = Algebra.getVarValue(sp.getPredicateVar(), evalBindings);
@@ -2821,28 +3637,26 @@ final class HalyardTupleExprEvaluation {
 										}
 									}
 								}
-								List<BindingSet> results = resultsPerSp[startIndex];
+							} finally {
+								iter.close();
+							}
+							List<BindingSet> results = resultsPerSp[startIndex];
+							if (results == null) {
+								return new EmptyIteration<>();
+							}
+							for (int i=startIndex+1; i<resultsPerSp.length; i++) {
+								List<BindingSet> bsList = resultsPerSp[i];
+								results = join(results, bsList);
 								if (results == null) {
 									return new EmptyIteration<>();
 								}
-								for (int i=startIndex+1; i<resultsPerSp.length; i++) {
-									List<BindingSet> bsList = resultsPerSp[i];
-									results = join(results, bsList);
-									if (results == null) {
-										return new EmptyIteration<>();
-									}
-								}
-								return new CloseableIteratorIteration<>(results.iterator());
-			        		};
-			        		step = (p, stepBindings) -> executor.pullPushAsync(p, evalStep, starJoin, stepBindings, parentStrategy);
-		        		} else {
-		        			// single statement pattern
-		        			step = (p, stepBindings) -> evaluateStatementPattern(p, sps[startIndex], starJoin, stepBindings);
-		        		}
+							}
+							return new CloseableIteratorIteration<>(results.iterator());
+			        	};
+			        	step = (p, stepBindings) -> executor.pullPushAsync(p, evalStep, starJoin, stepBindings, parentStrategy);
 		        	} else {
-		        		ExtendedTripleSource extTripleSource = (ExtendedTripleSource) tripleSource;
-		        		// TODO: getStatements(Resource subj, Set<IRI> preds, Resource... ctxs)
-		        		throw new AssertionError();
+		        		// single statement pattern
+		        		step = (p, stepBindings) -> evaluateStatementPattern(p, sps[startIndex], starJoin, stepBindings);
 		        	}
 	
 		    		if (!isPrebound) {
@@ -2971,7 +3785,7 @@ final class HalyardTupleExprEvaluation {
 					sp = new StatementPattern(allSubjVar, allPredVar, allObjVar);
 				}
 				evaluateStatementPattern(new BindingSetPipe(parent) {
-					private final BigHashSet<Value> set = BigHashSet.createValueSet(collectionMemoryThreshold, tripleSource.getValueFactory());
+					private final FingerprintHashSet<Value> set = FingerprintHashSet.createValueSet(collectionMemoryThreshold, tripleSource.getValueFactory());
 					@Override
 					protected boolean next(BindingSet bs) {
 						Value ctx = (contextVar != null) ? bs.getValue(contextVar.getName()) : null;
@@ -3034,10 +3848,297 @@ final class HalyardTupleExprEvaluation {
 	}
 
 	/**
-     * Precompiles {@link ArbitraryLengthPath} query model nodes
+     * Precompiles {@link ArbitraryLengthPath} query model nodes.
+     * Paths with a bound end, or without zero-length solutions, are evaluated natively by {@link PathSearch}.
+     * @param alp
+     */
+    private BindingSetPipeEvaluationStep precompileArbitraryLengthPath(ArbitraryLengthPath alp, QueryEvaluationContext evalContext) {
+    	final Var subjVar = alp.getSubjectVar();
+    	final Var objVar = alp.getObjectVar();
+    	final Var contextVar = alp.getContextVar();
+    	final long minLength = alp.getMinLength();
+    	if (minLength > 1 || subjVar.getName().equals(objVar.getName())) {
+    		return precompilePathIteration(alp);
+    	}
+    	// the ends of the path are re-bound for each frontier node
+    	TupleExpr pathExpr = alp.getPathExpression().clone();
+    	pathExpr.visit(new AbstractSimpleQueryModelVisitor<RuntimeException>() {
+    		@Override
+    		public void meet(Var var) {
+    			if (var.getName().equals(subjVar.getName())) {
+    				var.replaceWith(new Var(PATH_SUBJECT_VAR));
+    			} else if (var.getName().equals(objVar.getName())) {
+    				var.replaceWith(new Var(PATH_OBJECT_VAR));
+    			}
+    		}
+    	});
+    	final BindingSetPipeEvaluationStep pathStep = precompileTupleExpr(pathExpr, evalContext);
+    	final StatementPattern batchPattern = isBatchJoinSupported(pathExpr) ? (StatementPattern) pathExpr : null;
+    	final BindingSetPipeEvaluationStep pathIterationStep = precompilePathIteration(alp);
+    	return (parent, bindings) -> {
+    		Value subj = Algebra.getVarValue(subjVar, bindings);
+    		Value obj = Algebra.getVarValue(objVar, bindings);
+    		boolean unboundContext = (contextVar != null) && Algebra.getVarValue(contextVar, bindings) == null;
+    		if (unboundContext || (subj == null && obj == null && minLength == 0)) {
+    			// zero-length solutions range over all the nodes of the graph
+    			pathIterationStep.evaluate(parent, bindings);
+    		} else {
+    			new PathSearch(parentStrategy.track(parent, alp), bindings, subjVar, objVar, subj, obj, minLength == 0, pathStep, batchPattern).start();
+    		}
+    	};
+    }
+
+    /**
+     * Breadth-first search of an {@link ArbitraryLengthPath}.
+     * Each level is evaluated as a join of the whole frontier with the path expression, so that the lookups can be batched,
+     * and newly reached nodes are pushed to the parent as they are found.
+     * If both ends are bound, the search proceeds from both ends, always expanding the smaller frontier, until the two meet.
+     * If neither end is bound, the search starts from all the subjects of the path expression at once.
+     */
+    private final class PathSearch {
+    	private final BindingSetPipe parent;
+    	private final BindingSet bindings;
+    	private final Var subjVar;
+    	private final Var objVar;
+    	private final Value subj;
+    	private final Value obj;
+    	private final boolean includeZeroLength;
+    	private final BindingSetPipeEvaluationStep pathStep;
+    	private final StatementPattern batchPattern;
+    	private final Frontier forward;
+    	private final Frontier backward;
+    	private final AtomicInteger pendingLevels = new AtomicInteger();
+    	private final AtomicBoolean finished = new AtomicBoolean();
+    	private volatile boolean done;
+
+    	PathSearch(BindingSetPipe parent, BindingSet bindings, Var subjVar, Var objVar, Value subj, Value obj, boolean includeZeroLength, BindingSetPipeEvaluationStep pathStep, StatementPattern batchPattern) {
+    		this.parent = parent;
+    		this.bindings = bindings;
+    		this.subjVar = subjVar;
+    		this.objVar = objVar;
+    		this.subj = subj;
+    		this.obj = obj;
+    		this.includeZeroLength = includeZeroLength;
+    		this.pathStep = pathStep;
+    		this.batchPattern = batchPattern;
+    		this.forward = (subj != null || obj == null) ? new Frontier(PATH_SUBJECT_VAR, PATH_OBJECT_VAR, subj) : null;
+    		this.backward = (obj != null) ? new Frontier(PATH_OBJECT_VAR, PATH_SUBJECT_VAR, obj) : null;
+    		if (forward != null && backward != null) {
+    			forward.other = backward;
+    			backward.other = forward;
+    		}
+    	}
+
+    	void start() {
+    		try {
+    			init();
+    		} catch (IOException e) {
+    			parent.handleException(e);
+    			finish();
+    			return;
+    		}
+    		scheduleLevel();
+    	}
+
+    	private void init() throws IOException {
+    		if (subj == null && obj == null) {
+    			// the first level finds the start nodes
+    			forward.nodes.add(bindings);
+    		} else {
+    			for (Frontier f : new Frontier[] {forward, backward}) {
+    				if (f != null) {
+    					f.nodes.add(f.createFrontierBindings(null, f.origin));
+    					if (includeZeroLength || f.other != null) {
+    						// for bidirectional search, the origins are where the two searches meet
+    						f.visit(null, f.origin);
+    					}
+    				}
+    			}
+    		}
+    		if (includeZeroLength && subj != null && obj == null) {
+    			done = !emit(subj, subj);
+    		} else if (includeZeroLength && subj == null && obj != null) {
+    			done = !emit(obj, obj);
+    		} else if (includeZeroLength && subj != null && subj.equals(obj)) {
+    			emit(subj, obj);
+    			done = true;
+    		}
+    	}
+
+    	private void scheduleLevel() {
+    		// trampoline, so that synchronous evaluation doesn't recurse once per level
+    		if (pendingLevels.getAndIncrement() == 0) {
+    			do {
+    				evaluateLevel();
+    			} while (pendingLevels.decrementAndGet() > 0);
+    		}
+    	}
+
+    	private void evaluateLevel() {
+    		Frontier f;
+    		if (forward == null) {
+    			f = backward;
+    		} else if (backward == null) {
+    			f = forward;
+    		} else {
+    			f = (forward.nodes.size() <= backward.nodes.size()) ? forward : backward;
+    		}
+    		List<BindingSet> nodes;
+    		synchronized (f) {
+    			nodes = f.nodes;
+    			f.nodes = new ArrayList<>();
+    		}
+    		if (done || nodes.isEmpty() || parent.isClosed()) {
+    			finish();
+    			return;
+    		}
+    		BindingSetPipeEvaluationStep frontierStep = (pipe, bs) -> {
+    			for (BindingSet node : nodes) {
+    				if (!pipe.push(node)) {
+    					break;
+    				}
+    			}
+    			pipe.close();
+    		};
+    		BindingSetPipeEvaluationStep levelStep = (batchPattern != null) ? precompileBatchJoin(frontierStep, batchPattern, null) : precompileNestedLoopsJoin(frontierStep, pathStep, null);
+    		levelStep.evaluate(new BindingSetPipe(parent) {
+    			@Override
+    			protected boolean next(BindingSet bs) {
+    				if (done) {
+    					return false;
+    				}
+    				Value node = bs.getValue(f.toVar);
+    				if (node == null) {
+    					return true;
+    				}
+    				Value start = (f.origin != null) ? f.origin : (bs.hasBinding(PATH_START_VAR) ? bs.getValue(PATH_START_VAR) : bs.getValue(f.fromVar));
+    				try {
+    					if (f.other != null) {
+    						if (f.other.visited.contains(node)) {
+    							emit(subj, obj);
+    							done = true;
+    							return false;
+    						}
+    					}
+    					if (f.visit(start, node)) {
+    						f.add(start, node);
+    						if (f.other == null) {
+    							boolean pushMore = (f == forward) ? emit(start, node) : emit(node, start);
+    							if (!pushMore) {
+    								done = true;
+    							}
+    							return pushMore;
+    						}
+    					}
+    					return true;
+    				} catch (IOException e) {
+    					return handleException(e);
+    				}
+    			}
+    			@Override
+    			public boolean handleException(Throwable e) {
+    				done = true;
+    				return parent.handleException(e);
+    			}
+    			@Override
+    			protected void doClose() {
+    				scheduleLevel();
+    			}
+    			@Override
+    			public String toString() {
+    				return "PathSearchBindingSetPipe";
+    			}
+    		}, bindings);
+    	}
+
+    	private boolean emit(Value start, Value end) {
+    		QueryBindingSet result = new QueryBindingSet(bindings);
+    		result.setBinding(subjVar.getName(), start);
+    		result.setBinding(objVar.getName(), end);
+    		return parent.push(result);
+    	}
+
+    	private void finish() {
+    		if (finished.compareAndSet(false, true)) {
+    			if (forward != null) {
+    				forward.close();
+    			}
+    			if (backward != null) {
+    				backward.close();
+    			}
+    			parent.close();
+    		}
+    	}
+
+    	final class Frontier {
+    		final String fromVar;
+    		final String toVar;
+    		final Value origin;
+    		final FingerprintHashSet<Value> visited;
+    		final FingerprintHashSet<BindingSet> visitedPairs;
+    		Frontier other;
+    		List<BindingSet> nodes = new ArrayList<>();
+
+    		Frontier(String fromVar, String toVar, Value origin) {
+    			this.fromVar = fromVar;
+    			this.toVar = toVar;
+    			this.origin = origin;
+    			ValueFactory vf = tripleSource.getValueFactory();
+    			if (origin != null) {
+    				this.visited = FingerprintHashSet.createValueSet(collectionMemoryThreshold, vf);
+    				this.visitedPairs = null;
+    			} else {
+    				this.visited = null;
+    				this.visitedPairs = FingerprintHashSet.createBindingSetSet(collectionMemoryThreshold, vf);
+    			}
+    		}
+
+    		/**
+    		 * @return true if the node has not been visited before from the start node
+    		 */
+    		boolean visit(Value start, Value node) throws IOException {
+    			if (visited != null) {
+    				return visited.add(node);
+    			} else {
+    				QueryBindingSet pair = new QueryBindingSet(2);
+    				pair.addBinding(PATH_START_VAR, start);
+    				pair.addBinding(PATH_OBJECT_VAR, node);
+    				return visitedPairs.add(pair);
+    			}
+    		}
+
+    		void add(Value start, Value node) {
+    			BindingSet bs = createFrontierBindings(start, node);
+    			synchronized (this) {
+    				nodes.add(bs);
+    			}
+    		}
+
+    		BindingSet createFrontierBindings(Value start, Value node) {
+    			QueryBindingSet bs = new QueryBindingSet(bindings);
+    			if (start != null) {
+    				bs.setBinding(PATH_START_VAR, start);
+    			}
+    			bs.setBinding(fromVar, node);
+    			return bs;
+    		}
+
+    		void close() {
+    			if (visited != null) {
+    				visited.close();
+    			}
+    			if (visitedPairs != null) {
+    				visitedPairs.close();
+    			}
+    		}
+    	}
+    }
+
+	/**
+     * Evaluates {@link ArbitraryLengthPath} query model nodes using RDF4J's {@link PathIteration}.
      * @param alp
      */
-    private BindingSetPipeEvaluationStep precompileArbitraryLengthPath(ArbitraryLengthPath alp) {
+    private BindingSetPipeEvaluationStep precompilePathIteration(ArbitraryLengthPath alp) {
     	return (parent, bindings) -> {
 	        final StatementPattern.Scope scope = alp.getScope();
 	        final Var subjectVar = alp.getSubjectVar();
@@ -3278,6 +4379,13 @@ final class HalyardTupleExprEvaluation {
     		}
     		return pushMore;
     	}
+    	protected final boolean pushBatchToParent(BindingSet[] bss, int n) {
+    		boolean pushMore = parent.pushBatch(bss, n);
+    		if (!pushMore) {
+    			finished.set(true);
+    		}
+    		return pushMore;
+    	}
     	protected final void endSecondaryPipe() {
     		inProgress.decrementAndGet();
     		// close if we are the last child and the main pipe has already finished
@@ -0,0 +1,41 @@
+package com.msd.gin.halyard.strategy;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Adapts the number of bindings shipped to a SERVICE endpoint per request to how quickly the endpoint responds.
+ * The block size grows while full blocks come back well within the target time, and shrinks when they take longer.
+ */
+@ThreadSafe
+final class ServiceBlockSizer {
+	static final int INITIAL_BLOCK_SIZE = 16;
+
+	private final int maxBlockSize;
+	private final long targetNanos;
+	private volatile int blockSize;
+
+	ServiceBlockSizer(int maxBlockSize, long targetMillis) {
+		this.maxBlockSize = maxBlockSize;
+		this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+		this.blockSize = Math.min(INITIAL_BLOCK_SIZE, maxBlockSize);
+	}
+
+	int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Records how long the endpoint took to answer a block.
+	 * @param size number of bindings in the block
+	 * @param elapsedNanos time taken to answer the block
+	 */
+	synchronized void update(int size, long elapsedNanos) {
+		if (elapsedNanos > targetNanos) {
+			blockSize = Math.max(blockSize/2, 1);
+		} else if (elapsedNanos < targetNanos/2 && size >= blockSize) {
+			blockSize = Math.min(2*blockSize, maxBlockSize);
+		}
+	}
+}
@@ -6,6 +6,7 @@ public final class StrategyConfig {
 
 	public static final String HALYARD_EVALUATION_HASH_JOIN_LIMIT = "halyard.evaluation.hashJoin.limit";
 	public static final String HALYARD_EVALUATION_HASH_JOIN_COST_RATIO = "halyard.evaluation.hashJoin.costRatio";
+	public static final String HALYARD_EVALUATION_BATCH_JOIN_SIZE = "halyard.evaluation.batchJoin.size";
 	public static final String HALYARD_EVALUATION_STAR_JOIN_MIN_JOINS = "halyard.evaluation.starJoin.minJoins";
 	public static final String HALYARD_EVALUATION_NARY_UNION_MIN_UNIONS = "halyard.evaluation.naryUnion.minUnions";
 	public static final String HALYARD_EVALUATION_MEMORY_THRESHOLD = "halyard.evaluation.collections.memoryThreshold";
@@ -14,20 +15,41 @@ public final class StrategyConfig {
 	public static final String HALYARD_EVALUATION_OFFER_TIMEOUT_MILLIS = "halyard.evaluation.offerTimeoutMillis";
 	public static final String HALYARD_EVALUATION_MAX_QUEUE_SIZE = "halyard.evaluation.maxQueueSize";
 	public static final String HALYARD_EVALUATION_THREADS = "halyard.evaluation.threads";
+	public static final String HALYARD_EVALUATION_MAX_THREADS = "halyard.evaluation.maxThreads";
+	/**
+	 * Executor for asynchronous evaluation, either {@value #THREAD_POOL_EXECUTOR} or {@value #FORK_JOIN_EXECUTOR}.
+	 */
+	public static final String HALYARD_EVALUATION_EXECUTOR = "halyard.evaluation.executor";
 	public static final String HALYARD_EVALUATION_BINDINGS_RATE_UPDATE_MILLIS = "halyard.evaluation.bindingsRate.updateMillis";
 	public static final String HALYARD_EVALUATION_BINDINGS_RATE_WINDOW_SIZE = "halyard.evaluation.bindingsRate.windowSize";
 	public static final String HALYARD_EVALUATION_TRACK_RESULT_SIZE_UPDATE_INTERVAL = "halyard.evaluation.trackResultSize.updateInterval";
 	public static final String HALYARD_EVALUATION_TRACK_RESULT_TIME_UPDATE_INTERVAL = "halyard.evaluation.trackResultTime.updateInterval";
 	public static final String HALYARD_EVALUATION_PULL_PUSH_ASYNC_ALL_LIMIT = "halyard.evaluation.pullPush.asyncAll.limit";
+	public static final String HALYARD_EVALUATION_PULL_PUSH_BATCH_SIZE = "halyard.evaluation.pullPush.batchSize";
+	/**
+	 * Maximum number of bindings shipped to a SERVICE endpoint per request (less than 2 evaluates each binding separately).
+	 */
+	public static final String HALYARD_EVALUATION_SERVICE_BATCH_SIZE = "halyard.evaluation.service.batchSize";
+	/**
+	 * Response time a SERVICE request should take, the number of bindings shipped per request is adjusted towards it.
+	 */
+	public static final String HALYARD_EVALUATION_SERVICE_BATCH_TARGET_MILLIS = "halyard.evaluation.service.batchTargetMillis";
 
 	static final int DEFAULT_HASH_JOIN_LIMIT = 50000;
+	static final int DEFAULT_BATCH_JOIN_SIZE = 256;
 	static final int DEFAULT_STAR_JOIN_MIN_JOINS = 3;
 	static final int DEFAULT_NARY_UNION_MIN_UNIONS = 2;
 	static final int DEFAULT_MEMORY_THRESHOLD = 100000;
 	static final int DEFAULT_VALUE_CACHE_SIZE = 1000;
 	static final int DEFAULT_QUEUE_SIZE = 5000;
 	static final int DEFAULT_THREADS = 25;
+	static final int DEFAULT_MAX_THREADS = 250;
+	public static final String THREAD_POOL_EXECUTOR = "threadPool";
+	public static final String FORK_JOIN_EXECUTOR = "forkJoin";
 	static final int DEFAULT_PULL_PUSH_ASYNC_ALL_LIMIT = 50;
+	static final int DEFAULT_PULL_PUSH_BATCH_SIZE = 64;
+	static final int DEFAULT_SERVICE_BATCH_SIZE = 100;
+	static final long DEFAULT_SERVICE_BATCH_TARGET_MILLIS = 1000L;
 	public static final String JMX_DOMAIN = "com.msd.gin.halyard";
 
 	public final long trackResultSizeUpdateInterval;
@@ -36,8 +58,11 @@ public final class StrategyConfig {
 	public final int naryUnionMinUnions;
 	public final int hashJoinLimit;
 	public final float hashJoinCostRatio;
+	public final int batchJoinSize;
 	public final int collectionMemoryThreshold;
 	public final int valueCacheSize;
+	public final int serviceBatchSize;
+	public final long serviceBatchTargetMillis;
 
 	public StrategyConfig(Configuration conf) {
 		this.trackResultSizeUpdateInterval = conf.getLong(HALYARD_EVALUATION_TRACK_RESULT_SIZE_UPDATE_INTERVAL, Long.MAX_VALUE);
@@ -46,7 +71,10 @@ public final class StrategyConfig {
 		this.naryUnionMinUnions = conf.getInt(HALYARD_EVALUATION_NARY_UNION_MIN_UNIONS, DEFAULT_NARY_UNION_MIN_UNIONS);
 		this.hashJoinLimit = conf.getInt(HALYARD_EVALUATION_HASH_JOIN_LIMIT, DEFAULT_HASH_JOIN_LIMIT);
 		this.hashJoinCostRatio = conf.getFloat(HALYARD_EVALUATION_HASH_JOIN_COST_RATIO, 2.0f);
+		this.batchJoinSize = conf.getInt(HALYARD_EVALUATION_BATCH_JOIN_SIZE, DEFAULT_BATCH_JOIN_SIZE);
     	this.collectionMemoryThreshold = conf.getInt(HALYARD_EVALUATION_MEMORY_THRESHOLD, DEFAULT_MEMORY_THRESHOLD);
     	this.valueCacheSize = conf.getInt(HALYARD_EVALUATION_VALUE_CACHE_SIZE, DEFAULT_VALUE_CACHE_SIZE);
+    	this.serviceBatchSize = conf.getInt(HALYARD_EVALUATION_SERVICE_BATCH_SIZE, DEFAULT_SERVICE_BATCH_SIZE);
+    	this.serviceBatchTargetMillis = conf.getLong(HALYARD_EVALUATION_SERVICE_BATCH_TARGET_MILLIS, DEFAULT_SERVICE_BATCH_TARGET_MILLIS);
 	}
 }
@@ -4,6 +4,7 @@ import com.msd.gin.halyard.query.BindingSetPipe;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.hadoop.conf.Configuration;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
@@ -12,6 +13,15 @@ import org.eclipse.rdf4j.query.algebra.evaluation.QueryEvaluationStep;
 
 final class SyncPullPusher implements PullPusher {
 	private final AtomicInteger active = new AtomicInteger();
+	private final int batchSize;
+
+	SyncPullPusher(Configuration conf) {
+		batchSize = getBatchSize(conf);
+	}
+
+	static int getBatchSize(Configuration conf) {
+		return Math.max(1, conf.getInt(StrategyConfig.HALYARD_EVALUATION_PULL_PUSH_BATCH_SIZE, StrategyConfig.DEFAULT_PULL_PUSH_BATCH_SIZE));
+	}
 
 	@Override
 	public void pullPush(BindingSetPipe pipe,
@@ -19,7 +29,7 @@ final class SyncPullPusher implements PullPusher {
 			TupleExpr node, BindingSet bs, HalyardEvaluationStrategy strategy) {
 		active.incrementAndGet();
 		try {
-			pullPushAll(pipe, evalStep, node, bs, strategy);
+			pullPushAll(pipe, evalStep, node, bs, strategy, batchSize);
 		} finally {
 			active.decrementAndGet();
 		}
@@ -39,19 +49,30 @@ final class SyncPullPusher implements PullPusher {
 	public void close() {
 	}
 
+	/**
+	 * Pulls everything from an iteration and pushes it to a pipe in batches of up to batchSize.
+	 */
 	static void pullPushAll(BindingSetPipe pipe,
 			QueryEvaluationStep evalStep,
-			TupleExpr expr, BindingSet bindingSet, HalyardEvaluationStrategy strategy) {
+			TupleExpr expr, BindingSet bindingSet, HalyardEvaluationStrategy strategy, int batchSize) {
 		if (!pipe.isClosed()) {
 			try {
 				CloseableIteration<BindingSet, QueryEvaluationException> iter = strategy.track(evalStep.evaluate(bindingSet), expr);
+				BindingSet[] batch = new BindingSet[batchSize];
+				int batchLen = 0;
 				boolean doNext = true;
 				while (doNext && !pipe.isClosed()) {
 		    		try {
 		    			doNext = iter.hasNext();
 		    			if (doNext) {
-		        			BindingSet bs = iter.next();
-		        			doNext = pipe.push(bs);
+		        			batch[batchLen++] = iter.next();
+		    			}
+		    			if (batchLen == batchSize || (!doNext && batchLen > 0)) {
+		    				int n = batchLen;
+		    				// reset first so nothing gets pushed twice if the push fails
+		    				batchLen = 0;
+		    				boolean pushMore = pipe.pushBatch(batch, n);
+		    				doNext = doNext && pushMore;
 		    			}
 		    		} catch (Throwable nextEx) {
 		    			doNext = pipe.handleException(nextEx);
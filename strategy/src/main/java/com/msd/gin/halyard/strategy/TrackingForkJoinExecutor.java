@@ -0,0 +1,214 @@
+package com.msd.gin.halyard.strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor backed by a {@link ForkJoinPool} that still runs tasks in priority order.
+ * Tasks are held in a priority queue, and each submission schedules a worker to run the highest priority task available.
+ * Tasks that block should do so via {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)},
+ * so that the pool can start compensating threads (up to the maximum pool size) instead of sitting idle.
+ */
+public final class TrackingForkJoinExecutor extends AbstractExecutorService implements TrackingThreadPoolExecutorMXBean {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TrackingForkJoinExecutor.class);
+
+	private final ForkJoinPool pool;
+	private final int maximumPoolSize;
+	private final PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<>(64);
+	private final ConcurrentHashMap<Thread, Runnable> runningTasks;
+	private final AtomicLong taskCount = new AtomicLong();
+	private final AtomicLong completedTaskCount = new AtomicLong();
+	private final AtomicInteger largestPoolSize = new AtomicInteger();
+
+	public TrackingForkJoinExecutor(String namePrefix, int parallelism, int maximumPoolSize, long keepAliveTime, TimeUnit unit, Thread.UncaughtExceptionHandler handler) {
+		AtomicInteger threadSeq = new AtomicInteger();
+		ForkJoinPool.ForkJoinWorkerThreadFactory tf = p -> {
+			ForkJoinWorkerThread thr = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+			thr.setName(namePrefix+threadSeq.incrementAndGet());
+			thr.setDaemon(true);
+			return thr;
+		};
+		this.maximumPoolSize = Math.max(parallelism, maximumPoolSize);
+		// once saturated, blocked tasks just continue without compensation
+		this.pool = new ForkJoinPool(parallelism, tf, handler, true, 0, this.maximumPoolSize, 1, p -> true, keepAliveTime, unit);
+		this.runningTasks = new ConcurrentHashMap<>(parallelism);
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		queue.offer(task);
+		taskCount.incrementAndGet();
+		pool.execute(this::runNext);
+	}
+
+	private void runNext() {
+		Runnable task = queue.poll();
+		if (task != null) {
+			largestPoolSize.accumulateAndGet(pool.getPoolSize(), Math::max);
+			Thread t = Thread.currentThread();
+			runningTasks.put(t, task);
+			try {
+				task.run();
+			} finally {
+				runningTasks.remove(t);
+				completedTaskCount.incrementAndGet();
+			}
+		}
+	}
+
+	public Map<Thread, Runnable> getActiveTasks() {
+		return Collections.unmodifiableMap(runningTasks);
+	}
+
+	@Override
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		List<Runnable> pending = new ArrayList<>(queue.size());
+		queue.drainTo(pending);
+		pool.shutdownNow();
+		return pending;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return pool.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return pool.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return pool.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public int getCorePoolSize() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Ignored, as the parallelism of a fork-join pool is fixed.
+	 */
+	@Override
+	public void setCorePoolSize(int size) {
+		LOGGER.warn("Ignoring core pool size {}: parallelism of a fork-join pool is fixed at {}", size, pool.getParallelism());
+	}
+
+	@Override
+	public int getMaximumPoolSize() {
+		return maximumPoolSize;
+	}
+
+	/**
+	 * Ignored, as the maximum size of a fork-join pool is fixed.
+	 */
+	@Override
+	public void setMaximumPoolSize(int size) {
+		LOGGER.warn("Ignoring maximum pool size {}: maximum size of a fork-join pool is fixed at {}", size, maximumPoolSize);
+	}
+
+	@Override
+	public int getPoolSize() {
+		return pool.getPoolSize();
+	}
+
+	@Override
+	public int getLargestPoolSize() {
+		return largestPoolSize.get();
+	}
+
+	@Override
+	public int getActiveCount() {
+		return runningTasks.size();
+	}
+
+	@Override
+	public long getCompletedTaskCount() {
+		return completedTaskCount.get();
+	}
+
+	@Override
+	public long getTaskCount() {
+		return taskCount.get();
+	}
+
+	@Override
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	@Override
+	public ThreadInfo[] getThreadDump() {
+		// NB: the size is only approximate as the contents of the map is under constant change!!!
+		List<ThreadInfo> dump = new ArrayList<>(runningTasks.size());
+		for (Map.Entry<Thread, Runnable> entry : getActiveTasks().entrySet()) {
+			Thread t = entry.getKey();
+			Runnable r = entry.getValue();
+			dump.add(new ThreadInfo(t.getName(), t.getState(), r.toString()));
+		}
+		ThreadInfo[] thrInfos = dump.toArray(new ThreadInfo[dump.size()]);
+		Arrays.sort(thrInfos, Comparator.comparing(ThreadInfo::getName));
+		return thrInfos;
+	}
+
+	@Override
+	public QueueInfo[] getQueueDump() {
+		return getQueueDump(10);
+	}
+
+	@SuppressWarnings("unchecked")
+	private QueueInfo[] getQueueDump(int n) {
+		Runnable[] tasks = queue.toArray(new Runnable[0]);
+		Comparator<?> comparator = queue.comparator();
+		// need to sort as contents are in no particular order
+		if (comparator != null) {
+			Arrays.sort(tasks, (Comparator<Runnable>) comparator);
+		} else {
+			Arrays.sort(tasks);
+		}
+		n = Math.min(n, tasks.length);
+		QueueInfo[] infos = new QueueInfo[n];
+		for (int i=0; i<n; i++) {
+			infos[i] = new QueueInfo(tasks[i].toString());
+		}
+		return infos;
+	}
+
+	@Override
+	public String toString() {
+		int n = 10;
+		StringBuilder buf = new StringBuilder(pool.toString());
+		buf.append("\nThreads:\n");
+		for (ThreadInfo ti : getThreadDump()) {
+			buf.append("  ").append(ti).append("\n");
+		}
+		buf.append("\nQueue (first " + n + " of ~" + queue.size() + "):\n");
+		int i = 0;
+		for (QueueInfo qi : getQueueDump(n)) {
+			buf.append("  ").append(++i).append(": ").append(qi).append("\n");
+		}
+		return buf.toString();
+	}
+}
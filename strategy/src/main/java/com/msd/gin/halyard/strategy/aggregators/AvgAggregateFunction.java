@@ -42,4 +42,14 @@ public class AvgAggregateFunction extends ThreadSafeAggregateFunction<AvgCollect
 			}
 		}
 	}
+
+	@Override
+	public boolean isMergeable() {
+		return true;
+	}
+
+	@Override
+	public void mergeAggregate(AvgCollector col, AvgCollector partial) {
+		col.merge(partial);
+	}
 }
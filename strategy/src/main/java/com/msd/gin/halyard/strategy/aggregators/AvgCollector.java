@@ -5,6 +5,8 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.algebra.MathExpr.MathOp;
 import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
@@ -23,6 +25,15 @@ public final class AvgCollector implements ExtendedAggregateCollector {
 		count.incrementAndGet();
 	}
 
+	public void merge(AvgCollector other) {
+		if (other.typeError != null) {
+			setError(other.typeError);
+		} else {
+			addValue(other.sumRef.get());
+			count.addAndGet(other.count.get());
+		}
+	}
+
 	public boolean hasError() {
 		return typeError != null;
 	}
@@ -31,6 +42,22 @@ public final class AvgCollector implements ExtendedAggregateCollector {
 		typeError = err;
 	}
 
+	@Override
+	public Value[] saveState() {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		ValueExprEvaluationException err = typeError;
+		return new Value[] {sumRef.get(), vf.createLiteral(count.get()), err != null ? vf.createLiteral(String.valueOf(err.getMessage())) : null};
+	}
+
+	@Override
+	public void restoreState(Value[] state) {
+		sumRef.set((Literal) state[0]);
+		count.set(((Literal) state[1]).longValue());
+		if (state[2] != null) {
+			setError(new ValueExprEvaluationException(state[2].stringValue()));
+		}
+	}
+
 	@Override
 	public Value getFinalValue(TripleSource ts) {
 		if (typeError != null) {
@@ -1,6 +1,7 @@
 package com.msd.gin.halyard.strategy.aggregators;
 
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 
 public final class CSVCollector implements ExtendedAggregateCollector {
@@ -18,6 +19,27 @@ public final class CSVCollector implements ExtendedAggregateCollector {
 		concatenated.append(s);
 	}
 
+	public void merge(CSVCollector other) {
+		String s;
+		synchronized (other) {
+			s = other.concatenated.toString();
+		}
+		if (!s.isEmpty()) {
+			append(s);
+		}
+	}
+
+	@Override
+	public synchronized Value[] saveState() {
+		return new Value[] {SimpleValueFactory.getInstance().createLiteral(concatenated.toString())};
+	}
+
+	@Override
+	public synchronized void restoreState(Value[] state) {
+		concatenated.setLength(0);
+		concatenated.append(state[0].stringValue());
+	}
+
 	@Override
 	public synchronized Value getFinalValue(TripleSource ts) {
 		if (concatenated.length() == 0) {
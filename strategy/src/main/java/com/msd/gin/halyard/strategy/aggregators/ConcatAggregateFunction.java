@@ -17,4 +17,14 @@ public class ConcatAggregateFunction extends ThreadSafeAggregateFunction<CSVColl
 			col.append(v.stringValue());
 		}
 	}
+
+	@Override
+	public boolean isMergeable() {
+		return true;
+	}
+
+	@Override
+	public void mergeAggregate(CSVCollector col, CSVCollector partial) {
+		col.merge(partial);
+	}
 }
@@ -16,4 +16,14 @@ public final class CountAggregateFunction extends ThreadSafeAggregateFunction<Lo
 			col.increment();
 		}
 	}
+
+	@Override
+	public boolean isMergeable() {
+		return true;
+	}
+
+	@Override
+	public void mergeAggregate(LongCollector col, LongCollector partial) {
+		col.merge(partial);
+	}
 }
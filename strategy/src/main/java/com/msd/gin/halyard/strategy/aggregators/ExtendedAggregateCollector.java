@@ -13,4 +13,21 @@ public interface ExtendedAggregateCollector extends AggregateCollector, Serializ
 	default Value getFinalValue() {
 		throw new UnsupportedOperationException();
 	}
+
+	/**
+	 * Returns the partial state of a mergeable aggregate as values (any of which may be null),
+	 * so that it can be written out and later restored with {@link #restoreState(Value[])}.
+	 * @return partial state
+	 */
+	default Value[] saveState() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Restores partial state returned by {@link #saveState()} into a new collector.
+	 * @param state partial state
+	 */
+	default void restoreState(Value[] state) {
+		throw new UnsupportedOperationException();
+	}
 }
@@ -18,6 +18,24 @@ public abstract class ExtendedAggregateFunction<T extends ExtendedAggregateColle
 	public abstract void processAggregate(BindingSet bindingSet, Predicate<D> distinctValue, T agv, QueryValueStepEvaluator evaluationStep)
 			throws QueryEvaluationException;
 
+	/**
+	 * Indicates whether partial aggregates can be combined with {@link #mergeAggregate(ExtendedAggregateCollector, ExtendedAggregateCollector)},
+	 * i.e. if an aggregation can be carried out in stages.
+	 * @return true if partial aggregates can be merged
+	 */
+	public boolean isMergeable() {
+		return false;
+	}
+
+	/**
+	 * Merges a partial aggregate into another.
+	 * @param agv collector to merge into
+	 * @param partial collector of a partial aggregate
+	 */
+	public void mergeAggregate(T agv, T partial) {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public final void processAggregate(BindingSet bindingSet, Predicate<D> distinctValue, T agv)
 			throws QueryEvaluationException {
@@ -2,8 +2,10 @@ package com.msd.gin.halyard.strategy.aggregators;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.base.CoreDatatype;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 
 public final class LongCollector implements ExtendedAggregateCollector {
@@ -13,6 +15,20 @@ public final class LongCollector implements ExtendedAggregateCollector {
 		v.incrementAndGet();
 	}
 
+	public void merge(LongCollector other) {
+		v.addAndGet(other.v.get());
+	}
+
+	@Override
+	public Value[] saveState() {
+		return new Value[] {SimpleValueFactory.getInstance().createLiteral(v.get())};
+	}
+
+	@Override
+	public void restoreState(Value[] state) {
+		v.set(((Literal) state[0]).longValue());
+	}
+
 	@Override
 	public Value getFinalValue(TripleSource ts) {
 		return ts.getValueFactory().createLiteral(Long.toString(v.get()), CoreDatatype.XSD.INTEGER);
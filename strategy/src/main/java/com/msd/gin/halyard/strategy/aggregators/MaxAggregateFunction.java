@@ -16,4 +16,17 @@ public final class MaxAggregateFunction extends ThreadSafeAggregateFunction<Valu
 			col.max(v);
 		}
 	}
+
+	@Override
+	public boolean isMergeable() {
+		return true;
+	}
+
+	@Override
+	public void mergeAggregate(ValueCollector<Value> col, ValueCollector<Value> partial) {
+		Value v = partial.get();
+		if (v != null) {
+			col.max(v);
+		}
+	}
 }
@@ -16,4 +16,17 @@ public final class MinAggregateFunction extends ThreadSafeAggregateFunction<Valu
 			col.min(v);
 		}
 	}
+
+	@Override
+	public boolean isMergeable() {
+		return true;
+	}
+
+	@Override
+	public void mergeAggregate(ValueCollector<Value> col, ValueCollector<Value> partial) {
+		Value v = partial.get();
+		if (v != null) {
+			col.min(v);
+		}
+	}
 }
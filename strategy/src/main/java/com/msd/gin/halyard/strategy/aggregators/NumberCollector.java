@@ -21,6 +21,17 @@ public final class NumberCollector implements ExtendedAggregateCollector {
 		vref.accumulateAndGet(l, (total,next) -> MathUtil.compute(total!=null?total:ZERO, next, MathOp.PLUS));
 	}
 
+	public void merge(NumberCollector other) {
+		if (other.typeError != null) {
+			setError(other.typeError);
+		} else {
+			Literal l = other.vref.get();
+			if (l != null) {
+				add(l);
+			}
+		}
+	}
+
 	public boolean hasError() {
 		return typeError != null;
 	}
@@ -29,6 +40,20 @@ public final class NumberCollector implements ExtendedAggregateCollector {
 		typeError = err;
 	}
 
+	@Override
+	public Value[] saveState() {
+		ValueExprEvaluationException err = typeError;
+		return new Value[] {vref.get(), err != null ? SimpleValueFactory.getInstance().createLiteral(String.valueOf(err.getMessage())) : null};
+	}
+
+	@Override
+	public void restoreState(Value[] state) {
+		vref.set((Literal) state[0]);
+		if (state[1] != null) {
+			setError(new ValueExprEvaluationException(state[1].stringValue()));
+		}
+	}
+
 	@Override
 	public Value getFinalValue(TripleSource ts) {
 		if (typeError != null) {
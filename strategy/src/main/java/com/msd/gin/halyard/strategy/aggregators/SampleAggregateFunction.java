@@ -40,4 +40,14 @@ public class SampleAggregateFunction extends ThreadSafeAggregateFunction<SampleC
 			nextValue.ifPresent(col::setSample);
 		}
 	}
+
+	@Override
+	public boolean isMergeable() {
+		return true;
+	}
+
+	@Override
+	public void mergeAggregate(SampleCollector col, SampleCollector partial) {
+		col.merge(partial);
+	}
 }
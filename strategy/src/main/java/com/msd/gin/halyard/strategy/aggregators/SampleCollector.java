@@ -21,6 +21,23 @@ public final class SampleCollector implements ExtendedAggregateCollector {
 		vref.set(v);
 	}
 
+	public void merge(SampleCollector other) {
+		Value v = other.vref.get();
+		if (v != null) {
+			setInitial(v);
+		}
+	}
+
+	@Override
+	public Value[] saveState() {
+		return new Value[] {vref.get()};
+	}
+
+	@Override
+	public void restoreState(Value[] state) {
+		vref.set(state[0]);
+	}
+
 	@Override
 	public Value getFinalValue(TripleSource ts) {
 		Value v = vref.get();
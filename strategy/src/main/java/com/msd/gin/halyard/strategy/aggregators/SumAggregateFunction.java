@@ -38,4 +38,14 @@ public final class SumAggregateFunction extends ThreadSafeAggregateFunction<Numb
 			}
 		}
 	}
+
+	@Override
+	public boolean isMergeable() {
+		return true;
+	}
+
+	@Override
+	public void mergeAggregate(NumberCollector col, NumberCollector partial) {
+		col.merge(partial);
+	}
 }
@@ -1,5 +1,6 @@
 package com.msd.gin.halyard.strategy.aggregators;
 
+import java.io.Serializable;
 import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -12,9 +13,7 @@ public final class ValueCollector<V extends Value> implements ExtendedAggregateC
 	private final Comparator<V> comparator;
 
 	public static ValueCollector<Value> create(boolean isStrict) {
-		ValueComparator comparator = new ValueComparator();
-		comparator.setStrict(isStrict);
-		return new ValueCollector<>(comparator);
+		return new ValueCollector<>(new SerializableValueComparator(isStrict));
 	}
 
 
@@ -42,8 +41,37 @@ public final class ValueCollector<V extends Value> implements ExtendedAggregateC
 		});
 	}
 
+	public V get() {
+		return vref.get();
+	}
+
 	@Override
 	public Value getFinalValue(TripleSource ts) {
 		return vref.get();
 	}
+
+	@Override
+	public Value[] saveState() {
+		return new Value[] {vref.get()};
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void restoreState(Value[] state) {
+		vref.set((V) state[0]);
+	}
+
+	private static final class SerializableValueComparator extends ValueComparator implements Serializable {
+		private static final long serialVersionUID = 4193064328126934539L;
+		private final boolean strict;
+
+		SerializableValueComparator(boolean strict) {
+			this.strict = strict;
+			setStrict(strict);
+		}
+
+		private Object readResolve() {
+			return new SerializableValueComparator(strict);
+		}
+	}
 }
@@ -16,4 +16,14 @@ public final class WildcardCountAggregateFunction extends ThreadSafeAggregateFun
 			col.increment();
 		}
 	}
+
+	@Override
+	public boolean isMergeable() {
+		return true;
+	}
+
+	@Override
+	public void mergeAggregate(LongCollector col, LongCollector partial) {
+		col.merge(partial);
+	}
 }
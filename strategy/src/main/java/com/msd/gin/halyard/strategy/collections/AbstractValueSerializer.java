@@ -44,6 +44,30 @@ public abstract class AbstractValueSerializer<E> implements Serializer<E>, Exter
 		return READER.readValueWithSizeHeader(in, vf, Integer.BYTES);
 	}
 
+	/**
+	 * Writes an array of values, any of which may be null.
+	 */
+	protected final void writeValues(Value[] values, DataOutput out, ByteBuffer tmp) throws IOException {
+		out.writeInt(values.length);
+		for (Value v : values) {
+			out.writeBoolean(v != null);
+			if (v != null) {
+				writeValue(v, out, tmp);
+			}
+		}
+	}
+
+	protected final Value[] readValues(DataInput in) throws IOException {
+		int len = in.readInt();
+		Value[] values = new Value[len];
+		for (int i=0; i<len; i++) {
+			if (in.readBoolean()) {
+				values[i] = readValue(in);
+			}
+		}
+		return values;
+	}
+
 	protected final void writeBindingSet(BindingSet bs, DataOutput out, ByteBuffer tmp) throws IOException {
 		out.writeInt(bs.size());
 		for (Binding b : bs) {
@@ -182,7 +182,7 @@ public class BigHashSet<E extends Serializable> implements Iterable<E>, Closeabl
     }
 
 
-	private static class ValueSerializer extends AbstractValueSerializer<Value> {
+	static class ValueSerializer extends AbstractValueSerializer<Value> {
     	public ValueSerializer() {
     		// required for deserialization
     	}
@@ -204,7 +204,7 @@ public class BigHashSet<E extends Serializable> implements Iterable<E>, Closeabl
     }
 
 
-    private static class BindingSetSerializer extends AbstractValueSerializer<BindingSet> {
+    static class BindingSetSerializer extends AbstractValueSerializer<BindingSet> {
 		public BindingSetSerializer() {
 			// required for deserialization
 		}
@@ -0,0 +1,436 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.mapdb.Serializer;
+
+/**
+ * Sorter for arbitrarily large inputs.
+ * If the limit fits in memory, only the top-N elements are kept in a bounded heap.
+ * Otherwise, elements are sorted in memory in runs of memory threshold size, each run is written to a temporary file,
+ * and the runs are lazily k-way-merged on iteration.
+ * To bound the number of open files, runs are kept in levels: once a level has as many runs as the maximum merge fan-in,
+ * they are merged into a single run on the next level, so each element is only rewritten once per level.
+ * Runs are sorted, written and merged outside the lock, so other threads can keep adding while one spills.
+ * Unlike {@link Sorter}, equal elements are kept as separate instances (unless distinct).
+ * @param <E> Comparable element type
+ */
+public final class ExternalSorter<E extends Comparable<E>> implements Iterable<E>, Closeable {
+	private static final String FILE_PREFIX = "halyard-sort";
+	private static final int MAX_MERGE_FAN_IN = 64;
+	private static final int BUFFER_SIZE = 64*1024;
+
+	private final long limit;
+	private final boolean distinct;
+	private final int memoryThreshold;
+	private final Serializer<E> serializer;
+	private final PriorityQueue<E> topN;
+	private final Set<E> topNSet;
+	private final List<List<File>> levels = new ArrayList<>();
+	private final List<Closeable> openReaders = new ArrayList<>();
+	private List<E> buffer;
+	private int pendingRuns;
+	private boolean closed;
+
+	/**
+	 * Constructs ExternalSorter with optional limit and optional distinct filtering
+	 * @param limit long limit, where Long.MAXLONG means no limit
+	 * @param distinct optional boolean switch to do not preserve multiple equal elements
+	 * @param memoryThreshold number of elements to hold in memory before writing a run to disk
+	 * @param serializer serializer to use for the runs
+	 */
+	public ExternalSorter(long limit, boolean distinct, int memoryThreshold, Serializer<E> serializer) {
+		this.limit = limit;
+		this.distinct = distinct;
+		this.memoryThreshold = Math.max(memoryThreshold, 1);
+		this.serializer = serializer;
+		if (limit <= this.memoryThreshold) {
+			this.topN = new PriorityQueue<>((int) Math.max(limit, 1L), Collections.reverseOrder());
+			this.topNSet = distinct ? new HashSet<>() : null;
+		} else {
+			this.topN = null;
+			this.topNSet = null;
+			this.buffer = new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Adds new element to the sorter.
+	 * Thread-safe.
+	 * @param e element to be added
+	 * @throws IOException throws IOException in case of problem with underlying storage
+	 */
+	public void add(E e) throws IOException {
+		List<E> full;
+		synchronized (this) {
+			if (closed) {
+				throw new IOException("Already closed");
+			}
+			if (topN != null) {
+				addTopN(e);
+				return;
+			}
+			buffer.add(e);
+			if (buffer.size() < memoryThreshold) {
+				return;
+			}
+			// swap in a new buffer, and spill the full one without holding the lock
+			full = buffer;
+			buffer = new ArrayList<>();
+			pendingRuns++;
+		}
+		try {
+			Collections.sort(full);
+			addRun(0, writeRun(full.iterator()));
+		} finally {
+			synchronized (this) {
+				pendingRuns--;
+				notifyAll();
+			}
+		}
+	}
+
+	private void addTopN(E e) {
+		if (limit <= 0L) {
+			return;
+		}
+		if (topN.size() >= limit && e.compareTo(topN.peek()) >= 0) {
+			return;
+		}
+		if (topNSet != null && !topNSet.add(e)) {
+			return;
+		}
+		topN.add(e);
+		if (topN.size() > limit) {
+			E last = topN.poll();
+			if (topNSet != null) {
+				topNSet.remove(last);
+			}
+		}
+	}
+
+	private void addRun(int level, File run) throws IOException {
+		while (true) {
+			List<File> merging;
+			synchronized (this) {
+				if (closed) {
+					run.delete();
+					throw new IOException("Already closed");
+				}
+				if (level == levels.size()) {
+					levels.add(new ArrayList<>());
+				}
+				List<File> levelRuns = levels.get(level);
+				levelRuns.add(run);
+				if (levelRuns.size() < MAX_MERGE_FAN_IN) {
+					return;
+				}
+				merging = new ArrayList<>(levelRuns);
+				levelRuns.clear();
+			}
+			run = mergeRuns(merging);
+			level++;
+		}
+	}
+
+	/**
+	 * Merges the runs into a new run, and deletes them.
+	 */
+	private File mergeRuns(List<File> merging) throws IOException {
+		List<RunReader> readers = new ArrayList<>(merging.size());
+		try {
+			for (File f : merging) {
+				readers.add(new RunReader(f));
+			}
+			return writeRun(new MergingIterator(new ArrayList<>(readers)));
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		} finally {
+			for (RunReader reader : readers) {
+				reader.close();
+			}
+			for (File f : merging) {
+				f.delete();
+			}
+		}
+	}
+
+	/**
+	 * Merges the smallest runs together if there are more runs than can be merged at once.
+	 * @return all the runs
+	 */
+	private List<File> compactRuns() throws IOException {
+		List<File> runs = new ArrayList<>();
+		for (List<File> levelRuns : levels) {
+			runs.addAll(levelRuns);
+		}
+		// leave room for the in-memory buffer
+		int excess = runs.size() - (MAX_MERGE_FAN_IN - 1);
+		if (excess > 0) {
+			// lower levels hold the smaller runs
+			List<File> smallest = new ArrayList<>(runs.subList(0, excess + 1));
+			// the merged run belongs with the largest of the runs it is made from
+			File largest = smallest.get(smallest.size() - 1);
+			int level = 0;
+			while (!levels.get(level).contains(largest)) {
+				level++;
+			}
+			for (List<File> levelRuns : levels) {
+				levelRuns.removeAll(smallest);
+			}
+			File merged = mergeRuns(smallest);
+			levels.get(level).add(merged);
+			runs.removeAll(smallest);
+			runs.add(merged);
+		}
+		return runs;
+	}
+
+	private File writeRun(Iterator<E> iter) throws IOException {
+		File f = File.createTempFile(FILE_PREFIX, null);
+		f.deleteOnExit();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), BUFFER_SIZE))) {
+			E prev = null;
+			while (iter.hasNext()) {
+				E e = iter.next();
+				if (!distinct || prev == null || !prev.equals(e)) {
+					out.writeBoolean(true);
+					serializer.serialize(out, e);
+				}
+				prev = e;
+			}
+			out.writeBoolean(false);
+		}
+		return f;
+	}
+
+	/**
+	 * Iterates the sorted elements.
+	 * The iterator may throw {@link UncheckedIOException}.
+	 */
+	@Override
+	public synchronized Iterator<E> iterator() {
+		if (closed) {
+			throw new IllegalStateException("Already closed");
+		}
+		if (topN != null) {
+			@SuppressWarnings("unchecked")
+			E[] sorted = (E[]) topN.toArray(new Comparable[topN.size()]);
+			Arrays.sort(sorted);
+			return Arrays.asList(sorted).iterator();
+		}
+		// wait for any runs still being written by add()
+		while (pendingRuns > 0) {
+			try {
+				wait();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new UncheckedIOException(new InterruptedIOException(ex.getMessage()));
+			}
+		}
+		List<E> sortedBuffer = new ArrayList<>(buffer);
+		Collections.sort(sortedBuffer);
+		List<File> runs;
+		try {
+			runs = compactRuns();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		Iterator<E> iter;
+		if (runs.isEmpty()) {
+			iter = sortedBuffer.iterator();
+		} else {
+			List<Iterator<E>> sources = new ArrayList<>(runs.size() + 1);
+			for (File f : runs) {
+				try {
+					RunReader reader = new RunReader(f);
+					openReaders.add(reader);
+					sources.add(reader);
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			}
+			sources.add(sortedBuffer.iterator());
+			iter = new MergingIterator(sources);
+		}
+		return new LimitingIterator(iter);
+	}
+
+	private void closeReaders() {
+		for (Closeable c : openReaders) {
+			try {
+				c.close();
+			} catch (IOException ignore) {
+				// silent close
+			}
+		}
+		openReaders.clear();
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+			closeReaders();
+			for (List<File> levelRuns : levels) {
+				for (File f : levelRuns) {
+					f.delete();
+				}
+			}
+			levels.clear();
+			buffer = null;
+			if (topN != null) {
+				topN.clear();
+			}
+		}
+	}
+
+
+	private final class RunReader implements Iterator<E>, Closeable {
+		private final DataInputStream in;
+		private E next;
+		private boolean done;
+
+		RunReader(File f) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), BUFFER_SIZE));
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && !done) {
+				try {
+					if (in.readBoolean()) {
+						next = serializer.deserialize(in, -1);
+					} else {
+						done = true;
+						in.close();
+					}
+				} catch (EOFException ex) {
+					done = true;
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			E e = next;
+			next = null;
+			return e;
+		}
+
+		@Override
+		public void close() throws IOException {
+			done = true;
+			in.close();
+		}
+	}
+
+
+	private final class MergingIterator implements Iterator<E> {
+		private final PriorityQueue<Head> heads;
+
+		MergingIterator(List<Iterator<E>> sources) {
+			heads = new PriorityQueue<>(sources.size() + 1);
+			for (Iterator<E> source : sources) {
+				if (source.hasNext()) {
+					heads.add(new Head(source));
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !heads.isEmpty();
+		}
+
+		@Override
+		public E next() {
+			Head head = heads.poll();
+			if (head == null) {
+				throw new NoSuchElementException();
+			}
+			E e = head.current;
+			if (head.source.hasNext()) {
+				head.current = head.source.next();
+				heads.add(head);
+			}
+			return e;
+		}
+
+		final class Head implements Comparable<Head> {
+			final Iterator<E> source;
+			E current;
+
+			Head(Iterator<E> source) {
+				this.source = source;
+				this.current = source.next();
+			}
+
+			@Override
+			public int compareTo(Head o) {
+				return current.compareTo(o.current);
+			}
+		}
+	}
+
+
+	private final class LimitingIterator implements Iterator<E> {
+		private final Iterator<E> iter;
+		private long count;
+		private E prev;
+		private E next;
+
+		LimitingIterator(Iterator<E> iter) {
+			this.iter = iter;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && count < limit && iter.hasNext()) {
+				E e = iter.next();
+				if (!distinct || prev == null || !prev.equals(e)) {
+					next = e;
+				}
+				prev = e;
+			}
+			return next != null;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			E e = next;
+			next = null;
+			count++;
+			return e;
+		}
+	}
+}
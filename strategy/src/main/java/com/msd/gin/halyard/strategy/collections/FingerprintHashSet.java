@@ -0,0 +1,338 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.mapdb.Serializer;
+
+/**
+ * Off-heap hash set.
+ * The open-addressing table holds 64-bit fingerprints of the elements together with the addresses of their serialized forms,
+ * so probing never touches the Java heap.
+ * An element is only deserialized to check for exact equality when its fingerprint matches.
+ * Storage starts small on the heap and grows as needed, larger buffers are allocated directly until the memory threshold is reached,
+ * after that storage is memory-mapped from a temporary file.
+ * Thread-safe.
+ * @param <E> element type
+ */
+public final class FingerprintHashSet<E> implements Iterable<E>, Closeable {
+	private static final String FILE_PREFIX = "halyard-set";
+	private static final int SLOT_SIZE = 2*Long.BYTES;
+	private static final int SEGMENT_BITS = 22;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1L;
+	private static final int INITIAL_SLOTS = 16;
+	private static final int MIN_CHUNK_SIZE = 1 << 10;
+	private static final int CHUNK_SIZE = 1 << 20;
+	// direct memory is only freed by GC, so is only worth it for larger buffers
+	private static final int MIN_DIRECT_SIZE = 1 << 16;
+
+	private final int memoryThreshold;
+	private final Serializer<E> serializer;
+	private final ToLongFunction<? super E> fingerprinter;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final List<ByteBuffer> chunks = new ArrayList<>();
+	private final Output out = new Output();
+	private ByteBuffer[] table;
+	private long slotMask;
+	private volatile long size;
+	private File file;
+	private FileChannel channel;
+	private long fileSize;
+	private int nextChunkSize = MIN_CHUNK_SIZE;
+
+	public static <E> FingerprintHashSet<E> create(int memoryThreshold, Serializer<E> serializer, ToLongFunction<? super E> fingerprinter) {
+		return new FingerprintHashSet<>(memoryThreshold, serializer, fingerprinter);
+	}
+
+	public static FingerprintHashSet<Value> createValueSet(int memoryThreshold, ValueFactory vf) {
+		return create(memoryThreshold, new BigHashSet.ValueSerializer(vf), FingerprintHashSet::fingerprint);
+	}
+
+	public static FingerprintHashSet<BindingSet> createBindingSetSet(int memoryThreshold, ValueFactory vf) {
+		return create(memoryThreshold, new BigHashSet.BindingSetSerializer(vf), FingerprintHashSet::fingerprint);
+	}
+
+	/**
+	 * Value hash codes are derived from value IDs where available.
+	 */
+	public static long fingerprint(Value v) {
+		return mix(v.hashCode());
+	}
+
+	/**
+	 * Independent of binding order, consistent with {@link BindingSet#equals(Object)}.
+	 */
+	public static long fingerprint(BindingSet bs) {
+		long h = bs.size();
+		for (Binding b : bs) {
+			h += mix(((long) b.getName().hashCode() << 32) ^ (b.getValue().hashCode() & 0xFFFFFFFFL));
+		}
+		return h;
+	}
+
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private FingerprintHashSet(int memoryThreshold, Serializer<E> serializer, ToLongFunction<? super E> fingerprinter) {
+		this.memoryThreshold = memoryThreshold;
+		this.serializer = serializer;
+		this.fingerprinter = fingerprinter;
+		this.table = new ByteBuffer[] {ByteBuffer.allocate(INITIAL_SLOTS * SLOT_SIZE)};
+		this.slotMask = INITIAL_SLOTS - 1;
+	}
+
+	/**
+	 * Adds element to the set
+	 * @param e element
+	 * @return true if the element was not already present
+	 * @throws IOException throws IOException in case of problem with underlying storage
+	 */
+	public boolean add(E e) throws IOException {
+		long fp = fingerprinter.applyAsLong(e);
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			long slot = findSlot(fp, e);
+			if (slot < 0L) {
+				return false;
+			}
+			long address = append(e);
+			setSlot(slot, fp, address + 1L);
+			size++;
+			if (size > (slotMask + 1L) / 2L) {
+				resize();
+			}
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Checks for element presence in the set
+	 * @param e element
+	 * @return boolean if the element has been present
+	 * @throws IOException throws IOException in case of problem with underlying storage
+	 */
+	public boolean contains(E e) throws IOException {
+		long fp = fingerprinter.applyAsLong(e);
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			return findSlot(fp, e) < 0L;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long size() {
+		return size;
+	}
+
+	private void checkOpen() throws IOException {
+		if (table == null) {
+			throw new IOException("Already closed");
+		}
+	}
+
+	/**
+	 * @return index of the empty slot for the element, or -1 if the element is already present
+	 */
+	private long findSlot(long fp, E e) throws IOException {
+		long i = mix(fp) & slotMask;
+		while (true) {
+			ByteBuffer segment = table[(int) (i >>> SEGMENT_BITS)];
+			int offset = (int) (i & SEGMENT_MASK) * SLOT_SIZE;
+			long address = segment.getLong(offset + Long.BYTES);
+			if (address == 0L) {
+				return i;
+			}
+			// only fingerprint collisions need the stored element
+			if (segment.getLong(offset) == fp && e.equals(read(address - 1L))) {
+				return -1L;
+			}
+			i = (i + 1L) & slotMask;
+		}
+	}
+
+	private void setSlot(long i, long fp, long address) {
+		ByteBuffer segment = table[(int) (i >>> SEGMENT_BITS)];
+		int offset = (int) (i & SEGMENT_MASK) * SLOT_SIZE;
+		segment.putLong(offset, fp);
+		segment.putLong(offset + Long.BYTES, address);
+	}
+
+	private void resize() throws IOException {
+		ByteBuffer[] oldTable = table;
+		long oldSlotCount = slotMask + 1L;
+		long slotCount = 2L * oldSlotCount;
+		int segmentSlots = (int) Math.min(slotCount, 1L << SEGMENT_BITS);
+		ByteBuffer[] newTable = new ByteBuffer[(int) (slotCount / segmentSlots)];
+		for (int s=0; s<newTable.length; s++) {
+			newTable[s] = allocate(segmentSlots * SLOT_SIZE);
+		}
+		table = newTable;
+		slotMask = slotCount - 1L;
+		for (long j=0; j<oldSlotCount; j++) {
+			ByteBuffer segment = oldTable[(int) (j >>> SEGMENT_BITS)];
+			int offset = (int) (j & SEGMENT_MASK) * SLOT_SIZE;
+			long address = segment.getLong(offset + Long.BYTES);
+			if (address != 0L) {
+				long fp = segment.getLong(offset);
+				long i = mix(fp) & slotMask;
+				while (newTable[(int) (i >>> SEGMENT_BITS)].getLong((int) (i & SEGMENT_MASK) * SLOT_SIZE + Long.BYTES) != 0L) {
+					i = (i + 1L) & slotMask;
+				}
+				setSlot(i, fp, address);
+			}
+		}
+	}
+
+	private long append(E e) throws IOException {
+		out.reset();
+		serializer.serialize(new DataOutputStream(out), e);
+		int len = out.size();
+		int required = Integer.BYTES + len;
+		int chunkIndex = chunks.size() - 1;
+		ByteBuffer chunk = (chunkIndex >= 0) ? chunks.get(chunkIndex) : null;
+		if (chunk == null || chunk.remaining() < required) {
+			chunk = allocate(Math.max(nextChunkSize, required));
+			nextChunkSize = Math.min(2 * nextChunkSize, CHUNK_SIZE);
+			chunks.add(chunk);
+			chunkIndex++;
+		}
+		long address = ((long) chunkIndex << 32) | chunk.position();
+		chunk.putInt(len);
+		chunk.put(out.buffer(), 0, len);
+		return address;
+	}
+
+	private E read(long address) throws IOException {
+		ByteBuffer chunk = chunks.get((int) (address >>> 32)).duplicate();
+		return read(chunk, (int) address);
+	}
+
+	private E read(ByteBuffer chunk, int pos) throws IOException {
+		int len = chunk.getInt(pos);
+		byte[] b = new byte[len];
+		chunk.position(pos + Integer.BYTES);
+		chunk.get(b);
+		return serializer.deserialize(new DataInputStream(new ByteArrayInputStream(b)), len);
+	}
+
+	private ByteBuffer allocate(int capacity) throws IOException {
+		if (size < memoryThreshold) {
+			return (capacity < MIN_DIRECT_SIZE) ? ByteBuffer.allocate(capacity) : ByteBuffer.allocateDirect(capacity);
+		}
+		if (channel == null) {
+			file = File.createTempFile(FILE_PREFIX, null);
+			file.deleteOnExit();
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+		// newly mapped regions of the file are zero-filled
+		ByteBuffer bb = channel.map(FileChannel.MapMode.READ_WRITE, fileSize, capacity);
+		fileSize += capacity;
+		return bb;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		ByteBuffer[] snapshot;
+		int[] limits;
+		lock.readLock().lock();
+		try {
+			snapshot = new ByteBuffer[chunks.size()];
+			limits = new int[snapshot.length];
+			for (int i=0; i<snapshot.length; i++) {
+				ByteBuffer chunk = chunks.get(i);
+				snapshot[i] = chunk.duplicate();
+				limits[i] = chunk.position();
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return new Iterator<E>() {
+			int chunkIndex = 0;
+			int pos = 0;
+
+			@Override
+			public boolean hasNext() {
+				while (chunkIndex < snapshot.length && pos >= limits[chunkIndex]) {
+					chunkIndex++;
+					pos = 0;
+				}
+				return chunkIndex < snapshot.length;
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				ByteBuffer chunk = snapshot[chunkIndex];
+				int len = chunk.getInt(pos);
+				E e;
+				try {
+					e = read(chunk, pos);
+				} catch (IOException ioe) {
+					throw new IllegalStateException(ioe);
+				}
+				pos += Integer.BYTES + len;
+				return e;
+			}
+		};
+	}
+
+	@Override
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			// direct and mapped buffers are released once unreachable
+			table = null;
+			chunks.clear();
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException ignore) {
+					// silent close
+				} finally {
+					channel = null;
+					file.delete();
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static final class Output extends ByteArrayOutputStream {
+		byte[] buffer() {
+			return buf;
+		}
+	}
+}
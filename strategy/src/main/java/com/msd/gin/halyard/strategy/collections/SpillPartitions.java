@@ -0,0 +1,116 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.function.BiConsumer;
+
+import org.mapdb.Serializer;
+
+/**
+ * Temporary files of key-value pairs, partitioned by key hash so that each partition can be processed in memory on its own.
+ * A key may be written many times, all its values end up in the same partition.
+ * Thread-safe.
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class SpillPartitions<K, V> implements Closeable {
+	private static final String FILE_PREFIX = "halyard-spill";
+	private static final int BUFFER_SIZE = 64*1024;
+
+	private final File[] files;
+	private final DataOutputStream[] outs;
+	private final long[] counts;
+	private final Serializer<K> keySerializer;
+	private final Serializer<V> valueSerializer;
+	private boolean closed;
+
+	public static <K, V> SpillPartitions<K,V> create(int partitionCount, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+		return new SpillPartitions<>(partitionCount, keySerializer, valueSerializer);
+	}
+
+	private SpillPartitions(int partitionCount, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+		this.files = new File[partitionCount];
+		this.outs = new DataOutputStream[partitionCount];
+		this.counts = new long[partitionCount];
+		this.keySerializer = keySerializer;
+		this.valueSerializer = valueSerializer;
+	}
+
+	public int getPartitionCount() {
+		return files.length;
+	}
+
+	public synchronized void put(K k, V v) throws IOException {
+		if (closed) {
+			throw new IOException("Already closed");
+		}
+		int partition = Math.floorMod(k.hashCode(), files.length);
+		DataOutputStream out = outs[partition];
+		if (out == null) {
+			File f = File.createTempFile(FILE_PREFIX, null);
+			f.deleteOnExit();
+			files[partition] = f;
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), BUFFER_SIZE));
+			outs[partition] = out;
+		}
+		keySerializer.serialize(out, k);
+		valueSerializer.serialize(out, v);
+		counts[partition]++;
+	}
+
+	/**
+	 * Reads back all the key-value pairs of a partition.
+	 * No more pairs can be added to the partition afterwards.
+	 * @param partition partition number
+	 * @param consumer receives each key-value pair in the order they were written
+	 * @throws IOException if the partition could not be read
+	 */
+	public synchronized void forEach(int partition, BiConsumer<K,V> consumer) throws IOException {
+		if (closed) {
+			throw new IOException("Already closed");
+		}
+		DataOutputStream out = outs[partition];
+		if (out != null) {
+			out.close();
+			outs[partition] = null;
+		}
+		File f = files[partition];
+		if (f != null) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), BUFFER_SIZE))) {
+				for (long i=0; i<counts[partition]; i++) {
+					K k = keySerializer.deserialize(in, -1);
+					V v = valueSerializer.deserialize(in, -1);
+					consumer.accept(k, v);
+				}
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+			for (int i=0; i<files.length; i++) {
+				if (outs[i] != null) {
+					try {
+						outs[i].close();
+					} catch (IOException ignore) {
+						//silent close
+					}
+					outs[i] = null;
+				}
+				if (files[i] != null) {
+					files[i].delete();
+					files[i] = null;
+				}
+			}
+		}
+	}
+}
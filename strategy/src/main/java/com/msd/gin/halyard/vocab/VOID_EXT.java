@@ -64,6 +64,12 @@ public final class VOID_EXT implements Vocabulary {
 
     public static final IRI DISTINCT_TRIPLE_OBJECTS = SVF.createIRI(NAMESPACE, "distinctTripleObjects");
 
+    public static final IRI DISTINCT_SUBJECTS_SKETCH = SVF.createIRI(NAMESPACE, "distinctSubjectsSketch");
+
+    public static final IRI PROPERTIES_SKETCH = SVF.createIRI(NAMESPACE, "propertiesSketch");
+
+    public static final IRI DISTINCT_OBJECTS_SKETCH = SVF.createIRI(NAMESPACE, "distinctObjectsSketch");
+
     public static final IRI NAMED_GRAPH_THRESHOLD = SVF.createIRI(NAMESPACE, "namedGraphThreshold");
     public static final IRI SUBJECT_PARTITION_THRESHOLD = SVF.createIRI(NAMESPACE, "subjectPartitionThreshold");
     public static final IRI PROPERTY_PARTITION_THRESHOLD = SVF.createIRI(NAMESPACE, "propertyPartitionThreshold");
@@ -0,0 +1,82 @@
+package com.msd.gin.halyard.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BindingSetPipeTest {
+
+	private static BindingSet[] createBindingSets(int n) {
+		BindingSet[] bss = new BindingSet[n];
+		for (int i=0; i<n; i++) {
+			QueryBindingSet bs = new QueryBindingSet();
+			bs.addBinding("x", SimpleValueFactory.getInstance().createLiteral(i));
+			bss[i] = bs;
+		}
+		return bss;
+	}
+
+	@Test
+	public void testBatchDefaultsToNext() {
+		List<BindingSet> results = new ArrayList<>();
+		BindingSetPipe pipe = new BindingSetPipe(null) {
+			@Override
+			protected boolean next(BindingSet bs) {
+				results.add(bs);
+				return true;
+			}
+		};
+		BindingSet[] bss = createBindingSets(5);
+		assertTrue(pipe.pushBatch(bss, 3));
+		assertEquals(3, results.size());
+		assertSame(bss[2], results.get(2));
+	}
+
+	@Test
+	public void testBatchStopsWhenRejected() {
+		List<BindingSet> results = new ArrayList<>();
+		BindingSetPipe pipe = new BindingSetPipe(null) {
+			@Override
+			protected boolean next(BindingSet bs) {
+				results.add(bs);
+				return results.size() < 2;
+			}
+		};
+		assertFalse(pipe.pushBatch(createBindingSets(5), 5));
+		assertEquals(2, results.size());
+		// no more accepted once rejected
+		assertFalse(pipe.pushBatch(createBindingSets(5), 5));
+		assertFalse(pipe.push(createBindingSets(1)[0]));
+		assertEquals(2, results.size());
+	}
+
+	@Test
+	public void testBatchPassedToParent() {
+		List<BindingSet> results = new ArrayList<>();
+		BindingSetPipe parent = new BindingSetPipe(null) {
+			@Override
+			protected boolean nextBatch(BindingSet[] bss, int n) {
+				for (int i=0; i<n; i++) {
+					results.add(bss[i]);
+				}
+				return true;
+			}
+		};
+		BindingSetPipe child = new BindingSetPipe(parent) {
+			@Override
+			protected boolean nextBatch(BindingSet[] bss, int n) {
+				return parent.pushBatch(bss, n);
+			}
+		};
+		assertTrue(child.pushBatch(createBindingSets(4), 4));
+		assertEquals(4, results.size());
+		child.close();
+		assertTrue(parent.isClosed());
+	}
+}
@@ -0,0 +1,74 @@
+package com.msd.gin.halyard.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueueingBindingSetPipeTest {
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+	private static BindingSet[] createBindingSets(int start, int n) {
+		BindingSet[] bss = new BindingSet[n];
+		for (int i=0; i<n; i++) {
+			QueryBindingSet bs = new QueryBindingSet();
+			bs.addBinding("x", VF.createLiteral(start + i));
+			bss[i] = bs;
+		}
+		return bss;
+	}
+
+	@Test
+	public void testBatchesCountTowardsCapacity() {
+		QueueingBindingSetPipe pipe = new QueueingBindingSetPipe(10, 50, TimeUnit.MILLISECONDS);
+		assertTrue(pipe.pushBatch(createBindingSets(0, 8), 8));
+		// only room for another 2 binding sets
+		assertFalse(pipe.pushBatch(createBindingSets(8, 5), 5));
+		assertThrows(QueryEvaluationException.class, () -> pipe.collect(bs -> {}, 1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testOversizedBatch() {
+		QueueingBindingSetPipe pipe = new QueueingBindingSetPipe(10, 50, TimeUnit.MILLISECONDS);
+		assertTrue(pipe.pushBatch(createBindingSets(0, 25), 25));
+		pipe.close();
+		List<BindingSet> results = new ArrayList<>();
+		pipe.collect(results::add, 1, TimeUnit.SECONDS);
+		assertEquals(25, results.size());
+	}
+
+	@Test
+	public void testBatchedRoundTrip() throws InterruptedException {
+		QueueingBindingSetPipe pipe = new QueueingBindingSetPipe(100, 10, TimeUnit.SECONDS);
+		int batchSize = 64;
+		int batches = 50;
+		Thread producer = new Thread(() -> {
+			int count = 0;
+			for (int i=0; i<batches; i++) {
+				BindingSet[] bss = createBindingSets(count, batchSize);
+				// the array is only borrowed, so must be safe to reuse afterwards
+				pipe.pushBatch(bss, batchSize);
+				bss[0] = null;
+				count += batchSize;
+				pipe.push(createBindingSets(count++, 1)[0]);
+			}
+			pipe.close();
+		});
+		producer.start();
+		List<BindingSet> results = new ArrayList<>();
+		pipe.collect(results::add, 10, TimeUnit.SECONDS);
+		producer.join();
+		assertEquals(batches*(batchSize+1), results.size());
+		for (int i=0; i<results.size(); i++) {
+			assertEquals(VF.createLiteral(i), results.get(i).getValue("x"));
+		}
+	}
+}
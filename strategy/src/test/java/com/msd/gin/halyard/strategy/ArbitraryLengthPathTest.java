@@ -16,12 +16,15 @@
  */
 package com.msd.gin.halyard.strategy;
 
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
 
 import java.util.Arrays;
 import java.util.Collection;
 
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.QueryLanguage;
 import org.eclipse.rdf4j.repository.Repository;
@@ -64,8 +67,7 @@ public class ArbitraryLengthPathTest {
         repo.shutDown();
     }
 
-    @Test
-    public void testN() throws Exception {
+    private void addChain() {
         ValueFactory vf = con.getValueFactory();
         IRI node = vf.createIRI("urn:test:root");
         for (int i = 0; i < n; i++) {
@@ -74,7 +76,50 @@ public class ArbitraryLengthPathTest {
 			node = nextNode;
         }
 		con.add(node, vf.createIRI("urn:test:hasChild"), vf.createIRI("urn:test:node-end"));
+    }
+
+    private int count(String sparql) {
+        return ((Literal) con.prepareTupleQuery(QueryLanguage.SPARQL, sparql).evaluate().next().getValue("c")).intValue();
+    }
+
+    @Test
+    public void testN() throws Exception {
+        addChain();
         String sparql = "ASK { <urn:test:root> <urn:test:hasChild>* <urn:test:node-end> }";
         assertTrue(con.prepareBooleanQuery(QueryLanguage.SPARQL, sparql).evaluate());
+        assertTrue(con.prepareBooleanQuery(QueryLanguage.SPARQL, "ASK { <urn:test:root> <urn:test:hasChild>+ <urn:test:node-end> }").evaluate());
+        assertFalse(con.prepareBooleanQuery(QueryLanguage.SPARQL, "ASK { <urn:test:node-end> <urn:test:hasChild>+ <urn:test:root> }").evaluate());
+    }
+
+    @Test
+    public void testSubjectBound() throws Exception {
+        addChain();
+        assertEquals(n + 2, count("SELECT (COUNT(*) AS ?c) { <urn:test:root> <urn:test:hasChild>* ?x }"));
+        assertEquals(n + 1, count("SELECT (COUNT(*) AS ?c) { <urn:test:root> <urn:test:hasChild>+ ?x }"));
+    }
+
+    @Test
+    public void testObjectBound() throws Exception {
+        addChain();
+        assertEquals(n + 2, count("SELECT (COUNT(*) AS ?c) { ?x <urn:test:hasChild>* <urn:test:node-end> }"));
+        assertEquals(n + 1, count("SELECT (COUNT(*) AS ?c) { ?x <urn:test:hasChild>+ <urn:test:node-end> }"));
+    }
+
+    @Test
+    public void testUnbound() throws Exception {
+        if (n <= 100) {
+            addChain();
+            int m = n + 2;
+            assertEquals(m * (m - 1) / 2, count("SELECT (COUNT(*) AS ?c) { ?x <urn:test:hasChild>+ ?y }"));
+        }
+    }
+
+    @Test
+    public void testCycle() throws Exception {
+        addChain();
+        ValueFactory vf = con.getValueFactory();
+        con.add(vf.createIRI("urn:test:node-end"), vf.createIRI("urn:test:hasChild"), vf.createIRI("urn:test:root"));
+        assertEquals(n + 2, count("SELECT (COUNT(*) AS ?c) { <urn:test:root> <urn:test:hasChild>+ ?x }"));
+        assertTrue(con.prepareBooleanQuery(QueryLanguage.SPARQL, "ASK { <urn:test:root> <urn:test:hasChild>+ <urn:test:root> }").evaluate());
     }
 }
@@ -1,5 +1,12 @@
 package com.msd.gin.halyard.strategy;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import javax.management.JMException;
 import javax.management.MBeanServer;
 import javax.management.MBeanServerFactory;
@@ -11,6 +18,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AsyncPullPusherTest {
 	private AsyncPullPusher pullPusher;
@@ -38,4 +46,81 @@ public class AsyncPullPusherTest {
 		MBeanServer mbs = MBeanServerFactory.newMBeanServer();
 		mbs.registerMBean(pullPusher.getThreadPoolExecutor(), ObjectName.getInstance("foo:type=test"));
 	}
+
+	@Test
+	public void testForkJoin() throws JMException {
+		Configuration conf = new Configuration();
+		conf.set(StrategyConfig.HALYARD_EVALUATION_EXECUTOR, StrategyConfig.FORK_JOIN_EXECUTOR);
+		try (AsyncPullPusher forkJoinPullPusher = new AsyncPullPusher("test", conf)) {
+			assertEquals(0, forkJoinPullPusher.getThreadPoolExecutor().getActiveCount());
+			assertEquals(0, forkJoinPullPusher.getThreadPoolExecutor().getThreadDump().length);
+			assertEquals(0, forkJoinPullPusher.getThreadPoolExecutor().getQueueDump().length);
+			MBeanServer mbs = MBeanServerFactory.newMBeanServer();
+			mbs.registerMBean(forkJoinPullPusher.getThreadPoolExecutor(), ObjectName.getInstance("foo:type=test"));
+		}
+	}
+
+	@Test
+	public void testForkJoinPriority() throws InterruptedException {
+		TrackingForkJoinExecutor executor = new TrackingForkJoinExecutor("test ", 1, 1, 60L, TimeUnit.SECONDS, null);
+		try {
+			// fixed sizes are left unchanged
+			executor.setCorePoolSize(4);
+			executor.setMaximumPoolSize(4);
+			assertEquals(1, executor.getCorePoolSize());
+			assertEquals(1, executor.getMaximumPoolSize());
+
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			executor.execute(new TestTask(Integer.MAX_VALUE, () -> {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+
+			// queued behind the blocked worker so must run highest priority first
+			List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+			int[] priorities = {3, 1, 5, 2, 4};
+			CountDownLatch done = new CountDownLatch(priorities.length);
+			for (int priority : priorities) {
+				executor.execute(new TestTask(priority, () -> {
+					order.add(priority);
+					done.countDown();
+				}));
+			}
+			assertEquals(priorities.length, executor.getQueueSize());
+			release.countDown();
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			assertEquals(Arrays.asList(5, 4, 3, 2, 1), order);
+			assertEquals(0, executor.getQueueSize());
+			assertEquals(priorities.length + 1, executor.getTaskCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static final class TestTask implements Comparable<TestTask>, Runnable {
+		final int priority;
+		final Runnable action;
+
+		TestTask(int priority, Runnable action) {
+			this.priority = priority;
+			this.action = action;
+		}
+
+		@Override
+		public void run() {
+			action.run();
+		}
+
+		@Override
+		public int compareTo(TestTask o) {
+			// descending order
+			return Integer.compare(o.priority, priority);
+		}
+	}
 }
@@ -103,6 +103,20 @@ public class HalyardStrategyExtendedTest {
         }
     }
 
+    @Test
+    public void testServiceBatchJoin() {
+        String sparql = "SELECT * WHERE {VALUES ?s {1 2 3} SERVICE <repository:memory> { VALUES (?s ?t) {(1 'a') (2 'b') (2 'c') (4 'd')} }} ORDER BY ?s ?t";
+        try (TupleQueryResult res = con.prepareTupleQuery(sparql).evaluate()) {
+            BindingSet bs = res.next();
+            assertEquals(1, ((Literal) bs.getValue("s")).intValue());
+            assertEquals("a", bs.getValue("t").stringValue());
+            assertFalse(bs.hasBinding("__service_row"));
+            assertEquals("b", res.next().getValue("t").stringValue());
+            assertEquals("c", res.next().getValue("t").stringValue());
+            assertFalse(res.hasNext());
+        }
+    }
+
     @Test
     public void testAskSailFederatedService() {
     	// SERVICE query with all bound variables should be evaluated as an ASK query
@@ -159,6 +173,54 @@ public class HalyardStrategyExtendedTest {
         }
     }
 
+    @Test
+    public void testCountStatements() throws Exception {
+        SimpleValueFactory vf = SimpleValueFactory.getInstance();
+        IRI p = vf.createIRI("http://p");
+        con.add(vf.createIRI("http://a"), p, vf.createIRI("http://a"));
+        con.add(vf.createIRI("http://a"), p, vf.createIRI("http://b"));
+        con.add(vf.createIRI("http://b"), p, vf.createIRI("http://c"));
+        try (TupleQueryResult res = con.prepareTupleQuery("SELECT (COUNT(?o) AS ?count) WHERE {?s <http://p> ?o}").evaluate()) {
+        	assertEquals(3, ((Literal) res.next().getBinding("count").getValue()).intValue());
+        }
+        try (TupleQueryResult res = con.prepareTupleQuery("SELECT (COUNT(*) AS ?count) WHERE {<http://a> <http://p> ?o}").evaluate()) {
+        	assertEquals(2, ((Literal) res.next().getBinding("count").getValue()).intValue());
+        }
+        try (TupleQueryResult res = con.prepareTupleQuery("SELECT (COUNT(*) AS ?count) WHERE {?s <http://p> ?s}").evaluate()) {
+        	assertEquals(1, ((Literal) res.next().getBinding("count").getValue()).intValue());
+        }
+    }
+
+    @Test
+    public void testGroupBySpill() throws Exception {
+        MockSailWithHalyardStrategy sail = new MockSailWithHalyardStrategy();
+        // force the groups to be spilled to disk
+        sail.setMemoryThreshold(2);
+        Repository spillRepo = new SailRepository(sail);
+        spillRepo.init();
+        String sparql = "SELECT ?g (COUNT(*) AS ?c) (SUM(?v) AS ?sum) (AVG(?v) AS ?avg) (MIN(?v) AS ?min) (MAX(?v) AS ?max) (SAMPLE(?v) AS ?sample) (GROUP_CONCAT(?v) AS ?concat)"
+        	+ " WHERE {VALUES ?g {1 2 3 4 5} VALUES ?v {1 2 3 4}} GROUP BY ?g";
+        try (RepositoryConnection spillCon = spillRepo.getConnection()) {
+            Set<Integer> groups = new HashSet<>();
+            try (TupleQueryResult res = spillCon.prepareTupleQuery(sparql).evaluate()) {
+                while (res.hasNext()) {
+                    BindingSet bs = res.next();
+                    assertTrue(groups.add(((Literal) bs.getValue("g")).intValue()));
+                    assertEquals(4, ((Literal) bs.getValue("c")).intValue());
+                    assertEquals(10, ((Literal) bs.getValue("sum")).intValue());
+                    assertEquals(2.5, ((Literal) bs.getValue("avg")).doubleValue(), 0.0);
+                    assertEquals(1, ((Literal) bs.getValue("min")).intValue());
+                    assertEquals(4, ((Literal) bs.getValue("max")).intValue());
+                    assertNotNull(bs.getValue("sample"));
+                    assertEquals(4, bs.getValue("concat").stringValue().split(" ").length);
+                }
+            }
+            assertEquals(5, groups.size());
+        } finally {
+            spillRepo.shutDown();
+        }
+    }
+
     @Test
     public void testRdf4jNil() throws Exception {
         SimpleValueFactory vf = SimpleValueFactory.getInstance();
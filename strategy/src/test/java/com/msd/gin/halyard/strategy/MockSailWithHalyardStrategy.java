@@ -21,6 +21,7 @@ import com.msd.gin.halyard.optimizers.JoinAlgorithmOptimizer;
 import com.msd.gin.halyard.optimizers.SimpleStatementPatternCardinalityCalculator;
 import com.msd.gin.halyard.query.BindingSetPipe;
 import com.msd.gin.halyard.query.BindingSetPipeQueryEvaluationStep;
+import com.msd.gin.halyard.query.algebra.evaluation.BatchTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.ExtendedTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.QueryPreparer;
 import com.msd.gin.halyard.query.algebra.evaluation.federation.SailFederatedService;
@@ -66,6 +67,8 @@ public class MockSailWithHalyardStrategy extends MemoryStore {
 	private final int minJoins;
 	private final int minUnions;
 	private final int pullAllLimit;
+	private final int batchJoinSize;
+	private int memoryThreshold = StrategyConfig.DEFAULT_MEMORY_THRESHOLD;
 
 	MockSailWithHalyardStrategy() {
 		this(0, 0, Float.MAX_VALUE, 1, 1, 0);
@@ -97,18 +100,27 @@ public class MockSailWithHalyardStrategy extends MemoryStore {
 	}
 
 	MockSailWithHalyardStrategy(int optHashJoinLimit, int evalHashJoinLimit, float cardinalityRatio, int starJoinMin, int naryUnionMin, int pullAllLimit) {
+		this(optHashJoinLimit, evalHashJoinLimit, cardinalityRatio, starJoinMin, naryUnionMin, pullAllLimit, 0);
+	}
+
+	MockSailWithHalyardStrategy(int optHashJoinLimit, int evalHashJoinLimit, float cardinalityRatio, int starJoinMin, int naryUnionMin, int pullAllLimit, int batchJoinSize) {
 		this.optHashJoinLimit = optHashJoinLimit;
 		this.evalHashJoinLimit = evalHashJoinLimit;
 		this.cardinalityRatio = cardinalityRatio;
 		this.minJoins = starJoinMin;
 		this.minUnions = naryUnionMin;
 		this.pullAllLimit = pullAllLimit;
+		this.batchJoinSize = batchJoinSize;
 	}
 
 	LinkedList<TupleExpr> getQueryHistory() {
 		return queryHistory;
 	}
 
+	void setMemoryThreshold(int memoryThreshold) {
+		this.memoryThreshold = memoryThreshold;
+	}
+
 	@Override
     protected NotifyingSailConnection getConnectionInternal() throws SailException {
         return new MemoryStoreConnectionWithHalyardStrategy(this);
@@ -128,6 +140,8 @@ public class MockSailWithHalyardStrategy extends MemoryStore {
         	conf.setInt(StrategyConfig.HALYARD_EVALUATION_STAR_JOIN_MIN_JOINS, minJoins);
         	conf.setInt(StrategyConfig.HALYARD_EVALUATION_NARY_UNION_MIN_UNIONS, minUnions);
         	conf.setInt(StrategyConfig.HALYARD_EVALUATION_PULL_PUSH_ASYNC_ALL_LIMIT, pullAllLimit);
+        	conf.setInt(StrategyConfig.HALYARD_EVALUATION_BATCH_JOIN_SIZE, batchJoinSize);
+        	conf.setInt(StrategyConfig.HALYARD_EVALUATION_MEMORY_THRESHOLD, memoryThreshold);
         	HalyardEvaluationStrategy evalStrat = new HalyardEvaluationStrategy(conf, new MockTripleSource(tripleSource), dataset, getFederatedServiceResolver(), stats) {
         		@Override
         		public BindingSetPipeQueryEvaluationStep precompile(TupleExpr expr, QueryEvaluationContext evalContext) {
@@ -136,7 +150,7 @@ public class MockSailWithHalyardStrategy extends MemoryStore {
         		}
         		@Override
         		protected JoinAlgorithmOptimizer getJoinAlgorithmOptimizer() {
-        			return new JoinAlgorithmOptimizer(stats, evalHashJoinLimit, cardinalityRatio);
+        			return new JoinAlgorithmOptimizer(stats, evalHashJoinLimit, cardinalityRatio, batchJoinSize);
         		}
         	};
             evalStrat.setOptimizerPipeline(new HalyardQueryOptimizerPipeline(evalStrat, tripleSource.getValueFactory(), stats));
@@ -146,7 +160,7 @@ public class MockSailWithHalyardStrategy extends MemoryStore {
         }
 	}
 
-    static class MockTripleSource implements RDFStarTripleSource, ExtendedTripleSource {
+    static class MockTripleSource implements RDFStarTripleSource, ExtendedTripleSource, BatchTripleSource {
         private final TripleSource tripleSource;
 
         MockTripleSource(TripleSource tripleSource) {
@@ -0,0 +1,40 @@
+package com.msd.gin.halyard.strategy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ServiceBlockSizerTest {
+
+	@Test
+	public void testGrowAndShrink() {
+		ServiceBlockSizer sizer = new ServiceBlockSizer(100, 1000L);
+		assertEquals(ServiceBlockSizer.INITIAL_BLOCK_SIZE, sizer.getBlockSize());
+		long fast = TimeUnit.MILLISECONDS.toNanos(10L);
+		sizer.update(16, fast);
+		assertEquals(32, sizer.getBlockSize());
+		// partial blocks say nothing about larger ones
+		sizer.update(5, fast);
+		assertEquals(32, sizer.getBlockSize());
+		sizer.update(32, fast);
+		sizer.update(64, fast);
+		assertEquals(100, sizer.getBlockSize());
+		sizer.update(100, TimeUnit.MILLISECONDS.toNanos(2000L));
+		assertEquals(50, sizer.getBlockSize());
+		// within target
+		sizer.update(50, TimeUnit.MILLISECONDS.toNanos(800L));
+		assertEquals(50, sizer.getBlockSize());
+	}
+
+	@Test
+	public void testMinimumBlockSize() {
+		ServiceBlockSizer sizer = new ServiceBlockSizer(4, 1L);
+		assertEquals(4, sizer.getBlockSize());
+		for (int i=0; i<5; i++) {
+			sizer.update(sizer.getBlockSize(), TimeUnit.SECONDS.toNanos(1L));
+		}
+		assertEquals(1, sizer.getBlockSize());
+	}
+}
@@ -0,0 +1,136 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mapdb.Serializer;
+
+public class ExternalSorterTest {
+
+    private static List<String> sort(long limit, boolean distinct, int memoryThreshold, String... values) throws IOException {
+        try (ExternalSorter<String> s = new ExternalSorter<>(limit, distinct, memoryThreshold, Serializer.STRING)) {
+            for (String v : values) {
+                s.add(v);
+            }
+            List<String> sorted = new ArrayList<>();
+            s.forEach(sorted::add);
+            return sorted;
+        }
+    }
+
+    @Test
+    public void testNoLimitNoDistinct() throws Exception {
+        List<String> expected = Arrays.asList("A", "B", "B", "C", "C");
+        Assert.assertEquals(expected, sort(Long.MAX_VALUE, false, 10, "C", "C", "A", "B", "B"));
+        Assert.assertEquals(expected, sort(Long.MAX_VALUE, false, 2, "C", "C", "A", "B", "B"));
+    }
+
+    @Test
+    public void testNoLimitDistinct() throws Exception {
+        List<String> expected = Arrays.asList("A", "B", "C");
+        Assert.assertEquals(expected, sort(Long.MAX_VALUE, true, 10, "C", "C", "A", "B", "B"));
+        Assert.assertEquals(expected, sort(Long.MAX_VALUE, true, 2, "C", "C", "A", "B", "B"));
+    }
+
+    @Test
+    public void testLimitNoDistinct() throws Exception {
+        List<String> expected = Arrays.asList("A", "A", "B");
+        Assert.assertEquals(expected, sort(3, false, 10, "C", "C", "A", "A", "B", "B", "B"));
+        Assert.assertEquals(expected, sort(3, false, 2, "C", "C", "A", "A", "B", "B", "B"));
+    }
+
+    @Test
+    public void testLimitDistinct() throws Exception {
+        List<String> expected = Arrays.asList("A", "B");
+        Assert.assertEquals(expected, sort(2, true, 10, "C", "C", "A", "B", "A", "B", "B"));
+        Assert.assertEquals(expected, sort(2, true, 1, "C", "C", "A", "B", "A", "B", "B"));
+    }
+
+    @Test
+    public void testManyRuns() throws Exception {
+        Random rnd = new Random(42);
+        String[] values = new String[10000];
+        for (int i=0; i<values.length; i++) {
+            values[i] = Integer.toString(rnd.nextInt(5000));
+        }
+        List<String> expected = new ArrayList<>(Arrays.asList(values));
+        Collections.sort(expected);
+        Assert.assertEquals(expected, sort(Long.MAX_VALUE, false, 100, values));
+    }
+
+    @Test
+    public void testMultiLevelMerge() throws Exception {
+        // a memory threshold of 1 spills a run per element, enough to fill more than two levels of merges
+        Random rnd = new Random(42);
+        String[] values = new String[64*64 + 200];
+        for (int i=0; i<values.length; i++) {
+            values[i] = Integer.toString(rnd.nextInt(1000));
+        }
+        List<String> expected = new ArrayList<>(Arrays.asList(values));
+        Collections.sort(expected);
+        try (ExternalSorter<String> s = new ExternalSorter<>(Long.MAX_VALUE, false, 1, Serializer.STRING)) {
+            for (String v : values) {
+                s.add(v);
+            }
+            List<String> sorted = new ArrayList<>();
+            s.forEach(sorted::add);
+            Assert.assertEquals(expected, sorted);
+            // iterating again gives the same result
+            sorted.clear();
+            s.forEach(sorted::add);
+            Assert.assertEquals(expected, sorted);
+        }
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        int threads = 4;
+        int perThread = 2000;
+        List<String> expected = new ArrayList<>();
+        for (int t=0; t<threads; t++) {
+            for (int i=0; i<perThread; i++) {
+                expected.add(t + ":" + i);
+            }
+        }
+        Collections.sort(expected);
+        try (ExternalSorter<String> s = new ExternalSorter<>(Long.MAX_VALUE, false, 10, Serializer.STRING)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t=0; t<threads; t++) {
+                    final int thread = t;
+                    futures.add(executor.submit(() -> {
+                        for (int i=0; i<perThread; i++) {
+                            s.add(thread + ":" + i);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            List<String> sorted = new ArrayList<>();
+            s.forEach(sorted::add);
+            Assert.assertEquals(expected, sorted);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailAdd() throws Exception {
+        ExternalSorter<String> s = new ExternalSorter<>(Long.MAX_VALUE, false, 10, Serializer.STRING);
+        s.close();
+        s.add("hi");
+    }
+}
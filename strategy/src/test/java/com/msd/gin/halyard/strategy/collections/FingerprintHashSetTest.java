@@ -0,0 +1,134 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.junit.Test;
+import org.mapdb.Serializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FingerprintHashSetTest {
+
+    @Test
+    public void testFingerprintHashSet() throws Exception {
+        FingerprintHashSet<String> set = FingerprintHashSet.create(10, Serializer.STRING, String::hashCode);
+        assertTrue(set.add("hi"));
+        assertEquals("hi", set.iterator().next());
+        assertTrue(set.contains("hi"));
+        assertFalse(set.contains("bye"));
+        assertEquals(1, set.size());
+        assertFalse(set.add("hi"));
+        assertEquals(1, set.size());
+        set.close();
+        set.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailAdd() throws Exception {
+        FingerprintHashSet<String> set = FingerprintHashSet.create(10, Serializer.STRING, String::hashCode);
+        set.close();
+        set.add("hi");
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailContains() throws Exception {
+        FingerprintHashSet<String> set = FingerprintHashSet.create(10, Serializer.STRING, String::hashCode);
+        set.close();
+        set.contains("hi");
+    }
+
+    @Test
+    public void testGrowInMemory() throws Exception {
+        int n = 100000;
+        try (FingerprintHashSet<String> set = FingerprintHashSet.create(Integer.MAX_VALUE, Serializer.STRING, String::hashCode)) {
+            for (int i=0; i<n; i++) {
+                assertTrue(set.add("v" + i));
+            }
+            for (int i=0; i<n; i++) {
+                assertTrue(set.contains("v" + i));
+            }
+            assertEquals(n, set.size());
+            int count = 0;
+            for (String s : set) {
+                assertEquals("v" + count, s);
+                count++;
+            }
+            assertEquals(n, count);
+        }
+    }
+
+    @Test
+    public void testCollidingFingerprints() throws Exception {
+        try (FingerprintHashSet<String> set = FingerprintHashSet.create(10, Serializer.STRING, s -> 0L)) {
+            for (int i=0; i<100; i++) {
+                assertTrue(set.add("v" + i));
+            }
+            for (int i=0; i<100; i++) {
+                assertFalse(set.add("v" + i));
+                assertTrue(set.contains("v" + i));
+            }
+            assertFalse(set.contains("v100"));
+            assertEquals(100, set.size());
+        }
+    }
+
+    @Test
+    public void testBindingSetOrder() throws Exception {
+        ValueFactory vf = SimpleValueFactory.getInstance();
+        QueryBindingSet bs1 = new QueryBindingSet();
+        bs1.addBinding("a", vf.createIRI("http://whatever/a"));
+        bs1.addBinding("b", vf.createLiteral(1));
+        QueryBindingSet bs2 = new QueryBindingSet();
+        bs2.addBinding("b", vf.createLiteral(1));
+        bs2.addBinding("a", vf.createIRI("http://whatever/a"));
+        try (FingerprintHashSet<BindingSet> set = FingerprintHashSet.createBindingSetSet(10, vf)) {
+            assertTrue(set.add(bs1));
+            assertFalse(set.add(bs2));
+            assertEquals(bs1, set.iterator().next());
+        }
+    }
+
+    @Test
+    public void testDiskUnderLoad() throws Exception {
+        int n = 5000;
+        FingerprintHashSet<Integer> set = FingerprintHashSet.create(3, Serializer.INTEGER, Integer::longValue);
+        CountDownLatch startLock = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i=0; i<n; i++) {
+            final int k = i;
+            executor.execute(() -> {
+                try {
+                    startLock.await();
+                    set.add(k);
+                    set.add(k);
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+        }
+        startLock.countDown();
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            throw new AssertionError();
+        }
+        assertEquals(n, set.size());
+        Set<Integer> actual = new HashSet<>();
+        for (Integer i : set) {
+            actual.add(i);
+        }
+        assertEquals(n, actual.size());
+        set.close();
+    }
+}
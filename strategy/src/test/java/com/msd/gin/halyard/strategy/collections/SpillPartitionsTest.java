@@ -0,0 +1,46 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mapdb.Serializer;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpillPartitionsTest {
+
+    @Test
+    public void testSpillPartitions() throws Exception {
+    	int n = 1000;
+        try (SpillPartitions<Integer,String> partitions = SpillPartitions.create(7, Serializer.INTEGER, Serializer.STRING)) {
+        	for (int i=0; i<n; i++) {
+        		partitions.put(i % 100, "v"+i);
+        	}
+        	Map<Integer,Integer> counts = new HashMap<>();
+        	int total = 0;
+        	for (int p=0; p<partitions.getPartitionCount(); p++) {
+        		Map<Integer,Integer> partitionCounts = new HashMap<>();
+        		partitions.forEach(p, (k, v) -> partitionCounts.merge(k, 1, Integer::sum));
+        		for (Map.Entry<Integer,Integer> e : partitionCounts.entrySet()) {
+        			// a key must only ever appear in one partition
+        			assertEquals(null, counts.put(e.getKey(), e.getValue()));
+        			total += e.getValue();
+        		}
+        	}
+        	assertEquals(100, counts.size());
+        	assertEquals(n, total);
+        	for (int c : counts.values()) {
+        		assertEquals(10, c);
+        	}
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailAdd() throws Exception {
+        SpillPartitions<String,String> partitions = SpillPartitions.create(3, Serializer.STRING, Serializer.STRING);
+        partitions.close();
+        partitions.put("hi", "there");
+    }
+}
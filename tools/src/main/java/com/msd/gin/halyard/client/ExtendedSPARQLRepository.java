@@ -1,5 +1,7 @@
 package com.msd.gin.halyard.client;
 
+import com.msd.gin.halyard.rio.HRES;
+
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -49,6 +51,8 @@ public class ExtendedSPARQLRepository extends SPARQLRepository {
 	@Override
 	protected SPARQLProtocolSession createSPARQLProtocolSession() {
 		SPARQLProtocolSession session = super.createSPARQLProtocolSession();
+		// other endpoints don't support it and will fall back to one of the other accepted formats
+		session.setPreferredTupleQueryResultFormat(HRES.FORMAT);
 		if (session instanceof ExtendedSPARQLProtocolSession) {
 			ExtendedSPARQLProtocolSession extSession = (ExtendedSPARQLProtocolSession) session;
 			extSession.setGraphStoreURL(graphStoreEndpointUrl);
@@ -18,6 +18,7 @@ package com.msd.gin.halyard.tools;
 
 import static com.msd.gin.halyard.tools.HalyardBulkLoad.*;
 
+import com.msd.gin.halyard.common.ByteArray;
 import com.msd.gin.halyard.common.HalyardTableUtils;
 import com.msd.gin.halyard.common.IdValueFactory;
 import com.msd.gin.halyard.common.Keyspace;
@@ -25,6 +26,7 @@ import com.msd.gin.halyard.common.RDFContext;
 import com.msd.gin.halyard.common.RDFFactory;
 import com.msd.gin.halyard.common.StatementIndex;
 import com.msd.gin.halyard.common.StatementIndices;
+import com.msd.gin.halyard.common.ValueIdentifier;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 
 import java.io.IOException;
@@ -34,6 +36,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.cli.CommandLine;
@@ -140,8 +143,9 @@ public final class HalyardBulkDelete extends AbstractHalyardTool {
         @Override
         protected void map(ImmutableBytesWritable rowKey, Result value, Context output) throws IOException, InterruptedException {
             StatementIndex<?,?,?,?> index = stmtIndices.toIndex(rowKey.get()[rowKey.getOffset()]);
+            Map<ValueIdentifier, ByteArray> dictionaryValues = stmtIndices.loadDictionaryValues(value, keyspaceConn);
             for (Cell c : value.rawCells()) {
-                Statement st = stmtIndices.parseStatement(null, null, null, null, c, vf);
+                Statement st = stmtIndices.parseStatement(null, null, null, null, c, dictionaryValues, keyspaceConn, vf);
                 if (HALYARD.TRIPLE_GRAPH_CONTEXT.equals(st.getContext())) {
                     cleanupTriple(c, st, output);
                 } else if ((ctxs == null || ctxs.contains(st.getContext())) && (subj == null || subj.equals(st.getSubject())) && (pred == null || pred.equals(st.getPredicate())) && (obj == null || obj.equals(st.getObject()))) {
@@ -25,6 +25,7 @@ import com.msd.gin.halyard.common.RDFFactory;
 import com.msd.gin.halyard.common.StatementIndices;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.rio.TriGStarParser;
+import com.msd.gin.halyard.sail.StatisticsDeltas;
 import com.msd.gin.halyard.util.LRUCache;
 
 import java.io.Closeable;
@@ -37,6 +38,12 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -46,6 +53,7 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.MissingOptionException;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -106,6 +114,8 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
     private static final Logger LOG = LoggerFactory.getLogger(HalyardBulkLoad.class);
 
     private static final String TOOL_NAME = "bulkload";
+    // side files next to the column family directories, which are skipped by the HFile bulk load
+    static final String STATISTICS_FILE_PREFIX = "_statistics-";
 
     public static final String TARGET_TABLE_PROPERTY = confProperty(TOOL_NAME, "table.name");
 
@@ -155,6 +165,22 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
 
     public static final String PARSER_QUEUE_SIZE_PROPERTY = confProperty("parser", "queue.size");
 
+    /**
+     * Number of threads parsing byte ranges of each uncompressed N-Triples or N-Quads file
+     */
+    public static final String LINE_PARSER_THREADS_PROPERTY = confProperty("parser", "line.threads");
+
+    /**
+     * Boolean property to run the load within the current JVM instead of as a MapReduce job
+     */
+    public static final String LOCAL_PROPERTY = confProperty(TOOL_NAME, "local");
+    public static final String LOCAL_PARALLELISM_PROPERTY = confProperty(TOOL_NAME, "local.parallelism");
+
+    /**
+     * Number of key-values to sort in memory before spilling to disk, when running locally (shared by all regions and parsing threads)
+     */
+    public static final String LOCAL_SORT_BUFFER_SIZE_PROPERTY = confProperty(TOOL_NAME, "local.sort-buffer.size");
+
     /**
      * Multiplier limiting maximum single file size in relation to the maximum split size, before it is processed in parallel (10x maximum split size)
      */
@@ -162,8 +188,10 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
     private static final int DEFAULT_SPLIT_BITS = 3;
     private static final long DEFAULT_SPLIT_MAXSIZE = 200000000l;
     private static final int DEFAULT_PARSER_QUEUE_SIZE = 50000;
+    private static final int DEFAULT_LINE_PARSER_THREADS = 1;
     static final int DEFAULT_STATEMENT_DEDUP_CACHE_SIZE = 2000;
     private static final int DEFAULT_VALUE_CACHE_SIZE = 2000;
+    private static final int DEFAULT_LOCAL_SORT_BUFFER_SIZE = 1000000;
 
     enum Counters {
 		ADDED_KVS,
@@ -243,6 +271,7 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
         private StatementIndices stmtIndices;
         private boolean hiddenGraph;
         private long timestamp;
+        private StatisticsDeltas statsDeltas;
         private long addedKvs;
         private long addedStmts;
         private long totalStmtsRead;
@@ -259,6 +288,10 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
             stmtIndices = new StatementIndices(conf, rdfFactory);
             timestamp = conf.getLong(TIMESTAMP_PROPERTY, System.currentTimeMillis());
             hiddenGraph = conf.getBoolean(HIDDEN_CONTEXT_PROPERTY, false);
+            // a truncated table loses any counters so leave the statistics to a full recalculation
+            if (conf.getBoolean(StatisticsDeltas.INCREMENTAL_STATS_PROPERTY, false) && !conf.getBoolean(TRUNCATE_PROPERTY, false) && !isDryRun(conf)) {
+            	statsDeltas = new StatisticsDeltas(rdfFactory);
+            }
         }
 
         @Override
@@ -287,6 +320,9 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
     			kvs = stmtIndices.insertNonDefaultKeyValues(stmt.getSubject(), stmt.getPredicate(), stmt.getObject(), stmt.getContext(), timestamp);
     		} else {
     			kvs = stmtIndices.insertKeyValues(stmt.getSubject(), stmt.getPredicate(), stmt.getObject(), stmt.getContext(), timestamp);
+    			if (statsDeltas != null) {
+    				statsDeltas.add(stmt.getSubject(), stmt.getPredicate(), stmt.getObject(), stmt.getContext(), 1);
+    			}
     		}
     		return kvs;
         }
@@ -296,9 +332,42 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
         	output.getCounter(Counters.ADDED_KVS).increment(addedKvs);
         	output.getCounter(Counters.ADDED_STATEMENTS).increment(addedStmts);
         	output.getCounter(Counters.TOTAL_STATEMENTS_READ).increment(totalStmtsRead);
+        	// only committed for a successful attempt
+        	writeStatistics(FileOutputFormat.getWorkOutputPath(output), output.getTaskAttemptID().getTaskID().toString(), output.getConfiguration());
+        }
+
+        /**
+         * Writes the statistics deltas as a side file, to be applied once the HFiles have been loaded.
+         */
+        void writeStatistics(Path dir, String name, Configuration conf) throws IOException {
+        	if (statsDeltas != null && !statsDeltas.isEmpty()) {
+        		Path file = new Path(dir, STATISTICS_FILE_PREFIX + name);
+        		try (FSDataOutputStream out = file.getFileSystem(conf).create(file, true)) {
+        			statsDeltas.write(out);
+        		}
+        	}
         }
     }
 
+    /**
+     * Reads the statistics deltas written alongside the HFiles.
+     * @return the merged deltas or null if there are none
+     */
+    static StatisticsDeltas readStatistics(Configuration conf, Path workDir) throws IOException {
+    	FileSystem fs = workDir.getFileSystem(conf);
+    	FileStatus[] files = fs.globStatus(new Path(workDir, STATISTICS_FILE_PREFIX + "*"));
+    	if (files == null || files.length == 0) {
+    		return null;
+    	}
+    	StatisticsDeltas statsDeltas = new StatisticsDeltas(RDFFactory.create(conf));
+    	for (FileStatus file : files) {
+    		try (FSDataInputStream in = fs.open(file.getPath())) {
+    			statsDeltas.readFields(in);
+    		}
+    	}
+    	return statsDeltas;
+    }
+
     /**
      * MapReduce FileInputFormat reading and parsing any RDF4J RIO supported RDF format into Statements
      */
@@ -423,9 +492,12 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
     		PARSE_QUEUE_EMPTY_ELAPSED_TIME,
     		PARSE_QUEUE_FULL_COUNT,
     		PARSE_QUEUE_FULL_ELAPSED_TIME,
-    		PARSE_ERRORS
+    		PARSE_ERRORS,
+    		LINE_PARSER_FALLBACK_LINES
     	}
 
+    	private static final String THREAD_COUNTER_GROUP = "Line parser threads";
+
         private final BlockingQueue<Statement> queue;
         private final IdValueFactory idValueFactory;
         private final CachingValueFactory valueFactory;
@@ -437,6 +509,9 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
         private final String defaultRdfContextPattern;
         private final boolean overrideRdfContext;
         private final long maxSize;
+        private final int lineParserThreads;
+        private final AtomicLong rangeBytesRead = new AtomicLong();
+        private volatile int rangeProgressScale = 1;
         private volatile String baseUri;
         private volatile Exception ex;
         private long finishedSize = 0L;
@@ -461,6 +536,7 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
             this.overrideRdfContext = conf.getBoolean(OVERRIDE_CONTEXT_PROPERTY, false);
             this.defaultRdfContextPattern = conf.get(DEFAULT_CONTEXT_PROPERTY);
             this.maxSize = MAX_SINGLE_FILE_MULTIPLIER * conf.getLong(FileInputFormat.SPLIT_MAXSIZE, 0);
+            this.lineParserThreads = Math.max(1, conf.getInt(LINE_PARSER_THREADS_PROPERTY, DEFAULT_LINE_PARSER_THREADS));
         }
 
         public Statement getNext() throws IOException, InterruptedException {
@@ -481,7 +557,7 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
 
         public synchronized float getProgress() {
             try {
-                long seekPos = (inStream instanceof Seekable) ? ((Seekable)inStream).getPos() : 0L;
+                long seekPos = (inStream instanceof Seekable) ? ((Seekable)inStream).getPos() : rangeBytesRead.get() * rangeProgressScale;
                 return (float)(finishedSize + seekPos) / (float)size;
             } catch (IOException e) {
                 return (float)finishedSize / (float)size;
@@ -514,42 +590,28 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
 	                    context.setStatus("Parsing " + localBaseUri);
 		                try {
 		                    FileSystem fs = file.getFileSystem(conf);
-		                    FSDataInputStream fileIn = fs.open(file);
 		                    CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(file);
-		                    final InputStream localStream;
-		                    if (codec != null) {
-		                    	localStream = codec.createInputStream(fileIn, CodecPool.getDecompressor(codec));
-		                    } else {
-		                    	localStream = fileIn;
-		                    }
-		                    synchronized (this) {
-		                        this.inStream = localStream; //synchronised parameters must be set inside a sync block
-		                    }
-		                    RDFParser parser = Rio.createParser(rdfFormat);
-		                    parser.setRDFHandler(this);
-		                    parser.setParseErrorListener(this);
-		                    parser.set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
-		                    parser.set(BasicParserSettings.VERIFY_URI_SYNTAX, !allowInvalidIris);
-		                    parser.set(BasicParserSettings.VERIFY_RELATIVE_URIS, !allowInvalidIris);
-		                    if (skipInvalidLines) {
-		                        parser.set(NTriplesParserSettings.FAIL_ON_INVALID_LINES, false);
-		                        parser.getParserConfig().addNonFatalError(NTriplesParserSettings.FAIL_ON_INVALID_LINES);
-		                    }
-		                   	parser.set(BasicParserSettings.VERIFY_DATATYPE_VALUES, verifyDataTypeValues);
-		                    parser.set(BasicParserSettings.VERIFY_LANGUAGE_TAGS, verifyDataTypeValues);
-		                    if (defaultRdfContextPattern != null || overrideRdfContext) {
-		                        IRI defaultRdfContext;
-		                        if (defaultRdfContextPattern != null) {
-		                            String context = MessageFormat.format(defaultRdfContextPattern, localBaseUri, file.toUri().getPath(), file.getName());
-		                            validateIRIs(context);
-		                            defaultRdfContext = valueFactory.createIRI(context);
-		                        } else {
-		                            defaultRdfContext = null;
+		                    if (codec == null && NQuadsRangeParser.supports(rdfFormat)) {
+		                        parseRanges(fs, file, rdfFormat, localBaseUri);
+		                        synchronized (this) {
+		                            finishedSize += sizes[i];
+		                            rangeBytesRead.set(0L);
 		                        }
-		                        valueFactory.setDefaultContext(defaultRdfContext, overrideRdfContext);
+		                    } else {
+			                    FSDataInputStream fileIn = fs.open(file);
+			                    final InputStream localStream;
+			                    if (codec != null) {
+			                    	localStream = codec.createInputStream(fileIn, CodecPool.getDecompressor(codec));
+			                    } else {
+			                    	localStream = fileIn;
+			                    }
+			                    synchronized (this) {
+			                        this.inStream = localStream; //synchronised parameters must be set inside a sync block
+			                    }
+			                    RDFParser parser = createParser(rdfFormat, valueFactory);
+			                    configureContext(valueFactory, file, localBaseUri);
+			                    parser.parse(localStream, localBaseUri);
 		                    }
-		                    parser.setValueFactory(valueFactory);
-		                    parser.parse(localStream, localBaseUri);
 		                } catch (Exception e) {
 		                    if (allowInvalidIris && skipInvalidLines && !verifyDataTypeValues) {
 		                        LOG.warn("Exception while parsing RDF", e);
@@ -570,6 +632,97 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
             }
         }
 
+        private RDFParser createParser(RDFFormat rdfFormat, ValueFactory vf) {
+            RDFParser parser = Rio.createParser(rdfFormat);
+            parser.setRDFHandler(this);
+            parser.setParseErrorListener(this);
+            parser.set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+            parser.set(BasicParserSettings.VERIFY_URI_SYNTAX, !allowInvalidIris);
+            parser.set(BasicParserSettings.VERIFY_RELATIVE_URIS, !allowInvalidIris);
+            if (skipInvalidLines) {
+                parser.set(NTriplesParserSettings.FAIL_ON_INVALID_LINES, false);
+                parser.getParserConfig().addNonFatalError(NTriplesParserSettings.FAIL_ON_INVALID_LINES);
+            }
+           	parser.set(BasicParserSettings.VERIFY_DATATYPE_VALUES, verifyDataTypeValues);
+            parser.set(BasicParserSettings.VERIFY_LANGUAGE_TAGS, verifyDataTypeValues);
+            parser.setValueFactory(vf);
+            return parser;
+        }
+
+        private void configureContext(CachingValueFactory vf, Path file, String localBaseUri) {
+            if (defaultRdfContextPattern != null || overrideRdfContext) {
+                IRI defaultRdfContext;
+                if (defaultRdfContextPattern != null) {
+                    String context = MessageFormat.format(defaultRdfContextPattern, localBaseUri, file.toUri().getPath(), file.getName());
+                    validateIRIs(context);
+                    defaultRdfContext = vf.createIRI(context);
+                } else {
+                    defaultRdfContext = null;
+                }
+                vf.setDefaultContext(defaultRdfContext, overrideRdfContext);
+            }
+        }
+
+        /**
+         * Parses a line-based file as newline-aligned byte ranges, concurrently if configured.
+         * Replicas of a large file each take their own share of the ranges instead of filtering all the statements by hash.
+         */
+        private void parseRanges(FileSystem fs, Path file, RDFFormat rdfFormat, String localBaseUri) throws Exception {
+            long fileLength = fs.getFileStatus(file).getLen();
+            int rangeCount = count * lineParserThreads;
+            int firstRange = offset * lineParserThreads;
+            rangeProgressScale = count;
+            count = 1;
+            List<Callable<Void>> tasks = new ArrayList<>(lineParserThreads);
+            for (int t=0; t<lineParserThreads; t++) {
+                final int threadNo = t;
+                final long start = fileLength * (firstRange + t) / rangeCount;
+                final long end = fileLength * (firstRange + t + 1) / rangeCount;
+                tasks.add(() -> {
+                    parseRange(fs, file, rdfFormat, localBaseUri, start, end, threadNo);
+                    return null;
+                });
+            }
+            if (tasks.size() == 1) {
+                tasks.get(0).call();
+            } else {
+                ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+                try {
+                    CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+                    for (Callable<Void> task : tasks) {
+                        completionService.submit(task);
+                    }
+                    for (int t=0; t<tasks.size(); t++) {
+                        try {
+                            completionService.take().get();
+                        } catch (ExecutionException e) {
+                            Throwable cause = e.getCause();
+                            throw (cause instanceof Exception) ? (Exception) cause : e;
+                        }
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        }
+
+        private void parseRange(FileSystem fs, Path file, RDFFormat rdfFormat, String localBaseUri, long start, long end, int threadNo) throws IOException {
+            // a value factory per thread, the caches are small and it avoids contention
+            CachingValueFactory rangeValueFactory = new CachingValueFactory(idValueFactory, context.getConfiguration().getInt(VALUE_CACHE_SIZE_PROPERTY, DEFAULT_VALUE_CACHE_SIZE));
+            configureContext(rangeValueFactory, file, localBaseUri);
+            NQuadsRangeParser parser = new NQuadsRangeParser(rdfFormat, createParser(rdfFormat, rangeValueFactory), rangeValueFactory, this, this, localBaseUri, rangeBytesRead);
+            long startTime = System.currentTimeMillis();
+            try (FSDataInputStream in = fs.open(file)) {
+                parser.parse(in, start, end);
+            }
+            long elapsed = System.currentTimeMillis() - startTime;
+            context.getCounter(THREAD_COUNTER_GROUP, "Thread " + threadNo + " statements").increment(parser.getStatementCount());
+            context.getCounter(THREAD_COUNTER_GROUP, "Thread " + threadNo + " millis").increment(elapsed);
+            context.getCounter(Counters.LINE_PARSER_FALLBACK_LINES).increment(parser.getFallbackCount());
+            LOG.info("Parsed {} statements from bytes {}-{} of {} in {}ms ({} statements/s, {} lines parsed by Rio)", parser.getStatementCount(), start, end, localBaseUri, elapsed,
+                elapsed > 0 ? 1000L * parser.getStatementCount() / elapsed : parser.getStatementCount(), parser.getFallbackCount());
+        }
+
         @Override
         public void handleStatement(Statement st) {
             if (count == 1 || Math.floorMod(st.hashCode(), count) == offset) {
@@ -671,6 +824,7 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
         addOption("o", "named-graph-override", null, OVERRIDE_CONTEXT_PROPERTY, "Optionally override named graph also for quads, named graph is stripped from quads if --default-named-graph option is not specified", false, false);
         addOption("e", "target-timestamp", "timestamp", TIMESTAMP_PROPERTY, "Optionally specify timestamp of all loaded records (default is actual time of the operation)", false, true);
         addOption("m", "max-split-size", "size_in_bytes", FileInputFormat.SPLIT_MAXSIZE, "Optionally override maximum input split size, where significantly larger single files will be processed in parallel (0 means no limit, default is 200000000)", false, true);
+        addOption("l", "local", null, LOCAL_PROPERTY, "Optionally parse the source files and write the HFiles within this process, in parallel, instead of running a MapReduce job (suited to smaller loads from a local or shared filesystem)", false, false);
         addOption(null, "dry-run", null, DRY_RUN_PROPERTY, "Skip loading of HFiles", false, true);
         addOption(null, "hidden-graph", null, HIDDEN_CONTEXT_PROPERTY, "Load into a hidden named graph (can only be used in conjunction with -g)", false, true);
     }
@@ -689,6 +843,7 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
         configureBoolean(cmd, 'o');
         configureLong(cmd, 'e', System.currentTimeMillis());
         configureLong(cmd, 'm', DEFAULT_SPLIT_MAXSIZE);
+        configureBoolean(cmd, 'l');
         configureBoolean(cmd, "dry-run");
         configureBoolean(cmd, "hidden-graph");
         if (getConf().get(DEFAULT_CONTEXT_PROPERTY) == null && getConf().get(HIDDEN_CONTEXT_PROPERTY) != null) {
@@ -731,7 +886,7 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
             	}
             }
 		}
-        int rc = run(job, tableDesc);
+        int rc = getConf().getBoolean(LOCAL_PROPERTY, false) ? runLocal(job, tableDesc) : run(job, tableDesc);
         if (rc == 0) {
         	TableName tableName = tableDesc.getTableName();
             if (getConf().getBoolean(TRUNCATE_PROPERTY, false)) {
@@ -739,7 +894,16 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
         			HalyardTableUtils.clearStatements(conn, tableName);
         		}
             }
+            StatisticsDeltas statsDeltas = readStatistics(job.getConfiguration(), outPath);
     		bulkLoad(job, tableName, outPath);
+    		// apply the statistics exactly once, and only for data that has actually been loaded
+    		if (statsDeltas != null) {
+        		try (Connection conn = HalyardTableUtils.getConnection(getConf())) {
+        			try (Table table = conn.getTable(tableName)) {
+        				statsDeltas.flush(table);
+        			}
+        		}
+    		}
             LOG.info("Bulk Load completed.");
         } else {
     		LOG.error("Bulk Load failed to complete.");
@@ -750,4 +914,11 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
     protected int run(Job job, TableDescriptor tableDesc) throws Exception {
         return job.waitForCompletion(true) ? 0 : 1;
     }
+
+    private int runLocal(Job job, TableDescriptor tableDesc) throws Exception {
+        Configuration conf = job.getConfiguration();
+        int parallelism = conf.getInt(LOCAL_PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors());
+        int sortBufferSize = conf.getInt(LOCAL_SORT_BUFFER_SIZE_PROPERTY, DEFAULT_LOCAL_SORT_BUFFER_SIZE);
+        return new LocalBulkLoader(job, tableDesc, parallelism, sortBufferSize).run();
+    }
 }
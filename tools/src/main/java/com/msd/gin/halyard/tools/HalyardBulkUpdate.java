@@ -80,6 +80,7 @@ import org.eclipse.rdf4j.rio.Rio;
 import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
 import org.eclipse.rdf4j.rio.helpers.NTriplesUtil;
 import org.eclipse.rdf4j.sail.SailException;
+import org.eclipse.rdf4j.sail.UpdateContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -182,13 +183,8 @@ public final class HalyardBulkUpdate extends AbstractHalyardTool {
 							}
 
 							@Override
-							protected void put(KeyValue kv) throws IOException {
-								rowKey.set(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength());
-								try {
-									context.write(rowKey, kv);
-								} catch (InterruptedException ex) {
-									throw new IOException(ex);
-								}
+							protected void put(List<? extends KeyValue> kvs) throws IOException {
+								write(kvs);
 							}
 
 							@Override
@@ -203,13 +199,35 @@ public final class HalyardBulkUpdate extends AbstractHalyardTool {
 							}
 
 							@Override
-							protected void delete(KeyValue kv) throws IOException {
-								rowKey.set(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength());
-								try {
-									context.write(rowKey, kv);
-								} catch (InterruptedException ex) {
-									throw new IOException(ex);
+							protected int deleteStatements(List<? extends Statement> stmts, long timestamp) throws IOException {
+								int deletedKvs = super.deleteStatements(stmts, timestamp);
+								long prevRemovedStmts = removedStmts.getAndAdd(stmts.size());
+								removedKvs.addAndGet(deletedKvs);
+								if (prevRemovedStmts / statusUpdateInterval != (prevRemovedStmts + stmts.size()) / statusUpdateInterval) {
+									updateStatus(context);
 								}
+								return deletedKvs;
+							}
+
+							@Override
+							protected void delete(List<? extends KeyValue> kvs) throws IOException {
+								write(kvs);
+							}
+
+							private void write(List<? extends KeyValue> kvs) throws IOException {
+								for (KeyValue kv : kvs) {
+									rowKey.set(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength());
+									try {
+										context.write(rowKey, kv);
+									} catch (InterruptedException ex) {
+										throw new IOException(ex);
+									}
+								}
+							}
+
+							@Override
+							protected boolean isPipelined(UpdateContext op) {
+								return false;
 							}
 
 							@Override
@@ -142,7 +142,7 @@ public final class HalyardElasticIndexer extends AbstractHalyardTool {
             	lastLiterals = new HashSet<>();
             }
 
-            Statement[] stmts = stmtIndices.parseStatements(null, null, null, null, value, vf);
+            Statement[] stmts = stmtIndices.parseStatements(null, null, null, null, value, keyspaceConn, vf);
             for (Statement st : stmts) {
                 statements++;
             	Literal l = (Literal) st.getObject();
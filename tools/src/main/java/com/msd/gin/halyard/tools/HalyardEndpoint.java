@@ -32,6 +32,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.MissingOptionException;
@@ -94,6 +95,13 @@ public final class HalyardEndpoint extends AbstractHalyardTool {
         addOption(null, "create", null, "Create HBase table if it doesn't exist", false, false);
         addOption(null, "pull", null, "Use a pull-based evaluation strategy", false, false);
         addOption(null, "import-data", "data_url", "Load RDF data from given URLs at startup", false, false);
+        addOption(null, "max-requests", "max_requests", "Maximum number of requests to handle concurrently, " +
+                "further requests are rejected with 503 Service Unavailable (default is 0 for no limit, " +
+                "with requests queued for 4 x number of cores threads)", false, true);
+        addOption(null, "request-timeout", "request_timeout", "Timeout in seconds for each request, including sending " +
+                "the response (default is unlimited timeout)", false, true);
+        addOption(null, "stall-timeout", "stall_timeout", "Timeout in seconds for a client to read more of a response " +
+                "before the request is aborted (default is unlimited timeout)", false, true);
     }
 
     /**
@@ -110,6 +118,9 @@ public final class HalyardEndpoint extends AbstractHalyardTool {
         try {
             int timeout = parseTimeout(cmd);
             int port = parsePort(cmd);
+            int maxRequests = parseLimit(cmd, "max-requests", 0);
+            int requestTimeout = parseLimit(cmd, "request-timeout", 0);
+            int stallTimeout = parseLimit(cmd, "stall-timeout", 0);
             String table = cmd.getOptionValue('s');
             configureString(cmd, 'i', null);
             boolean create = cmd.hasOption("create");
@@ -182,7 +193,7 @@ public final class HalyardEndpoint extends AbstractHalyardTool {
                     }
                 }
                 CountDownLatch latch = new CountDownLatch(1);
-                SimpleHttpServer server = new SimpleHttpServer(port);
+                SimpleHttpServer server = new SimpleHttpServer(port, maxRequests, TimeUnit.SECONDS.toMillis(requestTimeout), TimeUnit.SECONDS.toMillis(stallTimeout));
                 HttpSparqlHandler handler = new HttpSparqlHandler(rep, storedQueries, writerConfig, latch::countDown);
                 server.createContext(CONTEXT, handler);
                 server.start();
@@ -246,6 +257,32 @@ public final class HalyardEndpoint extends AbstractHalyardTool {
         }
     }
 
+    /**
+     * Parse request limit
+     *
+     * @param cmd
+     * @param opt option name
+     * @return
+     * @throws EndpointException Provided limit value is not a number
+     */
+    private int parseLimit(CommandLine cmd, String opt, int defaultLimit) throws EndpointException {
+        String limitString = cmd.getOptionValue(opt);
+        if (limitString == null) {
+            return defaultLimit;
+        } else {
+            int limit;
+            try {
+                limit = Integer.parseInt(limitString);
+            } catch (NumberFormatException e) {
+                throw new EndpointException("Failed to parse " + opt + " number from the input string: " + limitString);
+            }
+            if (limit < 0) {
+                throw new EndpointException("The " + opt + " must not be negative: " + limitString);
+            }
+            return limit;
+        }
+    }
+
     public static interface EndpointSailFactory {
     	void setConf(Configuration conf);
     	Sail createSail();
@@ -28,6 +28,7 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -55,6 +56,7 @@ import org.eclipse.rdf4j.query.algebra.evaluation.QueryEvaluationStep;
 import org.eclipse.rdf4j.query.parser.QueryParserUtil;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.sail.SailException;
+import org.eclipse.rdf4j.sail.UpdateContext;
 
 /**
  * Command line tool for various Halyard profiling
@@ -92,11 +94,15 @@ public final class HalyardProfile extends AbstractHalyardTool {
 					private final NumberFormat cardinalityFormatter = DecimalFormat.getNumberInstance();
 
 					@Override
-					protected void put(KeyValue kv) throws IOException {
+					protected boolean isPipelined(UpdateContext op) {
+						return false;
+					}
+					@Override
+					protected void put(List<? extends KeyValue> kvs) throws IOException {
 						// do nothing
 					}
 					@Override
-					protected void delete(KeyValue kv) throws IOException {
+					protected void delete(List<? extends KeyValue> kvs) throws IOException {
 						// do nothing
 					}
 					@Override
@@ -17,6 +17,7 @@
 package com.msd.gin.halyard.tools;
 
 import com.google.common.collect.Sets;
+import com.msd.gin.halyard.common.HalyardTableUtils;
 import com.msd.gin.halyard.common.IdValueFactory;
 import com.msd.gin.halyard.common.Keyspace;
 import com.msd.gin.halyard.common.RDFContext;
@@ -31,8 +32,12 @@ import com.msd.gin.halyard.repository.HBaseRepositoryConnection;
 import com.msd.gin.halyard.sail.HBaseSail;
 import com.msd.gin.halyard.sail.HBaseSailConnection;
 import com.msd.gin.halyard.sail.HalyardStatsBasedStatementPatternCardinalityCalculator;
+import com.msd.gin.halyard.sail.StatisticsDeltas;
+import com.msd.gin.halyard.util.HyperLogLog;
 import com.msd.gin.halyard.vocab.VOID_EXT;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
@@ -40,6 +45,7 @@ import java.nio.ByteBuffer;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -57,6 +63,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
@@ -64,8 +71,8 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
 import org.apache.hadoop.hbase.protobuf.generated.AuthenticationProtos;
 import org.apache.hadoop.hbase.util.CommonFSUtils;
-import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Partitioner;
 import org.apache.hadoop.mapreduce.Reducer;
@@ -80,6 +87,7 @@ import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.SD;
 import org.eclipse.rdf4j.model.vocabulary.VOID;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.GraphQuery;
 import org.eclipse.rdf4j.query.GraphQueryResult;
@@ -118,6 +126,8 @@ public final class HalyardStats extends AbstractHalyardTool {
     private static final String STATS_GRAPH = confProperty(TOOL_NAME, "stats-graph");
     private static final String NAMED_GRAPH_PROPERTY = confProperty(TOOL_NAME, "named-graph");
     private static final String TIMESTAMP_PROPERTY = confProperty(TOOL_NAME, "timestamp");
+    private static final String COMPACT_PROPERTY = confProperty(TOOL_NAME, "compact");
+    private static final String SKETCHES_PROPERTY = confProperty(TOOL_NAME, "sketches");
 
     private static final long DEFAULT_GRAPH_THRESHOLD = 1000;
     private static final long DEFAULT_PARTITION_THRESHOLD = 5000;
@@ -160,12 +170,73 @@ public final class HalyardStats extends AbstractHalyardTool {
 		}
     }
 
-    static final class StatsMapper extends RdfTableMapper<ImmutableBytesWritable, LongWritable>  {
+	/**
+	 * Either a count, or a distinct count sketch that can be merged with those from other mappers.
+	 */
+	static final class StatsValueWritable implements Writable {
+		long count;
+		HyperLogLog sketch;
+
+		void set(long count) {
+			this.count = count;
+			this.sketch = null;
+		}
+
+		void set(HyperLogLog sketch) {
+			this.count = 0L;
+			this.sketch = sketch;
+		}
+
+		void setReduced(Iterable<StatsValueWritable> values) {
+			long sum = 0L;
+			HyperLogLog union = null;
+			for (StatsValueWritable val : values) {
+				if (val.sketch != null) {
+					if (union == null) {
+						union = new HyperLogLog(val.sketch.getPrecision());
+					}
+					union.merge(val.sketch);
+				} else {
+					sum += val.count;
+				}
+			}
+			if (union != null) {
+				set(union);
+			} else {
+				set(sum);
+			}
+		}
+
+		long getCount() {
+			return (sketch != null) ? sketch.estimate() : count;
+		}
+
+		@Override
+		public void write(DataOutput out) throws IOException {
+			out.writeBoolean(sketch != null);
+			if (sketch != null) {
+				sketch.writeTo(out);
+			} else {
+				out.writeLong(count);
+			}
+		}
+
+		@Override
+		public void readFields(DataInput in) throws IOException {
+			if (in.readBoolean()) {
+				set(HyperLogLog.readFrom(in));
+			} else {
+				set(in.readLong());
+			}
+		}
+	}
+
+    static final class StatsMapper extends RdfTableMapper<ImmutableBytesWritable, StatsValueWritable>  {
         private static final long STATUS_UPDATE_INTERVAL = 100000L;
         private static final IRI DEFAULT_GRAPH_NODE = HALYARD.STATS_ROOT_NODE;
 
         final ImmutableBytesWritable outputKey = new ImmutableBytesWritable();
-        final LongWritable outputValue = new LongWritable();
+        final StatsValueWritable outputValue = new StatsValueWritable();
         ByteBuffer bb = ByteBuffer.allocate(ValueIO.DEFAULT_BUFFER_SIZE);
         HalyardStatsBasedStatementPatternCardinalityCalculator.PartitionIriTransformer partitionIriTransformer;
         IRI statsContext;
@@ -178,14 +249,14 @@ public final class HalyardStats extends AbstractHalyardTool {
         Resource lastCtx;
         Resource graph = DEFAULT_GRAPH_NODE;
         long triples, distinctSubjects, properties, distinctObjects, classes, removedStmts;
-        long distinctIRIReferenceSubjects, distinctIRIReferenceObjects, distinctBlankNodeObjects, distinctBlankNodeSubjects, distinctLiterals;
-        long distinctTripleSubjects, distinctTripleObjects;
+        // mergeable across mappers, as a graph can span several regions
+        final Map<IRI,HyperLogLog> distinctSketches = new HashMap<>();
         Value rdfClass;
         IRI subsetType;
 		Value subsetId;
 		Set<Value> lastSubsetIds;
 		HashTracker hashTracker;
-        long subsetDistincts;
+        final HyperLogLog subsetDistincts = new HyperLogLog();
         Set<Value> lastSubsetDistincts;
         IRI subsetDistinctType;
 		HashTracker subhashTracker;
@@ -279,7 +350,7 @@ public final class HalyardStats extends AbstractHalyardTool {
             	lastSubsetDistincts = new HashSet<>();
             }
 
-            Statement[] stmts = stmtIndices.parseStatements(null, null, null, null, value, vf);
+            Statement[] stmts = stmtIndices.parseStatements(null, null, null, null, value, keyspaceConn, vf);
             for (Statement stmt : stmts) {
             	Resource ctx = index.getName().isQuadIndex() ? stmt.getContext() : DEFAULT_GRAPH_NODE;
             	if (!ctx.equals(lastCtx)) {
@@ -310,18 +381,20 @@ public final class HalyardStats extends AbstractHalyardTool {
 		                        if (lastSubsetIds.add(subj)) {
 			                        resetSubset(output);
 			                        distinctSubjects++;
+			                        byte[] subjId = id(subj);
+			                        addDistinct(VOID.DISTINCT_SUBJECTS, subjId);
 			                        if (subj.isIRI()) {
-			                            distinctIRIReferenceSubjects++;
+			                            addDistinct(VOID_EXT.DISTINCT_IRI_REFERENCE_SUBJECTS, subjId);
 			                        } else if (subj.isTriple()) {
-			                        	distinctTripleSubjects++;
+			                        	addDistinct(VOID_EXT.DISTINCT_TRIPLE_SUBJECTS, subjId);
 			                        } else {
-			                            distinctBlankNodeSubjects++;
+			                            addDistinct(VOID_EXT.DISTINCT_BLANK_NODE_SUBJECTS, subjId);
 			                        }
 			                        subsetId = subj;
 		                        }
 	                			IRI pred = stmt.getPredicate();
 	                			if (lastSubsetDistincts.add(pred)) {
-	                				subsetDistincts++;
+	                				subsetDistincts.add(id(pred));
 	                			}
 		                		triples++;
 		                	}
@@ -333,11 +406,12 @@ public final class HalyardStats extends AbstractHalyardTool {
 		                        if (lastSubsetIds.add(pred)) {
 	                				resetSubset(output);
 			                        properties++;
+			                        addDistinct(VOID.PROPERTIES, id(pred));
 			                        subsetId = pred;
 	                			}
                     			Value obj = stmt.getObject();
 	                			if (lastSubsetDistincts.add(obj)) {
-	                				subsetDistincts++;
+	                				subsetDistincts.add(id(obj));
 	                			}
 	                    		if (RDF.TYPE.equals(pred)) {
 	                    			if (!obj.equals(rdfClass)) {
@@ -356,20 +430,22 @@ public final class HalyardStats extends AbstractHalyardTool {
 		                        if (lastSubsetIds.add(obj)) {
 		                        	resetSubset(output);
 			                        distinctObjects++;
+			                        byte[] objId = id(obj);
+			                        addDistinct(VOID.DISTINCT_OBJECTS, objId);
 			                        if (obj.isIRI()) {
-			                        	distinctIRIReferenceObjects++;
+			                        	addDistinct(VOID_EXT.DISTINCT_IRI_REFERENCE_OBJECTS, objId);
 			                        } else if (obj.isTriple()) {
-			                        	distinctTripleObjects++;
+			                        	addDistinct(VOID_EXT.DISTINCT_TRIPLE_OBJECTS, objId);
 			                        } else if (obj.isBNode()) {
-			                        	distinctBlankNodeObjects++;
+			                        	addDistinct(VOID_EXT.DISTINCT_BLANK_NODE_OBJECTS, objId);
 			                        } else {
-			                            distinctLiterals++;
+			                            addDistinct(VOID_EXT.DISTINCT_LITERALS, objId);
 			                        }
 			                        subsetId = obj;
 		                        }
                     			Value subj = stmt.getSubject();
 	                			if (lastSubsetDistincts.add(subj)) {
-	                				subsetDistincts++;
+	                				subsetDistincts.add(id(subj));
 	                			}
 		                	}
 		                    break;
@@ -388,10 +464,22 @@ public final class HalyardStats extends AbstractHalyardTool {
             }
         }
 
+        private byte[] id(Value v) {
+        	return rdfFactory.id(v).copyBytes();
+        }
+
+        private void addDistinct(IRI property, byte[] id) {
+        	distinctSketches.computeIfAbsent(property, p -> new HyperLogLog()).add(id);
+        }
+
         private void report(Context output, IRI property, long count) throws IOException, InterruptedException {
         	report(output, property, null, null, count);
         }
 
+        private void reportDistinct(Context output, IRI property) throws IOException, InterruptedException {
+        	report(output, property, null, null, distinctSketches.get(property));
+        }
+
         /**
          * Reports a count.
          * @param output context
@@ -404,11 +492,22 @@ public final class HalyardStats extends AbstractHalyardTool {
          */
         private void report(Context output, IRI property, Value partitionId, IRI subsetProperty, long count) throws IOException, InterruptedException {
             if (count > 0 && isIncludedGraphContext(graph.stringValue())) {
-            	writeStat(output, graph, property, partitionId, subsetProperty, count);
+            	outputValue.set(count);
+            	writeStat(output, graph, property, partitionId, subsetProperty);
             }
         }
 
-        private void writeStat(Context output, Resource graph, IRI property, Value partitionId, IRI subsetProperty, long count) throws IOException, InterruptedException {
+        /**
+         * Reports a distinct count sketch.
+         */
+        private void report(Context output, IRI property, Value partitionId, IRI subsetProperty, HyperLogLog sketch) throws IOException, InterruptedException {
+            if (sketch != null && !sketch.isEmpty() && isIncludedGraphContext(graph.stringValue())) {
+            	outputValue.set(sketch);
+            	writeStat(output, graph, property, partitionId, subsetProperty);
+            }
+        }
+
+        private void writeStat(Context output, Resource graph, IRI property, Value partitionId, IRI subsetProperty) throws IOException, InterruptedException {
         	ValueIO.Writer writer = rdfFactory.valueWriter;
         	bb.clear();
         	bb = writer.writeValueWithSizeHeader(graph, bb, Short.BYTES);
@@ -423,7 +522,6 @@ public final class HalyardStats extends AbstractHalyardTool {
         	}
 			bb.flip();
             outputKey.set(bb.array(), bb.arrayOffset(), bb.limit());
-            outputValue.set(count);
             output.write(outputKey, outputValue);
         }
 
@@ -433,26 +531,19 @@ public final class HalyardStats extends AbstractHalyardTool {
 			assert properties <= triples;
 			assert distinctObjects <= triples;
 			assert classes < distinctObjects;
-			assert distinctBlankNodeObjects < distinctObjects;
-			assert distinctBlankNodeSubjects < distinctSubjects;
-			assert distinctIRIReferenceObjects < distinctObjects;
-			assert distinctIRIReferenceSubjects < distinctSubjects;
-			assert distinctLiterals < distinctObjects;
-			assert distinctTripleObjects < distinctObjects;
-			assert distinctTripleSubjects < distinctSubjects;
             if (graph == DEFAULT_GRAPH_NODE || setCounter >= setThreshold) {
                 report(output, VOID.TRIPLES, triples);
-                report(output, VOID.DISTINCT_SUBJECTS, distinctSubjects);
-                report(output, VOID.PROPERTIES, properties);
-                report(output, VOID.DISTINCT_OBJECTS, distinctObjects);
+                reportDistinct(output, VOID.DISTINCT_SUBJECTS);
+                reportDistinct(output, VOID.PROPERTIES);
+                reportDistinct(output, VOID.DISTINCT_OBJECTS);
                 report(output, VOID.CLASSES, classes);
-                report(output, VOID_EXT.DISTINCT_IRI_REFERENCE_OBJECTS, distinctIRIReferenceObjects);
-                report(output, VOID_EXT.DISTINCT_IRI_REFERENCE_SUBJECTS, distinctIRIReferenceSubjects);
-                report(output, VOID_EXT.DISTINCT_BLANK_NODE_OBJECTS, distinctBlankNodeObjects);
-                report(output, VOID_EXT.DISTINCT_BLANK_NODE_SUBJECTS, distinctBlankNodeSubjects);
-                report(output, VOID_EXT.DISTINCT_LITERALS, distinctLiterals);
-                report(output, VOID_EXT.DISTINCT_TRIPLE_OBJECTS, distinctTripleObjects);
-                report(output, VOID_EXT.DISTINCT_TRIPLE_SUBJECTS, distinctTripleSubjects);
+                reportDistinct(output, VOID_EXT.DISTINCT_IRI_REFERENCE_OBJECTS);
+                reportDistinct(output, VOID_EXT.DISTINCT_IRI_REFERENCE_SUBJECTS);
+                reportDistinct(output, VOID_EXT.DISTINCT_BLANK_NODE_OBJECTS);
+                reportDistinct(output, VOID_EXT.DISTINCT_BLANK_NODE_SUBJECTS);
+                reportDistinct(output, VOID_EXT.DISTINCT_LITERALS);
+                reportDistinct(output, VOID_EXT.DISTINCT_TRIPLE_OBJECTS);
+                reportDistinct(output, VOID_EXT.DISTINCT_TRIPLE_SUBJECTS);
             } else {
                 report(output, SD.NAMED_GRAPH_PROPERTY, 1L);
             }
@@ -471,24 +562,17 @@ public final class HalyardStats extends AbstractHalyardTool {
             properties = 0;
             distinctObjects = 0;
             classes = 0;
-            distinctIRIReferenceObjects = 0;
-            distinctIRIReferenceSubjects = 0;
-            distinctBlankNodeObjects = 0;
-            distinctBlankNodeSubjects = 0;
-            distinctLiterals = 0;
-            distinctTripleObjects = 0;
-            distinctTripleSubjects = 0;
+            distinctSketches.clear();
             resetSubset(output);
 		}
 
 		private void resetSubset(Context output) throws IOException, InterruptedException {
-			assert subsetDistincts <= subsetCounter;
             if (subsetCounter >= subsetThreshold) {
                 report(output, subsetType, subsetId, VOID.TRIPLES, subsetCounter);
                 report(output, subsetType, subsetId, subsetDistinctType, subsetDistincts);
             }
             subsetCounter = 0;
-            subsetDistincts = 0;
+            subsetDistincts.clear();
             lastSubsetDistincts = new HashSet<>();
             resetClass(output);
         }
@@ -518,24 +602,20 @@ public final class HalyardStats extends AbstractHalyardTool {
         }
 	}
 
-    static final class StatsCombiner extends Reducer<ImmutableBytesWritable, LongWritable, ImmutableBytesWritable, LongWritable> {
-        final LongWritable outputValue = new LongWritable();
+    static final class StatsCombiner extends Reducer<ImmutableBytesWritable, StatsValueWritable, ImmutableBytesWritable, StatsValueWritable> {
+        final StatsValueWritable outputValue = new StatsValueWritable();
 
         @Override
-        public void reduce(ImmutableBytesWritable key, Iterable<LongWritable> values, Context context) throws IOException, InterruptedException {
-            long count = 0;
-            for (LongWritable val : values) {
-                count += val.get();
-            }
-            outputValue.set(count);
+        public void reduce(ImmutableBytesWritable key, Iterable<StatsValueWritable> values, Context context) throws IOException, InterruptedException {
+            outputValue.setReduced(values);
             context.write(key, outputValue);
         }
     }
 
-    static final class StatsPartitioner extends Partitioner<ImmutableBytesWritable, LongWritable> {
+    static final class StatsPartitioner extends Partitioner<ImmutableBytesWritable, StatsValueWritable> {
 
     	@Override
-        public int getPartition(ImmutableBytesWritable key, LongWritable value, int numPartitions) {
+        public int getPartition(ImmutableBytesWritable key, StatsValueWritable value, int numPartitions) {
         	ByteBuffer buf = ByteBuffer.wrap(key.get(), key.getOffset(), key.getLength());
         	int graphBytesLen = buf.getShort();
         	byte[] graphBytes = new byte[graphBytesLen];
@@ -545,10 +625,13 @@ public final class HalyardStats extends AbstractHalyardTool {
         }
     }
 
-    static final class StatsReducer extends RdfReducer<ImmutableBytesWritable, LongWritable, NullWritable, NullWritable> {
+    static final class StatsReducer extends RdfReducer<ImmutableBytesWritable, StatsValueWritable, NullWritable, NullWritable> {
         private static final long STATUS_UPDATE_INTERVAL = 1000L;
 
         final Map<IRI,IRI> partitionPredicates = HalyardStatsBasedStatementPatternCardinalityCalculator.createPartitionPredicateMapping();
+        final Map<IRI,IRI> sketchPredicates = HalyardStatsBasedStatementPatternCardinalityCalculator.createSketchPredicateMapping();
+        final StatsValueWritable reducedValue = new StatsValueWritable();
+        boolean persistSketches;
         OutputStream out;
         RDFWriter writer;
         IRI statsGraphContext;
@@ -566,6 +649,7 @@ public final class HalyardStats extends AbstractHalyardTool {
             partitionIriTransformer = HalyardStatsBasedStatementPatternCardinalityCalculator.createPartitionIriTransformer(rdfFactory);
             timestamp = conf.getLong(TIMESTAMP_PROPERTY, System.currentTimeMillis());
             statsGraphContext = vf.createIRI(conf.get(STATS_GRAPH));
+            persistSketches = conf.getBoolean(SKETCHES_PROPERTY, false);
             String targetUrl = conf.get(TARGET);
             if (targetUrl == null) {
                 HBaseSail targetSail = new HBaseSail(conf, conf.get(SOURCE_NAME_PROPERTY), false, 0, true, 0, null, null);
@@ -623,11 +707,9 @@ public final class HalyardStats extends AbstractHalyardTool {
         }
 
         @Override
-        public void reduce(ImmutableBytesWritable key, Iterable<LongWritable> values, Context context) throws IOException, InterruptedException {
-            long count = 0;
-            for (LongWritable val : values) {
-                count += val.get();
-            }
+        public void reduce(ImmutableBytesWritable key, Iterable<StatsValueWritable> values, Context context) throws IOException, InterruptedException {
+            reducedValue.setReduced(values);
+            long count = reducedValue.getCount();
 
         	ValueIO.Reader reader = rdfFactory.valueReader;
         	ByteBuffer bb = ByteBuffer.wrap(key.get(), key.getOffset(), key.getLength());
@@ -662,6 +744,10 @@ public final class HalyardStats extends AbstractHalyardTool {
                     writeStatement(subsetNode, subsetPredicate, countLiteral);
                 } else {
                     writeStatement(statsNode, predicate, countLiteral);
+                    IRI sketchPredicate = sketchPredicates.get(predicate);
+                    if (persistSketches && sketchPredicate != null && reducedValue.sketch != null) {
+                        writeStatement(statsNode, sketchPredicate, vf.createLiteral(Base64.getEncoder().encodeToString(reducedValue.sketch.toBytes()), XSD.BASE64BINARY));
+                    }
                 }
                 if ((added % STATUS_UPDATE_INTERVAL) == 0) {
                     context.setStatus(MessageFormat.format("statements removed: {0} added: {1}", removed, added));
@@ -768,6 +854,8 @@ public final class HalyardStats extends AbstractHalyardTool {
         addOption("o", "stats-named-graph", "target_graph", STATS_GRAPH, "Optional target named graph of the exported statistics (default value is '" + HALYARD.STATS_GRAPH_CONTEXT.stringValue() + "'), modification is recomended only for external export as internal Halyard optimizers expect the default value", false, true);
         addOption("u", "restore-dir", "restore_folder", SNAPSHOT_PATH_PROPERTY, "If specified then -s is a snapshot name and this is the restore folder on HDFS", false, true);
         addOption("e", "target-timestamp", "timestamp", TIMESTAMP_PROPERTY, "Optionally specify timestamp of stat statements (default is actual time of the operation)", false, true);
+        addOption("k", "sketches", null, SKETCHES_PROPERTY, "Optionally store the distinct subject/property/object sketches of each graph with the statistics, so that distinct counts over unions of graphs can be estimated", false, false);
+        addOption("c", "compact", null, COMPACT_PROPERTY, "Optionally only fold the incremental statistics (maintained when " + StatisticsDeltas.INCREMENTAL_STATS_PROPERTY + " is enabled) into the statistics graph instead of recalculating them", false, false);
     }
 
     @Override
@@ -783,12 +871,21 @@ public final class HalyardStats extends AbstractHalyardTool {
         configureLong(cmd, 'R', DEFAULT_GRAPH_THRESHOLD);
         configureLong(cmd, 'r', DEFAULT_PARTITION_THRESHOLD);
         configureLong(cmd, 'e', System.currentTimeMillis());
+        configureBoolean(cmd, 'k');
+        configureBoolean(cmd, 'c');
         String source = getConf().get(SOURCE_NAME_PROPERTY);
         String target = getConf().get(TARGET);
         String statsGraph = getConf().get(STATS_GRAPH);
         List<String> namedGraphs = Arrays.asList(getStrings(getConf(), NAMED_GRAPH_PROPERTY));
         String snapshotPath = getConf().get(SNAPSHOT_PATH_PROPERTY);
 
+        if (getConf().getBoolean(COMPACT_PROPERTY, false)) {
+        	if (target != null || snapshotPath != null || !namedGraphs.isEmpty()) {
+        		throw new MissingOptionException("Statistics can only be compacted in place, please do not specify -t, -u or -g.");
+        	}
+        	return compact(source);
+        }
+
         if (namedGraphs.size() == 1) {
     		String namedGraph = namedGraphs.get(0);
     		if (namedGraph.equals("CREATED")) {
@@ -831,6 +928,7 @@ public final class HalyardStats extends AbstractHalyardTool {
 		}
         StatementIndices indices = new StatementIndices(getConf(), rdfFactory);
         List<Scan> scans;
+        boolean supersedesDeltas = false;
         if (!namedGraphs.isEmpty()) {  //restricting stats to scan given graph context only
             scans = new ArrayList<>(3*namedGraphs.size() + 1);
             ValueFactory vf = new IdValueFactory(rdfFactory);
@@ -848,12 +946,14 @@ public final class HalyardStats extends AbstractHalyardTool {
             }
         } else {
             scans = Collections.singletonList(indices.scanAll());
+            // the full recalculation supersedes any pending incremental statistics
+            supersedesDeltas = (target == null);
         }
         keyspace.initMapperJob(
 	        scans,
 	        StatsMapper.class,
 	        ImmutableBytesWritable.class,
-	        LongWritable.class,
+	        StatsValueWritable.class,
 	        job);
         // if writing to files then partition a graph per file
         if (target != null) {
@@ -863,7 +963,12 @@ public final class HalyardStats extends AbstractHalyardTool {
         job.setReducerClass(StatsReducer.class);
         job.setOutputFormatClass(NullOutputFormat.class);
         try {
+        	Map<String, Map<String, Long>> deltas = supersedesDeltas ? readStatisticsDeltas(source) : null;
 	        if (job.waitForCompletion(true)) {
+	        	if (deltas != null) {
+	        		// only the deltas that the scan already saw, later ones still apply
+	        		discardStatisticsDeltas(source, deltas);
+	        	}
 	            LOG.info("Stats Generation completed.");
 	            return 0;
 	        } else {
@@ -875,6 +980,34 @@ public final class HalyardStats extends AbstractHalyardTool {
         }
     }
 
+    private Map<String, Map<String, Long>> readStatisticsDeltas(String source) throws IOException {
+    	try (Connection conn = HalyardTableUtils.getConnection(getConf())) {
+    		try (Table table = HalyardTableUtils.getTable(conn, source, false, 0)) {
+    			return StatisticsDeltas.snapshot(table);
+    		}
+    	}
+    }
+
+    private void discardStatisticsDeltas(String source, Map<String, Map<String, Long>> deltas) throws IOException {
+    	try (Connection conn = HalyardTableUtils.getConnection(getConf())) {
+    		try (Table table = HalyardTableUtils.getTable(conn, source, false, 0)) {
+    			StatisticsDeltas.discard(table, deltas);
+    		}
+    	}
+    }
+
+    private int compact(String table) {
+        HBaseSail sail = new HBaseSail(getConf(), table, false, 0, true, 0, null, null);
+        sail.init();
+        try {
+        	long folded = sail.compactStatistics();
+        	LOG.info("Stats compaction completed: {} statistics updated.", folded);
+        	return 0;
+        } finally {
+        	sail.shutDown();
+        }
+    }
+
     private List<String> getNewlyCreatedGraphs(String table, String statsGraph) {
         Repository repo = new HBaseRepository(new HBaseSail(getConf(), table, false, 0, true, 0, null, null));
         repo.init();
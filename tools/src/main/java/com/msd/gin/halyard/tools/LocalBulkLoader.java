@@ -0,0 +1,350 @@
+package com.msd.gin.halyard.tools;
+
+import com.msd.gin.halyard.common.HalyardTableUtils;
+import com.msd.gin.halyard.strategy.collections.ExternalSorter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.regionserver.HStoreFile;
+import org.apache.hadoop.hbase.regionserver.StoreFileWriter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.eclipse.rdf4j.model.Statement;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a bulk load within the current JVM instead of as a MapReduce job.
+ * The input splits are parsed in parallel on a fork-join pool into a single external sorter, sharing one memory budget,
+ * and the sorted key-values are then written directly as HFiles into the work directory, ready to be bulk loaded.
+ * The HFiles are split at the region boundaries, and rolled at the maximum file size of the table.
+ */
+final class LocalBulkLoader {
+	private static final Logger LOG = LoggerFactory.getLogger(LocalBulkLoader.class);
+
+	private final Job job;
+	private final Configuration conf;
+	private final TableDescriptor tableDesc;
+	private final Path workDir;
+	private final int parallelism;
+	private final int sortBufferSize;
+	private final Counters counters = new Counters();
+	private final AtomicInteger splitCount = new AtomicInteger();
+	private byte[][] startKeys;
+	private ExternalSorter<SortableKeyValue> sorter;
+
+	LocalBulkLoader(Job job, TableDescriptor tableDesc, int parallelism, int sortBufferSize) {
+		this.job = job;
+		this.conf = job.getConfiguration();
+		this.tableDesc = tableDesc;
+		this.workDir = FileOutputFormat.getOutputPath(job);
+		this.parallelism = parallelism;
+		this.sortBufferSize = sortBufferSize;
+	}
+
+	int run() throws IOException, InterruptedException {
+		try (Connection conn = HalyardTableUtils.getConnection(conf)) {
+			try (RegionLocator regionLocator = conn.getRegionLocator(tableDesc.getTableName())) {
+				startKeys = regionLocator.getStartKeys();
+			}
+		}
+		// each parsing thread may be spilling a full buffer while the others fill the next one
+		sorter = new ExternalSorter<>(Long.MAX_VALUE, false, Math.max(sortBufferSize / parallelism, 1), SortableKeyValue.SERIALIZER);
+		HalyardBulkLoad.RioFileInputFormat inputFormat = new HalyardBulkLoad.RioFileInputFormat();
+		List<InputSplit> splits = inputFormat.getSplits(job);
+		LOG.info("Parsing {} splits into {} regions using {} threads", splits.size(), startKeys.length, parallelism);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<ForkJoinTask<?>> tasks = new ArrayList<>(splits.size());
+			for (InputSplit split : splits) {
+				tasks.add(pool.submit(() -> {
+					parse(inputFormat, split);
+					return null;
+				}));
+			}
+			awaitAll(tasks);
+		} finally {
+			pool.shutdownNow();
+		}
+		try {
+			LOG.info("Writing HFiles to {}", workDir);
+			writeHFiles();
+		} finally {
+			sorter.close();
+		}
+		for (CounterGroup group : counters) {
+			for (Counter counter : group) {
+				LOG.info("{}: {}", counter.getDisplayName(), counter.getValue());
+			}
+		}
+		return 0;
+	}
+
+	private static void awaitAll(List<ForkJoinTask<?>> tasks) throws IOException, InterruptedException {
+		try {
+			for (ForkJoinTask<?> task : tasks) {
+				task.get();
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException) {
+				cause = cause.getCause();
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else {
+				throw new IOException(cause);
+			}
+		} finally {
+			for (ForkJoinTask<?> task : tasks) {
+				task.cancel(true);
+			}
+		}
+	}
+
+	private void parse(HalyardBulkLoad.RioFileInputFormat inputFormat, InputSplit split) throws IOException, InterruptedException {
+		Counters splitCounters = new Counters();
+		TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID(), new LocalStatusReporter(splitCounters));
+		HalyardBulkLoad.RDFMapper mapper = new HalyardBulkLoad.RDFMapper();
+		mapper.init(conf);
+		long addedKvs = 0L;
+		long addedStmts = 0L;
+		long totalStmtsRead = 0L;
+		try (RecordReader<LongWritable, Statement> reader = inputFormat.createRecordReader(split, context)) {
+			reader.initialize(split, context);
+			while (reader.nextKeyValue()) {
+				List<? extends KeyValue> kvs = mapper.apply(reader.getCurrentValue());
+				if (kvs != null) {
+					for (KeyValue kv : kvs) {
+						sorter.add(new SortableKeyValue(kv));
+						addedKvs++;
+					}
+					addedStmts++;
+				}
+				totalStmtsRead++;
+			}
+		}
+		mapper.writeStatistics(workDir, "local-" + splitCount.incrementAndGet(), conf);
+		splitCounters.findCounter(HalyardBulkLoad.Counters.ADDED_KVS).increment(addedKvs);
+		splitCounters.findCounter(HalyardBulkLoad.Counters.ADDED_STATEMENTS).increment(addedStmts);
+		splitCounters.findCounter(HalyardBulkLoad.Counters.TOTAL_STATEMENTS_READ).increment(totalStmtsRead);
+		synchronized (counters) {
+			counters.incrAllCounters(splitCounters);
+		}
+	}
+
+	private long getMaxFileSize() {
+		long maxFileSize = tableDesc.getMaxFileSize();
+		return (maxFileSize > 0L) ? maxFileSize : conf.getLong(HConstants.HREGION_MAX_FILESIZE, HConstants.DEFAULT_MAX_FILE_SIZE);
+	}
+
+	private void writeHFiles() throws IOException {
+		long maxFileSize = getMaxFileSize();
+		Map<byte[], HFileWriter> writers = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+		int nextRegion = 1;
+		byte[] prevRow = null;
+		try {
+			for (SortableKeyValue skv : sorter) {
+				KeyValue kv = skv.kv;
+				if (prevRow == null || !CellUtil.matchingRows(kv, prevRow)) {
+					byte[] row = CellUtil.cloneRow(kv);
+					// a new HFile per family for each region the sorted rows move into
+					boolean newRegion = false;
+					while (nextRegion < startKeys.length && Bytes.compareTo(row, startKeys[nextRegion]) >= 0) {
+						nextRegion++;
+						newRegion = true;
+					}
+					if (newRegion) {
+						closeAll(writers);
+					}
+					prevRow = row;
+				}
+				byte[] family = CellUtil.cloneFamily(kv);
+				HFileWriter writer = writers.get(family);
+				// files are only rolled between rows, as HFileOutputFormat2 does
+				if (writer != null && writer.written >= maxFileSize && !CellUtil.matchingRows(kv, writer.lastRow)) {
+					writers.remove(family);
+					writer.close();
+					writer = null;
+				}
+				if (writer == null) {
+					writer = new HFileWriter(createWriter(family));
+					writers.put(family, writer);
+				}
+				writer.append(kv, prevRow);
+			}
+		} finally {
+			closeAll(writers);
+		}
+	}
+
+	private void closeAll(Map<byte[], HFileWriter> writers) throws IOException {
+		IOException ex = null;
+		for (HFileWriter writer : writers.values()) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				if (ex == null) {
+					ex = e;
+				} else {
+					ex.addSuppressed(e);
+				}
+			}
+		}
+		writers.clear();
+		if (ex != null) {
+			throw ex;
+		}
+	}
+
+	private StoreFileWriter createWriter(byte[] family) throws IOException {
+		ColumnFamilyDescriptor familyDesc = tableDesc.getColumnFamily(family);
+		FileSystem fs = workDir.getFileSystem(conf);
+		HFileContext fileContext = new HFileContextBuilder()
+			.withCompression(familyDesc.getCompressionType())
+			.withBlockSize(familyDesc.getBlocksize())
+			.withDataBlockEncoding(familyDesc.getDataBlockEncoding())
+			.withColumnFamily(family)
+			.withTableName(tableDesc.getTableName().toBytes())
+			.build();
+		return new StoreFileWriter.Builder(conf, CacheConfig.DISABLED, fs)
+			.withOutputDir(new Path(workDir, Bytes.toString(family)))
+			.withBloomType(familyDesc.getBloomFilterType())
+			.withFileContext(fileContext)
+			.build();
+	}
+
+
+	private final class HFileWriter {
+		final StoreFileWriter writer;
+		long written;
+		byte[] lastRow;
+
+		HFileWriter(StoreFileWriter writer) {
+			this.writer = writer;
+		}
+
+		void append(KeyValue kv, byte[] row) throws IOException {
+			writer.append(kv);
+			written += KeyValueUtil.length(kv);
+			lastRow = row;
+		}
+
+		void close() throws IOException {
+			// same file info as HFileOutputFormat2
+			writer.appendFileInfo(HStoreFile.BULKLOAD_TIME_KEY, Bytes.toBytes(System.currentTimeMillis()));
+			writer.appendFileInfo(HStoreFile.BULKLOAD_TASK_KEY, Bytes.toBytes(job.getJobName()));
+			writer.appendFileInfo(HStoreFile.MAJOR_COMPACTION_KEY, Bytes.toBytes(true));
+			writer.appendFileInfo(HStoreFile.EXCLUDE_FROM_MINOR_COMPACTION_KEY, Bytes.toBytes(false));
+			writer.appendTrackedTimestampsToMetadata();
+			writer.close();
+		}
+	}
+
+
+	static final class SortableKeyValue implements Comparable<SortableKeyValue> {
+		static final Serializer<SortableKeyValue> SERIALIZER = new Serializer<SortableKeyValue>() {
+			@Override
+			public void serialize(DataOutput out, SortableKeyValue value) throws IOException {
+				byte[] b = KeyValueUtil.copyToNewByteArray(value.kv);
+				out.writeInt(b.length);
+				out.write(b);
+			}
+
+			@Override
+			public SortableKeyValue deserialize(DataInput in, int available) throws IOException {
+				byte[] b = new byte[in.readInt()];
+				in.readFully(b);
+				return new SortableKeyValue(new KeyValue(b));
+			}
+
+			@Override
+			public int fixedSize() {
+				return -1;
+			}
+		};
+
+		final KeyValue kv;
+
+		SortableKeyValue(KeyValue kv) {
+			this.kv = kv;
+		}
+
+		@Override
+		public int compareTo(SortableKeyValue o) {
+			return CellComparator.getInstance().compare(kv, o.kv);
+		}
+	}
+
+	private static final class LocalStatusReporter extends StatusReporter {
+		private final Counters counters;
+
+		LocalStatusReporter(Counters counters) {
+			this.counters = counters;
+		}
+
+		@Override
+		public Counter getCounter(Enum<?> name) {
+			return counters.findCounter(name);
+		}
+
+		@Override
+		public Counter getCounter(String group, String name) {
+			return counters.findCounter(group, name);
+		}
+
+		@Override
+		public void progress() {
+		}
+
+		@Override
+		public float getProgress() {
+			return 0.0f;
+		}
+
+		@Override
+		public void setStatus(String status) {
+			LOG.debug(status);
+		}
+	}
+}
@@ -0,0 +1,428 @@
+package com.msd.gin.halyard.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.eclipse.rdf4j.common.net.ParsedIRI;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.rio.ParseErrorListener;
+import org.eclipse.rdf4j.rio.ParserConfig;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+import org.eclipse.rdf4j.rio.helpers.NTriplesUtil;
+import org.eclipse.rdf4j.rio.helpers.ParseErrorCollector;
+import org.eclipse.rdf4j.rio.helpers.RDFParserHelper;
+
+/**
+ * Line-oriented N-Triples/N-Quads parser for a byte range of an uncompressed file.
+ * A line belongs to the range containing its first byte, so adjacent ranges can be parsed concurrently.
+ * Lines are tokenized directly from the read buffer and anything beyond the plain syntax
+ * (escaped IRIs, RDF-star, non-ASCII blank node labels, invalid terms) is handed line by line to the fallback Rio parser,
+ * so errors are reported and invalid lines skipped exactly as configured on it.
+ * As the fallback parser only ever sees a single line, its errors are located by the byte offset of the line in the file instead.
+ */
+final class NQuadsRangeParser {
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int IRI = 1;
+	private static final int BNODE = 2;
+	private static final int LITERAL = 3;
+	private static final Pattern LINE_LOCATION = Pattern.compile(" \\[line \\d+(, column \\d+)?\\]$");
+
+	static boolean supports(RDFFormat format) {
+		return RDFFormat.NTRIPLES.equals(format) || RDFFormat.NQUADS.equals(format);
+	}
+
+	private final boolean quads;
+	private final RDFParser fallbackParser;
+	private final ValueFactory vf;
+	private final RDFHandler handler;
+	private final String baseUri;
+	private final ParserConfig parserConfig;
+	private final boolean verifyIris;
+	private final ParseErrorCollector literalErrors = new ParseErrorCollector();
+	private final AtomicLong bytesRead;
+	private byte[] buf = new byte[BUFFER_SIZE];
+	private int pos;
+	private int lineEnd;
+	private int iriStart;
+	private final int[] types = new int[4];
+	private final int[] starts = new int[4];
+	private final int[] ends = new int[4];
+	private boolean escaped;
+	private int langStart, langEnd;
+	private int dtStart, dtEnd;
+	private long statementCount;
+	private long fallbackCount;
+	private long lineOffset;
+
+	/**
+	 * @param format N-Triples or N-Quads
+	 * @param fallbackParser configured Rio parser for the format, sending to the same handler
+	 * @param vf value factory
+	 * @param handler receives the parsed statements
+	 * @param errorListener receives the errors of the fallback parser
+	 * @param baseUri base URI
+	 * @param bytesRead incremented as the input is read
+	 */
+	NQuadsRangeParser(RDFFormat format, RDFParser fallbackParser, ValueFactory vf, RDFHandler handler, ParseErrorListener errorListener, String baseUri, AtomicLong bytesRead) {
+		this.quads = RDFFormat.NQUADS.equals(format);
+		this.fallbackParser = fallbackParser;
+		this.vf = vf;
+		this.handler = handler;
+		this.baseUri = baseUri;
+		this.parserConfig = fallbackParser.getParserConfig();
+		this.verifyIris = parserConfig.get(BasicParserSettings.VERIFY_URI_SYNTAX);
+		this.bytesRead = bytesRead;
+		fallbackParser.setParseErrorListener(new LocatingErrorListener(errorListener));
+	}
+
+	long getStatementCount() {
+		return statementCount;
+	}
+
+	long getFallbackCount() {
+		return fallbackCount;
+	}
+
+	/**
+	 * Parses all the lines starting within the given byte range.
+	 * @param in input to read
+	 * @param start start of the range (inclusive)
+	 * @param end end of the range (exclusive)
+	 * @return number of statements parsed
+	 * @throws IOException
+	 */
+	long parse(FSDataInputStream in, long start, long end) throws IOException {
+		long startCount = statementCount;
+		// start a byte early so a line beginning exactly at start is not mistaken for the tail of the previous one
+		long lineFilePos = (start > 0) ? start - 1 : 0;
+		boolean skipLine = (start > 0);
+		in.seek(lineFilePos);
+		int head = 0;
+		int tail = 0;
+		int scan = 0;
+		boolean eof = false;
+		while (lineFilePos < end) {
+			int nl = indexOfNewLine(scan, tail);
+			if (nl < 0) {
+				if (eof) {
+					if (head < tail && !skipLine) {
+						parseLine(head, tail, lineFilePos);
+					}
+					break;
+				}
+				if (head > 0) {
+					System.arraycopy(buf, head, buf, 0, tail - head);
+					tail -= head;
+					head = 0;
+				} else if (tail == buf.length) {
+					buf = Arrays.copyOf(buf, 2 * buf.length);
+				}
+				scan = tail;
+				int n = in.read(buf, tail, buf.length - tail);
+				if (n < 0) {
+					eof = true;
+				} else {
+					tail += n;
+					bytesRead.addAndGet(n);
+				}
+			} else {
+				if (!skipLine) {
+					parseLine(head, nl, lineFilePos);
+				}
+				skipLine = false;
+				lineFilePos += nl + 1 - head;
+				head = nl + 1;
+				scan = head;
+			}
+		}
+		return statementCount - startCount;
+	}
+
+	private int indexOfNewLine(int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buf[i] == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void parseLine(int from, int to, long offset) throws IOException {
+		lineEnd = (to > from && buf[to - 1] == '\r') ? to - 1 : to;
+		pos = from;
+		skipWhitespace();
+		if (pos == lineEnd || buf[pos] == '#') {
+			return;
+		}
+		Statement st;
+		try {
+			st = parseStatement();
+		} catch (RuntimeException e) {
+			st = null;
+		}
+		if (st != null) {
+			handler.handleStatement(st);
+			statementCount++;
+		} else {
+			fallbackCount++;
+			lineOffset = offset;
+			try {
+				fallbackParser.parse(new ByteArrayInputStream(buf, from, to - from), baseUri);
+			} catch (RDFParseException e) {
+				throw new RDFParseException(locate(LINE_LOCATION.matcher(e.getMessage()).replaceFirst("")), e);
+			}
+		}
+	}
+
+	private String locate(String msg) {
+		return msg + " [byte " + lineOffset + "]";
+	}
+
+	/**
+	 * Tokenizes the whole line first and only then creates the values.
+	 * @return null if the line needs the fallback parser
+	 */
+	private Statement parseStatement() {
+		int n = 0;
+		while (n < types.length) {
+			skipWhitespace();
+			if (pos == lineEnd) {
+				return null;
+			}
+			byte b = buf[pos];
+			if (b == '.') {
+				break;
+			} else if (b == '<') {
+				if (!scanIRI(n)) {
+					return null;
+				}
+			} else if (b == '_') {
+				if (!scanBNode(n)) {
+					return null;
+				}
+			} else if (b == '"' && n == 2) {
+				if (!scanLiteral(n)) {
+					return null;
+				}
+			} else {
+				return null;
+			}
+			n++;
+		}
+		if (!(n == 3 || (n == 4 && quads)) || types[1] != IRI || !scanEndOfStatement()) {
+			return null;
+		}
+
+		Resource subj = (Resource) createValue(0);
+		IRI pred = createIRI(starts[1], ends[1]);
+		Value obj = createValue(2);
+		if (subj == null || pred == null || obj == null) {
+			return null;
+		}
+		if (n == 4) {
+			Resource ctx = (Resource) createValue(3);
+			if (ctx == null) {
+				return null;
+			}
+			return vf.createStatement(subj, pred, obj, ctx);
+		} else {
+			return vf.createStatement(subj, pred, obj);
+		}
+	}
+
+	private void skipWhitespace() {
+		while (pos < lineEnd && (buf[pos] == ' ' || buf[pos] == '\t')) {
+			pos++;
+		}
+	}
+
+	private boolean scanIRI(int n) {
+		int end = scanIRIRef();
+		if (end < 0) {
+			return false;
+		}
+		types[n] = IRI;
+		starts[n] = iriStart;
+		ends[n] = end;
+		return true;
+	}
+
+	/**
+	 * Scans an IRI reference at the current position, leaving the position after the closing bracket.
+	 * @return end of the IRI (exclusive), or -1 if it is not a plain IRI
+	 */
+	private int scanIRIRef() {
+		iriStart = ++pos;
+		while (pos < lineEnd) {
+			byte b = buf[pos];
+			if (b == '>') {
+				if (pos == iriStart) {
+					return -1;
+				}
+				return pos++;
+			} else if ((b >= 0 && b <= ' ') || b == '<' || b == '"' || b == '{' || b == '}' || b == '|' || b == '^' || b == '`' || b == '\\') {
+				return -1;
+			}
+			pos++;
+		}
+		return -1;
+	}
+
+	private boolean scanBNode(int n) {
+		if (pos + 2 >= lineEnd || buf[pos + 1] != ':') {
+			return false;
+		}
+		pos += 2;
+		int start = pos;
+		if (!isBNodeChar(buf[pos]) || buf[pos] == '.' || buf[pos] == '-') {
+			return false;
+		}
+		while (pos < lineEnd && isBNodeChar(buf[pos])) {
+			pos++;
+		}
+		if (pos < lineEnd && buf[pos] != ' ' && buf[pos] != '\t') {
+			return false;
+		}
+		// a label cannot end with a dot, that is the end of the statement
+		while (buf[pos - 1] == '.') {
+			pos--;
+		}
+		if (pos == start) {
+			return false;
+		}
+		types[n] = BNODE;
+		starts[n] = start;
+		ends[n] = pos;
+		return true;
+	}
+
+	private static boolean isBNodeChar(byte b) {
+		return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '-' || b == '.';
+	}
+
+	private boolean scanLiteral(int n) {
+		int start = ++pos;
+		escaped = false;
+		while (pos < lineEnd && buf[pos] != '"') {
+			if (buf[pos] == '\\') {
+				escaped = true;
+				pos++;
+			}
+			pos++;
+		}
+		if (pos >= lineEnd) {
+			return false;
+		}
+		types[n] = LITERAL;
+		starts[n] = start;
+		ends[n] = pos++;
+		langStart = langEnd = dtStart = dtEnd = -1;
+		if (pos < lineEnd && buf[pos] == '@') {
+			langStart = ++pos;
+			while (pos < lineEnd && isLangChar(buf[pos])) {
+				pos++;
+			}
+			langEnd = pos;
+			if (langEnd == langStart) {
+				return false;
+			}
+		} else if (pos + 2 < lineEnd && buf[pos] == '^' && buf[pos + 1] == '^' && buf[pos + 2] == '<') {
+			pos += 2;
+			dtEnd = scanIRIRef();
+			if (dtEnd < 0) {
+				return false;
+			}
+			dtStart = iriStart;
+		}
+		return true;
+	}
+
+	private static boolean isLangChar(byte b) {
+		return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '-';
+	}
+
+	private boolean scanEndOfStatement() {
+		skipWhitespace();
+		if (pos == lineEnd || buf[pos] != '.') {
+			return false;
+		}
+		pos++;
+		skipWhitespace();
+		return pos == lineEnd || buf[pos] == '#';
+	}
+
+	private Value createValue(int n) {
+		switch (types[n]) {
+			case IRI:
+				return createIRI(starts[n], ends[n]);
+			case BNODE:
+				return vf.createBNode(new String(buf, starts[n], ends[n] - starts[n], StandardCharsets.US_ASCII));
+			case LITERAL:
+				String label = new String(buf, starts[n], ends[n] - starts[n], StandardCharsets.UTF_8);
+				if (escaped) {
+					label = NTriplesUtil.unescapeString(label);
+				}
+				String lang = (langStart >= 0) ? new String(buf, langStart, langEnd - langStart, StandardCharsets.US_ASCII) : null;
+				IRI dt = null;
+				if (dtStart >= 0) {
+					dt = createIRI(dtStart, dtEnd);
+					if (dt == null) {
+						return null;
+					}
+				}
+				Value lit = RDFParserHelper.createLiteral(label, lang, dt, parserConfig, literalErrors, vf);
+				if (!literalErrors.getErrors().isEmpty() || !literalErrors.getWarnings().isEmpty() || !literalErrors.getFatalErrors().isEmpty()) {
+					// let the fallback parser report it
+					literalErrors.reset();
+					return null;
+				}
+				return lit;
+			default:
+				throw new AssertionError();
+		}
+	}
+
+	private IRI createIRI(int start, int end) {
+		String iri = new String(buf, start, end - start, StandardCharsets.UTF_8);
+		if (verifyIris && !ParsedIRI.create(iri).isAbsolute()) {
+			return null;
+		}
+		return vf.createIRI(iri);
+	}
+
+	private final class LocatingErrorListener implements ParseErrorListener {
+		private final ParseErrorListener delegate;
+
+		LocatingErrorListener(ParseErrorListener delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void warning(String msg, long lineNo, long colNo) {
+			delegate.warning(locate(msg), -1, -1);
+		}
+
+		@Override
+		public void error(String msg, long lineNo, long colNo) {
+			delegate.error(locate(msg), -1, -1);
+		}
+
+		@Override
+		public void fatalError(String msg, long lineNo, long colNo) {
+			delegate.fatalError(locate(msg), -1, -1);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.msd.gin.halyard.tools;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Guards the requests handled by a {@link SimpleHttpServer}.
+ * Requests over the concurrency limit are rejected straight away, rather than queuing behind long-running ones.
+ * The thread handling a request is interrupted if the request takes too long,
+ * or if writing the response stalls because the client has stopped reading it.
+ * Query results are written to the response as they are produced, so a slow client holds back the evaluation of the query,
+ * and the stall timeout bounds how long it can do so.
+ */
+final class RequestLimitFilter extends Filter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RequestLimitFilter.class);
+	private static final long MIN_CHECK_INTERVAL_MILLIS = 10L;
+	private static final long MAX_CHECK_INTERVAL_MILLIS = 1000L;
+
+	private final Semaphore permits;
+	private final long requestTimeoutNanos;
+	private final long stallTimeoutNanos;
+	private final long checkIntervalMillis;
+	private final ScheduledExecutorService watchdog;
+
+	/**
+	 * @param maxRequests maximum number of requests to handle concurrently (0 for unlimited)
+	 * @param requestTimeoutMillis maximum time to handle a request (0 for unlimited)
+	 * @param stallTimeoutMillis maximum time a write to a response can block for (0 for unlimited)
+	 * @param watchdog executor to run the timeout checks on
+	 */
+	RequestLimitFilter(int maxRequests, long requestTimeoutMillis, long stallTimeoutMillis, ScheduledExecutorService watchdog) {
+		this.permits = (maxRequests > 0) ? new Semaphore(maxRequests) : null;
+		this.requestTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(requestTimeoutMillis);
+		this.stallTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(stallTimeoutMillis);
+		long shortestTimeoutMillis = Math.min(requestTimeoutMillis > 0 ? requestTimeoutMillis : Long.MAX_VALUE, stallTimeoutMillis > 0 ? stallTimeoutMillis : Long.MAX_VALUE);
+		this.checkIntervalMillis = Math.max(Math.min(shortestTimeoutMillis/4, MAX_CHECK_INTERVAL_MILLIS), MIN_CHECK_INTERVAL_MILLIS);
+		this.watchdog = watchdog;
+	}
+
+	@Override
+	public String description() {
+		return "Request concurrency and timeout limits";
+	}
+
+	@Override
+	public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+		if (permits != null && !permits.tryAcquire()) {
+			LOGGER.warn("Rejected {} request to {}: too many concurrent requests", exchange.getRequestMethod(), exchange.getRequestURI());
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_UNAVAILABLE, -1);
+			exchange.close();
+			return;
+		}
+		try {
+			if (requestTimeoutNanos > 0L || stallTimeoutNanos > 0L) {
+				GuardedRequest request = new GuardedRequest(exchange);
+				exchange.setStreams(null, request.new GuardedOutputStream(exchange.getResponseBody()));
+				ScheduledFuture<?> check = watchdog.scheduleWithFixedDelay(request::check, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+				try {
+					chain.doFilter(exchange);
+				} finally {
+					check.cancel(false);
+					request.end();
+				}
+			} else {
+				chain.doFilter(exchange);
+			}
+		} finally {
+			if (permits != null) {
+				permits.release();
+			}
+		}
+	}
+
+	private final class GuardedRequest {
+		private final HttpExchange exchange;
+		private final Thread thread = Thread.currentThread();
+		private final long startNanos = System.nanoTime();
+		private volatile boolean writing;
+		private volatile long writeStartNanos;
+		private boolean ended;
+
+		GuardedRequest(HttpExchange exchange) {
+			this.exchange = exchange;
+		}
+
+		void check() {
+			long now = System.nanoTime();
+			if (requestTimeoutNanos > 0L && now - startNanos > requestTimeoutNanos) {
+				abort("request timed out");
+			} else if (stallTimeoutNanos > 0L && writing && now - writeStartNanos > stallTimeoutNanos) {
+				abort("client stopped reading the response");
+			}
+		}
+
+		private synchronized void abort(String reason) {
+			if (!ended) {
+				ended = true;
+				LOGGER.warn("Aborting {} request to {}: {}", exchange.getRequestMethod(), exchange.getRequestURI(), reason);
+				// a thread blocked writing to the connection is released by closing it
+				thread.interrupt();
+			}
+		}
+
+		void end() {
+			synchronized (this) {
+				ended = true;
+			}
+			// clear any interrupt before the thread is reused
+			Thread.interrupted();
+		}
+
+		final class GuardedOutputStream extends FilterOutputStream {
+			GuardedOutputStream(OutputStream out) {
+				super(out);
+			}
+
+			private void startWrite() {
+				writeStartNanos = System.nanoTime();
+				writing = true;
+			}
+
+			private void endWrite() {
+				writing = false;
+			}
+
+			@Override
+			public void write(int b) throws IOException {
+				startWrite();
+				try {
+					out.write(b);
+				} finally {
+					endWrite();
+				}
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				startWrite();
+				try {
+					out.write(b, off, len);
+				} finally {
+					endWrite();
+				}
+			}
+
+			@Override
+			public void flush() throws IOException {
+				startWrite();
+				try {
+					out.flush();
+				} finally {
+					endWrite();
+				}
+			}
+		}
+	}
+}
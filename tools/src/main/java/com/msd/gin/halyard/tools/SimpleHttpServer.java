@@ -16,6 +16,7 @@
  */
 package com.msd.gin.halyard.tools;
 
+import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
@@ -23,6 +24,9 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +34,8 @@ import org.slf4j.LoggerFactory;
 /**
  * This class is used to create a simple HTTP server listening on a specific port and handling requests by a
  * specified handler.
+ * Each request is handled on its own thread, so long-running requests (or slow clients) don't hold up new ones,
+ * and the number of concurrent requests and their duration can be limited instead.
  *
  * @author sykorjan
  */
@@ -37,8 +43,16 @@ public class SimpleHttpServer {
 
     private HttpServer httpServer;
 
+    private final ExecutorService executor;
+
+    private final ScheduledExecutorService watchdog;
+
+    private final RequestLimitFilter requestLimitFilter;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleHttpServer.class);
 
+    public static final int DEFAULT_MAX_REQUESTS = 4 * Runtime.getRuntime().availableProcessors();
+
     /**
      * Instantiate a new HTTP server. Use port number 0 (zero) to let the system select a new port number.
      *
@@ -46,17 +60,50 @@ public class SimpleHttpServer {
      * @throws IOException if could not create the server
      */
     public SimpleHttpServer(int port) throws IOException {
+        this(port, 0, 0L, 0L);
+    }
+
+    /**
+     * Instantiate a new HTTP server. Use port number 0 (zero) to let the system select a new port number.
+     *
+     * @param port    number of port
+     * @param maxRequests maximum number of requests to handle concurrently, further requests are rejected with 503
+     * (0 for no limit, in which case requests queue for a fixed pool of {@link #DEFAULT_MAX_REQUESTS} threads)
+     * @param requestTimeoutMillis maximum time to handle a request, including sending the response (0 for unlimited)
+     * @param stallTimeoutMillis maximum time to wait for a client to read more of a response (0 for unlimited)
+     * @throws IOException if could not create the server
+     */
+    public SimpleHttpServer(int port, int maxRequests, long requestTimeoutMillis, long stallTimeoutMillis) throws IOException {
         // Maximum number of incoming TCP connections is set to system default value
         int backlog = 0;
         // Create HTTP server
         httpServer = HttpServer.create(new InetSocketAddress(port), backlog);
         // Create an executor
-        httpServer.setExecutor(Executors.newFixedThreadPool(4 * Runtime.getRuntime().availableProcessors()));
+        AtomicInteger threadSeq = new AtomicInteger();
+        ThreadFactory tf = r -> {
+            Thread thr = new Thread(r, "Halyard endpoint request " + threadSeq.incrementAndGet());
+            thr.setDaemon(true);
+            return thr;
+        };
+        if (maxRequests > 0) {
+            // the request limit filter bounds the number of busy threads
+            executor = Executors.newCachedThreadPool(tf);
+        } else {
+            executor = Executors.newFixedThreadPool(DEFAULT_MAX_REQUESTS, tf);
+        }
+        httpServer.setExecutor(executor);
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thr = new Thread(r, "Halyard endpoint watchdog");
+            thr.setDaemon(true);
+            return thr;
+        });
+        requestLimitFilter = new RequestLimitFilter(maxRequests, requestTimeoutMillis, stallTimeoutMillis, watchdog);
     }
 
     public void createContext(String context, HttpHandler handler) {
         // Create HTTP context with a given handler
-        httpServer.createContext(context, handler);
+        HttpContext httpContext = httpServer.createContext(context, handler);
+        httpContext.getFilters().add(requestLimitFilter);
     }
 
     /**
@@ -72,7 +119,8 @@ public class SimpleHttpServer {
      */
     public void stop() {
         // stop immediately
-        ((ExecutorService) httpServer.getExecutor()).shutdown();
+        executor.shutdown();
+        watchdog.shutdownNow();
         httpServer.stop(0);
         LOGGER.info("Server stopped");
     }
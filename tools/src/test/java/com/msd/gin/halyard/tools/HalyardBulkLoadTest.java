@@ -24,6 +24,7 @@ import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.zip.GZIPOutputStream;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.util.ToolRunner;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.Literal;
@@ -169,6 +170,58 @@ public class HalyardBulkLoadTest extends AbstractHalyardToolTest {
         sail.shutDown();
     }
 
+    @Test
+    public void testLocalBulkLoad() throws Exception {
+        File file = File.createTempFile("test_triples", ".nt");
+        try (PrintStream ps = new PrintStream(new FileOutputStream(file))) {
+            for (int i = 0; i < 1000; i++) {
+                ps.println("<http://whatever/subj" + (i % 50) + "> <http://whatever/pred" + (i % 7) + "> \"value" + i + "\" .");
+            }
+        }
+        file.deleteOnExit();
+        File htableDir = getTempHTableDir("test_htable");
+
+        // default pre-splits so the key-values are spread over several regions
+        assertEquals(0, run(new String[]{"-l", "-s", file.toURI().toURL().toString(), "-w", htableDir.toURI().toURL().toString(), "-t", "bulkLoadTableLocal"}));
+
+        HBaseSail sail = new HBaseSail(HBaseServerTestInstance.getInstanceConfig(), "bulkLoadTableLocal", false, 0, true, 0, null, null);
+        SailRepository rep = new SailRepository(sail);
+        rep.init();
+        assertCount(rep, "select (count(*) as ?c) where {?s ?p ?o}", 1000);
+        assertCount(rep, "select (count(*) as ?c) where {?s <http://whatever/pred0> ?o}", 143);
+        assertCount(rep, "select (count(*) as ?c) where {<http://whatever/subj0> ?p ?o}", 20);
+        rep.shutDown();
+    }
+
+    @Test
+    public void testLineParserThreads() throws Exception {
+        File file = File.createTempFile("test_triples", ".nt");
+        try (PrintStream ps = new PrintStream(new FileOutputStream(file))) {
+            for (int i = 0; i < 1000; i++) {
+                ps.println("<http://whatever/subj" + (i % 50) + "> <http://whatever/pred" + (i % 7) + "> \"value\\t" + i + "\"@en .");
+                // needs the fallback parser
+                ps.println("<http://whatever/\\u0041" + i + "> <http://whatever/pred" + (i % 7) + "> _:b" + i + " .");
+            }
+        }
+        file.deleteOnExit();
+        File htableDir = getTempHTableDir("test_htable");
+
+        // the file is split into several replicas, each parsing its own byte ranges on several threads
+        Configuration conf = HBaseServerTestInstance.getInstanceConfig();
+        conf.setInt(HalyardBulkLoad.LINE_PARSER_THREADS_PROPERTY, 3);
+        assertEquals(0, ToolRunner.run(conf, new HalyardBulkLoad(), new String[]{"-b", NO_SPLITS, "-s", file.toURI().toURL().toString(), "-w", htableDir.toURI().toURL().toString(), "-t", "bulkLoadTableLines", "-m", "10000"}));
+
+        HBaseSail sail = new HBaseSail(HBaseServerTestInstance.getInstanceConfig(), "bulkLoadTableLines", false, 0, true, 0, null, null);
+        SailRepository rep = new SailRepository(sail);
+        rep.init();
+        assertCount(rep, "select (count(*) as ?c) where {?s ?p ?o}", 2000);
+        assertCount(rep, "select (count(*) as ?c) where {?s <http://whatever/pred0> ?o}", 286);
+        assertCount(rep, "select (count(*) as ?c) where {<http://whatever/subj0> ?p ?o}", 20);
+        assertCount(rep, "select (count(*) as ?c) where {<http://whatever/A0> ?p ?o}", 1);
+        assertCount(rep, "select (count(*) as ?c) where {?s ?p \"value\\t0\"@en}", 1);
+        rep.shutDown();
+    }
+
     @Test
     public void testRDFStarLoad() throws Exception {
         File file = File.createTempFile("rdfstar", ".ttl");
@@ -105,6 +105,11 @@ public class HalyardEndpointTest {
         runEndpoint("-s", "whatever", "-p", "8081", "-t", "1234abc");
     }
 
+    @Test(expected = HalyardEndpoint.EndpointException.class)
+    public void testNegativeMaxRequests() throws Exception {
+        runEndpoint("-s", "whatever", "-p", "8081", "--max-requests=-1");
+    }
+
     @Test(expected = HalyardEndpoint.EndpointException.class)
     public void testInvalidPort() throws Exception {
         runEndpoint("-s", "whatever", "-p", "abc8081");
@@ -21,6 +21,7 @@ import com.msd.gin.halyard.common.HalyardTableUtils;
 import com.msd.gin.halyard.common.TableConfig;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.sail.HBaseSail;
+import com.msd.gin.halyard.util.HyperLogLog;
 import com.msd.gin.halyard.vocab.VOID_EXT;
 
 import java.io.ByteArrayOutputStream;
@@ -28,6 +29,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Base64;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -36,6 +38,8 @@ import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.Connection;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.ValueFactory;
@@ -278,6 +282,31 @@ public class HalyardStatsTest extends AbstractHalyardToolTest {
 		}
     }
 
+    @Test
+    public void testStatsSketches() throws Exception {
+    	String table = "statsSketches";
+		Configuration conf = HBaseServerTestInstance.getInstanceConfig();
+        Sail sail = createData(table, conf);
+
+		assertEquals(0, run(new String[] { "-s", table, "-R", "100", "-r", "100", "-k", "-e", TIMESTAMP_ARG }));
+
+		try (SailConnection conn = sail.getConnection()) {
+			long distinctSubjects = getStatistic(conn, VOID.DISTINCT_SUBJECTS).longValue();
+			Literal sketch = getStatistic(conn, VOID_EXT.DISTINCT_SUBJECTS_SKETCH);
+			assertEquals(XSD.BASE64BINARY, sketch.getDatatype());
+			assertEquals(distinctSubjects, HyperLogLog.fromBytes(Base64.getDecoder().decode(sketch.getLabel())).estimate());
+			assertNotNull(getStatistic(conn, VOID_EXT.PROPERTIES_SKETCH));
+			assertNotNull(getStatistic(conn, VOID_EXT.DISTINCT_OBJECTS_SKETCH));
+		}
+		sail.shutDown();
+    }
+
+	private static Literal getStatistic(SailConnection conn, IRI pred) {
+		try (CloseableIteration<? extends Statement, SailException> it = conn.getStatements(HALYARD.STATS_ROOT_NODE, pred, null, true, HALYARD.STATS_GRAPH_CONTEXT)) {
+			return it.hasNext() ? (Literal) it.next().getObject() : null;
+		}
+	}
+
     @Test
     public void testStatsTargetPartial() throws Exception {
 		Configuration conf = HBaseServerTestInstance.getInstanceConfig();
@@ -16,6 +16,7 @@
  */
 package com.msd.gin.halyard.tools;
 
+import com.msd.gin.halyard.rio.HRES;
 import com.msd.gin.halyard.sail.ResultTrackingSailConnection;
 
 import java.io.IOException;
@@ -40,10 +41,13 @@ import javax.xml.xpath.XPathFactory;
 
 import org.apache.commons.io.IOUtils;
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.query.resultio.QueryResultIO;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
 import org.eclipse.rdf4j.rio.RDFFormat;
@@ -453,6 +457,29 @@ public class HttpSparqlHandlerTest {
         assertTrue(validResponseContent.contains(urlConnection.getContentType()));
     }
 
+    /**
+     * Invoke select query with binary results
+     */
+    @Test
+    public void testQueryBinaryResults() throws IOException {
+        URL url = new URL(SERVER_URL);
+        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        urlConnection.setDoOutput(true);
+        urlConnection.setRequestMethod("POST");
+        urlConnection.setRequestProperty("Accept", HRES.FORMAT.getDefaultMIMEType());
+        urlConnection.setRequestProperty("Content-Type", HttpSparqlHandler.UNENCODED_QUERY_CONTENT);
+        OutputStreamWriter out = new OutputStreamWriter(urlConnection.getOutputStream());
+        out.write("SELECT (1 AS ?value) {}");
+        out.close();
+        assertEquals(HttpURLConnection.HTTP_OK, urlConnection.getResponseCode());
+        assertEquals(HRES.FORMAT.getDefaultMIMEType(), urlConnection.getContentType());
+        try (InputStream in = urlConnection.getInputStream()) {
+            TupleQueryResult res = QueryResultIO.parseTuple(in, HRES.FORMAT, null);
+            assertEquals(1, ((Literal) res.next().getValue("value")).intValue());
+            assertFalse(res.hasNext());
+        }
+    }
+
     /**
      * Invoke graph query with expected compacted JSONLD result
      */
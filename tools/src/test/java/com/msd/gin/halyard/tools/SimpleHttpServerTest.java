@@ -0,0 +1,106 @@
+package com.msd.gin.halyard.tools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SimpleHttpServerTest {
+    private SimpleHttpServer server;
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private URL getURL() throws IOException {
+        return new URL("http://localhost:" + server.getAddress().getPort() + "/");
+    }
+
+    @Test
+    public void testMaxRequests() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        server = new SimpleHttpServer(0, 1, 0L, 0L);
+        server.createContext("/", exchange -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NO_CONTENT, -1);
+            exchange.close();
+        });
+        server.start();
+        Thread first = new Thread(() -> {
+            try {
+                ((HttpURLConnection) getURL().openConnection()).getResponseCode();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        first.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        HttpURLConnection second = (HttpURLConnection) getURL().openConnection();
+        assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, second.getResponseCode());
+        release.countDown();
+        first.join();
+        HttpURLConnection third = (HttpURLConnection) getURL().openConnection();
+        assertEquals(HttpURLConnection.HTTP_NO_CONTENT, third.getResponseCode());
+    }
+
+    @Test
+    public void testRequestTimeout() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        server = new SimpleHttpServer(0, 0, 100L, 0L);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_UNAVAILABLE, -1);
+            exchange.close();
+        });
+        server.start();
+        HttpURLConnection conn = (HttpURLConnection) getURL().openConnection();
+        conn.getResponseCode();
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStallTimeout() throws Exception {
+        CountDownLatch aborted = new CountDownLatch(1);
+        server = new SimpleHttpServer(0, 0, 0L, 200L);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+            byte[] chunk = new byte[64*1024];
+            try (OutputStream out = exchange.getResponseBody()) {
+                while (true) {
+                    out.write(chunk);
+                }
+            } catch (IOException e) {
+                aborted.countDown();
+            }
+        });
+        server.start();
+        // a client that never reads the response
+        try (Socket socket = new Socket("localhost", server.getAddress().getPort())) {
+            socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            assertTrue(aborted.await(10, TimeUnit.SECONDS));
+        }
+    }
+}